@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.abs;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compares two JMH result files written by {@link BenchmarkRunner}, e.g. of the base commit and of
+ * a change, and prints how scores of benchmarks present in both changed. A change is a regression
+ * when the score got worse by more than the threshold and by more than the score errors of both runs.
+ * <p>
+ * Usage: {@code BenchmarkComparison baseline.json current.json [threshold]}, the threshold defaults
+ * to 0.1 (10%). Exits with status 1 when any benchmark regressed.
+ */
+public final class BenchmarkComparison
+{
+    public static final double DEFAULT_THRESHOLD = 0.1;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BenchmarkComparison() {}
+
+    public static List<Change> compare(JsonNode baseline, JsonNode current)
+    {
+        Map<String, JsonNode> baselineResults = byName(baseline);
+        ImmutableList.Builder<Change> changes = ImmutableList.builder();
+        byName(current).forEach((name, result) -> {
+            JsonNode baselineResult = baselineResults.get(name);
+            if (baselineResult != null) {
+                changes.add(new Change(
+                        name,
+                        result.path("mode").asText(),
+                        result.path("primaryMetric").path("scoreUnit").asText(),
+                        score(baselineResult),
+                        scoreError(baselineResult),
+                        score(result),
+                        scoreError(result)));
+            }
+        });
+        return changes.build();
+    }
+
+    /**
+     * Identifies a result by the benchmark (class and method) and its parameters.
+     */
+    private static Map<String, JsonNode> byName(JsonNode results)
+    {
+        checkArgument(results.isArray(), "JMH results must be an array");
+        Map<String, JsonNode> byName = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String benchmark = result.path("benchmark").asText();
+            String[] parts = benchmark.split("\\.");
+            String name = parts.length < 2 ? benchmark : parts[parts.length - 2] + "." + parts[parts.length - 1];
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            if (!params.isEmpty()) {
+                name += params.toString().replace('{', '(').replace('}', ')');
+            }
+            byName.put(name, result);
+        }
+        return byName;
+    }
+
+    private static double score(JsonNode result)
+    {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double scoreError(JsonNode result)
+    {
+        // JMH writes "NaN" when there were too few iterations to compute the error
+        double error = result.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        checkArgument(args.length == 2 || args.length == 3, "Usage: BenchmarkComparison baseline.json current.json [threshold]");
+        double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        List<Change> changes = compare(
+                OBJECT_MAPPER.readTree(Files.readAllBytes(Paths.get(args[0]))),
+                OBJECT_MAPPER.readTree(Files.readAllBytes(Paths.get(args[1]))));
+
+        boolean regressed = false;
+        for (Change change : changes) {
+            boolean regression = change.isRegression(threshold);
+            regressed |= regression;
+            System.out.println(format("%-70s %s%s", change.getName(), change, regression ? "  REGRESSION" : ""));
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    public static class Change
+    {
+        private final String name;
+        private final String mode;
+        private final String unit;
+        private final double baselineScore;
+        private final double baselineError;
+        private final double score;
+        private final double error;
+
+        public Change(String name, String mode, String unit, double baselineScore, double baselineError, double score, double error)
+        {
+            this.name = requireNonNull(name, "name is null");
+            this.mode = requireNonNull(mode, "mode is null");
+            this.unit = requireNonNull(unit, "unit is null");
+            this.baselineScore = baselineScore;
+            this.baselineError = baselineError;
+            this.score = score;
+            this.error = error;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Relative change of the score, positive when the score got worse.
+         */
+        public double getChange()
+        {
+            if (baselineScore == 0) {
+                return 0;
+            }
+            double change = (score - baselineScore) / baselineScore;
+            // only throughput gets better as the score grows
+            return mode.equals("thrpt") ? -change : change;
+        }
+
+        public boolean isRegression(double threshold)
+        {
+            return getChange() > threshold && abs(score - baselineScore) > baselineError + error;
+        }
+
+        @Override
+        public String toString()
+        {
+            return format("%12.3f +- %.3f -> %12.3f +- %.3f %s (%+.1f%%)", baselineScore, baselineError, score, error, unit, getChange() * 100);
+        }
+    }
+}
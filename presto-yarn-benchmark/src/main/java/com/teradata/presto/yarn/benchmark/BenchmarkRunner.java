@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Runs all the benchmarks of this module, or the ones selected with JMH command line options, and
+ * writes the results as JSON to {@value #DEFAULT_RESULT_FILE} (unless {@code -rf}/{@code -rff} are
+ * given), so that runs of different commits can be compared with {@link BenchmarkComparison}.
+ */
+public final class BenchmarkRunner
+{
+    public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException, IOException
+    {
+        List<String> arguments = new ArrayList<>(asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!arguments.contains("-rff")) {
+            Files.createDirectories(Paths.get(DEFAULT_RESULT_FILE).getParent());
+            arguments.add("-rff");
+            arguments.add(DEFAULT_RESULT_FILE);
+        }
+        new Runner(new CommandLineOptions(arguments.toArray(new String[0]))).run();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.teradata.presto.yarn.test.slider.SliderStatusDocuments.createStatusDocument;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Compares the streaming {@link SliderStatus} decoder with reading the whole document into a
+ * Jackson tree. Each iteration parses the document and then reads what the tests read while
+ * waiting for the cluster: live container counts and hosts of both components.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkSliderStatus
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Param({"10", "100", "1000", "5000"})
+    private int containers = 10;
+
+    private String statusJson;
+
+    @Setup
+    public void setup()
+    {
+        statusJson = createStatusDocument(containers, 10);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole)
+    {
+        SliderStatus status = new SliderStatus(statusJson);
+        for (String component : new String[] {"COORDINATOR", "WORKER"}) {
+            blackhole.consume(status.getLiveContainers(component));
+            blackhole.consume(status.getLiveComponentsHost(component));
+        }
+    }
+
+    @Benchmark
+    public void tree(Blackhole blackhole)
+            throws IOException
+    {
+        JsonNode status = OBJECT_MAPPER.readTree(statusJson);
+        for (String component : new String[] {"COORDINATOR", "WORKER"}) {
+            blackhole.consume(status.path("statistics").path(component).path("containers.live").asInt());
+            List<String> hosts = new ArrayList<>();
+            Iterator<JsonNode> liveComponents = status.path("status").path("live").path(component).elements();
+            while (liveComponents.hasNext()) {
+                hosts.add(liveComponents.next().path("host").asText());
+            }
+            blackhole.consume(hosts);
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkSliderStatus.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
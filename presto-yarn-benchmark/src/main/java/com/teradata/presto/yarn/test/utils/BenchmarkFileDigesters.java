@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static com.teradata.presto.yarn.test.utils.DigestUploader.DEFAULT_CHUNK_SIZE;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Digests files of the size of the application package, either at once (as {@link DigestUploader}
+ * does for the whole file) or chunk by chunk (as it does for chunked uploads).
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BenchmarkFileDigesters
+{
+    @Param({"16", "256"})
+    private int megabytes = 16;
+
+    private Path file;
+    private long size;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        file = Files.createTempFile("package", ".zip");
+        size = megabytes * 1024L * 1024;
+        byte[] buffer = new byte[1024 * 1024];
+        Random random = new Random(0);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (int i = 0; i < megabytes; i++) {
+                random.nextBytes(buffer);
+                output.write(buffer);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public String md5sum()
+    {
+        return FileDigesters.md5sum(file);
+    }
+
+    @Benchmark
+    public void md5sumChunks(Blackhole blackhole)
+    {
+        for (long offset = 0; offset < size; offset += DEFAULT_CHUNK_SIZE) {
+            blackhole.consume(FileDigesters.md5sum(file, offset, min(DEFAULT_CHUNK_SIZE, size - offset)));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkFileDigesters.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.teradata.tempto.ssh.SshClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Parses {@code yarn node -list} output of clusters of different sizes, as {@link NodeSshUtils}
+ * does while waiting for node managers and labeling nodes.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkNodeSshUtils
+{
+    @Param({"10", "200", "2000"})
+    private int nodes = 10;
+
+    private NodeSshUtils nodeSshUtils;
+
+    @Setup
+    public void setup()
+    {
+        StringBuilder nodeList = new StringBuilder()
+                .append("Total Nodes:").append(nodes).append('\n')
+                .append("         Node-Id\t     Node-State\tNode-Http-Address\tNumber-of-Running-Containers\n");
+        for (int node = 1; node <= nodes; node++) {
+            nodeList.append(format("%16s\t%15s\t%17s\t%28d\n", "slave" + node + ":45454", "RUNNING", "slave" + node + ":8042", node % 3));
+        }
+        String output = nodeList.toString();
+        SshClient yarnSshClient = (SshClient) Proxy.newProxyInstance(
+                SshClient.class.getClassLoader(),
+                new Class<?>[] {SshClient.class},
+                (proxy, method, args) -> output);
+        SshClientPool sshClientPool = new SshClientPool(host -> yarnSshClient, 1, 0, 0);
+        nodeSshUtils = new NodeSshUtils(sshClientPool, MultiHostExecutor.serial(), yarnSshClient);
+    }
+
+    @Benchmark
+    public List<String> getNodeIds()
+    {
+        return nodeSshUtils.getNodeIds();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkNodeSshUtils.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
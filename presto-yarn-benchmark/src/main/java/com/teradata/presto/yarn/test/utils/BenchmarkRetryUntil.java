@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Measures what a wait of {@link TimeUtils#retryUntil(String, java.util.concurrent.Callable, long)}
+ * costs besides the probes themselves: scheduling of probes, jitter, abort conditions and recording
+ * of {@link WaitStatistics}. Sleeps between probes are skipped.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkRetryUntil
+{
+    private static final long TIMEOUT = MINUTES.toMillis(1);
+
+    @Param({"1", "10", "100"})
+    private int probes = 1;
+
+    private int probe;
+
+    @Benchmark
+    public int poll()
+    {
+        probe = 0;
+        Poller.waitFor("benchmark", TIMEOUT)
+                .withSleeper(millis -> {})
+                .until(() -> ++probe == probes);
+        return probe;
+    }
+
+    @Benchmark
+    public int pollWithAbortCondition()
+    {
+        probe = 0;
+        Poller.waitFor("benchmark", TIMEOUT)
+                .withSleeper(millis -> {})
+                .abortIf(() -> probe > probes, "too many probes")
+                .until(() -> ++probe == probes);
+        return probe;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkRetryUntil.class.getSimpleName() + ".*")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teradata.presto.yarn.benchmark.BenchmarkComparison.Change;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.teradata.presto.yarn.benchmark.BenchmarkComparison.DEFAULT_THRESHOLD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class BenchmarkComparisonTest
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    public void testAverageTimeRegression()
+            throws IOException
+    {
+        List<Change> changes = BenchmarkComparison.compare(
+                results(result("BenchmarkSliderStatus.streaming", "avgt", "{\"containers\": \"1000\"}", 100, 2)),
+                results(result("BenchmarkSliderStatus.streaming", "avgt", "{\"containers\": \"1000\"}", 130, 2)));
+
+        assertThat(changes).hasSize(1);
+        Change change = changes.get(0);
+        assertThat(change.getName()).isEqualTo("BenchmarkSliderStatus.streaming(containers=1000)");
+        assertThat(change.getChange()).isCloseTo(0.3, offset(0.001));
+        assertThat(change.isRegression(DEFAULT_THRESHOLD)).isTrue();
+    }
+
+    @Test
+    public void testThroughputImprovement()
+            throws IOException
+    {
+        List<Change> changes = BenchmarkComparison.compare(
+                results(result("BenchmarkFileDigesters.md5sum", "thrpt", "{}", 100, 1)),
+                results(result("BenchmarkFileDigesters.md5sum", "thrpt", "{}", 150, 1)));
+
+        assertThat(changes.get(0).getChange()).isLessThan(0.0);
+        assertThat(changes.get(0).isRegression(DEFAULT_THRESHOLD)).isFalse();
+    }
+
+    @Test
+    public void testChangeWithinErrorIsNotRegression()
+            throws IOException
+    {
+        List<Change> changes = BenchmarkComparison.compare(
+                results(result("BenchmarkRetryUntil.poll", "avgt", "{}", 10, 3)),
+                results(result("BenchmarkRetryUntil.poll", "avgt", "{}", 15, 3)));
+
+        assertThat(changes.get(0).isRegression(DEFAULT_THRESHOLD)).isFalse();
+    }
+
+    @Test
+    public void testOnlyBenchmarksPresentInBothRunsAreCompared()
+            throws IOException
+    {
+        List<Change> changes = BenchmarkComparison.compare(
+                results(
+                        result("BenchmarkNodeSshUtils.getNodeIds", "avgt", "{\"nodes\": \"10\"}", 1, 0),
+                        result("BenchmarkNodeSshUtils.getNodeIds", "avgt", "{\"nodes\": \"200\"}", 10, 0)),
+                results(
+                        result("BenchmarkNodeSshUtils.getNodeIds", "avgt", "{\"nodes\": \"200\"}", 10, 0),
+                        result("BenchmarkNodeSshUtils.getNodeIds", "avgt", "{\"nodes\": \"2000\"}", 100, 0)));
+
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getName()).isEqualTo("BenchmarkNodeSshUtils.getNodeIds(nodes=200)");
+    }
+
+    private static JsonNode results(String... results)
+            throws IOException
+    {
+        return OBJECT_MAPPER.readTree("[" + String.join(",", results) + "]");
+    }
+
+    private static String result(String benchmark, String mode, String params, double score, double scoreError)
+    {
+        return "{\"benchmark\": \"com.teradata.presto.yarn.test." + benchmark + "\", \"mode\": \"" + mode + "\", \"params\": " + params + ", " +
+                "\"primaryMetric\": {\"score\": " + score + ", \"scoreError\": " + scoreError + ", \"scoreUnit\": \"us/op\"}}";
+    }
+}
@@ -0,0 +1,258 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import hashlib, json, os, shutil, signal, subprocess, sys, tarfile, tempfile, time
+
+from install_cache import file_lock, makedirs, md5sum
+
+try:
+    from urllib2 import Request, urlopen
+except ImportError:
+    from urllib.request import Request, urlopen
+
+# flags enabling archiving of application classes: JDK 10-11, Oracle JDK 8, JDK 12+ (enabled by default)
+APPCDS_FLAGS = [
+    ['-XX:+UseAppCDS'],
+    ['-XX:+UnlockCommercialFeatures', '-XX:+UseAppCDS'],
+    [],
+]
+SERVER_STARTED = 'SERVER STARTED'
+CLASS_LIST_QUERY = 'SELECT returnflag, count(*) FROM tpch.tiny.lineitem GROUP BY returnflag'
+
+
+def archive_jvm_args(java, class_list, lib_dir, archive_dir):
+    """
+    Returns JVM arguments which make the server use a class data sharing archive of the classes from
+    class_list. The archive is dumped on first use and shared by all containers of the node. CDS
+    archives are valid only for the JVM build which dumped them and for the exact class path, so the
+    archive is keyed by the JVM version and the class list, and the class path, which the launcher
+    builds from the install directory of the container, is overridden with the jars of lib_dir.
+    Returns no arguments when the JVM does not support archiving of application classes.
+    """
+    classpath = _classpath(lib_dir)
+    key = hashlib.md5((_java_version(java) + classpath + md5sum(class_list)).encode('utf-8')).hexdigest()
+    archive = os.path.join(archive_dir, "%s-%s.jsa" % (os.path.splitext(os.path.basename(class_list))[0], key))
+
+    makedirs(archive_dir)
+    with file_lock(archive + '.lock'):
+        # flags of a successful dump, null when the JVM does not support it, so that it is not retried
+        flags_file = archive + '.flags'
+        if os.path.exists(flags_file):
+            with open(flags_file) as f:
+                flags = json.load(f)
+        else:
+            flags = _dump_archive(java, class_list, classpath, archive)
+            with open(flags_file, 'w') as fw:
+                json.dump(flags, fw)
+    if flags is None or not os.path.exists(archive):
+        return []
+
+    # sharing is silently disabled if the archive does not match the JVM after all
+    return flags + ['-Xshare:auto', '-XX:SharedArchiveFile=' + archive, '-cp', classpath]
+
+
+def _dump_archive(java, class_list, classpath, archive):
+    staging = "%s.%d.tmp" % (archive, os.getpid())
+    try:
+        for flags in APPCDS_FLAGS:
+            dump = [java] + flags + ['-Xshare:dump', '-XX:SharedClassListFile=' + class_list, '-XX:SharedArchiveFile=' + staging, '-cp', classpath]
+            verify = [java] + flags + ['-Xshare:on', '-XX:SharedArchiveFile=' + staging, '-cp', classpath, '-version']
+            if _succeeds(dump) and _succeeds(verify):
+                os.rename(staging, archive)
+                return flags
+        return None
+    finally:
+        if os.path.exists(staging):
+            os.remove(staging)
+
+
+def _classpath(lib_dir):
+    # explicit and sorted, the order of a wildcard expansion is not guaranteed to be stable
+    return os.pathsep.join(os.path.join(lib_dir, name) for name in sorted(os.listdir(lib_dir)) if name.endswith('.jar'))
+
+
+def _java_version(java):
+    process = subprocess.Popen([java, '-version'], stdout=subprocess.PIPE, stderr=subprocess.STDOUT)
+    output = process.communicate()[0]
+    return output.decode('utf-8', 'replace')
+
+
+def _succeeds(command):
+    with open(os.devnull, 'w') as devnull:
+        return subprocess.call(command, stdout=devnull, stderr=devnull) == 0
+
+
+def filter_class_list(lines):
+    """
+    Drops classes which cannot be archived (generated lambda forms and proxies) and duplicates.
+    """
+    seen = set()
+    classes = []
+    for line in lines:
+        name = line.strip()
+        if not name or name.startswith('#') or name.startswith('@') or ' ' in name:
+            continue
+        if '$$Lambda' in name or 'Lambda$' in name or 'LambdaForm$' in name or '$Proxy' in name or name.startswith('com/sun/proxy/'):
+            continue
+        if name not in seen:
+            seen.add(name)
+            classes.append(name)
+    return classes
+
+
+def dump_class_lists(tarball, java, output_dir, port=18080, timeout=300):
+    """
+    Starts the packaged presto-server as a coordinator and as a worker, runs a query on them and
+    writes the classes loaded by each of them to coordinator.classlist and worker.classlist.
+    """
+    work_dir = tempfile.mkdtemp(prefix='appcds-')
+    try:
+        archive = tarfile.open(tarball)
+        try:
+            archive.extractall(work_dir)
+        finally:
+            archive.close()
+        install_dir = os.path.join(work_dir, os.listdir(work_dir)[0])
+        coordinator_list = os.path.join(work_dir, 'coordinator.classlist')
+        worker_list = os.path.join(work_dir, 'worker.classlist')
+
+        coordinator = _start_server(java, install_dir, work_dir, 'coordinator', port, coordinator_list, [
+            'coordinator=true',
+            'node-scheduler.include-coordinator=false',
+            'discovery-server.enabled=true',
+        ])
+        worker = None
+        try:
+            _wait_for_server(coordinator, timeout)
+            worker = _start_server(java, install_dir, work_dir, 'worker', port + 1, worker_list, ['coordinator=false'])
+            _wait_for_server(worker, timeout)
+            _run_query(port, CLASS_LIST_QUERY, timeout)
+        finally:
+            for server in [worker, coordinator]:
+                if server is not None:
+                    _stop_server(server)
+
+        makedirs(output_dir)
+        for source in [coordinator_list, worker_list]:
+            with open(source) as f:
+                classes = filter_class_list(f)
+            with open(os.path.join(output_dir, os.path.basename(source)), 'w') as fw:
+                fw.write(''.join(name + '\n' for name in classes))
+    finally:
+        shutil.rmtree(work_dir, ignore_errors=True)
+
+
+def _start_server(java, install_dir, work_dir, name, port, class_list, config):
+    etc_dir = os.path.join(work_dir, name + '-etc')
+    makedirs(os.path.join(etc_dir, 'catalog'))
+    _write_lines(os.path.join(etc_dir, 'node.properties'), [
+        'node.environment=appcds',
+        'node.id=' + name,
+        'node.data-dir=' + os.path.join(work_dir, name + '-data'),
+    ])
+    _write_lines(os.path.join(etc_dir, 'config.properties'), config + [
+        'http-server.http.port=%d' % port,
+        'discovery.uri=http://localhost:%d' % (port if name == 'coordinator' else port - 1),
+        'query.max-memory=256MB',
+        'query.max-memory-per-node=128MB',
+    ])
+    _write_lines(os.path.join(etc_dir, 'jvm.config'), [
+        '-server',
+        '-Xmx512M',
+        '-XX:+UnlockDiagnosticVMOptions',
+        '-XX:DumpLoadedClassList=' + class_list,
+    ])
+    _write_lines(os.path.join(etc_dir, 'catalog', 'tpch.properties'), ['connector.name=tpch'])
+
+    env = dict(os.environ)
+    env['PATH'] = os.path.dirname(java) + os.pathsep + env.get('PATH', '')
+    log_file = open(os.path.join(work_dir, name + '.log'), 'w')
+    process = subprocess.Popen(
+        [os.path.join(install_dir, 'bin', 'launcher'), 'run', '--etc-dir', etc_dir, '--data-dir', os.path.join(work_dir, name + '-data')],
+        stdout=log_file,
+        stderr=subprocess.STDOUT,
+        env=env)
+    return _Server(name, process, log_file.name)
+
+
+def _wait_for_server(server, timeout):
+    deadline = time.time() + timeout
+    while time.time() < deadline:
+        if server.process.poll() is not None:
+            raise Exception("Presto %s exited with code %s, see %s" % (server.name, server.process.returncode, server.log))
+        with open(server.log) as f:
+            if SERVER_STARTED in f.read():
+                return
+        time.sleep(1)
+    raise Exception("Presto %s did not start within %s seconds, see %s" % (server.name, timeout, server.log))
+
+
+def _run_query(port, query, timeout):
+    deadline = time.time() + timeout
+    uri = 'http://localhost:%d/v1/statement' % port
+    data = query.encode('utf-8')
+    while uri:
+        if time.time() > deadline:
+            raise Exception("Query did not finish within %s seconds: %s" % (timeout, query))
+        request = Request(uri, data=data)
+        request.add_header('X-Presto-User', 'appcds')
+        response = json.loads(urlopen(request, timeout=timeout).read().decode('utf-8'))
+        if 'error' in response:
+            error = response['error']
+            if error.get('errorName') != 'NO_NODES_AVAILABLE':
+                raise Exception("Query failed: %s: %s" % (query, error.get('message', error)))
+            # a worker which has not been discovered yet fails the query with no nodes available
+            time.sleep(1)
+            uri = 'http://localhost:%d/v1/statement' % port
+            data = query.encode('utf-8')
+            continue
+        uri = response.get('nextUri')
+        data = None
+
+
+def _stop_server(server):
+    if server.process.poll() is None:
+        # the class list is flushed by a regular JVM exit
+        server.process.send_signal(signal.SIGTERM)
+        deadline = time.time() + 60
+        while server.process.poll() is None and time.time() < deadline:
+            time.sleep(1)
+        if server.process.poll() is None:
+            server.process.kill()
+            server.process.wait()
+
+
+def _write_lines(path, lines):
+    with open(path, 'w') as fw:
+        fw.write(''.join(line + '\n' for line in lines))
+
+
+class _Server(object):
+    def __init__(self, name, process, log):
+        self.name = name
+        self.process = process
+        self.log = log
+
+
+if __name__ == '__main__':
+    # dump_class_lists <presto-server tarball> <java> <output directory>
+    if len(sys.argv) != 4:
+        sys.stderr.write("Usage: %s <presto-server tarball> <java> <output directory>\n" % sys.argv[0])
+        sys.exit(1)
+    dump_class_lists(sys.argv[1], sys.argv[2], sys.argv[3])
@@ -0,0 +1,81 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+# Computes Presto thread pool sizes from the number of YARN vcores of the container. Presto sizes them
+# from the number of cores of the host by default, which is far more than the CFS quota of a container
+# and leads to heavy throttling. Standalone, usable without the Slider agent:
+#
+#     python concurrency_sizing.py <vcores>
+import sys
+
+MAX_TASK_CONCURRENCY = 16
+MAX_EXCHANGE_CLIENT_THREADS = 25
+MAX_HTTP_RESPONSE_THREADS = 100
+MAX_HTTP_SERVER_THREADS = 200
+
+# property name -> parameter name in params.py, used for per component overrides
+PROPERTIES = [
+    ('task.max-worker-threads', 'task_max_worker_threads'),
+    ('task.concurrency', 'task_concurrency'),
+    ('exchange.client-threads', 'exchange_client_threads'),
+    ('task.http-response-threads', 'task_http_response_threads'),
+    ('http-server.threads.max', 'http_server_max_threads'),
+]
+
+
+def size_concurrency(vcores):
+    """
+    :return: dict of parameter name (see PROPERTIES) to value
+    """
+    if vcores <= 0:
+        raise ValueError("Number of vcores must be positive: %s" % vcores)
+    return {
+        # a worker thread per core, plus one to cover blocking on I/O
+        'task_max_worker_threads': 2 * vcores,
+        # must be a power of two
+        'task_concurrency': min(MAX_TASK_CONCURRENCY, _highest_power_of_two(vcores)),
+        # exchange and HTTP threads mostly wait for the network
+        'exchange_client_threads': min(MAX_EXCHANGE_CLIENT_THREADS, max(4, 4 * vcores)),
+        'task_http_response_threads': min(MAX_HTTP_RESPONSE_THREADS, max(8, 8 * vcores)),
+        'http_server_max_threads': min(MAX_HTTP_SERVER_THREADS, max(50, 50 * vcores)),
+    }
+
+
+def resources_vcores(resources, component):
+    """
+    Number of vcores of the component (or the global one) in the slider resources.json document (as a dict).
+    """
+    vcores = resources.get('components', {}).get(component, {}).get('yarn.vcores', resources.get('global', {}).get('yarn.vcores', 1))
+    return int(vcores)
+
+
+def _highest_power_of_two(value):
+    power = 1
+    while power * 2 <= value:
+        power *= 2
+    return power
+
+
+if __name__ == "__main__":
+    if len(sys.argv) != 2:
+        sys.stderr.write("Usage: %s <vcores>\n" % sys.argv[0])
+        sys.exit(1)
+    sizing = size_concurrency(int(sys.argv[1]))
+    for property_name, parameter in PROPERTIES:
+        print('%s=%s' % (property_name, sizing[parameter]))
@@ -18,7 +18,12 @@ limitations under the License.
 
 """
 from resource_management import *
-import ast, os, shutil
+from resource_management.core.logger import Logger
+from appcds import archive_jvm_args
+from install_cache import unshare_directory
+from plugin_cache import hadoop_command, is_remote, link_files, localize
+import concurrency_sizing, memory_sizing
+import ast, json, os, shutil
 
 def set_configuration(component=None):
     """
@@ -36,6 +41,15 @@ def set_configuration(component=None):
     _directory(params.pid_dir, params)
     _directory(params.log_dir, params)
 
+    resources = None
+    if params.memory_sizing == 'auto' or params.concurrency_sizing == 'auto':
+        resources = _load_resources(params)
+    sizing = None
+    if params.memory_sizing == 'auto':
+        sizing = _size_memory(params, component, resources)
+    if params.concurrency_sizing == 'auto':
+        _size_concurrency(params, component, resources)
+
     _template_config("{params.conf_dir}/config.properties", params, component)
     _template_config("{params.conf_dir}/node.properties", params)
     if (component == "COORDINATOR"):
@@ -45,8 +59,13 @@ def set_configuration(component=None):
         warning_string = 'DO NOT manually modify the configuration here. This is deployed via YARN-Slider and overwritten every time the application starts.'
         fw.write("%s" % warning_string)
 
-    if params.jvm_args:
-        _parse_array_and_write(params.jvm_args, format("{params.conf_dir}/jvm.config"))
+    appcds_args = _appcds_args(params, component) if params.appcds == 'true' else []
+    if params.jvm_args or sizing or appcds_args:
+        jvm_args = ast.literal_eval(params.jvm_args) if params.jvm_args else []
+        if sizing:
+            jvm_args = memory_sizing.apply_jvm_args(jvm_args, sizing)
+        jvm_args += appcds_args
+        _store_configuration(jvm_args, format("{params.conf_dir}/jvm.config"))
 
     if params.log_properties:
         _parse_array_and_write(params.log_properties, format("{params.conf_dir}/log.properties"))
@@ -69,10 +88,70 @@ def set_configuration(component=None):
         plugins_dict = ast.literal_eval(params.addon_plugins)
         for key, value in plugins_dict.iteritems():
             plugin_dir = os.path.join(params.presto_plugin_dir, key)
-            if not os.path.exists(plugin_dir):
-                os.makedirs(plugin_dir)
-            for jar in value:
-                shutil.copy2(os.path.join(params.source_plugin_dir, jar), plugin_dir)
+            # plugins of a cached install are shared with other containers
+            unshare_directory(plugin_dir)
+            for resource in value:
+                if is_remote(resource):
+                    files = localize(resource, params.plugin_cache_dir, params.hadoop_cmd)
+                else:
+                    files = [os.path.join(params.source_plugin_dir, resource)]
+                link_files(files, plugin_dir)
+
+
+def _load_resources(params):
+    """
+    Reads resources.json of the application stored by slider in HDFS.
+    """
+    if not params.cluster_name:
+        return {}
+    resources_path = format(".slider/cluster/{params.cluster_name}/resources.json")
+    return json.loads(hadoop_command(params.hadoop_cmd, 'fs', '-cat', resources_path))
+
+
+def _size_memory(params, component, resources):
+    """
+    Computes memory settings from yarn.memory of the component and the number of workers.
+    site.global.yarn_memory, when set, overrides yarn.memory. Template parameters are overridden
+    with the computed values.
+    """
+    if params.yarn_memory:
+        resources.setdefault('components', {}).setdefault(component, {})['yarn.memory'] = params.yarn_memory
+    sizing = memory_sizing.resources_sizing(resources, component, params.singlenode)
+    params.presto_query_max_memory = memory_sizing.format_mb(sizing.query_max_memory_mb)
+    params.presto_query_max_memory_per_node = memory_sizing.format_mb(sizing.query_max_memory_per_node_mb)
+    params.presto_query_max_total_memory_per_node = memory_sizing.format_mb(sizing.query_max_total_memory_per_node_mb)
+    return sizing
+
+
+def _size_concurrency(params, component, resources):
+    """
+    Computes thread pool sizes from yarn.vcores of the component (site.global.yarn_vcores, when set,
+    overrides it). Template parameters which are not set explicitly are set to the computed values.
+    """
+    vcores = int(params.yarn_vcores) if params.yarn_vcores else concurrency_sizing.resources_vcores(resources, component)
+    sizing = concurrency_sizing.size_concurrency(vcores)
+    for _, parameter in concurrency_sizing.PROPERTIES:
+        if not getattr(params, parameter):
+            setattr(params, parameter, sizing[parameter])
+
+
+def _appcds_args(params, component):
+    """
+    Class data sharing archives are dumped per node next to the cached install, so that containers of
+    the node share them. Without the install cache every container would have to dump its own archive.
+    """
+    class_list = os.path.join(params.appcds_class_list_dir, "%s.classlist" % component.lower())
+    lib = os.path.join(params.presto_root, 'lib')
+    if not os.path.exists(class_list) or not os.path.islink(lib):
+        Logger.warning("Class data sharing requires a package built with -Pappcds and install_cache_dir, starting without it")
+        return []
+    lib_dir = os.path.realpath(lib)
+    archive_dir = os.path.join(os.path.dirname(os.path.dirname(lib_dir)), '.appcds')
+    try:
+        return archive_jvm_args(format("{params.java8_home}/bin/java"), class_list, lib_dir, archive_dir)
+    except Exception as e:
+        Logger.warning("Unable to use class data sharing archive: %s" % e)
+        return []
 
 
 def _parse_array_and_write(parameters, path):
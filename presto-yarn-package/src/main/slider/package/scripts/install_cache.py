@@ -0,0 +1,231 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import errno, fcntl, hashlib, os, shutil, tarfile, tempfile, time
+
+COMPLETE_MARKER = '.complete'
+STALE_STAGING_SECONDS = 3600
+DIGEST_CHUNK_SIZE = 1024 * 1024
+
+
+def install_from_cache(tarball, cache_dir, presto_root, max_versions):
+    """
+    Installs the presto-server tarball into presto_root using a per node cache of extracted installs.
+    Installs are keyed by md5 digest of the tarball, so containers started on a node which already ran
+    the same package link to the existing install instead of unpacking it again.
+
+    The install is extracted to a temporary directory and published with an atomic rename under an
+    exclusive lock, so concurrently starting containers extract it only once and never see a partial
+    install. Installs which are not used by any container are evicted, least recently used first,
+    when there are more than max_versions of them.
+    :return: directory of the cached install
+    """
+    makedirs(cache_dir)
+    digest = md5sum(tarball)
+    entry = os.path.join(cache_dir, digest)
+
+    with file_lock(os.path.join(cache_dir, digest + '.lock')):
+        if not os.path.exists(os.path.join(entry, COMPLETE_MARKER)):
+            _extract(tarball, cache_dir, entry)
+        install_dir = _install_dir(entry, os.path.basename(presto_root))
+        _link_install(install_dir, presto_root)
+        _add_reference(entry, presto_root)
+        # modification time of the entry is its last use time
+        os.utime(entry, None)
+
+    evict(cache_dir, max_versions, keep=digest)
+    return install_dir
+
+
+def md5sum(path):
+    md5 = hashlib.md5()
+    with open(path, 'rb') as f:
+        for chunk in iter(lambda: f.read(DIGEST_CHUNK_SIZE), b''):
+            md5.update(chunk)
+    return md5.hexdigest()
+
+
+def evict(cache_dir, max_versions, keep=None):
+    """
+    Removes least recently used installs until at most max_versions remain. Installs still referenced
+    by an existing presto_root link are never removed.
+    """
+    entries = []
+    for name in os.listdir(cache_dir):
+        entry = os.path.join(cache_dir, name)
+        if name.startswith('.'):
+            # leftovers of extractions or evictions interrupted by a container kill
+            if os.path.getmtime(entry) < time.time() - STALE_STAGING_SECONDS:
+                shutil.rmtree(entry, ignore_errors=True)
+        elif name != keep and os.path.exists(os.path.join(entry, COMPLETE_MARKER)):
+            entries.append((os.path.getmtime(entry), name))
+    entries.sort()
+
+    excess = len(entries) + (1 if keep else 0) - max_versions
+    for _, name in entries:
+        if excess <= 0:
+            break
+        entry = os.path.join(cache_dir, name)
+        lock = _try_lock(os.path.join(cache_dir, name + '.lock'))
+        if lock is None:
+            continue
+        try:
+            if _is_referenced(entry):
+                continue
+            # unpublish first, so that a partially removed install is never used
+            trash = tempfile.mkdtemp(dir=cache_dir, prefix='.evicted-')
+            os.rename(entry, os.path.join(trash, name))
+            shutil.rmtree(trash, ignore_errors=True)
+            excess -= 1
+        finally:
+            lock.close()
+
+
+def _extract(tarball, cache_dir, entry):
+    staging = tempfile.mkdtemp(dir=cache_dir, prefix='.staging-')
+    try:
+        archive = tarfile.open(tarball)
+        try:
+            archive.extractall(staging)
+        finally:
+            archive.close()
+        open(os.path.join(staging, COMPLETE_MARKER), 'w').close()
+        if os.path.exists(entry):
+            # leftover of an interrupted eviction
+            shutil.rmtree(entry)
+        os.rename(staging, entry)
+    except:
+        shutil.rmtree(staging, ignore_errors=True)
+        raise
+
+
+def _install_dir(entry, name):
+    install_dir = os.path.join(entry, name)
+    if os.path.isdir(install_dir):
+        return install_dir
+    directories = [path for path in os.listdir(entry) if os.path.isdir(os.path.join(entry, path))]
+    if len(directories) != 1:
+        raise Exception("Expected a single top level directory in cached install %s, found: %s" % (entry, directories))
+    return os.path.join(entry, directories[0])
+
+
+def _link_install(install_dir, presto_root):
+    """
+    Populates presto_root with links to the cached install. The launcher resolves the install path
+    from the real path of bin, so bin is copied (it is tiny) to keep etc and data links of each
+    container separate. The plugin directory is a real directory with links to plugins, so that addon
+    plugins can be added without modifying the shared install.
+    """
+    if os.path.islink(presto_root):
+        os.remove(presto_root)
+    elif os.path.exists(presto_root):
+        shutil.rmtree(presto_root)
+    os.makedirs(presto_root)
+    for name in os.listdir(install_dir):
+        source = os.path.join(install_dir, name)
+        target = os.path.join(presto_root, name)
+        if name == 'bin':
+            shutil.copytree(source, target, symlinks=True)
+        elif name == 'plugin':
+            os.makedirs(target)
+            for plugin in os.listdir(source):
+                os.symlink(os.path.join(source, plugin), os.path.join(target, plugin))
+        else:
+            os.symlink(source, target)
+
+
+def unshare_directory(path):
+    """
+    Replaces a link to a directory of the cached install with a real directory of links to its files,
+    so that files can be added to it without modifying the cache.
+    """
+    if not os.path.islink(path):
+        return
+    source = os.path.realpath(path)
+    os.remove(path)
+    os.makedirs(path)
+    for name in os.listdir(source):
+        os.symlink(os.path.join(source, name), os.path.join(path, name))
+
+
+def _add_reference(entry, presto_root):
+    references = os.path.join(entry, '.references')
+    makedirs(references)
+    reference = os.path.join(references, hashlib.md5(presto_root.encode('utf-8')).hexdigest())
+    with open(reference, 'w') as fw:
+        fw.write(presto_root)
+
+
+def _is_referenced(entry):
+    """
+    An install is referenced as long as any container directory linking to it exists. Container
+    directories are removed by YARN after the container finishes.
+    """
+    references = os.path.join(entry, '.references')
+    if not os.path.isdir(references):
+        return False
+    for name in os.listdir(references):
+        reference = os.path.join(references, name)
+        with open(reference) as f:
+            presto_root = f.read().strip()
+        lib = os.path.join(presto_root, 'lib')
+        if os.path.islink(lib) and os.path.realpath(lib).startswith(os.path.realpath(entry) + os.sep):
+            return True
+        os.remove(reference)
+    return False
+
+
+def makedirs(path):
+    try:
+        os.makedirs(path)
+    except OSError as e:
+        if e.errno != errno.EEXIST:
+            raise
+
+
+class file_lock(object):
+    def __init__(self, path):
+        self.path = path
+        self.file = None
+
+    def __enter__(self):
+        self.file = open(self.path, 'a')
+        fcntl.flock(self.file, fcntl.LOCK_EX)
+        return self
+
+    def __exit__(self, *args):
+        self.close()
+
+    def close(self):
+        if self.file is not None:
+            self.file.close()
+            self.file = None
+
+
+def _try_lock(path):
+    lock = file_lock(path)
+    lock.file = open(path, 'a')
+    try:
+        fcntl.flock(lock.file, fcntl.LOCK_EX | fcntl.LOCK_NB)
+    except IOError as e:
+        lock.close()
+        if e.errno in (errno.EAGAIN, errno.EACCES):
+            return None
+        raise
+    return lock
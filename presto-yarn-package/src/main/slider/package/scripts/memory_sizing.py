@@ -0,0 +1,123 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+# Computes Presto memory settings from the YARN container size, so that the JVM fits into the container
+# and query memory limits fit into the heap. Standalone, usable without the Slider agent:
+#
+#     python memory_sizing.py <container memory MB> <nodes running queries>
+import math, re, sys
+
+# memory outside of the heap: metaspace, code cache, thread stacks, GC structures and direct buffers
+HEADROOM_FRACTION = 0.2
+MIN_HEADROOM_MB = 256
+# part of the headroom available for direct (off heap) buffers
+DIRECT_MEMORY_FRACTION_OF_HEADROOM = 0.5
+# part of the heap which queries can use on a node, the rest is left for the system memory pool
+QUERY_TOTAL_MEMORY_FRACTION = 0.7
+QUERY_USER_MEMORY_FRACTION = 0.5
+MIN_HEAP_MB = 512
+
+_MEMORY_PATTERN = re.compile(r'^\s*(\d+)\s*([kmgt]?)b?\s*$', re.IGNORECASE)
+_UNITS_IN_MB = {'k': 1.0 / 1024, '': 1, 'm': 1, 'g': 1024, 't': 1024 * 1024}
+
+
+class MemorySizing(object):
+    def __init__(self, heap_mb, max_direct_memory_mb, query_max_memory_per_node_mb, query_max_total_memory_per_node_mb, query_max_memory_mb):
+        self.heap_mb = heap_mb
+        self.max_direct_memory_mb = max_direct_memory_mb
+        self.query_max_memory_per_node_mb = query_max_memory_per_node_mb
+        self.query_max_total_memory_per_node_mb = query_max_total_memory_per_node_mb
+        self.query_max_memory_mb = query_max_memory_mb
+
+    def jvm_args(self):
+        return ['-Xmx%dM' % self.heap_mb, '-XX:MaxDirectMemorySize=%dM' % self.max_direct_memory_mb]
+
+    def config_properties(self):
+        return [
+            'query.max-memory=%s' % format_mb(self.query_max_memory_mb),
+            'query.max-memory-per-node=%s' % format_mb(self.query_max_memory_per_node_mb),
+            'query.max-total-memory-per-node=%s' % format_mb(self.query_max_total_memory_per_node_mb),
+        ]
+
+
+def size_memory(container_memory_mb, query_nodes):
+    """
+    :param container_memory_mb: memory of the YARN container (yarn.memory)
+    :param query_nodes: number of nodes executing queries (workers, plus the coordinator when it also runs queries)
+    """
+    if container_memory_mb <= 0:
+        raise ValueError("Container memory must be positive: %s" % container_memory_mb)
+    if query_nodes < 0:
+        raise ValueError("Number of nodes is negative: %s" % query_nodes)
+    headroom = max(MIN_HEADROOM_MB, int(math.ceil(container_memory_mb * HEADROOM_FRACTION)))
+    heap = container_memory_mb - headroom
+    if heap < MIN_HEAP_MB:
+        raise ValueError("Container memory %dMB is too small, at least %dMB is required" % (container_memory_mb, MIN_HEAP_MB + MIN_HEADROOM_MB))
+    max_direct_memory = int(headroom * DIRECT_MEMORY_FRACTION_OF_HEADROOM)
+    query_max_total_memory_per_node = int(heap * QUERY_TOTAL_MEMORY_FRACTION)
+    query_max_memory_per_node = int(heap * QUERY_USER_MEMORY_FRACTION)
+    query_max_memory = query_max_memory_per_node * max(1, query_nodes)
+    return MemorySizing(heap, max_direct_memory, query_max_memory_per_node, query_max_total_memory_per_node, query_max_memory)
+
+
+def parse_mb(value):
+    """
+    Parses memory given in megabytes ("1500") or with a unit ("600MB", "2GB") into megabytes.
+    """
+    match = _MEMORY_PATTERN.match(str(value))
+    if not match:
+        raise ValueError("Invalid memory: %s" % value)
+    return int(int(match.group(1)) * _UNITS_IN_MB[match.group(2).lower()])
+
+
+def format_mb(megabytes):
+    if megabytes >= 1024 and megabytes % 1024 == 0:
+        return '%dGB' % (megabytes / 1024)
+    return '%dMB' % megabytes
+
+
+def resources_sizing(resources, component, singlenode):
+    """
+    Sizes memory of the component from the slider resources.json document (as a dict): yarn.memory of the
+    component (or the global one) and the number of WORKER instances.
+    """
+    components = resources.get('components', {})
+    container_memory = components.get(component, {}).get('yarn.memory', resources.get('global', {}).get('yarn.memory'))
+    if container_memory is None:
+        raise ValueError("yarn.memory is not set for %s" % component)
+    workers = int(components.get('WORKER', {}).get('yarn.component.instances', 0))
+    query_nodes = workers + (1 if str(singlenode).lower() == 'true' else 0)
+    return size_memory(parse_mb(container_memory), query_nodes)
+
+
+def apply_jvm_args(jvm_args, sizing):
+    """
+    Replaces heap and direct memory limits in the list of JVM arguments with the computed ones.
+    """
+    managed = ('-Xmx', '-Xms', '-XX:MaxDirectMemorySize=')
+    return [arg for arg in jvm_args if not arg.startswith(managed)] + sizing.jvm_args()
+
+
+if __name__ == "__main__":
+    if len(sys.argv) != 3:
+        sys.stderr.write("Usage: %s <container memory MB> <nodes running queries>\n" % sys.argv[0])
+        sys.exit(1)
+    result = size_memory(parse_mb(sys.argv[1]), int(sys.argv[2]))
+    for line in result.jvm_args() + result.config_properties():
+        print(line)
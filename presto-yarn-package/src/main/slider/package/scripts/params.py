@@ -19,7 +19,7 @@ limitations under the License.
 """
 
 from resource_management import *
-import uuid
+import os, uuid
 
 # server configurations
 config = Script.get_config()
@@ -37,6 +37,16 @@ presto_plugin_dir = format("{presto_root}/plugin")
 source_plugin_dir = config['configurations']['global']['app_pkg_plugin']
 addon_plugins = default('/configurations/global/plugin', '')
 
+# tarball shipped in the app package next to the plugins directory
+presto_tarball = os.path.join(os.path.dirname(os.path.normpath(source_plugin_dir)), 'files', format("{app_name}.tar.gz"))
+install_cache_dir = default('/configurations/global/install_cache_dir', '')
+install_cache_max_versions = int(default('/configurations/global/install_cache_max_versions', '3'))
+# 'true' starts servers with a class data sharing archive of the classes listed in the package, requires install_cache_dir
+appcds = default('/configurations/global/appcds', 'false')
+appcds_class_list_dir = os.path.join(os.path.dirname(os.path.normpath(source_plugin_dir)), 'files', 'appcds')
+plugin_cache_dir = default('/configurations/global/plugin_cache_dir', format("{data_dir}/plugin-cache"))
+hadoop_cmd = default('/configurations/global/hadoop_cmd', 'hadoop')
+
 presto_user = config['configurations']['global']['app_user']
 user_group = config['configurations']['global']['user_group']
 
@@ -45,14 +55,30 @@ pid_dir = format("{data_dir}/var/run")
 pid_file = format("{pid_dir}/slider_launcher.pid")
 log_dir = format("{data_dir}/var/log")
 log_file = format("{log_dir}/server.log")
+# stopped workers are drained only when enabled, it needs Presto with graceful shutdown (PUT /v1/info/state)
+graceful_shutdown = default('/configurations/global/graceful_shutdown', 'false')
+# time a stopped worker is given to finish its active tasks before it is killed
+shutdown_grace_period = int(default('/configurations/global/shutdown_grace_period', '300'))
 
 singlenode = config['configurations']['global']['singlenode']
 coordinator_host = config['configurations']['global']['coordinator_host']
-presto_query_max_memory = config['configurations']['global']['presto_query_max_memory']
-presto_query_max_memory_per_node = config['configurations']['global']['presto_query_max_memory_per_node']
-presto_query_max_total_memory_per_node = config['configurations']['global']['presto_query_max_total_memory_per_node']
+presto_query_max_memory = default('/configurations/global/presto_query_max_memory', '')
+presto_query_max_memory_per_node = default('/configurations/global/presto_query_max_memory_per_node', '')
+presto_query_max_total_memory_per_node = default('/configurations/global/presto_query_max_total_memory_per_node', '')
 presto_server_port = config['configurations']['global']['presto_server_port']
 jvm_args = default('/configurations/global/jvm_args', '')
+# 'auto' computes heap and query memory limits from yarn.memory and the number of workers
+memory_sizing = default('/configurations/global/memory_sizing', 'static')
+cluster_name = default('/clusterName', '')
+yarn_memory = default('/configurations/global/yarn_memory', '')
+# 'auto' computes thread pool sizes from yarn.vcores, values set explicitly (e.g. per component) take precedence
+concurrency_sizing = default('/configurations/global/concurrency_sizing', 'static')
+yarn_vcores = default('/configurations/global/yarn_vcores', '')
+task_max_worker_threads = default('/configurations/global/task_max_worker_threads', '')
+task_concurrency = default('/configurations/global/task_concurrency', '')
+exchange_client_threads = default('/configurations/global/exchange_client_threads', '')
+task_http_response_threads = default('/configurations/global/task_http_response_threads', '')
+http_server_max_threads = default('/configurations/global/http_server_max_threads', '')
 log_properties = default('/configurations/global/log_properties', '')
 event_listener_properties = default('/configurations/global/event_listener_properties', '')
 
@@ -0,0 +1,121 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+from install_cache import file_lock, makedirs
+import hashlib, os, shutil, subprocess, tarfile, tempfile, zipfile
+
+COMPLETE_MARKER = '.complete'
+ARCHIVE_SUFFIXES = ('.tar.gz', '.tgz', '.tar', '.zip')
+
+
+def is_remote(resource):
+    """
+    Plugin resources given as URIs (e.g. hdfs://nameservice/presto/plugins/ml/) are localized from the
+    file system, other ones are jar names in the plugins directory of the app package.
+    """
+    return '://' in resource
+
+
+def localize(uri, cache_dir, hadoop_cmd='hadoop'):
+    """
+    Downloads a file, directory or archive from the Hadoop file system into a per node cache shared
+    by all containers, similarly to YARN resources with PUBLIC visibility. Resources are keyed by
+    URI, length and modification time, so a node downloads each version once and later container
+    starts and restarts reuse it. Archives are unpacked.
+    :return: list of localized files
+    """
+    makedirs(cache_dir)
+    length, modification_time = _stat(uri, hadoop_cmd)
+    key = hashlib.md5(("%s %s %s" % (uri, length, modification_time)).encode('utf-8')).hexdigest()
+    entry = os.path.join(cache_dir, key)
+
+    with file_lock(os.path.join(cache_dir, key + '.lock')):
+        if not os.path.exists(os.path.join(entry, COMPLETE_MARKER)):
+            _download(uri, cache_dir, entry, hadoop_cmd)
+    return _files(entry)
+
+
+def link_files(files, target_dir):
+    """
+    Links files into target_dir, replacing files or links with the same name.
+    """
+    makedirs(target_dir)
+    for source in files:
+        target = os.path.join(target_dir, os.path.basename(source))
+        if os.path.lexists(target):
+            os.remove(target)
+        os.symlink(source, target)
+
+
+def _stat(uri, hadoop_cmd):
+    output = hadoop_command(hadoop_cmd, 'fs', '-stat', '%b %Y', uri)
+    length, modification_time = output.strip().split()
+    return int(length), int(modification_time)
+
+
+def _download(uri, cache_dir, entry, hadoop_cmd):
+    staging = tempfile.mkdtemp(dir=cache_dir, prefix='.staging-')
+    try:
+        name = os.path.basename(uri.rstrip('/'))
+        downloaded = os.path.join(staging, name)
+        hadoop_command(hadoop_cmd, 'fs', '-get', uri, downloaded)
+        if name.endswith(ARCHIVE_SUFFIXES):
+            _unpack(downloaded, staging)
+            os.remove(downloaded)
+        open(os.path.join(staging, COMPLETE_MARKER), 'w').close()
+        if os.path.exists(entry):
+            shutil.rmtree(entry)
+        os.rename(staging, entry)
+    except:
+        shutil.rmtree(staging, ignore_errors=True)
+        raise
+
+
+def _unpack(archive, target_dir):
+    if archive.endswith('.zip'):
+        opened = zipfile.ZipFile(archive)
+    else:
+        opened = tarfile.open(archive)
+    try:
+        opened.extractall(target_dir)
+    finally:
+        opened.close()
+
+
+def _files(entry):
+    """
+    Plugin files of a localized resource: the downloaded file, files of the downloaded directory or
+    of the unpacked archive. A single top level directory of an archive is skipped.
+    """
+    names = [name for name in os.listdir(entry) if name != COMPLETE_MARKER]
+    if len(names) == 1 and os.path.isdir(os.path.join(entry, names[0])):
+        entry = os.path.join(entry, names[0])
+        names = os.listdir(entry)
+    return sorted(os.path.join(entry, name) for name in names)
+
+
+def hadoop_command(hadoop_cmd, *args):
+    command = [hadoop_cmd] + list(args)
+    process = subprocess.Popen(command, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+    out, err = process.communicate()
+    if process.returncode != 0:
+        raise Exception("Command %s failed with exit code %d: %s" % (' '.join(command), process.returncode, err))
+    if not isinstance(out, str):
+        out = out.decode('utf-8')
+    return out
@@ -19,19 +19,49 @@ limitations under the License.
 """
 
 from resource_management import *
+from resource_management.core.logger import Logger
 from configure import set_configuration
+from install_cache import install_from_cache
 import os
+import shutil
+import signal
+import time
+
+try:
+    from urllib2 import Request, urlopen
+except ImportError:
+    from urllib.request import Request, urlopen
+
+KILL_TIMEOUT_SECONDS = 10
 
 class PrestoServer(Script):
     def __init__(self, component):
         self.component = component
 
     def install(self, env):
-        self.install_packages(env)
-        pass
+        import params
+
+        self.record_phase('install_start')
+        if params.install_cache_dir:
+            try:
+                install_dir = install_from_cache(params.presto_tarball, params.install_cache_dir, params.presto_root, params.install_cache_max_versions)
+                Logger.info("Linked %s to cached install %s" % (params.presto_root, install_dir))
+            except Exception as e:
+                Logger.warning("Unable to use install cache %s, extracting the package: %s" % (params.install_cache_dir, e))
+                if os.path.lexists(params.presto_root):
+                    # links to the cache must not be followed by the extraction
+                    shutil.rmtree(params.presto_root, ignore_errors=True)
+                    if os.path.islink(params.presto_root):
+                        os.remove(params.presto_root)
+                self.install_packages(env)
+        else:
+            self.install_packages(env)
+        self.record_phase('install_end')
 
     def configure(self):
+        self.record_phase('configure_start')
         set_configuration(self.component)
+        self.record_phase('configure_end')
 
     def start(self, env):
         import params
@@ -42,6 +72,7 @@ class PrestoServer(Script):
         os.symlink(format('{conf_dir}'), os.path.join(format('{presto_root}'), 'etc'))
         process_cmd = format("PATH={java8_home}/bin:$PATH {presto_root}/bin/launcher run --node-config {conf_dir}/node.properties --jvm-config {conf_dir}/jvm.config --config {conf_dir}/config.properties >> {log_file} 2>&1")
 
+        self.record_phase('launch')
         Execute(process_cmd,
                 logoutput=True,
                 wait_for_finish=False,
@@ -50,9 +81,45 @@ class PrestoServer(Script):
                 )
 
     def stop(self, env):
-        # Slider doesnt yet support stopping the actual app (PrestoServer) process
-        # but only stopping the yarn application. Slider is not wired up yet to call this function.
-        pass
+        """
+        With graceful_shutdown enabled workers are drained first: they are moved to SHUTTING_DOWN state,
+        so that the coordinator does not schedule new tasks on them, and Presto exits once active tasks
+        finish. The container waits for that at most shutdown_grace_period seconds, then the server is
+        killed. Otherwise the server is killed right away.
+
+        Draining needs a Presto release with graceful shutdown (PUT /v1/info/state), so it is disabled by
+        default: Presto 0.167 does not have it. Slider 0.80 does not call this function for containers
+        released by flex, those are killed by the NodeManager.
+        """
+        import params
+
+        env.set_params(params)
+        pid = _read_pid(params.pid_file)
+        if pid is None or not _is_running(pid):
+            return
+
+        self.record_phase('stop')
+        if self.component == 'WORKER' and params.graceful_shutdown == 'true' and self.drain(params):
+            if _wait_for_exit(pid, params.shutdown_grace_period):
+                self.record_phase('drained')
+                return
+            Logger.warning("Worker did not finish its tasks within %s seconds" % params.shutdown_grace_period)
+        _kill(pid)
+        self.record_phase('killed')
+
+    def drain(self, params):
+        request = Request(format("http://localhost:{presto_server_port}/v1/info/state"), data='"SHUTTING_DOWN"'.encode('utf-8'))
+        request.add_header('Content-Type', 'application/json')
+        request.add_header('X-Presto-User', params.presto_user)
+        request.get_method = lambda: 'PUT'
+        try:
+            urlopen(request, timeout=10).read()
+            Logger.info("Draining Presto worker")
+            return True
+        except Exception as e:
+            # graceful shutdown is not supported by older Presto versions
+            Logger.warning("Unable to drain Presto worker: %s" % e)
+            return False
 
     def status(self, env):
         import params
@@ -60,6 +127,52 @@ class PrestoServer(Script):
         env.set_params(params)
         check_process_status(params.pid_file)
 
+    def record_phase(self, phase):
+        """
+        Appends "<component> <phase> <epoch millis>" to startup-phases.log in the log directory,
+        so that the time spent in each startup phase can be measured.
+        """
+        import params
+
+        if not os.path.exists(params.log_dir):
+            os.makedirs(params.log_dir)
+        with open(os.path.join(params.log_dir, 'startup-phases.log'), 'a') as fw:
+            fw.write("%s %s %d\n" % (self.component, phase, int(time.time() * 1000)))
+
+
+def _read_pid(pid_file):
+    try:
+        with open(pid_file) as f:
+            return int(f.read().strip())
+    except (IOError, ValueError):
+        return None
+
+
+def _is_running(pid):
+    try:
+        os.kill(pid, 0)
+        return True
+    except OSError:
+        return False
+
+
+def _wait_for_exit(pid, timeout_seconds):
+    deadline = time.time() + timeout_seconds
+    while _is_running(pid):
+        if time.time() >= deadline:
+            return False
+        time.sleep(1)
+    return True
+
+
+def _kill(pid):
+    try:
+        os.kill(pid, signal.SIGTERM)
+        if not _wait_for_exit(pid, KILL_TIMEOUT_SECONDS):
+            os.kill(pid, signal.SIGKILL)
+    except OSError:
+        pass
+
 
 if __name__ == "__main__":
     self.fail_with_error('Component name missing')
@@ -0,0 +1,150 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import json, os, shutil, stat, sys, tempfile, unittest
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+import appcds
+from appcds import archive_jvm_args, filter_class_list
+
+# accepts only the Oracle JDK 8 flags and counts archive dumps
+FAKE_JAVA = """#!/bin/sh
+case "$*" in
+  *-version*) echo 'java version "1.8.0_92"' >&2 ;;
+esac
+case "$*" in
+  *UnlockCommercialFeatures*) ;;
+  *UseAppCDS*) exit 1 ;;
+  *-Xshare:*) exit 1 ;;
+esac
+for arg in "$@"; do
+  case "$arg" in
+    -XX:SharedArchiveFile=*) archive="${arg#-XX:SharedArchiveFile=}" ;;
+    -Xshare:dump) dump=1 ;;
+  esac
+done
+if [ -n "$dump" ]; then
+  echo dump >> "$(dirname "$0")/dumps"
+  touch "$archive"
+fi
+[ -z "$archive" ] || [ -f "$archive" ]
+"""
+
+
+class AppCdsTest(unittest.TestCase):
+    def setUp(self):
+        self.directory = tempfile.mkdtemp()
+        self.java = os.path.join(self.directory, 'java')
+        with open(self.java, 'w') as fw:
+            fw.write(FAKE_JAVA)
+        os.chmod(self.java, stat.S_IRWXU)
+        self.lib_dir = os.path.join(self.directory, 'lib')
+        os.makedirs(self.lib_dir)
+        for name in ['b.jar', 'a.jar', 'README.txt']:
+            open(os.path.join(self.lib_dir, name), 'w').close()
+        self.class_list = os.path.join(self.directory, 'worker.classlist')
+        with open(self.class_list, 'w') as fw:
+            fw.write('java/lang/Object\n')
+        self.archive_dir = os.path.join(self.directory, 'archives')
+
+    def tearDown(self):
+        shutil.rmtree(self.directory)
+
+    def test_filter_class_list(self):
+        lines = [
+            'java/lang/Object\n',
+            'com/facebook/presto/server/PrestoServer\n',
+            'com/facebook/presto/server/PrestoServer$$Lambda$1/1234\n',
+            'java/lang/invoke/LambdaForm$MH/1234\n',
+            'com/sun/proxy/$Proxy12\n',
+            '@lambda-proxy java/lang/Object\n',
+            'java/lang/Object\n',
+            '\n',
+        ]
+        self.assertEqual(filter_class_list(lines), ['java/lang/Object', 'com/facebook/presto/server/PrestoServer'])
+
+    def test_archive_is_dumped_once(self):
+        args = archive_jvm_args(self.java, self.class_list, self.lib_dir, self.archive_dir)
+        self.assertEqual(archive_jvm_args(self.java, self.class_list, self.lib_dir, self.archive_dir), args)
+
+        archive = [arg for arg in args if arg.startswith('-XX:SharedArchiveFile=')][0].split('=', 1)[1]
+        self.assertTrue(os.path.exists(archive))
+        self.assertEqual(args[:3], ['-XX:+UnlockCommercialFeatures', '-XX:+UseAppCDS', '-Xshare:auto'])
+        self.assertEqual(args[-2:], ['-cp', os.pathsep.join([os.path.join(self.lib_dir, 'a.jar'), os.path.join(self.lib_dir, 'b.jar')])])
+        with open(os.path.join(self.directory, 'dumps')) as f:
+            self.assertEqual(len(f.readlines()), 1)
+
+    def test_unsupported_jvm(self):
+        with open(self.java, 'w') as fw:
+            fw.write("#!/bin/sh\ncase \"$*\" in *-Xshare:*) exit 1 ;; esac\n")
+        self.assertEqual(archive_jvm_args(self.java, self.class_list, self.lib_dir, self.archive_dir), [])
+        self.assertEqual(archive_jvm_args(self.java, self.class_list, self.lib_dir, self.archive_dir), [])
+
+    def test_query_is_restarted_when_no_nodes_are_available(self):
+        responses = [
+            {'error': {'message': 'No nodes available to run query', 'errorName': 'NO_NODES_AVAILABLE'}},
+            {'nextUri': 'http://localhost:8080/v1/statement/1/1'},
+            {},
+        ]
+        requests = []
+
+        def fake_urlopen(request, timeout):
+            requests.append((request.get_full_url(), request.data))
+            response = responses.pop(0)
+
+            class Response(object):
+                def read(self):
+                    return json.dumps(response).encode('utf-8')
+            return Response()
+
+        urlopen = appcds.urlopen
+        appcds.urlopen = fake_urlopen
+        self.addCleanup(setattr, appcds, 'urlopen', urlopen)
+
+        appcds._run_query(8080, 'SELECT 1', 60)
+        self.assertEqual(requests, [
+            ('http://localhost:8080/v1/statement', b'SELECT 1'),
+            ('http://localhost:8080/v1/statement', b'SELECT 1'),
+            ('http://localhost:8080/v1/statement/1/1', None),
+        ])
+
+    def test_query_failure_is_raised(self):
+        requests = []
+
+        def fake_urlopen(request, timeout):
+            requests.append(request.get_full_url())
+
+            class Response(object):
+                def read(self):
+                    return json.dumps({'error': {'message': 'Catalog tpch does not exist', 'errorName': 'CATALOG_NOT_FOUND'}}).encode('utf-8')
+            return Response()
+
+        urlopen = appcds.urlopen
+        appcds.urlopen = fake_urlopen
+        self.addCleanup(setattr, appcds, 'urlopen', urlopen)
+
+        with self.assertRaises(Exception) as raised:
+            appcds._run_query(8080, 'SELECT 1', 60)
+        self.assertIn('Catalog tpch does not exist', str(raised.exception))
+        self.assertEqual(len(requests), 1)
+
+
+if __name__ == '__main__':
+    unittest.main()
@@ -0,0 +1,63 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import os, sys, unittest
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+from concurrency_sizing import PROPERTIES, resources_vcores, size_concurrency
+
+
+class ConcurrencySizingTest(unittest.TestCase):
+    def test_single_vcore(self):
+        self.assertEqual(size_concurrency(1), {
+            'task_max_worker_threads': 2,
+            'task_concurrency': 1,
+            'exchange_client_threads': 4,
+            'task_http_response_threads': 8,
+            'http_server_max_threads': 50,
+        })
+
+    def test_task_concurrency_is_power_of_two(self):
+        self.assertEqual(size_concurrency(3)['task_concurrency'], 2)
+        self.assertEqual(size_concurrency(12)['task_concurrency'], 8)
+        self.assertEqual(size_concurrency(64)['task_concurrency'], 16)
+
+    def test_thread_pools_are_capped(self):
+        sizing = size_concurrency(32)
+        self.assertEqual(sizing['task_max_worker_threads'], 64)
+        self.assertEqual(sizing['exchange_client_threads'], 25)
+        self.assertEqual(sizing['task_http_response_threads'], 100)
+        self.assertEqual(sizing['http_server_max_threads'], 200)
+
+    def test_invalid_vcores(self):
+        self.assertRaises(ValueError, size_concurrency, 0)
+
+    def test_all_properties_are_sized(self):
+        self.assertEqual(sorted(size_concurrency(4).keys()), sorted(parameter for _, parameter in PROPERTIES))
+
+    def test_resources_vcores(self):
+        resources = {'global': {'yarn.vcores': '2'}, 'components': {'COORDINATOR': {}, 'WORKER': {'yarn.vcores': '8'}}}
+        self.assertEqual(resources_vcores(resources, 'COORDINATOR'), 2)
+        self.assertEqual(resources_vcores(resources, 'WORKER'), 8)
+        self.assertEqual(resources_vcores({}, 'WORKER'), 1)
+
+
+if __name__ == '__main__':
+    unittest.main()
@@ -0,0 +1,143 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import os, shutil, sys, tarfile, tempfile, threading, time, unittest
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+import install_cache
+from install_cache import evict, install_from_cache, md5sum
+
+
+class InstallCacheTest(unittest.TestCase):
+    def setUp(self):
+        self.directory = tempfile.mkdtemp()
+        self.cache_dir = os.path.join(self.directory, 'install-cache')
+        self.extractions = []
+        extract = install_cache._extract
+
+        def counting_extract(tarball, cache_dir, entry):
+            self.extractions.append(tarball)
+            # widens the window in which concurrent installs would extract again
+            time.sleep(0.2)
+            extract(tarball, cache_dir, entry)
+
+        install_cache._extract = counting_extract
+        self.addCleanup(setattr, install_cache, '_extract', extract)
+
+    def tearDown(self):
+        shutil.rmtree(self.directory)
+
+    def test_install(self):
+        tarball = self.tarball('0.167')
+        presto_root = self.container_root('container_1')
+
+        install_dir = install_from_cache(tarball, self.cache_dir, presto_root, 3)
+
+        self.assertEqual(install_dir, os.path.join(self.cache_dir, md5sum(tarball), 'presto-server'))
+        self.assertTrue(os.path.exists(os.path.join(self.cache_dir, md5sum(tarball), '.complete')))
+        self.assertEqual(os.path.realpath(os.path.join(presto_root, 'lib')), os.path.realpath(os.path.join(install_dir, 'lib')))
+        self.assertFalse(os.path.islink(os.path.join(presto_root, 'bin')))
+        self.assertFalse(os.path.islink(os.path.join(presto_root, 'plugin')))
+        self.assertTrue(os.path.islink(os.path.join(presto_root, 'plugin', 'hive-hadoop2')))
+
+    def test_concurrent_installs_extract_once(self):
+        tarball = self.tarball('0.167')
+        roots = [self.container_root('container_%d' % i) for i in range(4)]
+        errors = []
+
+        def install(presto_root):
+            try:
+                install_from_cache(tarball, self.cache_dir, presto_root, 3)
+            except Exception as e:
+                errors.append(e)
+
+        threads = [threading.Thread(target=install, args=(root,)) for root in roots]
+        for thread in threads:
+            thread.start()
+        for thread in threads:
+            thread.join()
+
+        self.assertEqual(errors, [])
+        self.assertEqual(self.extractions, [tarball])
+        self.assertEqual(self.entries(), [md5sum(tarball)])
+        for root in roots:
+            self.assertTrue(os.path.exists(os.path.join(root, 'lib', 'presto-main.jar')))
+
+    def test_unreferenced_installs_are_evicted(self):
+        tarballs = [self.tarball(version) for version in ['0.165', '0.166', '0.167']]
+        for i, tarball in enumerate(tarballs):
+            presto_root = self.container_root('container_%d' % i)
+            install_from_cache(tarball, self.cache_dir, presto_root, 2)
+            self.age(tarball, len(tarballs) - i)
+            # container finished, YARN removed its directory
+            shutil.rmtree(os.path.dirname(presto_root))
+
+        self.assertEqual(sorted(self.entries()), sorted(md5sum(tarball) for tarball in tarballs[1:]))
+
+    def test_referenced_installs_are_not_evicted(self):
+        tarballs = [self.tarball(version) for version in ['0.165', '0.166', '0.167']]
+        for i, tarball in enumerate(tarballs):
+            install_from_cache(tarball, self.cache_dir, self.container_root('container_%d' % i), 2)
+            self.age(tarball, len(tarballs) - i)
+
+        self.assertEqual(sorted(self.entries()), sorted(md5sum(tarball) for tarball in tarballs))
+
+        # the oldest install is evicted once its container is gone
+        shutil.rmtree(os.path.join(self.directory, 'container_0'))
+        evict(self.cache_dir, 2)
+        self.assertEqual(sorted(self.entries()), sorted(md5sum(tarball) for tarball in tarballs[1:]))
+
+    def test_stale_staging_directories_are_removed(self):
+        install_cache.makedirs(self.cache_dir)
+        staging = tempfile.mkdtemp(dir=self.cache_dir, prefix='.staging-')
+        os.utime(staging, (0, 0))
+
+        install_from_cache(self.tarball('0.167'), self.cache_dir, self.container_root('container_1'), 3)
+
+        self.assertFalse(os.path.exists(staging))
+
+    def tarball(self, version):
+        source = os.path.join(self.directory, 'source-' + version, 'presto-server')
+        for directory in ['bin', 'lib', 'plugin/hive-hadoop2']:
+            os.makedirs(os.path.join(source, directory))
+        for path in ['bin/launcher', 'lib/presto-main.jar', 'plugin/hive-hadoop2/hive.jar']:
+            with open(os.path.join(source, path), 'w') as fw:
+                fw.write(version)
+        tarball = os.path.join(self.directory, 'presto-server-%s.tar.gz' % version)
+        archive = tarfile.open(tarball, 'w:gz')
+        try:
+            archive.add(source, 'presto-server')
+        finally:
+            archive.close()
+        return tarball
+
+    def container_root(self, container):
+        return os.path.join(self.directory, container, 'app', 'install', 'presto-server')
+
+    def entries(self):
+        return [name for name in os.listdir(self.cache_dir) if not name.startswith('.') and not name.endswith('.lock')]
+
+    def age(self, tarball, minutes):
+        timestamp = time.time() - minutes * 60
+        os.utime(os.path.join(self.cache_dir, md5sum(tarball)), (timestamp, timestamp))
+
+
+if __name__ == '__main__':
+    unittest.main()
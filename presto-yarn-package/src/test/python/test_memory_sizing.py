@@ -0,0 +1,93 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import os, sys, unittest
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+from memory_sizing import apply_jvm_args, format_mb, parse_mb, resources_sizing, size_memory
+
+
+class MemorySizingTest(unittest.TestCase):
+    def test_heap_fits_into_container(self):
+        for container_memory in [1024, 1500, 4096, 16384, 65536]:
+            sizing = size_memory(container_memory, 3)
+            self.assertTrue(sizing.heap_mb + sizing.max_direct_memory_mb < container_memory)
+            self.assertTrue(sizing.heap_mb >= container_memory * 0.75)
+
+    def test_query_memory_fits_into_heap(self):
+        sizing = size_memory(1500, 3)
+        self.assertEqual(sizing.heap_mb, 1200)
+        self.assertEqual(sizing.max_direct_memory_mb, 150)
+        self.assertEqual(sizing.query_max_memory_per_node_mb, 600)
+        self.assertEqual(sizing.query_max_total_memory_per_node_mb, 840)
+        self.assertEqual(sizing.query_max_memory_mb, 1800)
+
+    def test_small_container_keeps_minimal_headroom(self):
+        sizing = size_memory(1024, 1)
+        self.assertEqual(sizing.heap_mb, 768)
+
+    def test_too_small_container(self):
+        self.assertRaises(ValueError, size_memory, 600, 1)
+        self.assertRaises(ValueError, size_memory, 0, 1)
+
+    def test_cluster_memory_scales_with_nodes(self):
+        self.assertEqual(size_memory(4096, 10).query_max_memory_mb, 10 * size_memory(4096, 1).query_max_memory_mb)
+        self.assertEqual(size_memory(4096, 0).query_max_memory_mb, size_memory(4096, 1).query_max_memory_mb)
+
+    def test_parse_and_format(self):
+        self.assertEqual(parse_mb('1500'), 1500)
+        self.assertEqual(parse_mb('600MB'), 600)
+        self.assertEqual(parse_mb('2GB'), 2048)
+        self.assertEqual(parse_mb('2g'), 2048)
+        self.assertRaises(ValueError, parse_mb, 'max')
+        self.assertEqual(format_mb(600), '600MB')
+        self.assertEqual(format_mb(2048), '2GB')
+        self.assertEqual(format_mb(1800), '1800MB')
+
+    def test_resources_sizing(self):
+        resources = {
+            'global': {'yarn.vcores': '1'},
+            'components': {
+                'COORDINATOR': {'yarn.component.instances': '1', 'yarn.memory': '1500'},
+                'WORKER': {'yarn.component.instances': '3', 'yarn.memory': '4096'},
+            }
+        }
+        coordinator = resources_sizing(resources, 'COORDINATOR', 'false')
+        worker = resources_sizing(resources, 'WORKER', 'false')
+        self.assertEqual(coordinator.heap_mb, 1200)
+        self.assertEqual(worker.heap_mb, 3276)
+        self.assertEqual(worker.query_max_memory_mb, 3 * worker.query_max_memory_per_node_mb)
+        # coordinator runs queries in singlenode mode
+        self.assertEqual(resources_sizing(resources, 'WORKER', 'true').query_max_memory_mb, 4 * worker.query_max_memory_per_node_mb)
+
+    def test_global_yarn_memory(self):
+        sizing = resources_sizing({'global': {'yarn.memory': '1500'}, 'components': {'COORDINATOR': {}}}, 'COORDINATOR', 'true')
+        self.assertEqual(sizing.heap_mb, 1200)
+        self.assertRaises(ValueError, resources_sizing, {'components': {}}, 'COORDINATOR', 'true')
+
+    def test_jvm_args_are_replaced(self):
+        jvm_args = ['-server', '-Xmx1024M', '-Xms512M', '-XX:+UseG1GC', '-XX:MaxDirectMemorySize=1G']
+        self.assertEqual(
+            apply_jvm_args(jvm_args, size_memory(1500, 1)),
+            ['-server', '-XX:+UseG1GC', '-Xmx1200M', '-XX:MaxDirectMemorySize=150M'])
+
+
+if __name__ == '__main__':
+    unittest.main()
@@ -0,0 +1,148 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import os, shutil, stat, sys, tarfile, tempfile, threading, unittest
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+from plugin_cache import is_remote, link_files, localize
+
+# serves hdfs://<path> URIs from the local <path>, stat output is read from the stat file
+FAKE_HADOOP = """#!/bin/sh
+directory="$(dirname "$0")"
+case "$2" in
+  -stat) cat "$directory/stat" ;;
+  -get)
+    echo "$3" >> "$directory/gets"
+    sleep 0.2
+    cp -r "${3#hdfs://}" "$4" ;;
+  *) exit 1 ;;
+esac
+"""
+
+
+class PluginCacheTest(unittest.TestCase):
+    def setUp(self):
+        self.directory = tempfile.mkdtemp()
+        self.hadoop = os.path.join(self.directory, 'hadoop')
+        with open(self.hadoop, 'w') as fw:
+            fw.write(FAKE_HADOOP)
+        os.chmod(self.hadoop, stat.S_IRWXU)
+        self.set_stat(100, 1000)
+        self.cache_dir = os.path.join(self.directory, 'plugin-cache')
+        self.remote = os.path.join(self.directory, 'remote')
+        os.makedirs(os.path.join(self.remote, 'ml'))
+        for name in ['ml.jar', 'commons-math.jar']:
+            with open(os.path.join(self.remote, 'ml', name), 'w') as fw:
+                fw.write(name)
+
+    def tearDown(self):
+        shutil.rmtree(self.directory)
+
+    def test_is_remote(self):
+        self.assertTrue(is_remote('hdfs://nameservice/presto/plugins/ml/'))
+        self.assertFalse(is_remote('presto-ml-0.167.jar'))
+
+    def test_directory_is_localized_once(self):
+        uri = 'hdfs://' + os.path.join(self.remote, 'ml') + '/'
+
+        files = localize(uri, self.cache_dir, self.hadoop)
+        self.assertEqual(localize(uri, self.cache_dir, self.hadoop), files)
+
+        self.assertEqual([os.path.basename(path) for path in files], ['commons-math.jar', 'ml.jar'])
+        self.assertEqual(self.gets(), [uri])
+
+    def test_concurrent_localizations_download_once(self):
+        uri = 'hdfs://' + os.path.join(self.remote, 'ml')
+        results = []
+        errors = []
+
+        def localize_plugin():
+            try:
+                results.append(localize(uri, self.cache_dir, self.hadoop))
+            except Exception as e:
+                errors.append(e)
+
+        threads = [threading.Thread(target=localize_plugin) for _ in range(4)]
+        for thread in threads:
+            thread.start()
+        for thread in threads:
+            thread.join()
+
+        self.assertEqual(errors, [])
+        self.assertEqual(self.gets(), [uri])
+        self.assertEqual(len(set(tuple(files) for files in results)), 1)
+        self.assertEqual([name for name in os.listdir(self.cache_dir) if name.startswith('.staging-')], [])
+
+    def test_modified_resource_is_localized_again(self):
+        uri = 'hdfs://' + os.path.join(self.remote, 'ml')
+
+        first = localize(uri, self.cache_dir, self.hadoop)
+        self.set_stat(100, 2000)
+        second = localize(uri, self.cache_dir, self.hadoop)
+
+        self.assertEqual(self.gets(), [uri, uri])
+        self.assertNotEqual(os.path.dirname(first[0]), os.path.dirname(second[0]))
+
+    def test_archive_is_unpacked(self):
+        archive = os.path.join(self.remote, 'ml.tar.gz')
+        opened = tarfile.open(archive, 'w:gz')
+        try:
+            opened.add(os.path.join(self.remote, 'ml'), 'ml-plugin')
+        finally:
+            opened.close()
+
+        files = localize('hdfs://' + archive, self.cache_dir, self.hadoop)
+
+        # single top level directory of the archive is skipped
+        self.assertEqual([os.path.basename(path) for path in files], ['commons-math.jar', 'ml.jar'])
+
+    def test_failed_download_is_not_cached(self):
+        uri = 'hdfs://' + os.path.join(self.remote, 'missing')
+
+        self.assertRaises(Exception, localize, uri, self.cache_dir, self.hadoop)
+
+        self.assertEqual([name for name in os.listdir(self.cache_dir) if not name.endswith('.lock')], [])
+
+    def test_link_files(self):
+        files = localize('hdfs://' + os.path.join(self.remote, 'ml'), self.cache_dir, self.hadoop)
+        plugin_dir = os.path.join(self.directory, 'container_1', 'plugin', 'ml')
+        os.makedirs(plugin_dir)
+        with open(os.path.join(plugin_dir, 'ml.jar'), 'w') as fw:
+            fw.write('bundled')
+
+        link_files(files, plugin_dir)
+
+        self.assertEqual(sorted(os.listdir(plugin_dir)), ['commons-math.jar', 'ml.jar'])
+        self.assertEqual(os.path.realpath(os.path.join(plugin_dir, 'ml.jar')), os.path.realpath(files[1]))
+
+    def set_stat(self, length, modification_time):
+        with open(os.path.join(self.directory, 'stat'), 'w') as fw:
+            fw.write('%d %d\n' % (length, modification_time))
+
+    def gets(self):
+        gets = os.path.join(self.directory, 'gets')
+        if not os.path.exists(gets):
+            return []
+        with open(gets) as f:
+            return f.read().split()
+
+
+if __name__ == '__main__':
+    unittest.main()
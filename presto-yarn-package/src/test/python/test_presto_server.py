@@ -0,0 +1,137 @@
+#!/usr/bin/env python
+"""
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+"""
+import os, shutil, subprocess, sys, tempfile, threading, types, unittest
+
+try:
+    from BaseHTTPServer import BaseHTTPRequestHandler, HTTPServer
+except ImportError:
+    from http.server import BaseHTTPRequestHandler, HTTPServer
+
+sys.path.insert(0, os.path.join(os.path.dirname(os.path.abspath(__file__)), '..', '..', 'main', 'slider', 'package', 'scripts'))
+
+# stand-ins for the Slider agent libraries and the params module generated from the app config
+params = types.ModuleType('params')
+resource_management = types.ModuleType('resource_management')
+resource_management.Script = object
+resource_management.format = lambda template: template.format(**vars(params))
+resource_management.__all__ = ['Script', 'format']
+logger = types.ModuleType('resource_management.core.logger')
+
+
+class Logger(object):
+    info = staticmethod(lambda message: None)
+    warning = staticmethod(lambda message: None)
+
+
+logger.Logger = Logger
+sys.modules.update({
+    'params': params,
+    'resource_management': resource_management,
+    'resource_management.core': types.ModuleType('resource_management.core'),
+    'resource_management.core.logger': logger,
+})
+
+from presto_server import PrestoServer
+
+
+class Env(object):
+    def set_params(self, params):
+        pass
+
+
+class PrestoServerStopTest(unittest.TestCase):
+    def setUp(self):
+        self.directory = tempfile.mkdtemp()
+        self.addCleanup(shutil.rmtree, self.directory)
+        self.server = subprocess.Popen(['sleep', '60'])
+        # reaps the server as soon as it exits, so that it is not seen running as a zombie
+        threading.Thread(target=self.server.wait).start()
+        self.addCleanup(self.kill_server)
+
+        self.requests = []
+        self.state_status = 200
+        self.http_server = HTTPServer(('localhost', 0), self.handler())
+        threading.Thread(target=self.http_server.serve_forever).start()
+        self.addCleanup(self.http_server.server_close)
+        self.addCleanup(self.http_server.shutdown)
+
+        params.pid_file = os.path.join(self.directory, 'launcher.pid')
+        with open(params.pid_file, 'w') as fw:
+            fw.write(str(self.server.pid))
+        params.log_dir = os.path.join(self.directory, 'log')
+        params.presto_server_port = self.http_server.server_address[1]
+        params.presto_user = 'yarn'
+        params.shutdown_grace_period = 10
+        params.graceful_shutdown = 'true'
+
+    def kill_server(self):
+        if self.server.poll() is None:
+            self.server.kill()
+
+    def handler(self):
+        test = self
+
+        class Handler(BaseHTTPRequestHandler):
+            def do_PUT(self):
+                body = self.rfile.read(int(self.headers['Content-Length'])).decode('utf-8')
+                test.requests.append((self.path, body, self.headers['X-Presto-User']))
+                self.send_response(test.state_status)
+                self.end_headers()
+                if test.state_status == 200:
+                    # Presto exits once its active tasks are done
+                    test.server.terminate()
+
+            def log_message(self, *args):
+                pass
+        return Handler
+
+    def phases(self):
+        with open(os.path.join(params.log_dir, 'startup-phases.log')) as f:
+            return [line.split()[1] for line in f]
+
+    def test_worker_is_drained(self):
+        PrestoServer('WORKER').stop(Env())
+
+        self.assertEqual(self.requests, [('/v1/info/state', '"SHUTTING_DOWN"', 'yarn')])
+        self.assertEqual(self.phases(), ['stop', 'drained'])
+
+    def test_worker_is_killed_when_graceful_shutdown_is_disabled(self):
+        params.graceful_shutdown = 'false'
+        PrestoServer('WORKER').stop(Env())
+
+        self.assertEqual(self.requests, [])
+        self.assertEqual(self.phases(), ['stop', 'killed'])
+
+    def test_worker_is_killed_when_server_does_not_support_graceful_shutdown(self):
+        self.state_status = 404
+        PrestoServer('WORKER').stop(Env())
+
+        self.assertEqual(len(self.requests), 1)
+        self.assertEqual(self.phases(), ['stop', 'killed'])
+
+    def test_coordinator_is_not_drained(self):
+        PrestoServer('COORDINATOR').stop(Env())
+
+        self.assertEqual(self.requests, [])
+        self.assertEqual(self.phases(), ['stop', 'killed'])
+
+
+if __name__ == '__main__':
+    unittest.main()
@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Name of a slider application and the resources on the nodes which must not be shared with other
+ * applications running at the same time: Presto HTTP port and data and configuration directories.
+ * The HDFS directory of the application ({@code .slider/cluster/NAME}) is derived from the name.
+ */
+public class ApplicationInstance
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static final String DEFAULT_NAME = "presto_cluster";
+    public static final int DEFAULT_PORT = 8080;
+    // clear of Hadoop ports, e.g. 8088 (ResourceManager web UI) and 8141 (ResourceManager admin on HDP)
+    public static final int DEFAULT_ISOLATED_BASE_PORT = 18080;
+    private static final int MAX_PORT = 65535;
+    private static final String ISOLATED_ROOT = "/var/lib/presto/apps";
+
+    private static final ApplicationInstance DEFAULT = new ApplicationInstance(DEFAULT_NAME, DEFAULT_PORT, Optional.empty());
+    private static final AtomicInteger isolatedInstances = new AtomicInteger();
+    // isolated applications by port, until they are released
+    private static final Map<Integer, ApplicationInstance> isolatedPorts = new HashMap<>();
+
+    private final String name;
+    private final int port;
+    private final Optional<String> directory;
+
+    private ApplicationInstance(String name, int port, Optional<String> directory)
+    {
+        checkArgument(name.matches("[a-z][a-z0-9_]*"), "invalid slider application name: %s", name);
+        this.name = name;
+        this.port = port;
+        this.directory = requireNonNull(directory, "directory is null");
+    }
+
+    /**
+     * Application which uses the template as is, only one of them can run at a time.
+     */
+    public static ApplicationInstance defaultInstance()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Application with a unique name, port and directories, see {@link #isolated(int)}.
+     */
+    public static ApplicationInstance isolated()
+    {
+        return isolated(DEFAULT_ISOLATED_BASE_PORT);
+    }
+
+    /**
+     * Application with a unique name, port and directories, which can run next to other isolated
+     * applications. It gets the lowest port from the given one up which is not used by another isolated
+     * application, until the port is given back with {@link #release()}.
+     */
+    public static ApplicationInstance isolated(int basePort)
+    {
+        checkArgument(basePort > 0 && basePort <= MAX_PORT, "invalid base port: %s", basePort);
+        String name = DEFAULT_NAME + "_" + isolatedInstances.incrementAndGet();
+        synchronized (isolatedPorts) {
+            for (int port = basePort; port <= MAX_PORT; port++) {
+                if (!isolatedPorts.containsKey(port)) {
+                    ApplicationInstance instance = new ApplicationInstance(name, port, Optional.of(ISOLATED_ROOT + "/" + name));
+                    isolatedPorts.put(port, instance);
+                    return instance;
+                }
+            }
+        }
+        throw new IllegalStateException("No free port from " + basePort + " up");
+    }
+
+    /**
+     * Gives the port of an isolated application back, once the application is destroyed.
+     */
+    public void release()
+    {
+        synchronized (isolatedPorts) {
+            isolatedPorts.remove(port, this);
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    public String getHdfsDirectory()
+    {
+        return ".slider/cluster/" + name;
+    }
+
+    /**
+     * Returns a pattern (valid for {@code grep} and {@code pgrep -f}) matching command line of
+     * Presto servers of this application only.
+     */
+    public String getProcessPattern()
+    {
+        return directory
+                .map(directory -> directory + "/etc/config.properties.*PrestoServer")
+                .orElse("PrestoServer");
+    }
+
+    public boolean isIsolated()
+    {
+        return directory.isPresent();
+    }
+
+    /**
+     * Writes a copy of the appConfig template with the port and directories of this application to
+     * the given directory. Copies are named after the application, as slider client uploads them
+     * under their file names.
+     */
+    public Path writeTemplate(Path template, Path targetDirectory)
+    {
+        try {
+            ObjectNode appConfig = (ObjectNode) OBJECT_MAPPER.readTree(Files.readAllBytes(template));
+            if (directory.isPresent()) {
+                appConfig.with("global")
+                        .put("site.global.presto_server_port", String.valueOf(port))
+                        .put("site.global.data_dir", directory.get() + "/data")
+                        .put("site.global.config_dir", directory.get() + "/etc");
+            }
+            Path copy = targetDirectory.resolve(name + "-" + template.getFileName());
+            Files.write(copy, OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(appConfig));
+            return copy;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a copy of the resources file named after the application to the given directory.
+     */
+    public Path writeResources(Path resources, Path targetDirectory)
+    {
+        try {
+            Path copy = targetDirectory.resolve(name + "-" + resources.getFileName());
+            Files.write(copy, Files.readAllBytes(resources));
+            return copy;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + ":" + port;
+    }
+}
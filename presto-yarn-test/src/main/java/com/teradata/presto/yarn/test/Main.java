@@ -27,6 +27,7 @@ public class Main
                 .builder("Presto-yarn product tests")
                 .setTestsPackage("com.teradata.presto.yarn.test.*", false)
                 .setConfigFile(DEFAULT_TEST_CONFIGURATION_LOCATION, false)
+                .setExcludedGroups(PrestoClusterBenchmark.BENCHMARK, true)
                 .build();
         TemptoRunner.runTempto(parser, args);
     }
@@ -16,9 +16,13 @@ package com.teradata.presto.yarn.test;
 import com.facebook.presto.jdbc.PrestoDriver;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.SettableFuture;
-import com.teradata.presto.yarn.test.slider.Slider;
+import com.teradata.presto.yarn.test.scheduling.CapacityScheduler;
+import com.teradata.presto.yarn.test.scheduling.ResourceRequest;
+import com.teradata.presto.yarn.test.slider.SliderClient;
 import com.teradata.presto.yarn.test.slider.SliderStatus;
-import com.teradata.presto.yarn.test.utils.SimpleJdbcQueryExecutor;
+import com.teradata.presto.yarn.test.slider.SliderStatusCache;
+import com.teradata.presto.yarn.test.utils.JdbcConnectionPool;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
 import com.teradata.tempto.assertions.QueryAssert;
 import com.teradata.tempto.hadoop.hdfs.HdfsClient;
 import com.teradata.tempto.query.QueryExecutionException;
@@ -26,6 +30,10 @@ import com.teradata.tempto.query.QueryExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
@@ -38,7 +46,10 @@ import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.teradata.presto.yarn.test.utils.Closures.withMethodHelper;
+import static com.teradata.presto.yarn.test.utils.JdbcConnectionPool.DEFAULT_IDLE_TIMEOUT;
+import static com.teradata.presto.yarn.test.utils.JdbcConnectionPool.DEFAULT_VALIDATION_INTERVAL;
 import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MINUTES;
 
 public class PrestoCluster
@@ -47,37 +58,131 @@ public class PrestoCluster
 
     public static final String COORDINATOR_COMPONENT = "COORDINATOR";
     public static final String WORKER_COMPONENT = "WORKER";
-    public static final String APP_NAME = "presto_cluster";
+    public static final String APP_NAME = ApplicationInstance.DEFAULT_NAME;
 
     private final Path resource;
     private final Path template;
-    private final Slider slider;
+    private final SliderClient slider;
+    private final SliderStatusCache statusCache;
     private final HdfsClient hdfsClient;
+    private final ApplicationInstance instance;
+    private final Optional<CapacityScheduler> scheduler;
+    private final JdbcConnectionPool connectionPool = new JdbcConnectionPool(PrestoCluster::getPrestoConnection);
+    private volatile boolean dirty;
+    private volatile String coordinatorUrl;
 
-    public PrestoCluster(Slider slider, HdfsClient hdfsClient, String sliderConfDir, String resource, String template)
+    public PrestoCluster(SliderClient slider, HdfsClient hdfsClient, String sliderConfDir, String resource, String template)
+    {
+        this(slider, hdfsClient, sliderConfDir, resource, template, ApplicationInstance.defaultInstance(), Optional.empty());
+    }
+
+    /**
+     * Creates cluster of the given application instance. When the scheduler is given, {@link #withPrestoCluster(Runnable)}
+     * waits until resources requested by the resources file are available.
+     */
+    public PrestoCluster(
+            SliderClient slider,
+            HdfsClient hdfsClient,
+            String sliderConfDir,
+            String resource,
+            String template,
+            ApplicationInstance instance,
+            Optional<CapacityScheduler> scheduler)
     {
         this.hdfsClient = hdfsClient;
         this.slider = slider;
+        this.instance = requireNonNull(instance, "instance is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.statusCache = new SliderStatusCache(() -> slider.status(instance.getName()));
         this.resource = Paths.get(sliderConfDir, resource);
         this.template = Paths.get(sliderConfDir, template);
     }
 
+    public String getAppName()
+    {
+        return instance.getName();
+    }
+
+    public ApplicationInstance getInstance()
+    {
+        return instance;
+    }
+
+    public Path getResource()
+    {
+        return resource;
+    }
+
+    public Path getTemplate()
+    {
+        return template;
+    }
+
     public void withPrestoCluster(Runnable closure)
     {
-        withMethodHelper(this::create, closure, this::cleanup);
+        if (!scheduler.isPresent()) {
+            withMethodHelper(this::create, closure, this::cleanup);
+            return;
+        }
+        try (CapacityScheduler.Admission ignored = scheduler.get().admit(instance.getName(), ResourceRequest.fromResources(resource))) {
+            withMethodHelper(this::create, closure, this::cleanup);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
     }
 
     public void create()
     {
         cleanup();
-        checkState(!hdfsClient.exist(".slider/cluster/" + APP_NAME));
+        checkState(!hdfsClient.exist(instance.getHdfsDirectory()));
+
+        try {
+            if (instance.isIsolated()) {
+                Path directory = Files.createTempDirectory(instance.getName());
+                try {
+                    slider.create(instance.getName(), instance.writeTemplate(template, directory), instance.writeResources(resource, directory));
+                }
+                finally {
+                    // the copies are uploaded by slider create
+                    deleteDirectory(directory);
+                }
+            }
+            else {
+                slider.create(instance.getName(), template, resource);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            statusCache.invalidate();
+            invalidateCoordinatorUrl();
+        }
+    }
 
-        slider.create(APP_NAME, template, resource);
+    private static void deleteDirectory(Path directory)
+            throws IOException
+    {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
     }
 
     public void cleanup()
     {
-        slider.cleanup(APP_NAME);
+        try {
+            slider.cleanup(instance.getName());
+        }
+        finally {
+            statusCache.invalidate();
+            invalidateCoordinatorUrl();
+            connectionPool.invalidateAll();
+        }
     }
 
     public void assertThatPrestoIsUpAndRunning(int workersCount)
@@ -96,7 +201,7 @@ public class PrestoCluster
 
     private void waitForComponentsCount(final String component, final int expectedCount)
     {
-        retryUntil(() -> getComponentHosts(component).size() == expectedCount, MINUTES.toMillis(3));
+        retryUntil(expectedCount + " " + component + " components", () -> getComponentHosts(component).size() == expectedCount, MINUTES.toMillis(3));
     }
 
     public List<String> getComponentHosts(String component)
@@ -124,19 +229,56 @@ public class PrestoCluster
     public QueryExecutor waitForPrestoServer()
     {
         QueryExecutor queryExecutor = getQueryExecutor();
-        retryUntil(() -> isPrestoAccessible(queryExecutor), MINUTES.toMillis(5));
+        log.info("Waiting for Presto at connection url: " + getCoordinatorUrl() + "...");
+        retryUntil("presto server", () -> isPrestoAccessible(queryExecutor), MINUTES.toMillis(5));
         return queryExecutor;
     }
 
-    public QueryExecutor getQueryExecutor()
+    /**
+     * Returns query executor which sends queries to the current coordinator using pooled connections.
+     */
+    public PooledQueryExecutor getQueryExecutor()
+    {
+        return getQueryExecutor(connectionPool);
+    }
+
+    /**
+     * Returns query executor which uses connections from the given pool, see {@link #createConnectionPool(int)}.
+     */
+    public PooledQueryExecutor getQueryExecutor(JdbcConnectionPool connectionPool)
+    {
+        return new PooledQueryExecutor(connectionPool, this::getCoordinatorUrl, this::invalidateCoordinatorUrl);
+    }
+
+    /**
+     * Creates a separate pool of Presto connections, e.g. for workloads which need more connections
+     * than {@link #getQueryExecutor()} allows.
+     */
+    public static JdbcConnectionPool createConnectionPool(int maxConnections)
+    {
+        return new JdbcConnectionPool(PrestoCluster::getPrestoConnection, maxConnections, DEFAULT_IDLE_TIMEOUT, DEFAULT_VALIDATION_INTERVAL);
+    }
+
+    /**
+     * Returns connection url of the coordinator, which is resolved from slider status only once
+     * and again after a connection failure or an operation which may move the coordinator.
+     */
+    private String getCoordinatorUrl()
     {
-        String url = "jdbc:presto://" + getCoordinatorHost() + ":8080";
-        log.info("Waiting for Presto at connection url: " + url + "...");
+        String url = coordinatorUrl;
+        if (url == null) {
+            url = "jdbc:presto://" + getCoordinatorHost() + ":" + instance.getPort();
+            coordinatorUrl = url;
+        }
+        return url;
+    }
 
-        return new SimpleJdbcQueryExecutor(getPrestoConnection(url));
+    private void invalidateCoordinatorUrl()
+    {
+        coordinatorUrl = null;
     }
 
-    private Connection getPrestoConnection(String url)
+    private static Connection getPrestoConnection(String url)
     {
         PrestoDriver prestoDriver = new PrestoDriver();
         Properties properties = new Properties();
@@ -164,19 +306,60 @@ public class PrestoCluster
         }
     }
 
+    /**
+     * Returns recently fetched application status, see {@link SliderStatusCache}.
+     */
     public Optional<SliderStatus> status()
     {
-        return slider.status(APP_NAME);
+        return statusCache.get();
+    }
+
+    /**
+     * Marks the cluster as not reusable by other tests, see {@link PrestoClusterPool}.
+     */
+    public void markDirty()
+    {
+        dirty = true;
+    }
+
+    public boolean isDirty()
+    {
+        return dirty;
+    }
+
+    public void start()
+    {
+        try {
+            slider.start(instance.getName());
+        }
+        finally {
+            statusCache.invalidate();
+            invalidateCoordinatorUrl();
+            connectionPool.invalidateAll();
+        }
     }
 
     public void stop()
     {
-        slider.stop(APP_NAME);
+        try {
+            slider.stop(instance.getName());
+        }
+        finally {
+            statusCache.invalidate();
+            invalidateCoordinatorUrl();
+            connectionPool.invalidateAll();
+        }
     }
 
     public void flex(String component_name, int component_count)
     {
-        slider.flex(APP_NAME, component_name, component_count);
+        try {
+            slider.flex(instance.getName(), component_name, component_count);
+        }
+        finally {
+            statusCache.invalidate();
+            invalidateCoordinatorUrl();
+        }
     }
 
     public Collection<String> getAllNodes()
@@ -192,7 +375,7 @@ public class PrestoCluster
     public String getCoordinatorHost()
     {
         String[] coordinatorHost = new String[1];
-        retryUntil(() -> {
+        retryUntil("coordinator host", () -> {
             List<String> componentHosts = getComponentHosts(COORDINATOR_COMPONENT);
             if (componentHosts.size() == 1) {
                 coordinatorHost[0] = componentHosts.get(0);
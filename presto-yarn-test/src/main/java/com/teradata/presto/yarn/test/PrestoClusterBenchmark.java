@@ -0,0 +1,442 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import com.teradata.presto.yarn.test.autoscaling.Autoscaler;
+import com.teradata.presto.yarn.test.autoscaling.PrestoLoadSource;
+import com.teradata.presto.yarn.test.autoscaling.ScalingPolicy;
+import com.teradata.presto.yarn.test.slider.Slider;
+import com.teradata.presto.yarn.test.startup.NodeStartupMarkers;
+import com.teradata.presto.yarn.test.startup.StartupBenchmark;
+import com.teradata.presto.yarn.test.startup.StartupReport;
+import com.teradata.presto.yarn.test.tpch.ScanReport;
+import com.teradata.presto.yarn.test.tpch.TpchFormat;
+import com.teradata.presto.yarn.test.tpch.TpchHiveTables;
+import com.teradata.presto.yarn.test.utils.CpuThrottling;
+import com.teradata.presto.yarn.test.utils.JdbcConnectionPool;
+import com.teradata.presto.yarn.test.utils.JsonHttpClient;
+import com.teradata.presto.yarn.test.utils.JsonHttpClient.HttpStatusException;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
+import com.teradata.presto.yarn.test.utils.QueryStatistics;
+import com.teradata.presto.yarn.test.workload.QueryMix;
+import com.teradata.presto.yarn.test.workload.WorkloadDriver;
+import com.teradata.presto.yarn.test.workload.WorkloadReport;
+import com.teradata.tempto.ProductTest;
+import com.teradata.tempto.hadoop.hdfs.HdfsClient;
+import com.teradata.tempto.query.QueryExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import javax.inject.Named;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static com.teradata.presto.yarn.test.autoscaling.ScalingPolicy.scalingPolicy;
+import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
+import static com.teradata.presto.yarn.test.workload.WorkloadDriver.workload;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmarks run against a cluster deployed with slider. They are excluded from regular runs,
+ * use {@code --groups benchmark --excluded-groups none} to run them.
+ */
+public class PrestoClusterBenchmark
+        extends ProductTest
+{
+    private static final Logger log = LoggerFactory.getLogger(PrestoClusterBenchmark.class);
+
+    public static final String BENCHMARK = "benchmark";
+
+    @Inject
+    private HdfsClient hdfsClient;
+    @Inject
+    private Slider slider;
+
+    @Inject
+    @Named("cluster.slaves")
+    private List<String> workers;
+    @Inject
+    @Named("tests.slider.conf_dir")
+    private String sliderConfDirPath;
+    @Inject
+    @Named("tests.workload.resource")
+    private String resource;
+    @Inject
+    @Named("tests.workload.template")
+    private String template;
+    @Inject
+    @Named("tests.workload.clients")
+    private int clients;
+    @Inject
+    @Named("tests.workload.duration_seconds")
+    private int durationInSeconds;
+    @Inject
+    @Named("tests.workload.iterations")
+    private int iterations;
+    @Inject
+    @Named("tests.workload.schema")
+    private String schema;
+    @Inject
+    @Named("tests.workload.queries")
+    private String queries;
+    @Inject
+    @Named("tests.workload.report")
+    private String reportPath;
+
+    @Inject
+    private NodeSshUtils nodeSshUtils;
+    @Inject
+    @Named("tests.startup.runs")
+    private int startupRuns;
+    @Inject
+    @Named("tests.startup.log_dir")
+    private String prestoLogDir;
+    @Inject
+    @Named("tests.startup.report")
+    private String startupReportPath;
+
+    @Inject
+    @Named("tests.startup.appcds_template")
+    private String appCdsTemplate;
+
+    @Inject
+    @Named("tests.throttling.template")
+    private String sizedTemplate;
+
+    @Inject
+    @Named("tests.autoscaling.min_workers")
+    private int autoscalingMinWorkers;
+    @Inject
+    @Named("tests.autoscaling.max_workers")
+    private int autoscalingMaxWorkers;
+    @Inject
+    @Named("tests.autoscaling.interval_seconds")
+    private int autoscalingIntervalInSeconds;
+    @Inject
+    @Named("tests.autoscaling.resource_groups")
+    private String autoscalingResourceGroups;
+
+    @Inject
+    @Named("tests.draining.flex_delay_seconds")
+    private int flexDelayInSeconds;
+
+    @Inject
+    @Named("hive")
+    private QueryExecutor hiveQueryExecutor;
+    @Inject
+    @Named("tests.hdfs.path")
+    private String hdfsPath;
+    @Inject
+    @Named("tests.tpch.scale_factor")
+    private double tpchScaleFactor;
+    @Inject
+    @Named("tests.tpch.formats")
+    private String tpchFormats;
+    @Inject
+    @Named("tests.tpch.writers")
+    private int tpchWriters;
+    @Inject
+    @Named("tests.tpch.runs")
+    private int scanRuns;
+    @Inject
+    @Named("tests.tpch.report")
+    private String scanReportPath;
+
+    @Test(groups = BENCHMARK)
+    public void concurrentQueryWorkload()
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        prestoCluster.withPrestoCluster(() -> {
+            int expectedWorkers = resource.contains("singlenode") ? 0 : workers.size();
+            prestoCluster.assertThatPrestoIsUpAndRunning(expectedWorkers);
+
+            WorkloadDriver driver = workloadDriver();
+
+            try (JdbcConnectionPool connectionPool = PrestoCluster.createConnectionPool(clients)) {
+                PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor(connectionPool);
+                retryUntil("all presto nodes", () -> activeNodes(queryExecutor) == expectedWorkers + 1, MINUTES.toMillis(4));
+
+                WorkloadReport report = driver.run(queryExecutor)
+                        .withProperty("resource", resource)
+                        .withProperty("template", template)
+                        .withProperty("schema", schema)
+                        .withProperty("queries", queries);
+                log.info("Workload finished: {}", report);
+                report.writeTo(Paths.get(reportPath));
+            }
+        });
+    }
+
+    @Test(groups = BENCHMARK)
+    public void startupLatency()
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        int expectedWorkers = resource.contains("singlenode") ? 0 : workers.size();
+
+        StartupReport report = new StartupBenchmark(prestoCluster, nodeSshUtils, prestoLogDir).run(startupRuns, expectedWorkers);
+        log.info("Startup phases: {}", report);
+        report.writeTo(Paths.get(startupReportPath));
+    }
+
+    /**
+     * Compares startup of the cluster created from the regular template with one using a class data
+     * sharing archive. The archive affects the jvm_boot phase, i.e. the time to SERVER STARTED.
+     */
+    @Test(groups = BENCHMARK)
+    public void appCdsStartupLatency()
+    {
+        int expectedWorkers = resource.contains("singlenode") ? 0 : workers.size();
+        StartupReport withoutArchive = startupReport(template, expectedWorkers);
+        StartupReport withArchive = startupReport(appCdsTemplate, expectedWorkers);
+        log.info("Startup phases with {}: {}", template, withoutArchive);
+        log.info("Startup phases with {}: {}", appCdsTemplate, withArchive);
+        withoutArchive.writeTo(Paths.get(startupReportPath));
+        withArchive.writeTo(Paths.get(startupReportPath.replace(".json", "-appcds.json")));
+    }
+
+    private StartupReport startupReport(String template, int expectedWorkers)
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        StartupBenchmark benchmark = new StartupBenchmark(prestoCluster, nodeSshUtils, prestoLogDir);
+        // warm up start fills the install cache and dumps the archive on each node, it is not measured
+        try {
+            benchmark.measure(expectedWorkers);
+        }
+        finally {
+            prestoCluster.cleanup();
+        }
+        return benchmark.run(startupRuns, expectedWorkers);
+    }
+
+    @Test(groups = BENCHMARK)
+    public void autoscaledQueryWorkload()
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        prestoCluster.withPrestoCluster(() -> {
+            prestoCluster.assertThatPrestoIsUpAndRunning(workers.size());
+            prestoCluster.flex(PrestoCluster.WORKER_COMPONENT, autoscalingMinWorkers);
+
+            WorkloadDriver driver = workloadDriver();
+
+            try (JdbcConnectionPool connectionPool = PrestoCluster.createConnectionPool(clients + 1)) {
+                PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor(connectionPool);
+                List<String> resourceGroups = Splitter.on(',').omitEmptyStrings().trimResults().splitToList(autoscalingResourceGroups);
+                ScalingPolicy policy = scalingPolicy(autoscalingMinWorkers, autoscalingMaxWorkers);
+
+                WorkloadReport report;
+                try (Autoscaler autoscaler = new Autoscaler(prestoCluster, new PrestoLoadSource(queryExecutor, resourceGroups), policy)) {
+                    autoscaler.start(SECONDS.toMillis(autoscalingIntervalInSeconds));
+                    report = driver.run(queryExecutor)
+                            .withProperty("resource", resource)
+                            .withProperty("template", template)
+                            .withProperty("queries", queries)
+                            .withProperty("scaling_policy", policy.toString())
+                            .withProperty("scaling_events", String.valueOf(autoscaler.getEvents()));
+                }
+                log.info("Autoscaled workload finished: {}", report);
+                report.writeTo(Paths.get(reportPath.replace(".json", "-autoscaled.json")));
+            }
+        });
+    }
+
+    /**
+     * Runs the workload twice, the second time flexing one WORKER down while queries are running,
+     * and reports failed queries and latencies of both runs. Draining workers should not fail queries.
+     * <p>
+     * Draining is enabled with {@code site.global.graceful_shutdown} in the template. It needs a Presto
+     * release with graceful shutdown ({@code PUT /v1/info/state}), which 0.167 does not have, and a Slider
+     * release which calls the package {@code stop()} for released containers. Slider 0.80 does not, the
+     * NodeManager kills them instead. The benchmark is skipped when the server
+     * does not support graceful shutdown, and failed queries are only compared when a worker was drained.
+     */
+    @Test(groups = BENCHMARK)
+    public void flexDownDuringWorkload()
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        prestoCluster.withPrestoCluster(() -> {
+            prestoCluster.assertThatPrestoIsUpAndRunning(workers.size());
+            if (!isGracefulShutdownSupported(prestoCluster)) {
+                throw new SkipException("Presto server does not support graceful shutdown, workers cannot be drained");
+            }
+
+            try (JdbcConnectionPool connectionPool = PrestoCluster.createConnectionPool(clients)) {
+                PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor(connectionPool);
+                retryUntil("all presto nodes", () -> activeNodes(queryExecutor) == workers.size() + 1, MINUTES.toMillis(4));
+                List<String> workerHosts = prestoCluster.getWorkerHosts();
+
+                WorkloadReport baseline = workloadDriver().run(queryExecutor)
+                        .withProperty("resource", resource)
+                        .withProperty("template", template)
+                        .withProperty("queries", queries);
+                baseline.writeTo(Paths.get(reportPath.replace(".json", "-baseline.json")));
+
+                long flexDownStart = System.currentTimeMillis();
+                ScheduledExecutorService executor = newSingleThreadScheduledExecutor();
+                WorkloadReport flexDown;
+                try {
+                    ScheduledFuture<?> flex = executor.schedule(
+                            () -> prestoCluster.flex(PrestoCluster.WORKER_COMPONENT, workers.size() - 1),
+                            flexDelayInSeconds,
+                            SECONDS);
+                    flexDown = workloadDriver().run(queryExecutor)
+                            .withProperty("resource", resource)
+                            .withProperty("template", template)
+                            .withProperty("queries", queries)
+                            .withProperty("flex_delay_seconds", String.valueOf(flexDelayInSeconds));
+                    getUnchecked(flex);
+                }
+                finally {
+                    executor.shutdownNow();
+                }
+                flexDown.writeTo(Paths.get(reportPath.replace(".json", "-flex-down.json")));
+
+                log.info("Baseline workload finished: {}", baseline);
+                log.info("Workload with flex down finished: {}", flexDown);
+                flexDown.getQueries().forEach((name, query) -> log.info(
+                        "{}: p95 latency {} ms (baseline {} ms)",
+                        name,
+                        query.getLatencies().getPercentile(0.95),
+                        baseline.getQueries().containsKey(name) ? baseline.getQueries().get(name).getLatencies().getPercentile(0.95) : "-"));
+
+                retryUntil("drained worker to leave", () -> activeNodes(queryExecutor) == workers.size(), MINUTES.toMillis(6));
+                boolean drained = nodeSshUtils.onHosts(workerHosts, host -> NodeStartupMarkers.read(nodeSshUtils, host, prestoLogDir, flexDownStart)).stream()
+                        .anyMatch(markers -> markers.getPhase(PrestoCluster.WORKER_COMPONENT, "drained").isPresent());
+                if (!drained) {
+                    throw new SkipException("No worker was drained, the released container was killed without calling the package stop()");
+                }
+                assertThat(flexDown.getFailedQueries()).isLessThanOrEqualTo(baseline.getFailedQueries());
+            }
+        });
+    }
+
+    /**
+     * Runs the workload on a cluster created from the regular template and on one with thread pools
+     * (and memory) sized from the container resources, and compares CFS throttling of containers.
+     */
+    @Test(groups = BENCHMARK)
+    public void cpuThrottling()
+    {
+        CpuThrottling staticThrottling = throttlingDuringWorkload(template);
+        CpuThrottling sizedThrottling = throttlingDuringWorkload(sizedTemplate);
+        log.info("CPU throttling with {}: {}, with {}: {}", template, staticThrottling, sizedTemplate, sizedThrottling);
+
+        assertThat(sizedThrottling.getThrottledRatio()).isLessThanOrEqualTo(staticThrottling.getThrottledRatio());
+    }
+
+    private CpuThrottling throttlingDuringWorkload(String template)
+    {
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        CpuThrottling[] throttling = new CpuThrottling[1];
+        prestoCluster.withPrestoCluster(() -> {
+            int expectedWorkers = resource.contains("singlenode") ? 0 : workers.size();
+            prestoCluster.assertThatPrestoIsUpAndRunning(expectedWorkers);
+
+            try (JdbcConnectionPool connectionPool = PrestoCluster.createConnectionPool(clients)) {
+                PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor(connectionPool);
+                retryUntil("all presto nodes", () -> activeNodes(queryExecutor) == expectedWorkers + 1, MINUTES.toMillis(4));
+
+                CpuThrottling before = nodeSshUtils.getContainersCpuThrottling(prestoCluster.getAllNodes());
+                WorkloadReport report = workloadDriver().run(queryExecutor);
+                throttling[0] = nodeSshUtils.getContainersCpuThrottling(prestoCluster.getAllNodes()).since(before);
+                log.info("Workload with {} finished: {}, CPU throttling: {}", template, report, throttling[0]);
+            }
+        });
+        return throttling[0];
+    }
+
+    /**
+     * Scans TPC-H lineitem table generated in HDFS through the Hive connector and reports rows scanned
+     * per second by each worker, for each of the configured storage formats.
+     */
+    @Test(groups = BENCHMARK)
+    public void hiveScanThroughput()
+    {
+        TpchHiveTables tpchTables = new TpchHiveTables(hdfsClient, hiveQueryExecutor, hdfsPath, tpchWriters);
+        Map<TpchFormat, String> schemas = new LinkedHashMap<>();
+        for (String format : Splitter.on(',').trimResults().omitEmptyStrings().split(tpchFormats)) {
+            TpchFormat tpchFormat = TpchFormat.fromString(format);
+            schemas.put(tpchFormat, tpchTables.create(tpchScaleFactor, tpchFormat));
+        }
+
+        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, resource, template);
+        int expectedWorkers = resource.contains("singlenode") ? 0 : workers.size();
+        ScanReport report = new ScanReport(tpchScaleFactor, Math.max(expectedWorkers, 1));
+        prestoCluster.withPrestoCluster(() -> {
+            prestoCluster.assertThatPrestoIsUpAndRunning(expectedWorkers);
+            PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor();
+            retryUntil("all presto nodes", () -> activeNodes(queryExecutor) == expectedWorkers + 1, MINUTES.toMillis(4));
+
+            schemas.forEach((format, schema) -> {
+                // aggregations over all the columns, so that whole rows are read, but only a single row is returned
+                String sql = "SELECT count(*), sum(quantity), sum(extendedprice), max(shipdate), max(shipinstruct), max(comment) " +
+                        "FROM hive." + schema + ".lineitem";
+                long[] rows = new long[1];
+                ImmutableList.Builder<Long> scanMillis = ImmutableList.builder();
+                for (int run = 0; run <= scanRuns; run++) {
+                    QueryStatistics statistics = queryExecutor.streamQuery(sql, row -> rows[0] = row.getLong(1));
+                    if (run > 0) {
+                        scanMillis.add(statistics.getTimeToLastRow());
+                    }
+                }
+                report.record(format, rows[0], scanMillis.build());
+            });
+        });
+        log.info("Hive scans: {}", report);
+        report.writeTo(Paths.get(scanReportPath));
+    }
+
+    private WorkloadDriver workloadDriver()
+    {
+        WorkloadDriver driver = workload(QueryMix.tpch(schema, queries)).withClients(clients);
+        return iterations > 0 ? driver.withIterations(iterations) : driver.withDuration(SECONDS.toMillis(durationInSeconds));
+    }
+
+    private static boolean isGracefulShutdownSupported(PrestoCluster prestoCluster)
+    {
+        URI uri = URI.create("http://" + prestoCluster.getCoordinatorHost() + ":" + prestoCluster.getInstance().getPort() + "/v1/info/state");
+        try {
+            new JsonHttpClient().get(uri);
+            return true;
+        }
+        catch (HttpStatusException e) {
+            if (e.getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static long activeNodes(PooledQueryExecutor queryExecutor)
+    {
+        long[] count = new long[1];
+        queryExecutor.streamQuery("SELECT count(*) FROM system.runtime.nodes WHERE state = 'active'", row -> count[0] = row.getLong(1));
+        return count[0];
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.teradata.presto.yarn.test.scheduling.CapacityScheduler;
+import com.teradata.presto.yarn.test.scheduling.ClusterPool;
+import com.teradata.presto.yarn.test.scheduling.ResourceRequest;
+import com.teradata.presto.yarn.test.slider.SliderClient;
+import com.teradata.tempto.context.State;
+import com.teradata.tempto.hadoop.hdfs.HdfsClient;
+import com.teradata.tempto.query.QueryExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Pool of Presto clusters shared by tests, see {@link ClusterPool}. Clusters are keyed by digests of their
+ * resources and template files, so a test gets a running cluster whenever the previous test used the same
+ * files. Before the cluster is handed to the next test it is reset in place: a stopped application is
+ * started again, WORKER component is flexed back to the count from the resources file and the cluster is
+ * verified to have all the nodes active and all the catalogs from the template. Tests which leave the
+ * cluster in a state that cannot be reset this way (e.g. the application failed on purpose) should call
+ * {@link PrestoCluster#markDirty()}.
+ * <p>
+ * Each pooled cluster is an isolated application instance and holds its admission from the capacity
+ * scheduler and its port (see {@link ApplicationInstance#isolated(int)}) until it is destroyed. Idle
+ * clusters are not kept when other tests wait for resources: a released cluster is destroyed when a
+ * request is waiting, and idle clusters are evicted when a request starts waiting.
+ */
+public class PrestoClusterPool
+        implements State
+{
+    private static final Logger log = LoggerFactory.getLogger(PrestoClusterPool.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long RESET_TIMEOUT = MINUTES.toMillis(4);
+    private static final String CATALOG_PROPERTY = "site.global.catalog";
+    private static final Pattern CATALOG_NAME = Pattern.compile("'([^']+)'\\s*:");
+    // slider default
+    private static final int DEFAULT_INSTANCES = 1;
+
+    private final SliderClient slider;
+    private final HdfsClient hdfsClient;
+    private final String sliderConfDir;
+    private final Optional<CapacityScheduler> scheduler;
+    private final int basePort;
+    private final ClusterPool<PooledCluster> pool;
+
+    public PrestoClusterPool(SliderClient slider, HdfsClient hdfsClient, String sliderConfDir, Optional<CapacityScheduler> scheduler, int maxIdle, int basePort)
+    {
+        this.slider = requireNonNull(slider, "slider is null");
+        this.hdfsClient = requireNonNull(hdfsClient, "hdfsClient is null");
+        this.sliderConfDir = requireNonNull(sliderConfDir, "sliderConfDir is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.basePort = basePort;
+        this.pool = new ClusterPool<>(new Lifecycle(), maxIdle);
+        // a cluster released before the request started waiting is parked idle, the request evicts it
+        scheduler.ifPresent(capacityScheduler -> capacityScheduler.addBlockedListener(pool::evictIdle));
+    }
+
+    /**
+     * Runs the test with a newly created or reset cluster of the given resources and template.
+     */
+    public void withPrestoCluster(String resource, String template, Consumer<PrestoCluster> test)
+    {
+        Path resourcePath = Paths.get(sliderConfDir, resource);
+        Path templatePath = Paths.get(sliderConfDir, template);
+        String key = md5sum(resourcePath) + "-" + md5sum(templatePath);
+        pool.withCluster(key, () -> create(resource, template, resourcePath, templatePath), pooled -> test.accept(pooled.cluster));
+    }
+
+    private PooledCluster create(String resource, String template, Path resourcePath, Path templatePath)
+    {
+        ApplicationInstance instance = ApplicationInstance.isolated(basePort);
+        Optional<CapacityScheduler.Admission> admission = Optional.empty();
+        if (scheduler.isPresent()) {
+            try {
+                admission = Optional.of(scheduler.get().admit(instance.getName(), ResourceRequest.fromResources(resourcePath)));
+            }
+            catch (InterruptedException e) {
+                instance.release();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        PrestoCluster cluster = new PrestoCluster(slider, hdfsClient, sliderConfDir, resource, template, instance, Optional.empty());
+        try {
+            log.info("Creating cluster {} of {} and {}", instance.getName(), resource, template);
+            cluster.create();
+            return new PooledCluster(cluster, admission, getWorkerInstances(resourcePath), getCatalogs(templatePath));
+        }
+        catch (RuntimeException e) {
+            try {
+                cluster.cleanup();
+                instance.release();
+            }
+            catch (RuntimeException cleanupException) {
+                e.addSuppressed(cleanupException);
+            }
+            admission.ifPresent(CapacityScheduler.Admission::close);
+            throw e;
+        }
+    }
+
+    /**
+     * Destroys all idle clusters, e.g. before YARN is restarted or when the suite is finished.
+     */
+    public void evictIdle()
+    {
+        pool.evictIdle();
+    }
+
+    public int getCreated()
+    {
+        return pool.getCreated();
+    }
+
+    public int getReused()
+    {
+        return pool.getReused();
+    }
+
+    @Override
+    public Optional<String> getName()
+    {
+        return Optional.empty();
+    }
+
+    static int getWorkerInstances(Path resource)
+    {
+        JsonNode worker = readJson(resource).path("components").path(WORKER_COMPONENT);
+        if (worker.isMissingNode()) {
+            return 0;
+        }
+        JsonNode instances = worker.get("yarn.component.instances");
+        return instances == null ? DEFAULT_INSTANCES : Integer.parseInt(instances.asText().trim());
+    }
+
+    static Set<String> getCatalogs(Path template)
+    {
+        JsonNode catalogs = readJson(template).path("global").path(CATALOG_PROPERTY);
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        Matcher matcher = CATALOG_NAME.matcher(catalogs.asText());
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names.build();
+    }
+
+    private static JsonNode readJson(Path path)
+    {
+        try {
+            return OBJECT_MAPPER.readTree(Files.readAllBytes(path));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class Lifecycle
+            implements ClusterPool.Lifecycle<PooledCluster>
+    {
+        @Override
+        public void reset(PooledCluster pooled)
+        {
+            PrestoCluster cluster = pooled.cluster;
+            if (!cluster.status().isPresent()) {
+                log.info("Starting stopped application {}", cluster.getAppName());
+                cluster.start();
+            }
+            if (cluster.getLiveContainers(WORKER_COMPONENT) != pooled.workers) {
+                cluster.flex(WORKER_COMPONENT, pooled.workers);
+            }
+            cluster.assertThatPrestoIsUpAndRunning(pooled.workers);
+
+            QueryExecutor queryExecutor = cluster.getQueryExecutor();
+            retryUntil("catalogs of " + cluster.getAppName(), () -> getActiveCatalogs(queryExecutor).containsAll(pooled.catalogs), RESET_TIMEOUT);
+            retryUntil("active nodes of " + cluster.getAppName(), () -> getActiveNodesCount(queryExecutor) == pooled.workers + 1, RESET_TIMEOUT);
+        }
+
+        @Override
+        public boolean isReusable(PooledCluster pooled)
+        {
+            return !pooled.cluster.isDirty() && !(scheduler.isPresent() && scheduler.get().hasWaiters());
+        }
+
+        @Override
+        public void destroy(PooledCluster pooled)
+        {
+            try {
+                pooled.cluster.cleanup();
+                // the port may still be taken when the application could not be destroyed
+                pooled.cluster.getInstance().release();
+            }
+            finally {
+                pooled.admission.ifPresent(CapacityScheduler.Admission::close);
+            }
+        }
+    }
+
+    private static Set<String> getActiveCatalogs(QueryExecutor queryExecutor)
+    {
+        return queryExecutor.executeQuery("SELECT connector_id FROM system.metadata.catalogs").rows().stream()
+                .map(row -> (String) row.get(0))
+                .collect(toSet());
+    }
+
+    private static long getActiveNodesCount(QueryExecutor queryExecutor)
+    {
+        List<List<Object>> rows = queryExecutor.executeQuery("SELECT count(*) FROM system.runtime.nodes").rows();
+        return ((Number) rows.get(0).get(0)).longValue();
+    }
+
+    private static class PooledCluster
+    {
+        private final PrestoCluster cluster;
+        private final Optional<CapacityScheduler.Admission> admission;
+        private final int workers;
+        private final Set<String> catalogs;
+
+        private PooledCluster(PrestoCluster cluster, Optional<CapacityScheduler.Admission> admission, int workers, Set<String> catalogs)
+        {
+            this.cluster = requireNonNull(cluster, "cluster is null");
+            this.admission = requireNonNull(admission, "admission is null");
+            this.workers = workers;
+            this.catalogs = ImmutableSet.copyOf(catalogs);
+        }
+    }
+}
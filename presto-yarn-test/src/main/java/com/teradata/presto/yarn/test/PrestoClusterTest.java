@@ -13,14 +13,14 @@
  */
 package com.teradata.presto.yarn.test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import com.teradata.presto.yarn.test.fulfillment.ImmutableNationTable;
-import com.teradata.presto.yarn.test.slider.Slider;
+import com.teradata.presto.yarn.test.scheduling.CapacityScheduler;
 import com.teradata.presto.yarn.test.utils.NodeSshUtils;
 import com.teradata.tempto.BeforeTestWithContext;
 import com.teradata.tempto.ProductTest;
 import com.teradata.tempto.Requires;
-import com.teradata.tempto.hadoop.hdfs.HdfsClient;
 import com.teradata.tempto.query.QueryExecutor;
 import com.teradata.tempto.query.QueryResult;
 import org.assertj.core.api.Assertions;
@@ -59,14 +59,15 @@ public class PrestoClusterTest
     private static final String ADDITIONAL_NODE_PROPERTY = "-Dplugin.dir=";
     private static final long TIMEOUT = MINUTES.toMillis(4);
     private static final long FLEX_RETRY_TIMEOUT = MINUTES.toMillis(10);
+    private static final String INSTALL_CACHE_DIR = "/var/lib/presto/install-cache";
     private static final String HDP2_3_QUARANTINE = "hdp2.3_quarantine";
 
     @Inject
-    private HdfsClient hdfsClient;
+    private NodeSshUtils nodeSshUtils;
     @Inject
-    private Slider slider;
+    private CapacityScheduler capacityScheduler;
     @Inject
-    private NodeSshUtils nodeSshUtils;
+    private PrestoClusterPool clusterPool;
 
     @Inject
     @Named("hive")
@@ -77,12 +78,10 @@ public class PrestoClusterTest
     @Inject
     @Named("cluster.slaves")
     private List<String> workers;
-    @Inject
-    @Named("tests.slider.conf_dir")
-    private String sliderConfDirPath;
 
     @BeforeTestWithContext
     public void setUp()
+            throws InterruptedException
     {
         int nodesCount = workers.size() + 1;
         int actualNodesCount = nodeSshUtils.getNodeIds().size();
@@ -90,21 +89,28 @@ public class PrestoClusterTest
             log.info("All nodemanagers are running..Skip restart");
         }
         else {
-            log.info(
-                    "There are {} nodemanagers are running, missing {}. Clearing Yarn cache and restarting nodemanagers.",
-                    actualNodesCount,
-                    nodesCount - actualNodesCount);
-            nodeSshUtils.runOnNode(master, singletonList("rm -rf /tmp/hadoop-yarn/nm-local-dir"));
-            restartYarn();
-            retryUntil(() -> nodeSshUtils.getNodeIds().size() >= nodesCount, MINUTES.toMillis(2));
+            // restart kills containers of tests running concurrently and of the pooled clusters
+            clusterPool.evictIdle();
+            try (CapacityScheduler.Admission ignored = capacityScheduler.admitExclusively("yarn restart")) {
+                actualNodesCount = nodeSshUtils.getNodeIds().size();
+                if (actualNodesCount == nodesCount) {
+                    return;
+                }
+                log.info(
+                        "There are {} nodemanagers are running, missing {}. Clearing Yarn cache and restarting nodemanagers.",
+                        actualNodesCount,
+                        nodesCount - actualNodesCount);
+                nodeSshUtils.runOnNode(master, singletonList("rm -rf /tmp/hadoop-yarn/nm-local-dir"));
+                restartYarn();
+                retryUntil("node managers", () -> nodeSshUtils.getNodeIds().size() >= nodesCount, MINUTES.toMillis(2));
+            }
         }
     }
 
     public void restartYarn()
     {
         String restartNodeManagerCommand = "supervisorctl restart yarn-nodemanager";
-        nodeSshUtils.runOnNode(master, restartNodeManagerCommand);
-        workers.forEach(worker -> nodeSshUtils.runOnNode(worker, restartNodeManagerCommand));
+        nodeSshUtils.runOnNodes(allNodes(), singletonList(restartNodeManagerCommand));
 
         nodeSshUtils.runOnNode(master, "supervisorctl restart yarn-resourcemanager");
     }
@@ -112,8 +118,7 @@ public class PrestoClusterTest
     @Test
     public void singleNodePrestoAppLifecycle()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-singlenode.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-singlenode.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(0);
 
             assertThatAllProcessesAreRunning(prestoCluster);
@@ -133,8 +138,7 @@ public class PrestoClusterTest
     @Test
     public void singleNodePrestoAppMissingCatalog()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-singlenode.json", APP_CONFIG_WITHOUT_CATALOG_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-singlenode.json", APP_CONFIG_WITHOUT_CATALOG_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(0);
 
             assertThatAllProcessesAreRunning(prestoCluster);
@@ -146,8 +150,7 @@ public class PrestoClusterTest
     @Test
     public void singleNodePrestoAppAddingPlugin()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-singlenode.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-singlenode.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(0);
 
             assertThatAllProcessesAreRunning(prestoCluster);
@@ -165,30 +168,31 @@ public class PrestoClusterTest
     @Test(groups = HDP2_3_QUARANTINE)
     public void limitSingleNodeFailures()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath,  "resources-singlenode-label.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-singlenode-label.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(0);
 
+            // application is going to fail, so that it cannot be reused
+            prestoCluster.markDirty();
             String coordinatorHost = prestoCluster.getCoordinatorHost();
+            String processPattern = prestoCluster.getInstance().getProcessPattern();
             for (int i = 0; i < 5; i++) {
-                Assertions.assertThat(nodeSshUtils.isPrestoProcessRunning(coordinatorHost)).isEqualTo(true);
-                nodeSshUtils.killPrestoProcesses(coordinatorHost);
+                Assertions.assertThat(nodeSshUtils.isPrestoProcessRunning(coordinatorHost, processPattern)).isEqualTo(true);
+                nodeSshUtils.killPrestoProcesses(coordinatorHost, processPattern);
 
                 Assertions.assertThat(prestoCluster.status().isPresent()).isTrue();
-                retryUntil(() -> nodeSshUtils.isPrestoProcessRunning(coordinatorHost), TIMEOUT);
+                retryUntil("coordinator respawn", () -> nodeSshUtils.isPrestoProcessRunning(coordinatorHost, processPattern), TIMEOUT);
             }
 
             // presto cluster should fail after 5 failures in a row
-            nodeSshUtils.killPrestoProcesses(coordinatorHost);
-            retryUntil(() -> !prestoCluster.status().isPresent(), TIMEOUT);
+            nodeSshUtils.killPrestoProcesses(coordinatorHost, processPattern);
+            retryUntil("application failure", () -> !prestoCluster.status().isPresent(), TIMEOUT);
         });
     }
 
     @Test
     public void multiNodeWithPlacementLifecycle()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-multinode.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-multinode.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(workersCount());
 
             assertThatAllProcessesAreRunning(prestoCluster);
@@ -206,8 +210,7 @@ public class PrestoClusterTest
     @Test(groups = HDP2_3_QUARANTINE)
     public void multiNodeWithPlacementRespawn()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-multinode.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-multinode.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(workersCount());
 
             assertThatAllProcessesAreRunning(prestoCluster);
@@ -224,12 +227,16 @@ public class PrestoClusterTest
         return workers.size();
     }
 
+    private List<String> allNodes()
+    {
+        return ImmutableList.<String>builder().addAll(workers).add(master).build();
+    }
+
     @Test
     @Requires(ImmutableNationTable.class)
     public void multiNodeWithPlacementCheckingConnectors()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-multinode.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-multinode.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(workersCount());
 
             QueryExecutor queryExecutor = prestoCluster.getQueryExecutor();
@@ -242,7 +249,7 @@ public class PrestoClusterTest
     }
     public void waitForNodesToBeActive(QueryExecutor queryExecutor, PrestoCluster prestoCluster)
     {
-        retryUntil(() ->
+        retryUntil("active presto nodes", () ->
         {
             QueryResult result = queryExecutor.executeQuery("select * from system.runtime.nodes");
             Collection<String> allNodes = prestoCluster.getAllNodes()   ;
@@ -257,7 +264,7 @@ public class PrestoClusterTest
         List<List<String>> connectorRows = connectors.stream()
                 .map(Collections::singletonList)
                 .collect(toList());
-        retryUntil(() -> {
+        retryUntil("presto connectors", () -> {
             QueryResult result = queryExecutor.executeQuery("select connector_id from system.metadata.catalogs");
             log.debug("Current presto connectors: " + result.rows());
             return result.rows().containsAll(connectorRows);
@@ -272,8 +279,7 @@ public class PrestoClusterTest
     @Test
     public void labelingSubsetOfNodesSingleCoordinatorAtMaster()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-single-coordinator@master.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-single-coordinator@master.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(0);
 
             // check placement policy
@@ -285,14 +291,14 @@ public class PrestoClusterTest
     @Test
     public void flexSetOfWorkersMultinodeFlexWorker()
     {
-        PrestoCluster prestoCluster = new PrestoCluster(slider, hdfsClient, sliderConfDirPath, "resources-multinode-single-worker.json", APP_CONFIG_TEST_TEMPLATE);
-        prestoCluster.withPrestoCluster(() -> {
+        clusterPool.withPrestoCluster("resources-multinode-single-worker.json", APP_CONFIG_TEST_TEMPLATE, prestoCluster -> {
             prestoCluster.assertThatPrestoIsUpAndRunning(1);
             assertThatAllProcessesAreRunning(prestoCluster);
 
             checkState(workers.size() >= 2, "Number of slaves set in the test yaml configuration should be atleast 3");
             flexWorkersAndAssertThatComponentsAreRunning(2, prestoCluster);
             flexWorkersAndAssertThatComponentsAreRunning(1, prestoCluster);
+            assertThatInstallCacheIsUsed(prestoCluster);
 
             assertThatApplicationIsStoppable(prestoCluster);
         });
@@ -300,7 +306,7 @@ public class PrestoClusterTest
 
     public void waitForWorkers(int nodeCount, String component, PrestoCluster prestoCluster)
     {
-        retryUntil(() -> {
+        retryUntil("live " + component + " containers", () -> {
             int liveContainers = prestoCluster.getLiveContainers(component);
             log.info("Number of live containers after 'flex'ing: " + liveContainers);
             return liveContainers == nodeCount;
@@ -318,7 +324,7 @@ public class PrestoClusterTest
     private void assertThatMemorySettingsAreCorrect(PrestoCluster prestoCluster)
     {
         String coordinatorHost = prestoCluster.getCoordinatorHost();
-        long prestoJvmMemory = nodeSshUtils.getPrestoJvmMemory(coordinatorHost);
+        long prestoJvmMemory = nodeSshUtils.getPrestoJvmMemory(coordinatorHost, prestoCluster.getInstance().getProcessPattern());
 
         Assertions.assertThat(prestoJvmMemory).isEqualTo(JVM_HEAPSIZE);
     }
@@ -326,7 +332,7 @@ public class PrestoClusterTest
     private void assertThatAdditionalPropertiesAreAdded(PrestoCluster prestoCluster)
     {
         String coordinatorHost = prestoCluster.getCoordinatorHost();
-        String prestoProcess = nodeSshUtils.getPrestoJvmProcess(coordinatorHost);
+        String prestoProcess = nodeSshUtils.getPrestoJvmProcess(coordinatorHost, prestoCluster.getInstance().getProcessPattern());
 
         Assertions.assertThat(prestoProcess).contains(ADDITIONAL_NODE_PROPERTY);
     }
@@ -334,33 +340,61 @@ public class PrestoClusterTest
     private void assertThatJvmArgsAreCorrect(PrestoCluster prestoCluster)
     {
         String coordinatorHost = prestoCluster.getCoordinatorHost();
-        String prestoProcess = nodeSshUtils.getPrestoJvmProcess(coordinatorHost);
+        String prestoProcess = nodeSshUtils.getPrestoJvmProcess(coordinatorHost, prestoCluster.getInstance().getProcessPattern());
 
         Assertions.assertThat(prestoProcess).contains(JVM_ARGS);
     }
 
     private void assertThatAllProcessesAreRunning(PrestoCluster prestoCluster)
     {
-        log.info("Presto processes distribution: {}", prestoCluster.getAllNodes());
-        prestoCluster.getAllNodes().forEach(node -> Assertions.assertThat(nodeSshUtils.isPrestoProcessRunning(node)).isEqualTo(true));
+        Collection<String> allNodes = prestoCluster.getAllNodes();
+        log.info("Presto processes distribution: {}", allNodes);
+        String processPattern = prestoCluster.getInstance().getProcessPattern();
+        List<Boolean> processesRunning = nodeSshUtils.onHosts(allNodes, node -> nodeSshUtils.isPrestoProcessRunning(node, processPattern));
+        Assertions.assertThat(processesRunning).containsOnly(true);
     }
 
     private void assertThatKilledProcessesRespawn(PrestoCluster prestoCluster)
     {
+        // killed containers count towards the slider failure threshold of the application, do not pass it on
+        prestoCluster.markDirty();
         String coordinatorHost = prestoCluster.getCoordinatorHost();
-        nodeSshUtils.killPrestoProcesses(coordinatorHost);
+        String processPattern = prestoCluster.getInstance().getProcessPattern();
+        nodeSshUtils.killPrestoProcesses(coordinatorHost, processPattern);
 
-        retryUntil(() -> nodeSshUtils.isPrestoProcessRunning(prestoCluster.getCoordinatorHost()), TIMEOUT);
+        retryUntil("coordinator respawn", () -> nodeSshUtils.isPrestoProcessRunning(prestoCluster.getCoordinatorHost(), processPattern), TIMEOUT);
     }
 
     private void assertThatApplicationIsStoppable(PrestoCluster prestoCluster)
     {
         Collection<String> allNodes = prestoCluster.getAllNodes();
+        String processPattern = prestoCluster.getInstance().getProcessPattern();
 
         prestoCluster.stop();
 
         log.debug("Checking if presto process is stopped");
-        allNodes.forEach(node -> retryUntil(() -> !nodeSshUtils.isPrestoProcessRunning(node), TIMEOUT));
+        nodeSshUtils.onHosts(allNodes, node -> {
+            retryUntil("presto stopped on " + node, () -> !nodeSshUtils.isPrestoProcessRunning(node, processPattern), TIMEOUT);
+            return null;
+        });
+    }
+
+    private void assertThatInstallCacheIsUsed(PrestoCluster prestoCluster)
+    {
+        nodeSshUtils.withSshClient(prestoCluster.getAllNodes(), sshClient -> {
+            // installs of previous packages are kept in the cache up to install_cache_max_versions
+            int cachedInstalls = Integer.parseInt(sshClient.command("ls -d " + INSTALL_CACHE_DIR + "/*/.complete | wc -l").trim());
+            String linkedLibs = "find /tmp/hadoop-yarn/nm-local-dir -maxdepth 9 -path '*/app/install/*/lib' -type l";
+            int linkedLib = Integer.parseInt(sshClient.command(linkedLibs + " | wc -l").trim());
+            // cache entries (parents of the install directory) which containers link to and which are completely extracted
+            int usedInstalls = Integer.parseInt(sshClient.command(linkedLibs + " | while read lib; do " +
+                    "entry=$(dirname $(dirname $(readlink -f $lib))); test -e $entry/.complete && echo $entry; done | sort -u | wc -l").trim());
+            log.info("Cached installs: {}, containers linked to the cache: {}, installs in use: {}", cachedInstalls, linkedLib, usedInstalls);
+            Assertions.assertThat(cachedInstalls).isGreaterThanOrEqualTo(1);
+            Assertions.assertThat(linkedLib).isGreaterThan(0);
+            Assertions.assertThat(usedInstalls).isEqualTo(1);
+            return null;
+        });
     }
 
     private void assertThatPrestoYarnContainersUsesCgroup(PrestoCluster prestoCluster)
@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.PrestoCluster;
+import com.teradata.presto.yarn.test.slider.SliderClient;
+import com.teradata.presto.yarn.test.slider.SliderStatus;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ComponentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Flexes the {@code WORKER} component of a slider application according to the load reported
+ * by a {@link LoadSource} and a {@link ScalingPolicy}.
+ * <p>
+ * The current worker count is the desired container count reported by slider, so that workers
+ * requested by a previous flex (but not running yet) are not requested again. The cluster is flexed
+ * only after the policy asked for the same scaling direction in enough consecutive samples and the
+ * cooldown since the previous flex has passed.
+ */
+public class Autoscaler
+        implements AutoCloseable
+{
+    private static final Logger log = LoggerFactory.getLogger(Autoscaler.class);
+
+    private final String appName;
+    private final Supplier<Optional<SliderStatus>> statusSupplier;
+    private final IntConsumer workersFlexer;
+    private final LoadSource loadSource;
+    private final ScalingPolicy policy;
+    private final LongSupplier clock;
+
+    private final List<ScalingEvent> events = new ArrayList<>();
+    private int scaleUpStreak;
+    private int scaleDownStreak;
+    private long lastFlexTime = Long.MIN_VALUE;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Scales the cluster through {@link PrestoCluster#flex(String, int)}, so that its cached status
+     * and coordinator url are invalidated.
+     */
+    public Autoscaler(PrestoCluster prestoCluster, LoadSource loadSource, ScalingPolicy policy)
+    {
+        this(
+                prestoCluster.getAppName(),
+                prestoCluster::status,
+                workers -> prestoCluster.flex(WORKER_COMPONENT, workers),
+                loadSource,
+                policy,
+                System::currentTimeMillis);
+    }
+
+    public Autoscaler(SliderClient sliderClient, String appName, LoadSource loadSource, ScalingPolicy policy)
+    {
+        this(sliderClient, appName, loadSource, policy, System::currentTimeMillis);
+    }
+
+    public Autoscaler(SliderClient sliderClient, String appName, LoadSource loadSource, ScalingPolicy policy, LongSupplier clock)
+    {
+        this(
+                appName,
+                () -> sliderClient.status(appName),
+                workers -> sliderClient.flex(appName, WORKER_COMPONENT, workers),
+                loadSource,
+                policy,
+                clock);
+    }
+
+    private Autoscaler(String appName, Supplier<Optional<SliderStatus>> statusSupplier, IntConsumer workersFlexer, LoadSource loadSource, ScalingPolicy policy, LongSupplier clock)
+    {
+        this.appName = requireNonNull(appName, "appName is null");
+        this.statusSupplier = requireNonNull(statusSupplier, "statusSupplier is null");
+        this.workersFlexer = requireNonNull(workersFlexer, "workersFlexer is null");
+        this.loadSource = requireNonNull(loadSource, "loadSource is null");
+        this.policy = requireNonNull(policy, "policy is null");
+        this.clock = requireNonNull(clock, "clock is null");
+    }
+
+    /**
+     * Samples the load once and flexes the cluster when needed.
+     *
+     * @return worker count the cluster was flexed to, or the current worker count when the cluster was not flexed
+     */
+    public synchronized int tick()
+    {
+        Optional<SliderStatus> status = statusSupplier.get();
+        if (!status.isPresent()) {
+            log.warn("Application {} is not running, skipping autoscaling", appName);
+            return 0;
+        }
+        int currentWorkers = status.get().getComponent(WORKER_COMPONENT)
+                .map(ComponentStatus::getDesiredContainers)
+                .orElse(0);
+        LoadSample sample = loadSource.sample();
+        long now = clock.getAsLong();
+
+        int targetWorkers = decide(currentWorkers, sample, now);
+        if (targetWorkers != currentWorkers) {
+            log.info("Flexing {} workers from {} to {} ({})", appName, currentWorkers, targetWorkers, sample);
+            workersFlexer.accept(targetWorkers);
+        }
+        return targetWorkers;
+    }
+
+    /**
+     * Applies hysteresis and cooldowns to the policy decision and records the flex, if any.
+     */
+    synchronized int decide(int currentWorkers, LoadSample sample, long now)
+    {
+        int targetWorkers = policy.targetWorkers(currentWorkers, sample);
+        if (targetWorkers > currentWorkers) {
+            scaleUpStreak++;
+            scaleDownStreak = 0;
+            if (scaleUpStreak < policy.getScaleUpSamples() || inCooldown(now, policy.getScaleUpCooldown())) {
+                return currentWorkers;
+            }
+        }
+        else if (targetWorkers < currentWorkers) {
+            scaleDownStreak++;
+            scaleUpStreak = 0;
+            if (scaleDownStreak < policy.getScaleDownSamples() || inCooldown(now, policy.getScaleDownCooldown())) {
+                return currentWorkers;
+            }
+        }
+        else {
+            scaleUpStreak = 0;
+            scaleDownStreak = 0;
+            return currentWorkers;
+        }
+
+        scaleUpStreak = 0;
+        scaleDownStreak = 0;
+        lastFlexTime = now;
+        events.add(new ScalingEvent(now, currentWorkers, targetWorkers, sample));
+        return targetWorkers;
+    }
+
+    private boolean inCooldown(long now, long cooldown)
+    {
+        return lastFlexTime != Long.MIN_VALUE && now - lastFlexTime < cooldown;
+    }
+
+    public synchronized List<ScalingEvent> getEvents()
+    {
+        return ImmutableList.copyOf(events);
+    }
+
+    /**
+     * Starts sampling the load periodically in a background thread. Failures of a single
+     * sample are logged and do not stop the autoscaler.
+     */
+    public synchronized void start(long intervalInMilliseconds)
+    {
+        checkArgument(intervalInMilliseconds > 0, "interval must be positive");
+        checkState(executor == null, "autoscaler is already started");
+        executor = newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autoscaler-" + appName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            }
+            catch (RuntimeException e) {
+                log.warn("Autoscaling of {} failed", appName, e);
+            }
+        }, 0, intervalInMilliseconds, MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public static class ScalingEvent
+    {
+        private final long time;
+        private final int fromWorkers;
+        private final int toWorkers;
+        private final LoadSample sample;
+
+        public ScalingEvent(long time, int fromWorkers, int toWorkers, LoadSample sample)
+        {
+            this.time = time;
+            this.fromWorkers = fromWorkers;
+            this.toWorkers = toWorkers;
+            this.sample = requireNonNull(sample, "sample is null");
+        }
+
+        public long getTime()
+        {
+            return time;
+        }
+
+        public int getFromWorkers()
+        {
+            return fromWorkers;
+        }
+
+        public int getToWorkers()
+        {
+            return toWorkers;
+        }
+
+        public boolean isScaleUp()
+        {
+            return toWorkers > fromWorkers;
+        }
+
+        public LoadSample getSample()
+        {
+            return sample;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d: %d -> %d (%s)", time, fromWorkers, toWorkers, sample);
+        }
+    }
+}
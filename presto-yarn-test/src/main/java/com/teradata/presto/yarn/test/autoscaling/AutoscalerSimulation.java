@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.autoscaling.Autoscaler.ScalingEvent;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Runs {@link Autoscaler} offline against {@link SimulatedSliderClient} and {@link SimulatedLoadSource}
+ * in simulated time, so that scaling policies can be compared without a YARN cluster. A simulated hour
+ * takes milliseconds.
+ */
+public class AutoscalerSimulation
+{
+    private static final String APP_NAME = "simulated_presto";
+
+    private final ScalingPolicy policy;
+    private final LoadProfile profile;
+    private final long duration;
+    private final long tickInterval;
+    private final long containerStartup;
+    private final long queryDuration;
+    private final int slotsPerWorker;
+    private final int initialWorkers;
+
+    public static AutoscalerSimulation simulate(ScalingPolicy policy, LoadProfile profile)
+    {
+        return new AutoscalerSimulation(policy, profile, HOURS.toMillis(1), SECONDS.toMillis(10), SECONDS.toMillis(45), SECONDS.toMillis(20), 4, policy.getMinWorkers());
+    }
+
+    private AutoscalerSimulation(
+            ScalingPolicy policy,
+            LoadProfile profile,
+            long duration,
+            long tickInterval,
+            long containerStartup,
+            long queryDuration,
+            int slotsPerWorker,
+            int initialWorkers)
+    {
+        checkArgument(duration > 0, "duration must be positive");
+        checkArgument(tickInterval > 0, "tickInterval must be positive");
+        checkArgument(containerStartup >= 0, "containerStartup is negative");
+        checkArgument(initialWorkers >= 0, "initialWorkers is negative");
+        this.policy = requireNonNull(policy, "policy is null");
+        this.profile = requireNonNull(profile, "profile is null");
+        this.duration = duration;
+        this.tickInterval = tickInterval;
+        this.containerStartup = containerStartup;
+        this.queryDuration = queryDuration;
+        this.slotsPerWorker = slotsPerWorker;
+        this.initialWorkers = initialWorkers;
+    }
+
+    public AutoscalerSimulation withDuration(long duration)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    /**
+     * How often the autoscaler samples the load.
+     */
+    public AutoscalerSimulation withTickInterval(long tickInterval)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    /**
+     * Time between flexing up and the new worker being able to run queries.
+     */
+    public AutoscalerSimulation withContainerStartup(long containerStartup)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    public AutoscalerSimulation withQueryDuration(long queryDuration)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    public AutoscalerSimulation withSlotsPerWorker(int slotsPerWorker)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    public AutoscalerSimulation withInitialWorkers(int initialWorkers)
+    {
+        return new AutoscalerSimulation(policy, profile, duration, tickInterval, containerStartup, queryDuration, slotsPerWorker, initialWorkers);
+    }
+
+    public SimulationResult run()
+    {
+        AtomicLong clock = new AtomicLong();
+        SimulatedSliderClient sliderClient = new SimulatedSliderClient(clock::get, containerStartup);
+        sliderClient.create(APP_NAME, Paths.get("simulated-template.json"), Paths.get("simulated-resources.json"));
+        sliderClient.flex(APP_NAME, WORKER_COMPONENT, initialWorkers);
+        // containers of the initial cluster are already running
+        clock.addAndGet(containerStartup);
+        long start = clock.get();
+
+        SimulatedLoadSource loadSource = new SimulatedLoadSource(
+                () -> clock.get() - start,
+                () -> sliderClient.getLiveContainers(APP_NAME, WORKER_COMPONENT),
+                profile,
+                queryDuration,
+                slotsPerWorker);
+        Autoscaler autoscaler = new Autoscaler(sliderClient, APP_NAME, loadSource, policy, () -> clock.get() - start);
+
+        double workerSeconds = 0;
+        int maxWorkers = initialWorkers;
+        for (long time = 0; time < duration; time += tickInterval) {
+            clock.set(start + time);
+            autoscaler.tick();
+            int allocated = sliderClient.getAllocatedContainers(APP_NAME, WORKER_COMPONENT);
+            workerSeconds += allocated * (double) Math.min(tickInterval, duration - time) / 1000;
+            maxWorkers = max(maxWorkers, allocated);
+        }
+        clock.set(start + duration);
+        loadSource.sample();
+
+        return new SimulationResult(
+                duration,
+                workerSeconds,
+                loadSource.getCompletedQueries(),
+                loadSource.getPendingQuerySeconds(),
+                loadSource.getMaxPendingQueries(),
+                maxWorkers,
+                sliderClient.getAllocatedContainers(APP_NAME, WORKER_COMPONENT),
+                autoscaler.getEvents());
+    }
+
+    public static class SimulationResult
+    {
+        private final long duration;
+        private final double workerSeconds;
+        private final double completedQueries;
+        private final double pendingQuerySeconds;
+        private final double maxPendingQueries;
+        private final int maxWorkers;
+        private final int finalWorkers;
+        private final List<ScalingEvent> events;
+
+        public SimulationResult(
+                long duration,
+                double workerSeconds,
+                double completedQueries,
+                double pendingQuerySeconds,
+                double maxPendingQueries,
+                int maxWorkers,
+                int finalWorkers,
+                List<ScalingEvent> events)
+        {
+            this.duration = duration;
+            this.workerSeconds = workerSeconds;
+            this.completedQueries = completedQueries;
+            this.pendingQuerySeconds = pendingQuerySeconds;
+            this.maxPendingQueries = maxPendingQueries;
+            this.maxWorkers = maxWorkers;
+            this.finalWorkers = finalWorkers;
+            this.events = ImmutableList.copyOf(requireNonNull(events, "events is null"));
+        }
+
+        public long getDuration()
+        {
+            return duration;
+        }
+
+        /**
+         * Cost of the run: sum of the time all worker containers (including the starting ones) were allocated.
+         */
+        public double getWorkerSeconds()
+        {
+            return workerSeconds;
+        }
+
+        public double getAverageWorkers()
+        {
+            return workerSeconds * 1000 / duration;
+        }
+
+        public double getCompletedQueries()
+        {
+            return completedQueries;
+        }
+
+        /**
+         * Sum of the time all queries spent in the queue, in seconds.
+         */
+        public double getPendingQuerySeconds()
+        {
+            return pendingQuerySeconds;
+        }
+
+        public double getMaxPendingQueries()
+        {
+            return maxPendingQueries;
+        }
+
+        public int getMaxWorkers()
+        {
+            return maxWorkers;
+        }
+
+        public int getFinalWorkers()
+        {
+            return finalWorkers;
+        }
+
+        public List<ScalingEvent> getEvents()
+        {
+            return events;
+        }
+
+        public long getScaleUps()
+        {
+            return events.stream().filter(ScalingEvent::isScaleUp).count();
+        }
+
+        public long getScaleDowns()
+        {
+            return events.size() - getScaleUps();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("average workers: %.1f, max workers: %d, final workers: %d, completed queries: %.0f, " +
+                            "queued query seconds: %.0f, max queued queries: %.0f, scale ups: %d, scale downs: %d",
+                    getAverageWorkers(), maxWorkers, finalWorkers, completedQueries, pendingQuerySeconds, maxPendingQueries, getScaleUps(), getScaleDowns());
+        }
+    }
+
+    /**
+     * Compares the default scaling policy with a more aggressive one on a few load profiles.
+     */
+    public static void main(String[] args)
+    {
+        Map<String, LoadProfile> profiles = ImmutableMap.of(
+                "constant", LoadProfile.constant(1),
+                "burst", LoadProfile.burst(0.2, 3, MINUTES.toMillis(10), MINUTES.toMillis(25)),
+                "wave", LoadProfile.wave(0, 2, MINUTES.toMillis(20)));
+        Map<String, ScalingPolicy> policies = ImmutableMap.of(
+                "default", ScalingPolicy.scalingPolicy(1, 32),
+                "aggressive", ScalingPolicy.scalingPolicy(1, 32)
+                        .withHysteresis(1, 3)
+                        .withCooldowns(SECONDS.toMillis(10), MINUTES.toMillis(1))
+                        .withMaxStep(8));
+
+        profiles.forEach((profileName, profile) -> policies.forEach((policyName, policy) -> {
+            long start = System.nanoTime();
+            SimulationResult result = simulate(policy, profile).run();
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%-10s %-12s %s (simulated in %d ms)", profileName, policyName, result, elapsed / 1_000_000));
+        }));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Query arrival rate (queries per second) as a function of the simulated time, used by {@link SimulatedLoadSource}.
+ */
+public interface LoadProfile
+{
+    double arrivalRate(long timeInMilliseconds);
+
+    static LoadProfile constant(double rate)
+    {
+        checkArgument(rate >= 0, "rate is negative");
+        return time -> rate;
+    }
+
+    /**
+     * Base rate with a burst of the peak rate between {@code start} and {@code end}.
+     */
+    static LoadProfile burst(double baseRate, double peakRate, long start, long end)
+    {
+        checkArgument(baseRate >= 0 && peakRate >= 0, "rate is negative");
+        checkArgument(start <= end, "start is after end");
+        return time -> time >= start && time < end ? peakRate : baseRate;
+    }
+
+    /**
+     * Rate changing smoothly between {@code minRate} and {@code maxRate}, starting from the minimum.
+     */
+    static LoadProfile wave(double minRate, double maxRate, long period)
+    {
+        checkArgument(minRate >= 0 && maxRate >= minRate, "rates must satisfy 0 <= min <= max");
+        checkArgument(period > 0, "period must be positive");
+        return time -> minRate + (maxRate - minRate) * (1 - Math.cos(2 * Math.PI * time / period)) / 2;
+    }
+}
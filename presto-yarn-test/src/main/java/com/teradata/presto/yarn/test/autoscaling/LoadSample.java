@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Load of the cluster observed at a point in time.
+ */
+public class LoadSample
+{
+    private final int queuedQueries;
+    private final int runningQueries;
+    private final int resourceGroupQueuedQueries;
+    private final int activeWorkers;
+    private final double workerUtilization;
+
+    /**
+     * @param workerUtilization average CPU utilization of workers in the [0, 1] range
+     */
+    public LoadSample(int queuedQueries, int runningQueries, int resourceGroupQueuedQueries, int activeWorkers, double workerUtilization)
+    {
+        checkArgument(queuedQueries >= 0, "queuedQueries is negative");
+        checkArgument(runningQueries >= 0, "runningQueries is negative");
+        checkArgument(resourceGroupQueuedQueries >= 0, "resourceGroupQueuedQueries is negative");
+        checkArgument(activeWorkers >= 0, "activeWorkers is negative");
+        checkArgument(workerUtilization >= 0 && workerUtilization <= 1, "workerUtilization must be in [0, 1] range");
+        this.queuedQueries = queuedQueries;
+        this.runningQueries = runningQueries;
+        this.resourceGroupQueuedQueries = resourceGroupQueuedQueries;
+        this.activeWorkers = activeWorkers;
+        this.workerUtilization = workerUtilization;
+    }
+
+    public int getQueuedQueries()
+    {
+        return queuedQueries;
+    }
+
+    public int getRunningQueries()
+    {
+        return runningQueries;
+    }
+
+    public int getResourceGroupQueuedQueries()
+    {
+        return resourceGroupQueuedQueries;
+    }
+
+    /**
+     * Queries waiting for execution. Queries queued in resource groups are also reported as queued
+     * in {@code system.runtime.queries}, so the larger of both is taken.
+     */
+    public int getPendingQueries()
+    {
+        return Math.max(queuedQueries, resourceGroupQueuedQueries);
+    }
+
+    public int getActiveWorkers()
+    {
+        return activeWorkers;
+    }
+
+    public double getWorkerUtilization()
+    {
+        return workerUtilization;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("queued: %d, running: %d, resource group queued: %d, workers: %d, utilization: %.2f",
+                queuedQueries, runningQueries, resourceGroupQueuedQueries, activeWorkers, workerUtilization);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
+import com.teradata.tempto.query.QueryExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Samples load of a running Presto cluster through its coordinator:
+ * <ul>
+ * <li>queued and running queries from {@code system.runtime.queries}</li>
+ * <li>queued queries of the given resource groups, exported to JMX ({@code jmxExport} in resource groups configuration)</li>
+ * <li>active workers from {@code system.runtime.nodes}</li>
+ * <li>average process CPU load of workers, from the JMX connector</li>
+ * </ul>
+ * Resource group and CPU load queries require the {@code jmx} catalog; when it is not available they are reported as 0.
+ */
+public class PrestoLoadSource
+        implements LoadSource
+{
+    private static final Logger log = LoggerFactory.getLogger(PrestoLoadSource.class);
+
+    private static final String QUERIES_SQL = "SELECT " +
+            "count_if(state = 'QUEUED'), " +
+            "count_if(state IN ('PLANNING', 'STARTING', 'RUNNING', 'FINISHING')) " +
+            "FROM system.runtime.queries";
+    private static final String ACTIVE_WORKERS_SQL = "SELECT count(*) FROM system.runtime.nodes WHERE state = 'active' AND NOT coordinator";
+    private static final String WORKER_CPU_LOAD_SQL = "SELECT avg(processcpuload) FROM jmx.current.\"java.lang:type=operatingsystem\" " +
+            "WHERE node IN (SELECT node_id FROM system.runtime.nodes WHERE NOT coordinator)";
+    private static final String RESOURCE_GROUP_QUEUED_SQL = "SELECT queuedqueries FROM jmx.current.\"com.facebook.presto.execution.resourcegroups:name=%s\"";
+
+    private final PooledQueryExecutor queryExecutor;
+    private final List<String> resourceGroups;
+
+    public PrestoLoadSource(PooledQueryExecutor queryExecutor, List<String> resourceGroups)
+    {
+        this.queryExecutor = requireNonNull(queryExecutor, "queryExecutor is null");
+        this.resourceGroups = ImmutableList.copyOf(requireNonNull(resourceGroups, "resourceGroups is null"));
+    }
+
+    @Override
+    public LoadSample sample()
+    {
+        long[] queries = new long[2];
+        queryExecutor.streamQuery(QUERIES_SQL, row -> {
+            queries[0] = row.getLong(1);
+            queries[1] = row.getLong(2);
+        });
+        int activeWorkers = (int) queryForNumber(ACTIVE_WORKERS_SQL);
+
+        int resourceGroupQueued = 0;
+        for (String resourceGroup : resourceGroups) {
+            resourceGroupQueued += (int) optionalQueryForNumber(String.format(RESOURCE_GROUP_QUEUED_SQL, resourceGroup));
+        }
+        double utilization = Math.min(1.0, Math.max(0.0, optionalQueryForNumber(WORKER_CPU_LOAD_SQL)));
+
+        return new LoadSample((int) queries[0], (int) queries[1], resourceGroupQueued, activeWorkers, utilization);
+    }
+
+    private double queryForNumber(String sql)
+    {
+        double[] value = new double[1];
+        queryExecutor.streamQuery(sql, row -> value[0] = row.getDouble(1));
+        return value[0];
+    }
+
+    private double optionalQueryForNumber(String sql)
+    {
+        try {
+            return queryForNumber(sql);
+        }
+        catch (QueryExecutionException e) {
+            log.debug("Unable to sample load with: {}", sql, e);
+            return 0;
+        }
+    }
+}
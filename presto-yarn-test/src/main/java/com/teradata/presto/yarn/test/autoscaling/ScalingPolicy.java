@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Decides how many workers the cluster should have for an observed load.
+ * <p>
+ * The cluster scales up when queries wait in the queue (or workers are saturated) and scales down
+ * when nothing is queued and workers are mostly idle. The target worker count is derived from the
+ * number of queries each worker is expected to handle, limited to {@code maxStep} workers per decision
+ * and to the {@code [minWorkers, maxWorkers]} range. Hysteresis (number of consecutive samples which
+ * have to agree) and cooldowns are applied by {@link Autoscaler}.
+ */
+public class ScalingPolicy
+{
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int queriesPerWorker;
+    private final int scaleUpPendingQueries;
+    private final double highUtilization;
+    private final double lowUtilization;
+    private final int scaleUpSamples;
+    private final int scaleDownSamples;
+    private final long scaleUpCooldown;
+    private final long scaleDownCooldown;
+    private final int maxStep;
+
+    public static ScalingPolicy scalingPolicy(int minWorkers, int maxWorkers)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, 4, 1, 0.85, 0.3, 2, 6, SECONDS.toMillis(30), MINUTES.toMillis(3), 4);
+    }
+
+    private ScalingPolicy(
+            int minWorkers,
+            int maxWorkers,
+            int queriesPerWorker,
+            int scaleUpPendingQueries,
+            double highUtilization,
+            double lowUtilization,
+            int scaleUpSamples,
+            int scaleDownSamples,
+            long scaleUpCooldown,
+            long scaleDownCooldown,
+            int maxStep)
+    {
+        checkArgument(minWorkers >= 0, "minWorkers is negative");
+        checkArgument(maxWorkers >= minWorkers, "maxWorkers is lower than minWorkers");
+        checkArgument(queriesPerWorker > 0, "queriesPerWorker must be positive");
+        checkArgument(scaleUpPendingQueries > 0, "scaleUpPendingQueries must be positive");
+        checkArgument(lowUtilization >= 0 && lowUtilization < highUtilization && highUtilization <= 1, "utilization thresholds must satisfy 0 <= low < high <= 1");
+        checkArgument(scaleUpSamples > 0, "scaleUpSamples must be positive");
+        checkArgument(scaleDownSamples > 0, "scaleDownSamples must be positive");
+        checkArgument(scaleUpCooldown >= 0, "scaleUpCooldown is negative");
+        checkArgument(scaleDownCooldown >= 0, "scaleDownCooldown is negative");
+        checkArgument(maxStep > 0, "maxStep must be positive");
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.queriesPerWorker = queriesPerWorker;
+        this.scaleUpPendingQueries = scaleUpPendingQueries;
+        this.highUtilization = highUtilization;
+        this.lowUtilization = lowUtilization;
+        this.scaleUpSamples = scaleUpSamples;
+        this.scaleDownSamples = scaleDownSamples;
+        this.scaleUpCooldown = scaleUpCooldown;
+        this.scaleDownCooldown = scaleDownCooldown;
+        this.maxStep = maxStep;
+    }
+
+    /**
+     * Number of concurrently running or queued queries a single worker is expected to handle.
+     */
+    public ScalingPolicy withQueriesPerWorker(int queriesPerWorker)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    /**
+     * Number of pending (queued) queries which triggers scale up.
+     */
+    public ScalingPolicy withScaleUpPendingQueries(int scaleUpPendingQueries)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    /**
+     * Workers utilization above the high threshold triggers scale up, below the low threshold it allows scale down.
+     */
+    public ScalingPolicy withUtilizationThresholds(double lowUtilization, double highUtilization)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    /**
+     * Number of consecutive samples which have to ask for scale up (or down) before the cluster is flexed.
+     */
+    public ScalingPolicy withHysteresis(int scaleUpSamples, int scaleDownSamples)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    /**
+     * Minimal time since the last flex before the cluster can be scaled up (or down) again.
+     */
+    public ScalingPolicy withCooldowns(long scaleUpCooldown, long scaleDownCooldown)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    public ScalingPolicy withMaxStep(int maxStep)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, highUtilization, lowUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+
+    /**
+     * Returns the worker count the cluster should be flexed to, ignoring hysteresis and cooldowns.
+     * <p>
+     * Scaling up takes into account only the workers which are already active, so that workers which are
+     * still starting are not requested again. Scaling down leaves enough workers to stay below the high
+     * utilization threshold, so that it does not immediately trigger scaling up.
+     */
+    public int targetWorkers(int currentWorkers, LoadSample sample)
+    {
+        int queries = sample.getRunningQueries() + sample.getPendingQueries();
+
+        int target = currentWorkers;
+        if (sample.getPendingQueries() >= scaleUpPendingQueries || sample.getWorkerUtilization() >= highUtilization) {
+            int demand = (int) Math.ceil((double) queries / queriesPerWorker);
+            target = max(currentWorkers, max(sample.getActiveWorkers() + 1, demand));
+        }
+        else if (sample.getPendingQueries() == 0 && sample.getWorkerUtilization() <= lowUtilization) {
+            int demand = (int) Math.ceil(queries / (queriesPerWorker * highUtilization));
+            target = min(currentWorkers - 1, demand);
+        }
+        target = max(currentWorkers - maxStep, min(currentWorkers + maxStep, target));
+        return max(minWorkers, min(maxWorkers, target));
+    }
+
+    public int getMinWorkers()
+    {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers()
+    {
+        return maxWorkers;
+    }
+
+    public int getScaleUpSamples()
+    {
+        return scaleUpSamples;
+    }
+
+    public int getScaleDownSamples()
+    {
+        return scaleDownSamples;
+    }
+
+    public long getScaleUpCooldown()
+    {
+        return scaleUpCooldown;
+    }
+
+    public long getScaleDownCooldown()
+    {
+        return scaleDownCooldown;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("workers: [%d, %d], queries per worker: %d, scale up pending queries: %d, utilization: [%.2f, %.2f], " +
+                        "samples up/down: %d/%d, cooldown up/down: %d/%d ms, max step: %d",
+                minWorkers, maxWorkers, queriesPerWorker, scaleUpPendingQueries, lowUtilization, highUtilization,
+                scaleUpSamples, scaleDownSamples, scaleUpCooldown, scaleDownCooldown, maxStep);
+    }
+}
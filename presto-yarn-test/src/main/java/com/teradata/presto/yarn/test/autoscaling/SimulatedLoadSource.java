@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fluid model of a Presto cluster load. Queries arrive according to the {@link LoadProfile}, each live
+ * worker runs up to {@code slotsPerWorker} queries concurrently, each query takes {@code queryDuration}
+ * and queries which do not fit into the running slots wait in the queue. The model is advanced to the
+ * current time of the (simulated) clock on every sample.
+ */
+public class SimulatedLoadSource
+        implements LoadSource
+{
+    private static final long STEP_IN_MILLISECONDS = 100;
+
+    private final LongSupplier clock;
+    private final IntSupplier liveWorkers;
+    private final LoadProfile profile;
+    private final long queryDurationInMilliseconds;
+    private final int slotsPerWorker;
+
+    private long time;
+    private double queries;
+    private double completedQueries;
+    private double pendingQuerySeconds;
+    private double maxPendingQueries;
+
+    public SimulatedLoadSource(LongSupplier clock, IntSupplier liveWorkers, LoadProfile profile, long queryDurationInMilliseconds, int slotsPerWorker)
+    {
+        checkArgument(queryDurationInMilliseconds >= STEP_IN_MILLISECONDS, "queryDuration must not be shorter than %s ms", STEP_IN_MILLISECONDS);
+        checkArgument(slotsPerWorker > 0, "slotsPerWorker must be positive");
+        this.clock = requireNonNull(clock, "clock is null");
+        this.liveWorkers = requireNonNull(liveWorkers, "liveWorkers is null");
+        this.profile = requireNonNull(profile, "profile is null");
+        this.queryDurationInMilliseconds = queryDurationInMilliseconds;
+        this.slotsPerWorker = slotsPerWorker;
+        this.time = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized LoadSample sample()
+    {
+        int workers = liveWorkers.getAsInt();
+        advance(clock.getAsLong(), workers);
+
+        int slots = workers * slotsPerWorker;
+        double running = min(queries, slots);
+        double utilization = slots == 0 ? 0 : running / slots;
+        int queued = (int) Math.round(queries - running);
+        return new LoadSample(queued, (int) Math.round(running), 0, workers, utilization);
+    }
+
+    private void advance(long now, int workers)
+    {
+        int slots = workers * slotsPerWorker;
+        while (time < now) {
+            long step = min(STEP_IN_MILLISECONDS, now - time);
+            queries += profile.arrivalRate(time) * step / 1000;
+            double running = min(queries, slots);
+            double completed = running * step / queryDurationInMilliseconds;
+            queries -= completed;
+            completedQueries += completed;
+
+            double pending = max(0, queries - slots);
+            pendingQuerySeconds += pending * step / 1000;
+            maxPendingQueries = max(maxPendingQueries, pending);
+            time += step;
+        }
+    }
+
+    public synchronized double getCompletedQueries()
+    {
+        return completedQueries;
+    }
+
+    /**
+     * Sum of the time all queries spent in the queue, in seconds.
+     */
+    public synchronized double getPendingQuerySeconds()
+    {
+        return pendingQuerySeconds;
+    }
+
+    public synchronized double getMaxPendingQueries()
+    {
+        return maxPendingQueries;
+    }
+}
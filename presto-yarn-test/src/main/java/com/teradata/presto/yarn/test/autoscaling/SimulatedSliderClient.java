@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.slider.SliderClient;
+import com.teradata.presto.yarn.test.slider.SliderStatus;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ComponentStatus;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ContainerStatus;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.teradata.presto.yarn.test.PrestoCluster.COORDINATOR_COMPONENT;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-memory {@link SliderClient} which does not talk to any cluster. A flexed up container becomes
+ * live after the configured startup latency of the (simulated) clock; flexing down releases the most
+ * recently requested containers immediately. Created applications have a single coordinator.
+ */
+public class SimulatedSliderClient
+        implements SliderClient
+{
+    private final LongSupplier clock;
+    private final long containerStartupInMilliseconds;
+    private final Map<String, Map<String, List<Container>>> applications = new HashMap<>();
+    private final Set<String> stoppedApplications = new HashSet<>();
+    private long nextContainerId;
+    private int flexCount;
+
+    public SimulatedSliderClient(LongSupplier clock, long containerStartupInMilliseconds)
+    {
+        checkArgument(containerStartupInMilliseconds >= 0, "containerStartupInMilliseconds is negative");
+        this.clock = requireNonNull(clock, "clock is null");
+        this.containerStartupInMilliseconds = containerStartupInMilliseconds;
+    }
+
+    @Override
+    public void install(Path sliderBinary)
+    {
+    }
+
+    @Override
+    public void installLocalPackage(Path clusterPackage, String packageName)
+    {
+    }
+
+    @Override
+    public void uninstallPackage(String packageName)
+    {
+    }
+
+    @Override
+    public synchronized void create(String appName, Path template, Path resource)
+    {
+        checkState(!applications.containsKey(appName) && !stoppedApplications.contains(appName), "application %s already exists", appName);
+        applications.put(appName, new HashMap<>());
+        resize(appName, COORDINATOR_COMPONENT, 1);
+    }
+
+    @Override
+    public synchronized void cleanup(String appName)
+    {
+        applications.remove(appName);
+        stoppedApplications.remove(appName);
+    }
+
+    @Override
+    public synchronized Optional<SliderStatus> status(String appName)
+    {
+        Map<String, List<Container>> components = applications.get(appName);
+        if (components == null) {
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        ImmutableMap.Builder<String, ComponentStatus> statuses = ImmutableMap.builder();
+        components.forEach((component, containers) -> {
+            ImmutableList.Builder<ContainerStatus> live = ImmutableList.builder();
+            ImmutableList.Builder<String> ids = ImmutableList.builder();
+            int liveCount = 0;
+            for (Container container : containers) {
+                ids.add(container.id);
+                if (container.isLive(now)) {
+                    live.add(new ContainerStatus(container.id, container.host, container.requestTime, container.liveTime));
+                    liveCount++;
+                }
+            }
+            statuses.put(component, new ComponentStatus(component, live.build(), ids.build(), liveCount, containers.size(), containers.size() - liveCount, 0));
+        });
+        return Optional.of(new SliderStatus(statuses.build()));
+    }
+
+    @Override
+    public synchronized void start(String appName)
+    {
+        checkState(stoppedApplications.remove(appName), "application %s is not stopped", appName);
+        applications.put(appName, new HashMap<>());
+        resize(appName, COORDINATOR_COMPONENT, 1);
+    }
+
+    @Override
+    public synchronized void stop(String appName, boolean force)
+    {
+        if (applications.remove(appName) != null) {
+            stoppedApplications.add(appName);
+        }
+    }
+
+    @Override
+    public synchronized void flex(String appName, String componentName, int componentCount)
+    {
+        checkState(applications.containsKey(appName), "application %s does not exist", appName);
+        flexCount++;
+        resize(appName, componentName, componentCount);
+    }
+
+    /**
+     * Number of containers of the component which already started.
+     */
+    public synchronized int getLiveContainers(String appName, String componentName)
+    {
+        long now = clock.getAsLong();
+        return (int) containers(appName, componentName).stream()
+                .filter(container -> container.isLive(now))
+                .count();
+    }
+
+    /**
+     * Number of containers of the component allocated in the cluster, including the ones which are still starting.
+     */
+    public synchronized int getAllocatedContainers(String appName, String componentName)
+    {
+        return containers(appName, componentName).size();
+    }
+
+    public synchronized int getFlexCount()
+    {
+        return flexCount;
+    }
+
+    private void resize(String appName, String componentName, int componentCount)
+    {
+        checkArgument(componentCount >= 0, "componentCount is negative");
+        List<Container> containers = applications.get(appName).computeIfAbsent(componentName, key -> new ArrayList<>());
+        long now = clock.getAsLong();
+        while (containers.size() < componentCount) {
+            long id = nextContainerId++;
+            containers.add(new Container("container_" + id, "simulated-node-" + id, now, now + containerStartupInMilliseconds));
+        }
+        while (containers.size() > componentCount) {
+            containers.remove(containers.size() - 1);
+        }
+    }
+
+    private List<Container> containers(String appName, String componentName)
+    {
+        Map<String, List<Container>> components = applications.get(appName);
+        if (components == null || !components.containsKey(componentName)) {
+            return ImmutableList.of();
+        }
+        return components.get(componentName);
+    }
+
+    private static class Container
+    {
+        private final String id;
+        private final String host;
+        private final long requestTime;
+        private final long liveTime;
+
+        private Container(String id, String host, long requestTime, long liveTime)
+        {
+            this.id = id;
+            this.host = host;
+            this.requestTime = requestTime;
+            this.liveTime = liveTime;
+        }
+
+        private boolean isLive(long now)
+        {
+            return now >= liveTime;
+        }
+    }
+}
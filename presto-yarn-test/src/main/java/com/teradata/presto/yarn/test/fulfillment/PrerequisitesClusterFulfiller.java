@@ -16,12 +16,18 @@ package com.teradata.presto.yarn.test.fulfillment;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
+import com.teradata.presto.yarn.test.provisioning.NodeProvisioningMarkers;
+import com.teradata.presto.yarn.test.provisioning.Provisioner;
+import com.teradata.presto.yarn.test.provisioning.ProvisioningStep;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
 import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.presto.yarn.test.utils.ResourceManagerClient;
+import com.teradata.presto.yarn.test.utils.Resources;
+import com.teradata.presto.yarn.test.utils.SshClientPool;
 import com.teradata.tempto.Requirement;
 import com.teradata.tempto.context.State;
 import com.teradata.tempto.fulfillment.RequirementFulfiller;
 import com.teradata.tempto.fulfillment.TestStatus;
-import com.teradata.tempto.process.CommandExecutionException;
 import com.teradata.tempto.ssh.SshClient;
 import com.teradata.tempto.ssh.SshClientFactory;
 import org.slf4j.Logger;
@@ -29,18 +35,28 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
 
-import java.util.HashMap;
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import static com.teradata.presto.yarn.test.PrestoCluster.COORDINATOR_COMPONENT;
 import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.provisioning.ProvisioningStep.step;
 import static com.teradata.presto.yarn.test.utils.Resources.extractResource;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 
+/**
+ * Prepares YARN on the cluster nodes for Presto: cgroups, node labels and scheduler queues.
+ * Provisioning is done with {@link Provisioner}, so steps completed in one of the previous
+ * runs with the same configuration are skipped and independent steps run concurrently.
+ */
 @RequirementFulfiller.AutoSuiteLevelFulfiller(priority = 1)
 public class PrerequisitesClusterFulfiller
         implements RequirementFulfiller
@@ -58,143 +74,118 @@ public class PrerequisitesClusterFulfiller
     @Named("ssh.roles.yarn.password")
     private String yarnPassword;
 
-    private final SshClientFactory sshClientFactory;
     private final NodeSshUtils nodeSshUtils;
+    private final Provisioner provisioner;
 
     @Inject
-    public PrerequisitesClusterFulfiller(SshClientFactory sshClientFactory, @Named("yarn") SshClient yarnSshClient)
+    public PrerequisitesClusterFulfiller(
+            SshClientFactory sshClientFactory,
+            @Named("yarn") SshClient yarnSshClient,
+            @Named("tests.ssh.parallelism") int sshParallelism,
+            @Named("tests.yarn.resourcemanager.url") String resourceManagerUrl)
     {
-        this.sshClientFactory = sshClientFactory;
-        this.nodeSshUtils = new NodeSshUtils(sshClientFactory, yarnSshClient);
+        MultiHostExecutor multiHostExecutor = MultiHostExecutor.parallel(sshParallelism);
+        this.nodeSshUtils = new NodeSshUtils(
+                new SshClientPool(sshClientFactory),
+                multiHostExecutor,
+                yarnSshClient,
+                Optional.of(new ResourceManagerClient(URI.create(resourceManagerUrl))));
+        this.provisioner = new Provisioner(new NodeProvisioningMarkers(nodeSshUtils), multiHostExecutor);
     }
 
     @Override
     public Set<State> fulfill(Set<Requirement> requirements)
     {
-        if (isPrepared()) {
-            log.info("Skipping cluster prerequisites fulfillment as it is already prepared");
-            return ImmutableSet.of(nodeSshUtils);
+        Map<String, List<String>> provisioned = provisioner.provision(getProvisioningSteps());
+        if (provisioned.isEmpty()) {
+            log.info("Cluster prerequisites are already fulfilled");
         }
-
-        runOnMaster(singletonList("echo \'" + yarnPassword + "\' | passwd --stdin yarn"));
-
-        fixHdp();
-
-        setupCgroup();
-
-        setupYarnResourceManager();
-
-        restartResourceManager();
-
-        Map<String, String> node_labels = getNodeLabels();
-
-        nodeSshUtils.createLabels(node_labels);
-
-        useLabelsForSchedulerQueues();
-
-        runOnAll(asList("supervisorctl stop yarn-nodemanager"));
-
-        restartResourceManager();
-
-        runOnAll(asList("supervisorctl start yarn-nodemanager"));
-
-        nodeSshUtils.labelNodes(node_labels);
-
-        runOnAll(asList(
-                "mkdir -p /var/lib/presto",
-                "chown yarn:yarn /var/lib/presto"));
-
-        runOnMaster(asList("touch prepared"));
-
-        return ImmutableSet.of(nodeSshUtils);
-    }
-
-    private boolean isPrepared() {
-        try {
-            runOnMaster(asList("ls prepared"));
-            return true;
-        }
-        catch (CommandExecutionException e) {
-            log.debug("Checking if cluster is prepared", e);
-            return false;
+        else {
+            log.info("Provisioned cluster prerequisites: {}", provisioned);
         }
+        return ImmutableSet.of(nodeSshUtils);
     }
 
-    private void fixHdp()
-    {
-        nodeSshUtils.withSshClient(master, sshClient -> {
-            sshClient.upload(extractResource("/fix_hdp_mapreduce.sh"), "/tmp/");
-            return sshClient.command("sh /tmp/fix_hdp_mapreduce.sh || true");
-        });
-        runOnAll(asList(
-                "test -x /usr/lib/hadoop-yarn || ln -s /usr/hdp/2.3.*/hadoop-yarn /usr/lib/hadoop-yarn",
-                "test -x /var/log/hadoop-yarn || (mkdir -p /var/log/hadoop-yarn && chown yarn:hadoop /var/log/hadoop-yarn)"));
-    }
-
-    private Map<String, String> getNodeLabels()
-    {
-        Map<String, String> nodeLabels = new HashMap<>();
-
-        nodeLabels.put(master, COORDINATOR_COMPONENT.toLowerCase());
-        slaves.forEach(slave -> nodeLabels.put(slave, WORKER_COMPONENT.toLowerCase()));
-        return nodeLabels;
-    }
-
-    private void setupYarnResourceManager()
-    {
-        nodeSshUtils.withSshClient(getAllNodes(), sshClient -> {
-            sshClient.upload(extractResource("/conf/yarn/yarn-site.xml"), REMOTE_HADOOP_CONF_DIR);
-            sshClient.upload(extractResource("/conf/yarn/container-executor.cfg"), REMOTE_HADOOP_CONF_DIR);
-            return null;
-        });
-
-        runOnMaster(asList(
-                "su hdfs -c 'hadoop fs -mkdir -p /user/yarn'",
-                "su hdfs -c 'hadoop fs -chown yarn:yarn /user/yarn'"));
-    }
-
-    private void useLabelsForSchedulerQueues()
+    private List<ProvisioningStep> getProvisioningSteps()
     {
-        nodeSshUtils.withSshClient(master, sshClient -> {
-            sshClient.upload(extractResource("/conf/yarn/capacity-scheduler.xml"), REMOTE_HADOOP_CONF_DIR);
-            return null;
-        });
+        List<String> allNodes = getAllNodes();
+        List<String> masterOnly = singletonList(master);
+        Map<String, String> nodeLabels = getNodeLabels();
+        Path fixHdpScript = extractResource("/fix_hdp_mapreduce.sh");
+
+        return ImmutableList.of(
+                commands("yarn-password", masterOnly, "echo \'" + yarnPassword + "\' | passwd --stdin yarn"),
+                step("fix-hdp-mapreduce", masterOnly, host -> nodeSshUtils.withSshClient(host, sshClient -> {
+                    sshClient.upload(fixHdpScript, "/tmp/");
+                    return sshClient.command("sh /tmp/fix_hdp_mapreduce.sh || true");
+                })).withInputFiles(fixHdpScript),
+                commands("hadoop-yarn-links", allNodes,
+                        "test -x /usr/lib/hadoop-yarn || ln -s /usr/hdp/2.3.*/hadoop-yarn /usr/lib/hadoop-yarn",
+                        "test -x /var/log/hadoop-yarn || (mkdir -p /var/log/hadoop-yarn && chown yarn:hadoop /var/log/hadoop-yarn)"),
+                commands("container-executor-permissions", allNodes,
+                        "find / -name container-executor | xargs chown root:yarn",
+                        "find / -name container-executor | xargs chmod 6050"),
+                upload("cgroup-configuration", allNodes, "/etc/", "/conf/cgroup/cgrules.conf", "/conf/cgroup/cgconfig.conf"),
+                commands("cgroup-restart", allNodes,
+                        "/etc/init.d/cgconfig restart",
+                        "chmod -R 777 /sys/fs/cgroup")
+                        .dependsOn("cgroup-configuration"),
+                upload("yarn-configuration", allNodes, REMOTE_HADOOP_CONF_DIR, "/conf/yarn/yarn-site.xml", "/conf/yarn/container-executor.cfg"),
+                commands("hdfs-yarn-home", masterOnly,
+                        "su hdfs -c 'hadoop fs -mkdir -p /user/yarn'",
+                        "su hdfs -c 'hadoop fs -chown yarn:yarn /user/yarn'")
+                        .dependsOn("fix-hdp-mapreduce"),
+                commands("resourcemanager-start", masterOnly, "supervisorctl restart yarn-resourcemanager")
+                        .dependsOn("fix-hdp-mapreduce", "hadoop-yarn-links", "container-executor-permissions", "cgroup-restart", "yarn-configuration"),
+                // label steps run yarn commands over the yarn ssh role, which logs in with the password set above
+                step("cluster-node-labels", masterOnly, host -> nodeSshUtils.createLabels(nodeLabels))
+                        .withInputs(ImmutableSet.copyOf(nodeLabels.values()).stream().sorted().collect(toList()))
+                        .dependsOn("yarn-password", "resourcemanager-start"),
+                // capacity scheduler configuration refers to the labels, so it is used only after they exist
+                upload("capacity-scheduler", masterOnly, REMOTE_HADOOP_CONF_DIR, "/conf/yarn/capacity-scheduler.xml")
+                        .dependsOn("cluster-node-labels"),
+                commands("nodemanager-stop", allNodes, "supervisorctl stop yarn-nodemanager")
+                        .dependsOn("capacity-scheduler"),
+                commands("resourcemanager-restart", masterOnly, "supervisorctl restart yarn-resourcemanager")
+                        .dependsOn("nodemanager-stop"),
+                commands("nodemanager-start", allNodes, "supervisorctl start yarn-nodemanager")
+                        .dependsOn("resourcemanager-restart"),
+                step("node-labels", masterOnly, host -> nodeSshUtils.labelNodes(nodeLabels))
+                        .withInputs(nodeLabels.toString())
+                        .dependsOn("yarn-password", "nodemanager-start"),
+                commands("presto-data-directory", allNodes,
+                        "mkdir -p /var/lib/presto",
+                        "chown yarn:yarn /var/lib/presto"));
     }
 
-    private void restartResourceManager()
+    private ProvisioningStep commands(String name, List<String> hosts, String... commands)
     {
-        runOnMaster(singletonList("supervisorctl restart yarn-resourcemanager"));
+        return step(name, hosts, host -> nodeSshUtils.runOnNode(host, asList(commands)))
+                .withInputs(commands);
     }
 
-    private void setupCgroup()
+    private ProvisioningStep upload(String name, List<String> hosts, String remoteDirectory, String... resources)
     {
-        runOnAll(asList(
-                "find / -name container-executor | xargs chown root:yarn",
-                "find / -name container-executor | xargs chmod 6050"));
-
-        nodeSshUtils.withSshClient(getAllNodes(), sshClient -> {
-            sshClient.upload(extractResource("/conf/cgroup/cgrules.conf"), "/etc/");
-            sshClient.upload(extractResource("/conf/cgroup/cgconfig.conf"), "/etc/");
+        Path[] files = Stream.of(resources)
+                .map(Resources::extractResource)
+                .toArray(Path[]::new);
+        return step(name, hosts, host -> nodeSshUtils.withSshClient(host, sshClient -> {
+            for (Path file : files) {
+                sshClient.upload(file, remoteDirectory);
+            }
             return null;
-        });
-
-        String restartCgroupCmd= "/etc/init.d/cgconfig restart";
-        runOnAll(asList(
-                restartCgroupCmd,
-                "chmod -R 777 /sys/fs/cgroup"));
+        }))
+                .withInputs(remoteDirectory)
+                .withInputFiles(files);
     }
 
-    private void runOnMaster(List<String> commands)
+    private Map<String, String> getNodeLabels()
     {
-        nodeSshUtils.runOnNode(master, commands);
-    }
+        Map<String, String> nodeLabels = new TreeMap<>();
 
-    private List<String> runOnAll(List<String> commands)
-    {
-        return getAllNodes().stream()
-            .map(node -> nodeSshUtils.runOnNode(node, commands))
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
+        nodeLabels.put(master, COORDINATOR_COMPONENT.toLowerCase());
+        slaves.forEach(slave -> nodeLabels.put(slave, WORKER_COMPONENT.toLowerCase()));
+        return nodeLabels;
     }
 
     private List<String> getAllNodes()
@@ -205,5 +196,6 @@ public class PrerequisitesClusterFulfiller
     @Override
     public void cleanup(TestStatus testStatus)
     {
+        nodeSshUtils.close();
     }
 }
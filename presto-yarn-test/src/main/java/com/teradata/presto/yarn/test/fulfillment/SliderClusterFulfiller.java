@@ -15,11 +15,18 @@ package com.teradata.presto.yarn.test.fulfillment;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
+import com.teradata.presto.yarn.test.PrestoClusterPool;
+import com.teradata.presto.yarn.test.scheduling.CapacityScheduler;
+import com.teradata.presto.yarn.test.scheduling.ResourceRequest;
+import com.teradata.presto.yarn.test.slider.CliSliderClient;
+import com.teradata.presto.yarn.test.slider.RestSliderClient;
 import com.teradata.presto.yarn.test.slider.Slider;
+import com.teradata.presto.yarn.test.slider.SliderClient;
 import com.teradata.tempto.Requirement;
 import com.teradata.tempto.context.State;
 import com.teradata.tempto.fulfillment.RequirementFulfiller;
 import com.teradata.tempto.fulfillment.TestStatus;
+import com.teradata.tempto.hadoop.hdfs.HdfsClient;
 import com.teradata.tempto.ssh.SshClient;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.slf4j.Logger;
@@ -29,8 +36,10 @@ import javax.inject.Named;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.Set;
 
 @RequirementFulfiller.AutoSuiteLevelFulfiller(priority = 2)
@@ -43,16 +52,53 @@ public class SliderClusterFulfiller
     @Inject
     @Named("tests.app_package.path")
     private String prestoPackagePath;
+    @Inject
+    @Named("tests.app_package.keep_installed")
+    private boolean keepPackageInstalled;
 
     @Inject
     @Named("tests.slider.binary")
     private String sliderBinaryPath;
+    @Inject
+    @Named("tests.parallel.max_containers")
+    private int maxContainers;
+    @Inject
+    @Named("tests.parallel.max_memory_mb")
+    private long maxMemoryInMegabytes;
+    @Inject
+    @Named("tests.cluster_pool.max_idle")
+    private int maxIdleClusters;
+    @Inject
+    @Named("tests.cluster_pool.base_port")
+    private int clusterBasePort;
+    @Inject
+    @Named("tests.slider.conf_dir")
+    private String sliderConfDir;
+    @Inject
+    private HdfsClient hdfsClient;
     private final Slider slider;
+    private PrestoClusterPool clusterPool;
 
     @Inject
-    public SliderClusterFulfiller(@Named("yarn") SshClient yarnSshClient)
+    public SliderClusterFulfiller(
+            @Named("yarn") SshClient yarnSshClient,
+            @Named("tests.slider.client") String sliderClient,
+            @Named("tests.yarn.resourcemanager.url") String resourceManagerUrl)
+    {
+        this.slider = new Slider(createSliderClient(yarnSshClient, sliderClient, resourceManagerUrl));
+    }
+
+    private static SliderClient createSliderClient(SshClient yarnSshClient, String sliderClient, String resourceManagerUrl)
     {
-        this.slider = new Slider(yarnSshClient);
+        CliSliderClient cliSliderClient = new CliSliderClient(yarnSshClient);
+        switch (sliderClient) {
+            case "cli":
+                return cliSliderClient;
+            case "rest":
+                return new RestSliderClient(cliSliderClient, URI.create(resourceManagerUrl));
+            default:
+                throw new IllegalArgumentException("Unknown slider client: " + sliderClient);
+        }
     }
 
     @Override
@@ -65,7 +111,9 @@ public class SliderClusterFulfiller
         log.info("Using Presto package from: " + presto_app_package);
         slider.installLocalPackage(presto_app_package, PACKAGE_NAME);
 
-        return ImmutableSet.of(slider);
+        CapacityScheduler capacityScheduler = new CapacityScheduler(new ResourceRequest(maxContainers, maxMemoryInMegabytes));
+        clusterPool = new PrestoClusterPool(slider, hdfsClient, sliderConfDir, Optional.of(capacityScheduler), maxIdleClusters, clusterBasePort);
+        return ImmutableSet.of(slider, capacityScheduler, clusterPool);
     }
 
     private String getPrestoAppPackagePath()
@@ -79,6 +127,12 @@ public class SliderClusterFulfiller
     @Override
     public void cleanup(TestStatus testStatus)
     {
-        slider.uninstallPackage(PACKAGE_NAME);
+        if (clusterPool != null) {
+            log.info("Clusters created: {}, reused: {}", clusterPool.getCreated(), clusterPool.getReused());
+            clusterPool.evictIdle();
+        }
+        if (!keepPackageInstalled) {
+            slider.uninstallPackage(PACKAGE_NAME);
+        }
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.provisioning;
+
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps provisioning markers as files in the home directory of the ssh user on each node,
+ * one file per step with the digest of its inputs as content.
+ */
+public class NodeProvisioningMarkers
+        implements ProvisioningMarkers
+{
+    private static final String MARKERS_DIRECTORY = ".provisioning";
+
+    private final NodeSshUtils nodeSshUtils;
+
+    public NodeProvisioningMarkers(NodeSshUtils nodeSshUtils)
+    {
+        this.nodeSshUtils = requireNonNull(nodeSshUtils, "nodeSshUtils is null");
+    }
+
+    @Override
+    public Map<String, String> read(String host)
+    {
+        // prints "directory/step:digest" line for each marker
+        String markers = nodeSshUtils.withSshClient(host, sshClient -> sshClient.command("grep -H . " + MARKERS_DIRECTORY + "/* 2>/dev/null || true"));
+        ImmutableMap.Builder<String, String> digests = ImmutableMap.builder();
+        for (String line : markers.split("\n")) {
+            int separator = line.lastIndexOf(':');
+            if (line.startsWith(MARKERS_DIRECTORY + "/") && separator > 0) {
+                digests.put(line.substring(MARKERS_DIRECTORY.length() + 1, separator), line.substring(separator + 1).trim());
+            }
+        }
+        return digests.build();
+    }
+
+    @Override
+    public void write(String host, String step, String digest)
+    {
+        nodeSshUtils.runOnNode(host, "mkdir -p " + MARKERS_DIRECTORY + " && echo " + digest + " > " + MARKERS_DIRECTORY + "/" + step);
+    }
+}
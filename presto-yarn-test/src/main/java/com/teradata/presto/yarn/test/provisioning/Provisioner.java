@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.provisioning;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs provisioning steps as a DAG: a step starts as soon as all steps it depends on completed,
+ * so independent steps run concurrently, and within a step hosts are processed with the given
+ * {@link MultiHostExecutor}.
+ * <p>
+ * After a step completes on a host, a marker with the digest of its inputs is stored for that
+ * host. The digest covers inputs of all the steps the step transitively depends on, so a step
+ * is skipped on hosts where it was completed with the same inputs, and a configuration change
+ * redoes only the changed steps and the ones depending on them. An interrupted provisioning
+ * resumes from the hosts and steps which did not complete.
+ */
+public class Provisioner
+{
+    private static final Logger log = LoggerFactory.getLogger(Provisioner.class);
+
+    private final ProvisioningMarkers markers;
+    private final MultiHostExecutor multiHostExecutor;
+
+    public Provisioner(ProvisioningMarkers markers, MultiHostExecutor multiHostExecutor)
+    {
+        this.markers = requireNonNull(markers, "markers is null");
+        this.multiHostExecutor = requireNonNull(multiHostExecutor, "multiHostExecutor is null");
+    }
+
+    /**
+     * Provisions the steps which are not completed yet.
+     *
+     * @return hosts on which each step was done, for steps done on at least one host, in the order of given steps
+     * @throws ProvisioningException when any of the steps failed, after all steps not depending on it finished
+     */
+    public Map<String, List<String>> provision(List<ProvisioningStep> steps)
+    {
+        List<ProvisioningStep> sortedSteps = sortTopologically(steps);
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (ProvisioningStep step : sortedSteps) {
+            digests.put(step.getName(), digest(step, digests));
+        }
+
+        Set<String> hosts = new LinkedHashSet<>();
+        steps.forEach(step -> hosts.addAll(step.getHosts()));
+        List<String> hostList = ImmutableList.copyOf(hosts);
+        List<Map<String, String>> hostMarkers = multiHostExecutor.execute(hostList, markers::read);
+        Map<String, Map<String, String>> completed = new LinkedHashMap<>();
+        for (int i = 0; i < hostList.size(); i++) {
+            completed.put(hostList.get(i), hostMarkers.get(i));
+        }
+
+        Map<String, List<String>> provisioned = new ConcurrentHashMap<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        ExecutorService executor = newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("provisioning-%s").setDaemon(true).build());
+        try {
+            for (ProvisioningStep step : sortedSteps) {
+                String digest = digests.get(step.getName());
+                List<String> pendingHosts = step.getHosts().stream()
+                        .filter(host -> !digest.equals(completed.get(host).get(step.getName())))
+                        .collect(toList());
+                CompletableFuture<?>[] dependencies = step.getDependencies().stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture<?>[]::new);
+                futures.put(step.getName(), CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                    if (pendingHosts.isEmpty()) {
+                        log.info("Skipping provisioning step {}, already completed", step);
+                        return;
+                    }
+                    log.info("Provisioning step {} on {}", step, pendingHosts);
+                    try {
+                        multiHostExecutor.execute(pendingHosts, host -> {
+                            step.execute(host);
+                            markers.write(host, step.getName(), digest);
+                            return null;
+                        });
+                    }
+                    catch (RuntimeException e) {
+                        failures.put(step.getName(), e);
+                        throw e;
+                    }
+                    provisioned.put(step.getName(), pendingHosts);
+                }, executor));
+            }
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            }
+            catch (RuntimeException e) {
+                // failures are collected per step below
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            List<String> skipped = futures.entrySet().stream()
+                    .filter(entry -> entry.getValue().isCompletedExceptionally() && !failures.containsKey(entry.getKey()))
+                    .map(Map.Entry::getKey)
+                    .collect(toList());
+            throw new ProvisioningException(failures, skipped);
+        }
+
+        ImmutableMap.Builder<String, List<String>> result = ImmutableMap.builder();
+        steps.stream()
+                .filter(step -> provisioned.containsKey(step.getName()))
+                .forEach(step -> result.put(step.getName(), provisioned.get(step.getName())));
+        return result.build();
+    }
+
+    private static String digest(ProvisioningStep step, Map<String, String> digests)
+    {
+        StringBuilder content = new StringBuilder(step.getName());
+        step.getInputs().forEach(input -> content.append('\n').append(input));
+        new TreeSet<>(step.getDependencies()).forEach(dependency -> content.append('\n').append(dependency).append('=').append(digests.get(dependency)));
+        return md5sum(content.toString().getBytes(UTF_8));
+    }
+
+    private static List<ProvisioningStep> sortTopologically(Collection<ProvisioningStep> steps)
+    {
+        Map<String, ProvisioningStep> stepsByName = new LinkedHashMap<>();
+        for (ProvisioningStep step : steps) {
+            checkArgument(stepsByName.put(step.getName(), step) == null, "Duplicate provisioning step %s", step);
+        }
+        for (ProvisioningStep step : steps) {
+            for (String dependency : step.getDependencies()) {
+                checkArgument(stepsByName.containsKey(dependency), "Step %s depends on unknown step %s", step, dependency);
+            }
+        }
+
+        List<ProvisioningStep> sorted = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (ProvisioningStep step : steps) {
+            visit(step, stepsByName, visited, new LinkedHashSet<>(), sorted);
+        }
+        return sorted;
+    }
+
+    private static void visit(ProvisioningStep step, Map<String, ProvisioningStep> stepsByName, Set<String> visited, Set<String> path, List<ProvisioningStep> sorted)
+    {
+        if (visited.contains(step.getName())) {
+            return;
+        }
+        checkArgument(path.add(step.getName()), "Provisioning steps have a cycle: %s -> %s", Joiner.on(" -> ").join(path), step);
+        for (String dependency : step.getDependencies()) {
+            visit(stepsByName.get(dependency), stepsByName, visited, path, sorted);
+        }
+        path.remove(step.getName());
+        visited.add(step.getName());
+        sorted.add(step);
+    }
+
+    public static class ProvisioningException
+            extends RuntimeException
+    {
+        private final Set<String> failedSteps;
+        private final List<String> skippedSteps;
+
+        public ProvisioningException(Map<String, Throwable> failures, List<String> skippedSteps)
+        {
+            super("Provisioning steps " + failures.keySet() + " failed, skipped dependent steps " + skippedSteps, failures.values().iterator().next());
+            this.failedSteps = new LinkedHashSet<>(failures.keySet());
+            this.skippedSteps = ImmutableList.copyOf(skippedSteps);
+            failures.values().stream().skip(1).forEach(this::addSuppressed);
+        }
+
+        public Set<String> getFailedSteps()
+        {
+            return failedSteps;
+        }
+
+        public List<String> getSkippedSteps()
+        {
+            return skippedSteps;
+        }
+    }
+}
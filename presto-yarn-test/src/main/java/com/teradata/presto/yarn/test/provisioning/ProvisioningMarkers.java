@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.provisioning;
+
+import java.util.Map;
+
+/**
+ * Stores digests of inputs with which provisioning steps were completed on each host.
+ */
+public interface ProvisioningMarkers
+{
+    /**
+     * Returns digests of completed steps by step name.
+     */
+    Map<String, String> read(String host);
+
+    void write(String host, String step, String digest);
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.provisioning;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.util.Arrays.asList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Idempotent cluster provisioning operation done on each of the given hosts. A step is done
+ * again on a host only when its inputs (commands, uploaded files, configuration values) or
+ * inputs of any of the steps it depends on changed since it was last completed there,
+ * see {@link Provisioner}.
+ */
+public class ProvisioningStep
+{
+    private final String name;
+    private final List<String> hosts;
+    private final Consumer<String> action;
+    private final Set<String> dependencies;
+    private final List<String> inputs;
+
+    public static ProvisioningStep step(String name, Collection<String> hosts, Consumer<String> action)
+    {
+        return new ProvisioningStep(name, ImmutableList.copyOf(hosts), action, ImmutableSet.of(), ImmutableList.of());
+    }
+
+    private ProvisioningStep(String name, List<String> hosts, Consumer<String> action, Set<String> dependencies, List<String> inputs)
+    {
+        checkArgument(name.matches("[a-z0-9-]+"), "step name must consist of lowercase letters, digits and dashes: %s", name);
+        checkArgument(!hosts.isEmpty(), "no hosts for step %s", name);
+        this.name = name;
+        this.hosts = hosts;
+        this.action = requireNonNull(action, "action is null");
+        this.dependencies = dependencies;
+        this.inputs = inputs;
+    }
+
+    public ProvisioningStep dependsOn(String... dependencies)
+    {
+        return new ProvisioningStep(name, hosts, action, ImmutableSet.<String>builder().addAll(this.dependencies).addAll(asList(dependencies)).build(), inputs);
+    }
+
+    public ProvisioningStep withInputs(Collection<String> inputs)
+    {
+        return new ProvisioningStep(name, hosts, action, dependencies, ImmutableList.<String>builder().addAll(this.inputs).addAll(inputs).build());
+    }
+
+    public ProvisioningStep withInputs(String... inputs)
+    {
+        return withInputs(asList(inputs));
+    }
+
+    /**
+     * Adds content of the local files, typically the ones uploaded by the step, to its inputs.
+     */
+    public ProvisioningStep withInputFiles(Path... files)
+    {
+        ImmutableList.Builder<String> fileInputs = ImmutableList.builder();
+        for (Path file : files) {
+            fileInputs.add(file.getFileName() + ":" + md5sum(file));
+        }
+        return withInputs(fileInputs.build());
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<String> getHosts()
+    {
+        return hosts;
+    }
+
+    public Set<String> getDependencies()
+    {
+        return dependencies;
+    }
+
+    public List<String> getInputs()
+    {
+        return inputs;
+    }
+
+    void execute(String host)
+    {
+        action.accept(host);
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
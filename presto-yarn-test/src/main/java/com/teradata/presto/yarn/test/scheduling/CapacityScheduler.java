@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import com.teradata.tempto.context.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Admits tests which create slider applications only while the containers and memory requested by
+ * all admitted applications fit in the cluster capacity, so that tests run concurrently without
+ * waiting for YARN allocations which cannot be satisfied.
+ * <p>
+ * A request which does not fit yet may be bypassed by later (smaller) requests which fit, so that
+ * they fill the gaps, but only a limited number of times, after which requests are admitted in
+ * arrival order until it is admitted. This way large tests are not starved. Requests exceeding the
+ * capacity are limited to it, i.e. they run alone.
+ */
+public class CapacityScheduler
+        implements State
+{
+    private static final Logger log = LoggerFactory.getLogger(CapacityScheduler.class);
+
+    public static final int DEFAULT_MAX_BYPASSES = 3;
+
+    private final ResourceRequest capacity;
+    private final int maxBypasses;
+    // compared by identity, equal requests of different tests are distinct waiters
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private final List<Runnable> blockedListeners = new CopyOnWriteArrayList<>();
+    private ResourceRequest admitted = new ResourceRequest(0, 0);
+
+    public CapacityScheduler(ResourceRequest capacity)
+    {
+        this(capacity, DEFAULT_MAX_BYPASSES);
+    }
+
+    public CapacityScheduler(ResourceRequest capacity, int maxBypasses)
+    {
+        checkArgument(maxBypasses >= 0, "maxBypasses is negative");
+        this.capacity = requireNonNull(capacity, "capacity is null");
+        this.maxBypasses = maxBypasses;
+    }
+
+    public ResourceRequest getCapacity()
+    {
+        return capacity;
+    }
+
+    public synchronized ResourceRequest getAdmitted()
+    {
+        return admitted;
+    }
+
+    /**
+     * Returns true when some request is blocked waiting for resources.
+     */
+    public synchronized boolean hasWaiters()
+    {
+        return !waiting.isEmpty();
+    }
+
+    /**
+     * Adds listener which is run when a request has to wait for resources, e.g. to free resources held
+     * by idle clusters. The listener runs after the request is registered as a waiter, see {@link #hasWaiters()},
+     * and without holding the scheduler lock.
+     */
+    public void addBlockedListener(Runnable listener)
+    {
+        blockedListeners.add(requireNonNull(listener, "listener is null"));
+    }
+
+    /**
+     * Blocks until the request fits in the cluster capacity. Resources are released when the returned
+     * admission is closed.
+     */
+    public Admission admit(String name, ResourceRequest request)
+            throws InterruptedException
+    {
+        ResourceRequest capped = request.capTo(capacity);
+        Waiter waiter = new Waiter(capped);
+        long start = System.currentTimeMillis();
+        boolean blocked;
+        synchronized (this) {
+            waiting.addLast(waiter);
+            blocked = !isAdmissible(waiter);
+        }
+        try {
+            if (blocked) {
+                blockedListeners.forEach(Runnable::run);
+            }
+            synchronized (this) {
+                while (!isAdmissible(waiter)) {
+                    wait();
+                }
+                Waiter oldest = waiting.peekFirst();
+                if (oldest != waiter) {
+                    oldest.bypasses++;
+                }
+                admitted = admitted.plus(capped);
+            }
+        }
+        finally {
+            synchronized (this) {
+                waiting.remove(waiter);
+                // the oldest waiting request may have changed
+                notifyAll();
+            }
+        }
+        log.info("Admitted {} requesting {} after {} ms", name, capped, System.currentTimeMillis() - start);
+        return new Admission(name, capped);
+    }
+
+    /**
+     * Blocks until no other test is admitted, e.g. for operations which restart YARN.
+     */
+    public Admission admitExclusively(String name)
+            throws InterruptedException
+    {
+        return admit(name, capacity);
+    }
+
+    private boolean isAdmissible(Waiter waiter)
+    {
+        Waiter oldest = waiting.peekFirst();
+        if (oldest != waiter && oldest.bypasses >= maxBypasses) {
+            return false;
+        }
+        return waiter.request.fitsIn(capacity.minus(admitted));
+    }
+
+    private synchronized void release(ResourceRequest request)
+    {
+        admitted = admitted.minus(request);
+        notifyAll();
+    }
+
+    @Override
+    public Optional<String> getName()
+    {
+        return Optional.empty();
+    }
+
+    private static class Waiter
+    {
+        private final ResourceRequest request;
+        private int bypasses;
+
+        private Waiter(ResourceRequest request)
+        {
+            this.request = request;
+        }
+    }
+
+    public class Admission
+            implements AutoCloseable
+    {
+        private final String name;
+        private final ResourceRequest request;
+        private boolean released;
+
+        private Admission(String name, ResourceRequest request)
+        {
+            this.name = name;
+            this.request = request;
+        }
+
+        public ResourceRequest getRequest()
+        {
+            return request;
+        }
+
+        @Override
+        public void close()
+        {
+            synchronized (CapacityScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(request);
+            log.info("Released {} of {}", request, name);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps clusters alive between tests which need the same cluster, identified by a key (e.g. digest of
+ * the resources and template files). A released cluster is kept idle and handed to the next test with
+ * the same key after it is reset in place, which is much cheaper than destroying the cluster and creating
+ * a new one. Idle clusters of different keys are kept side by side; the least recently released ones are
+ * destroyed when more than the configured number of clusters is idle, and a cluster is destroyed when its
+ * reset fails. Clusters marked dirty by the
+ * test (see {@link Lifecycle#isReusable(Object)}) and clusters of failed tests are never reused.
+ */
+public class ClusterPool<T>
+{
+    private static final Logger log = LoggerFactory.getLogger(ClusterPool.class);
+
+    private final Lifecycle<T> lifecycle;
+    private final int maxIdle;
+
+    // most recently released first
+    private final Deque<Entry<T>> idle = new ArrayDeque<>();
+    private int created;
+    private int reused;
+
+    public ClusterPool(Lifecycle<T> lifecycle, int maxIdle)
+    {
+        checkArgument(maxIdle >= 0, "maxIdle is negative");
+        this.lifecycle = requireNonNull(lifecycle, "lifecycle is null");
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Runs the test with an idle cluster of the given key, or with a cluster created by the factory
+     * when there is none.
+     */
+    public void withCluster(String key, Supplier<T> factory, Consumer<T> test)
+    {
+        T cluster = acquire(key, factory);
+        boolean succeeded = false;
+        try {
+            test.accept(cluster);
+            succeeded = true;
+        }
+        finally {
+            release(key, cluster, succeeded);
+        }
+    }
+
+    private T acquire(String key, Supplier<T> factory)
+    {
+        Entry<T> match = null;
+        synchronized (this) {
+            for (Iterator<Entry<T>> iterator = idle.iterator(); iterator.hasNext(); ) {
+                Entry<T> entry = iterator.next();
+                if (entry.key.equals(key)) {
+                    iterator.remove();
+                    match = entry;
+                    break;
+                }
+            }
+        }
+
+        if (match != null) {
+            try {
+                lifecycle.reset(match.cluster);
+                synchronized (this) {
+                    reused++;
+                }
+                log.info("Reusing cluster {}", key);
+                return match.cluster;
+            }
+            catch (RuntimeException e) {
+                log.warn("Unable to reset cluster {}, creating a new one", key, e);
+                destroy(ImmutableList.of(match));
+            }
+        }
+
+        T cluster = factory.get();
+        synchronized (this) {
+            created++;
+        }
+        return cluster;
+    }
+
+    private void release(String key, T cluster, boolean succeeded)
+    {
+        if (!succeeded) {
+            // do not hide the test failure
+            destroy(ImmutableList.of(new Entry<>(key, cluster)));
+            return;
+        }
+        boolean reusable;
+        List<Entry<T>> evicted = ImmutableList.of();
+        synchronized (this) {
+            // checked under the lock, so that concurrent evictIdle() either sees the cluster idle or runs before the check
+            reusable = lifecycle.isReusable(cluster);
+            if (reusable) {
+                idle.addFirst(new Entry<>(key, cluster));
+                if (idle.size() > maxIdle) {
+                    evicted = ImmutableList.of(idle.removeLast());
+                }
+            }
+        }
+        if (!reusable) {
+            lifecycle.destroy(cluster);
+            return;
+        }
+        destroy(evicted);
+    }
+
+    /**
+     * Destroys all idle clusters, e.g. before YARN is restarted.
+     */
+    public void evictIdle()
+    {
+        List<Entry<T>> evicted;
+        synchronized (this) {
+            evicted = drainIdle();
+        }
+        destroy(evicted);
+    }
+
+    public synchronized int getCreated()
+    {
+        return created;
+    }
+
+    public synchronized int getReused()
+    {
+        return reused;
+    }
+
+    public synchronized int getIdle()
+    {
+        return idle.size();
+    }
+
+    private List<Entry<T>> drainIdle()
+    {
+        List<Entry<T>> drained = ImmutableList.copyOf(idle);
+        idle.clear();
+        return drained;
+    }
+
+    private void destroy(List<Entry<T>> entries)
+    {
+        for (Entry<T> entry : entries) {
+            try {
+                lifecycle.destroy(entry.cluster);
+            }
+            catch (RuntimeException e) {
+                log.error("Unable to destroy cluster {}", entry.key, e);
+            }
+        }
+    }
+
+    public interface Lifecycle<T>
+    {
+        /**
+         * Brings the reused cluster back to the state of a newly created one. Throws when that is not possible.
+         */
+        void reset(T cluster);
+
+        /**
+         * Returns false when the test left the cluster in a state which cannot be reset. Called while
+         * holding the pool lock, so it must not block on other pool operations.
+         */
+        boolean isReusable(T cluster);
+
+        void destroy(T cluster);
+    }
+
+    private static class Entry<T>
+    {
+        private final String key;
+        private final T cluster;
+
+        private Entry(String key, T cluster)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.cluster = requireNonNull(cluster, "cluster is null");
+        }
+    }
+}
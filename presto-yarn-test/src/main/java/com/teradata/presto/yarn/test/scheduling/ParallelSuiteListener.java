@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.xml.XmlSuite;
+
+/**
+ * Runs test methods in parallel when {@code tests.parallel.threads} system property is greater than 1.
+ * Tests creating clusters are admitted by {@link CapacityScheduler}. Registered as a service, so that
+ * it is picked up by the tempto runner.
+ */
+public class ParallelSuiteListener
+        implements ISuiteListener
+{
+    private static final Logger log = LoggerFactory.getLogger(ParallelSuiteListener.class);
+
+    public static final String THREADS_PROPERTY = "tests.parallel.threads";
+
+    @Override
+    public void onStart(ISuite suite)
+    {
+        int threads = Integer.getInteger(THREADS_PROPERTY, 1);
+        if (threads > 1) {
+            log.info("Running tests of {} in {} threads", suite.getName(), threads);
+            XmlSuite xmlSuite = suite.getXmlSuite();
+            xmlSuite.setParallel(XmlSuite.PARALLEL_METHODS);
+            xmlSuite.setThreadCount(threads);
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite)
+    {
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * YARN containers and memory requested by a slider application, as defined by its resources.json.
+ */
+public class ResourceRequest
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String INSTANCES = "yarn.component.instances";
+    private static final String MEMORY = "yarn.memory";
+    private static final String APPLICATION_MASTER_COMPONENT = "slider-appmaster";
+    // slider defaults
+    private static final int DEFAULT_INSTANCES = 1;
+    private static final long DEFAULT_MEMORY = 256;
+
+    private final int containers;
+    private final long memoryInMegabytes;
+
+    public ResourceRequest(int containers, long memoryInMegabytes)
+    {
+        checkArgument(containers >= 0, "containers is negative");
+        checkArgument(memoryInMegabytes >= 0, "memoryInMegabytes is negative");
+        this.containers = containers;
+        this.memoryInMegabytes = memoryInMegabytes;
+    }
+
+    public static ResourceRequest fromResources(Path resources)
+    {
+        try {
+            return fromResources(OBJECT_MAPPER.readTree(Files.readAllBytes(resources)));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sums instances and memory of all components, including the application master. Component
+     * settings override global ones.
+     */
+    public static ResourceRequest fromResources(JsonNode resources)
+    {
+        JsonNode global = resources.path("global");
+        int containers = 0;
+        long memory = 0;
+        boolean applicationMaster = false;
+        Iterator<Map.Entry<String, JsonNode>> components = resources.path("components").fields();
+        while (components.hasNext()) {
+            Map.Entry<String, JsonNode> component = components.next();
+            applicationMaster |= component.getKey().equals(APPLICATION_MASTER_COMPONENT);
+            int instances = component.getKey().equals(APPLICATION_MASTER_COMPONENT) ? 1 : (int) value(component.getValue(), global, INSTANCES, DEFAULT_INSTANCES);
+            containers += instances;
+            memory += instances * value(component.getValue(), global, MEMORY, DEFAULT_MEMORY);
+        }
+        if (!applicationMaster) {
+            containers++;
+            memory += value(global, global, MEMORY, DEFAULT_MEMORY);
+        }
+        return new ResourceRequest(containers, memory);
+    }
+
+    private static long value(JsonNode component, JsonNode global, String key, long defaultValue)
+    {
+        JsonNode value = component.has(key) ? component.get(key) : global.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.asText().trim());
+    }
+
+    public int getContainers()
+    {
+        return containers;
+    }
+
+    public long getMemoryInMegabytes()
+    {
+        return memoryInMegabytes;
+    }
+
+    public boolean fitsIn(ResourceRequest available)
+    {
+        return containers <= available.containers && memoryInMegabytes <= available.memoryInMegabytes;
+    }
+
+    public ResourceRequest plus(ResourceRequest other)
+    {
+        return new ResourceRequest(containers + other.containers, memoryInMegabytes + other.memoryInMegabytes);
+    }
+
+    public ResourceRequest minus(ResourceRequest other)
+    {
+        return new ResourceRequest(max(0, containers - other.containers), max(0, memoryInMegabytes - other.memoryInMegabytes));
+    }
+
+    /**
+     * Returns the request limited to the given capacity.
+     */
+    public ResourceRequest capTo(ResourceRequest capacity)
+    {
+        return new ResourceRequest(min(containers, capacity.containers), min(memoryInMegabytes, capacity.memoryInMegabytes));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ResourceRequest that = (ResourceRequest) o;
+        return containers == that.containers && memoryInMegabytes == that.memoryInMegabytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(containers, memoryInMegabytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return containers + " containers, " + memoryInMegabytes + " MB";
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.teradata.presto.yarn.test.slider.CliSliderClient;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.presto.yarn.test.utils.SshClientPool;
+import com.teradata.tempto.process.CommandExecutionException;
+import com.teradata.tempto.ssh.SshClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.teradata.presto.yarn.test.utils.SshClientPool.DEFAULT_HEALTH_CHECK_INTERVAL;
+import static com.teradata.presto.yarn.test.utils.SshClientPool.DEFAULT_IDLE_TIMEOUT;
+import static com.teradata.presto.yarn.test.utils.SshClientPool.DEFAULT_MAX_SESSIONS_PER_HOST;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-memory YARN cluster with slider, used in place of real hosts to test and profile the harness
+ * at scale. Node managers run on all hosts ({@code master}, {@code slave1}, {@code slave2}, ...) and
+ * slider is installed on the master. Hosts are reached with {@link #sshClient(String)}, which answers
+ * the commands sent by {@link NodeSshUtils}, {@link CliSliderClient} and
+ * {@link com.teradata.presto.yarn.test.utils.DigestUploader}.
+ * <p>
+ * Containers are placed on the least loaded node matching the label expression of their component,
+ * with at most one container of an application per node. A container becomes live (and its Presto
+ * server process appears) after the configured startup time. Killed and failed containers are
+ * replaced, until the application exceeds the failure threshold and stops.
+ */
+public class SimulatedCluster
+{
+    public static final String MASTER = "master";
+
+    // exit codes of slider client
+    static final int EXIT_FALSE = 1;
+    static final int EXIT_CONNECTIVITY_PROBLEM = 56;
+    static final int EXIT_UNKNOWN_INSTANCE = 69;
+    static final int EXIT_BAD_STATE = 70;
+    static final int EXIT_APPLICATION_IN_USE = 73;
+    static final int EXIT_INSTANCE_EXISTS = 75;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String APPLICATION_MASTER_COMPONENT = "slider-appmaster";
+    private static final String NODE_MANAGER_PORT = "45454";
+    private static final String DEFAULT_CONFIG_DIR = "/var/lib/presto/etc";
+    private static final String DEFAULT_JVM_ARGS = "-server -Xmx1024M";
+    private static final Pattern MAX_HEAP = Pattern.compile("-Xmx(\\d+)([kKmMgG]?)");
+
+    private final SimulationSettings settings;
+    private final LongSupplier clock;
+    private final Random random;
+    private final Map<String, Host> hosts = new LinkedHashMap<>();
+    private final Set<String> clusterLabels = new TreeSet<>();
+    private final Map<String, Application> applications = new HashMap<>();
+    private final Map<String, String> packages = new HashMap<>();
+    private final AtomicLong commands = new AtomicLong();
+    private long resourceManagerAvailableFrom;
+    private int nextApplicationId = 1;
+    private int nextPid = 1000;
+
+    public SimulatedCluster(SimulationSettings settings)
+    {
+        this(settings, System::currentTimeMillis);
+    }
+
+    public SimulatedCluster(SimulationSettings settings, LongSupplier clock)
+    {
+        this.settings = requireNonNull(settings, "settings is null");
+        this.clock = requireNonNull(clock, "clock is null");
+        this.random = new Random(settings.getSeed());
+        hosts.put(MASTER, new Host(MASTER));
+        for (int i = 1; i < settings.getNodes(); i++) {
+            hosts.put("slave" + i, new Host("slave" + i));
+        }
+    }
+
+    public SimulationSettings getSettings()
+    {
+        return settings;
+    }
+
+    public List<String> getHosts()
+    {
+        return ImmutableList.copyOf(hosts.keySet());
+    }
+
+    public SshClient sshClient(String host)
+    {
+        checkArgument(hosts.containsKey(host), "unknown host: %s", host);
+        return SimulatedSshClient.create(this, host);
+    }
+
+    /**
+     * Returns a session factory for {@link SshClientPool}.
+     */
+    public Function<String, SshClient> sshSessionFactory()
+    {
+        return this::sshClient;
+    }
+
+    public NodeSshUtils nodeSshUtils(MultiHostExecutor multiHostExecutor)
+    {
+        SshClientPool sshClientPool = new SshClientPool(sshSessionFactory(), DEFAULT_MAX_SESSIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT, DEFAULT_HEALTH_CHECK_INTERVAL);
+        return new NodeSshUtils(sshClientPool, multiHostExecutor, sshClient(MASTER));
+    }
+
+    public CliSliderClient sliderClient()
+    {
+        return new CliSliderClient(sshClient(MASTER));
+    }
+
+    /**
+     * Number of commands sent to all the hosts so far.
+     */
+    public long getCommandCount()
+    {
+        return commands.get();
+    }
+
+    public synchronized boolean isRunning(String appName)
+    {
+        advance();
+        Application application = applications.get(appName);
+        return application != null && application.state == ApplicationState.RUNNING;
+    }
+
+    public synchronized int getLiveContainers(String appName, String component)
+    {
+        advance();
+        Application application = applications.get(appName);
+        if (application == null || !application.components.containsKey(component)) {
+            return 0;
+        }
+        return (int) application.components.get(component).containers.stream().filter(Container::isLive).count();
+    }
+
+    public synchronized int getFailedContainers(String appName)
+    {
+        Application application = applications.get(appName);
+        return application == null ? 0 : application.failedContainers;
+    }
+
+    /**
+     * Counts the command and applies simulated latency and connection failures, outside of the
+     * cluster lock, so that commands sent to different hosts overlap like they would on real hosts.
+     */
+    void beforeCommand(String host, long latency)
+    {
+        commands.incrementAndGet();
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        if (chance(settings.getConnectionFailureRate())) {
+            throw new UncheckedIOException(new IOException("simulated connection failure to " + host));
+        }
+    }
+
+    boolean chance(double rate)
+    {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    SimulatedFiles getFiles(String host)
+    {
+        return getHost(host).files;
+    }
+
+    // processes
+
+    synchronized List<Process> getProcesses(String host)
+    {
+        advance();
+        ImmutableList.Builder<Process> processes = ImmutableList.builder();
+        for (Application application : applications.values()) {
+            for (Component component : application.components.values()) {
+                for (Container container : component.containers) {
+                    if (container.host.equals(host) && container.isLive()) {
+                        processes.add(new Process(container.pid, application.commandLine(container), application.maxHeapSize));
+                    }
+                }
+            }
+        }
+        return processes.build();
+    }
+
+    /**
+     * Kills Presto servers whose command line matches the pattern. Killed containers are replaced
+     * by slider. Returns the number of killed processes.
+     */
+    synchronized int kill(String host, Pattern pattern)
+    {
+        advance();
+        int killed = 0;
+        for (Application application : applications.values()) {
+            for (Component component : application.components.values()) {
+                for (Container container : ImmutableList.copyOf(component.containers)) {
+                    if (container.host.equals(host) && container.isLive() && pattern.matcher(application.commandLine(container)).find()) {
+                        fail(application, component, container);
+                        killed++;
+                    }
+                }
+            }
+        }
+        advance();
+        return killed;
+    }
+
+    // yarn
+
+    /**
+     * Restarting a node manager kills all the containers on the node, which rejoins the cluster
+     * after the configured restart time.
+     */
+    synchronized void restartNodeManager(String host)
+    {
+        advance();
+        for (Application application : applications.values()) {
+            for (Component component : application.components.values()) {
+                for (Container container : ImmutableList.copyOf(component.containers)) {
+                    if (container.host.equals(host)) {
+                        fail(application, component, container);
+                    }
+                }
+            }
+        }
+        getHost(host).availableFrom = clock.getAsLong() + settings.getNodeManagerRestart();
+    }
+
+    /**
+     * Containers keep running while the resource manager restarts (work preserving restart), but
+     * no nodes are listed and no containers are allocated until it is back.
+     */
+    synchronized void restartResourceManager()
+    {
+        resourceManagerAvailableFrom = clock.getAsLong() + settings.getNodeManagerRestart();
+    }
+
+    /**
+     * Returns the number of containers per node id of running nodes.
+     */
+    synchronized Map<String, Integer> getRunningNodes()
+    {
+        advance();
+        ImmutableMap.Builder<String, Integer> nodes = ImmutableMap.builder();
+        for (Host host : hosts.values()) {
+            if (isAvailable(host)) {
+                nodes.put(host.getNodeId(), getContainers(host.name));
+            }
+        }
+        return nodes.build();
+    }
+
+    synchronized void addClusterLabels(Collection<String> labels)
+    {
+        clusterLabels.addAll(labels);
+    }
+
+    synchronized Set<String> getClusterLabels()
+    {
+        return ImmutableSet.copyOf(clusterLabels);
+    }
+
+    /**
+     * Replaces labels of the given nodes, which are either host names or node ids.
+     */
+    synchronized void replaceLabels(Map<String, String> nodeLabels)
+    {
+        nodeLabels.forEach((node, label) -> {
+            if (!clusterLabels.contains(label)) {
+                throw new CommandExecutionException("Node label=" + label + " for node=" + node + " is not present in cluster node labels", EXIT_FALSE);
+            }
+            findHost(node).orElseThrow(() -> new CommandExecutionException("Unknown node: " + node, EXIT_FALSE));
+        });
+        nodeLabels.forEach((node, label) -> {
+            Host host = findHost(node).get();
+            host.labels.clear();
+            host.labels.add(label);
+        });
+        advance();
+    }
+
+    synchronized Optional<Set<String>> getNodeLabels(String nodeId)
+    {
+        return findHost(nodeId).map(host -> ImmutableSet.copyOf(host.labels));
+    }
+
+    // slider
+
+    synchronized void installPackage(String packageName, String file)
+    {
+        if (!getFiles(MASTER).read(file).isPresent()) {
+            throw new CommandExecutionException("Unable to access supplied pkg file at " + file, EXIT_FALSE);
+        }
+        packages.put(packageName, file);
+    }
+
+    synchronized void deletePackage(String packageName)
+    {
+        packages.remove(packageName);
+    }
+
+    synchronized boolean hasPackage(String packageName, String file)
+    {
+        return file.equals(packages.get(packageName));
+    }
+
+    synchronized void createApplication(String appName, String templateFile, String resourcesFile)
+    {
+        if (applications.containsKey(appName)) {
+            throw new CommandExecutionException("Application Instance " + appName + " already exists", EXIT_INSTANCE_EXISTS);
+        }
+        JsonNode template = readJson(templateFile);
+        JsonNode resources = readJson(resourcesFile);
+
+        Application application = new Application(nextApplicationId++, template.path("global"));
+        JsonNode global = resources.path("global");
+        Iterator<Map.Entry<String, JsonNode>> components = resources.path("components").fields();
+        while (components.hasNext()) {
+            Map.Entry<String, JsonNode> component = components.next();
+            if (component.getKey().equals(APPLICATION_MASTER_COMPONENT)) {
+                continue;
+            }
+            String instances = value(component.getValue(), global, "yarn.component.instances").orElse("1");
+            Optional<String> labelExpression = value(component.getValue(), global, "yarn.label.expression");
+            application.components.put(component.getKey(), new Component(Integer.parseInt(instances.trim()), labelExpression));
+        }
+        applications.put(appName, application);
+        advance();
+    }
+
+    synchronized boolean isLive(String appName)
+    {
+        return getApplication(appName).state == ApplicationState.RUNNING;
+    }
+
+    synchronized String getStatusDocument(String appName)
+    {
+        Application application = getApplication(appName);
+        advance();
+        if (application.state != ApplicationState.RUNNING) {
+            throw new CommandExecutionException("Application " + appName + " is not running", EXIT_BAD_STATE);
+        }
+        ObjectNode document = OBJECT_MAPPER.createObjectNode();
+        document.put("name", appName).put("type", "agent");
+        ObjectNode live = document.putObject("status").putObject("live");
+        ObjectNode statistics = document.putObject("statistics");
+        application.components.forEach((name, component) -> {
+            ObjectNode liveContainers = live.putObject(name);
+            int liveCount = 0;
+            for (Container container : component.containers) {
+                if (container.isLive()) {
+                    liveContainers.putObject(container.id)
+                            .put("host", container.host)
+                            .put("createTime", container.createTime)
+                            .put("startTime", container.startTime);
+                    liveCount++;
+                }
+            }
+            statistics.putObject(name)
+                    .put("containers.live", liveCount)
+                    .put("containers.desired", component.desired)
+                    .put("containers.requested", Math.max(0, component.desired - liveCount))
+                    .put("containers.failed", component.failed);
+        });
+        try {
+            return OBJECT_MAPPER.writeValueAsString(document);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    synchronized void startApplication(String appName)
+    {
+        Application application = getApplication(appName);
+        if (application.state == ApplicationState.RUNNING) {
+            throw new CommandExecutionException("Application " + appName + " is already running", EXIT_APPLICATION_IN_USE);
+        }
+        application.state = ApplicationState.RUNNING;
+        application.failedContainers = 0;
+        advance();
+    }
+
+    synchronized void stopApplication(String appName)
+    {
+        Application application = getApplication(appName);
+        if (application.state == ApplicationState.RUNNING) {
+            application.release();
+            application.state = ApplicationState.STOPPED;
+        }
+    }
+
+    synchronized void destroyApplication(String appName)
+    {
+        Application application = getApplication(appName);
+        if (application.state == ApplicationState.RUNNING) {
+            throw new CommandExecutionException("Application " + appName + " is running", EXIT_APPLICATION_IN_USE);
+        }
+        applications.remove(appName);
+    }
+
+    synchronized void flex(String appName, String componentName, int count)
+    {
+        checkArgument(count >= 0, "count is negative");
+        Application application = getApplication(appName);
+        Component component = application.components.get(componentName);
+        if (component == null) {
+            throw new CommandExecutionException("Unknown component: " + componentName, EXIT_FALSE);
+        }
+        component.desired = count;
+        // the most recently requested containers are released first
+        while (component.containers.size() > count) {
+            component.containers.remove(component.containers.size() - 1);
+        }
+        advance();
+    }
+
+    private Application getApplication(String appName)
+    {
+        Application application = applications.get(appName);
+        if (application == null) {
+            throw new CommandExecutionException("Unknown application instance: " + appName, EXIT_UNKNOWN_INSTANCE);
+        }
+        return application;
+    }
+
+    private JsonNode readJson(String file)
+    {
+        byte[] content = getFiles(MASTER).read(file)
+                .orElseThrow(() -> new CommandExecutionException("File not found: " + file, EXIT_FALSE));
+        try {
+            return OBJECT_MAPPER.readTree(content);
+        }
+        catch (IOException e) {
+            throw new CommandExecutionException("Invalid JSON in " + file + ": " + e.getMessage(), EXIT_FALSE);
+        }
+    }
+
+    private static Optional<String> value(JsonNode component, JsonNode global, String key)
+    {
+        JsonNode value = component.has(key) ? component.get(key) : global.get(key);
+        return value == null ? Optional.empty() : Optional.of(value.asText());
+    }
+
+    // state machine
+
+    /**
+     * Brings containers up to date with the clock: starts containers whose startup time passed
+     * (some of them fail, according to the failure rate) and allocates containers missing on
+     * available nodes.
+     */
+    private void advance()
+    {
+        long now = clock.getAsLong();
+        for (Application application : applications.values()) {
+            for (Component component : application.components.values()) {
+                for (Container container : ImmutableList.copyOf(component.containers)) {
+                    if (application.state != ApplicationState.RUNNING || container.isLive() || container.createTime + settings.getContainerStartup() > now) {
+                        continue;
+                    }
+                    if (chance(settings.getContainerFailureRate())) {
+                        fail(application, component, container);
+                    }
+                    else {
+                        container.startTime = container.createTime + settings.getContainerStartup();
+                        container.pid = nextPid++;
+                    }
+                }
+            }
+            if (application.state == ApplicationState.RUNNING && now >= resourceManagerAvailableFrom) {
+                allocate(application, now);
+            }
+        }
+    }
+
+    private void allocate(Application application, long now)
+    {
+        for (Component component : application.components.values()) {
+            while (component.containers.size() < component.desired) {
+                Optional<Host> host = hosts.values().stream()
+                        .filter(this::isAvailable)
+                        .filter(candidate -> component.labelExpression.map(candidate.labels::contains).orElse(candidate.labels.isEmpty()))
+                        .filter(candidate -> !application.hasContainerOn(candidate.name))
+                        .min((first, second) -> Integer.compare(getContainers(first.name), getContainers(second.name)));
+                if (!host.isPresent()) {
+                    break;
+                }
+                component.containers.add(new Container(application.nextContainerId(), host.get().name, now));
+            }
+        }
+    }
+
+    private void fail(Application application, Component component, Container container)
+    {
+        component.containers.remove(container);
+        component.failed++;
+        application.failedContainers++;
+        if (application.failedContainers > settings.getContainerFailureThreshold()) {
+            application.release();
+            application.state = ApplicationState.FAILED;
+        }
+    }
+
+    private boolean isAvailable(Host host)
+    {
+        long now = clock.getAsLong();
+        return now >= host.availableFrom && now >= resourceManagerAvailableFrom;
+    }
+
+    private int getContainers(String host)
+    {
+        int containers = 0;
+        for (Application application : applications.values()) {
+            for (Component component : application.components.values()) {
+                containers += component.containers.stream().filter(container -> container.host.equals(host)).count();
+            }
+        }
+        return containers;
+    }
+
+    private Host getHost(String host)
+    {
+        Host result = hosts.get(host);
+        checkArgument(result != null, "unknown host: %s", host);
+        return result;
+    }
+
+    private Optional<Host> findHost(String node)
+    {
+        String hostName = node.contains(":") ? node.substring(0, node.indexOf(':')) : node;
+        return Optional.ofNullable(hosts.get(hostName));
+    }
+
+    static class Process
+    {
+        private final int pid;
+        private final String commandLine;
+        private final long maxHeapSize;
+
+        Process(int pid, String commandLine, long maxHeapSize)
+        {
+            this.pid = pid;
+            this.commandLine = commandLine;
+            this.maxHeapSize = maxHeapSize;
+        }
+
+        int getPid()
+        {
+            return pid;
+        }
+
+        String getCommandLine()
+        {
+            return commandLine;
+        }
+
+        long getMaxHeapSize()
+        {
+            return maxHeapSize;
+        }
+    }
+
+    private enum ApplicationState
+    {
+        RUNNING,
+        STOPPED,
+        FAILED
+    }
+
+    private static class Host
+    {
+        private final String name;
+        private final Set<String> labels = new HashSet<>();
+        private final SimulatedFiles files = new SimulatedFiles();
+        private long availableFrom;
+
+        private Host(String name)
+        {
+            this.name = name;
+        }
+
+        private String getNodeId()
+        {
+            return name + ":" + NODE_MANAGER_PORT;
+        }
+    }
+
+    private static class Application
+    {
+        private final int id;
+        private final String configDir;
+        private final String jvmArgs;
+        private final long maxHeapSize;
+        private final Map<String, Component> components = new LinkedHashMap<>();
+        private ApplicationState state = ApplicationState.RUNNING;
+        private int failedContainers;
+        private int containers;
+
+        private Application(int id, JsonNode globalConfig)
+        {
+            this.id = id;
+            this.configDir = globalConfig.has("site.global.config_dir") ? globalConfig.get("site.global.config_dir").asText() : DEFAULT_CONFIG_DIR;
+            this.jvmArgs = globalConfig.has("site.global.jvm_args") ? globalConfig.get("site.global.jvm_args").asText().replaceAll("[\\[\\]',]", "") : DEFAULT_JVM_ARGS;
+            this.maxHeapSize = parseMaxHeapSize(jvmArgs);
+        }
+
+        private String nextContainerId()
+        {
+            // container 1 is the application master
+            return String.format("container_1500000000000_%04d_01_%06d", id, ++containers + 1);
+        }
+
+        private boolean hasContainerOn(String host)
+        {
+            return components.values().stream()
+                    .flatMap(component -> component.containers.stream())
+                    .anyMatch(container -> container.host.equals(host));
+        }
+
+        private void release()
+        {
+            components.values().forEach(component -> component.containers.clear());
+        }
+
+        private String commandLine(Container container)
+        {
+            return "java " + jvmArgs + " -Dnode.id=" + container.id + " -Dconfig=" + configDir + "/config.properties com.facebook.presto.server.PrestoServer";
+        }
+
+        private static long parseMaxHeapSize(String jvmArgs)
+        {
+            Matcher matcher = MAX_HEAP.matcher(jvmArgs);
+            if (!matcher.find()) {
+                return Runtime.getRuntime().maxMemory();
+            }
+            long size = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2).toLowerCase()) {
+                case "k":
+                    return size << 10;
+                case "m":
+                    return size << 20;
+                case "g":
+                    return size << 30;
+                default:
+                    return size;
+            }
+        }
+    }
+
+    private static class Component
+    {
+        private final Optional<String> labelExpression;
+        private final List<Container> containers = new ArrayList<>();
+        private int desired;
+        private int failed;
+
+        private Component(int desired, Optional<String> labelExpression)
+        {
+            this.desired = desired;
+            this.labelExpression = requireNonNull(labelExpression, "labelExpression is null");
+        }
+    }
+
+    private static class Container
+    {
+        private final String id;
+        private final String host;
+        private final long createTime;
+        private long startTime;
+        private int pid;
+
+        private Container(String id, String host, long createTime)
+        {
+            this.id = id;
+            this.host = host;
+            this.createTime = createTime;
+        }
+
+        private boolean isLive()
+        {
+            return pid > 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import com.teradata.presto.yarn.test.slider.CliSliderClient;
+import com.teradata.presto.yarn.test.slider.SliderStatusCache;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.presto.yarn.test.utils.WaitStatistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.simulation.SimulatedCluster.MASTER;
+import static com.teradata.presto.yarn.test.simulation.SimulationSettings.simulationSettings;
+import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Runs the harness against a {@link SimulatedCluster} (200 nodes by default) and prints how long
+ * node labeling, waiting for containers, per node fan-out and recovery from killed workers take,
+ * and how many commands they send. Usage: {@code SimulatedClusterBenchmark [nodes] [parallelism]}.
+ */
+public final class SimulatedClusterBenchmark
+{
+    private static final String APP_NAME = "presto_cluster";
+    private static final String TEMPLATE = "{\"global\": {\"site.global.config_dir\": \"/var/lib/presto/etc\", \"site.global.jvm_args\": \"['-server', '-Xmx1024M']\"}}";
+    private static final String RESOURCES = "{\"components\": {\"slider-appmaster\": {}, " +
+            "\"COORDINATOR\": {\"yarn.component.instances\": \"1\", \"yarn.label.expression\": \"coordinator\"}, " +
+            "\"WORKER\": {\"yarn.component.instances\": \"%d\", \"yarn.label.expression\": \"worker\"}}}";
+
+    private SimulatedClusterBenchmark() {}
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int workers = nodes - 1;
+
+        // every killed worker counts as a failure, the application must survive all of them
+        SimulatedCluster cluster = new SimulatedCluster(simulationSettings(nodes).withContainerFailureThreshold(nodes));
+        NodeSshUtils serialNodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.parallel(parallelism));
+        CliSliderClient slider = cluster.sliderClient();
+        SliderStatusCache statusCache = new SliderStatusCache(() -> slider.status(APP_NAME));
+        List<String> hosts = cluster.getHosts();
+        List<String> killedHosts = hosts.subList(1, 1 + max(1, workers / 10));
+
+        Path directory = Files.createTempDirectory("simulation");
+        Path template = Files.write(directory.resolve("appConfig.json"), TEMPLATE.getBytes(UTF_8));
+        Path resources = Files.write(directory.resolve("resources.json"), format(RESOURCES, workers).getBytes(UTF_8));
+        Map<String, String> labels = hosts.stream()
+                .collect(toMap(host -> host, host -> host.equals(MASTER) ? "coordinator" : "worker"));
+
+        System.out.println(format("Simulated cluster of %d nodes, %d ms per command, %d ms per slider command",
+                nodes, cluster.getSettings().getCommandLatency(), cluster.getSettings().getSliderCommandLatency()));
+        measure(cluster, "label nodes", () -> {
+            nodeSshUtils.createLabels(labels);
+            nodeSshUtils.labelNodes(labels);
+        });
+        measure(cluster, "create application", () -> slider.create(APP_NAME, template, resources));
+        measure(cluster, "wait for " + workers + " workers", () -> waitForWorkers(statusCache, workers));
+        measure(cluster, "check processes (serial)", () -> serialNodeSshUtils.onHosts(hosts, serialNodeSshUtils::isPrestoProcessRunning));
+        measure(cluster, "check processes (" + parallelism + " hosts at a time)", () -> nodeSshUtils.onHosts(hosts, nodeSshUtils::isPrestoProcessRunning));
+        measure(cluster, "kill " + killedHosts.size() + " workers", () -> nodeSshUtils.onHosts(killedHosts, host -> {
+            nodeSshUtils.killPrestoProcesses(host);
+            return null;
+        }));
+        measure(cluster, "wait for replaced workers", () -> {
+            statusCache.invalidate();
+            waitForWorkers(statusCache, workers);
+        });
+        measure(cluster, "cleanup", () -> slider.cleanup(APP_NAME));
+
+        System.out.println();
+        new TreeMap<>(WaitStatistics.snapshot()).forEach((name, entry) -> System.out.println(format("%-40s %s", name, entry)));
+        serialNodeSshUtils.close();
+        nodeSshUtils.close();
+    }
+
+    private static void waitForWorkers(SliderStatusCache statusCache, int workers)
+    {
+        retryUntil(workers + " " + WORKER_COMPONENT + " components", () -> statusCache.get()
+                .map(status -> status.getLiveContainers(WORKER_COMPONENT))
+                .orElse(0) == workers, MINUTES.toMillis(5));
+    }
+
+    private static void measure(SimulatedCluster cluster, String name, Runnable runnable)
+    {
+        long commands = cluster.getCommandCount();
+        long start = System.nanoTime();
+        runnable.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(format("%-40s %8d ms %8d commands", name, elapsed / 1_000_000, cluster.getCommandCount() - commands));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Files of a simulated host, kept in memory. Paths are relative to the home directory of the ssh user.
+ */
+class SimulatedFiles
+{
+    private final Map<String, byte[]> files = new TreeMap<>();
+
+    public synchronized Optional<byte[]> read(String path)
+    {
+        return Optional.ofNullable(files.get(normalize(path)));
+    }
+
+    public synchronized void write(String path, byte[] content)
+    {
+        files.put(normalize(path), content.clone());
+    }
+
+    public synchronized boolean delete(String path)
+    {
+        return files.remove(normalize(path)) != null;
+    }
+
+    public synchronized void deleteDirectory(String directory)
+    {
+        String prefix = normalize(directory) + "/";
+        files.keySet().removeIf(path -> path.startsWith(prefix));
+    }
+
+    /**
+     * Returns names of the files directly in the given directory, in alphabetical order.
+     */
+    public synchronized List<String> list(String directory)
+    {
+        String prefix = normalize(directory) + "/";
+        return files.keySet().stream()
+                .filter(path -> path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0)
+                .map(path -> path.substring(prefix.length()))
+                .collect(toList());
+    }
+
+    private static String normalize(String path)
+    {
+        String normalized = path;
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized.replaceAll("/+", "/");
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.simulation.SimulatedCluster.Process;
+import com.teradata.tempto.process.CommandExecutionException;
+import com.teradata.tempto.ssh.SshClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.teradata.presto.yarn.test.simulation.SimulatedCluster.EXIT_CONNECTIVITY_PROBLEM;
+import static com.teradata.presto.yarn.test.simulation.SimulatedCluster.EXIT_FALSE;
+import static com.teradata.presto.yarn.test.simulation.SimulatedCluster.MASTER;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Ssh session to a host of {@link SimulatedCluster}. Instead of running a shell, it recognizes the
+ * exact command lines sent by the harness and answers them from the state of the simulated cluster.
+ * Failed commands throw {@link CommandExecutionException} with the exit code the real command has,
+ * unknown commands fail with exit code 127.
+ * <p>
+ * Sessions are exposed as {@link SshClient} proxies, other methods of the interface than
+ * {@code command}, {@code upload} and {@code close} are not supported.
+ */
+class SimulatedSshClient
+        implements InvocationHandler
+{
+    private static final int EXIT_COMMAND_NOT_FOUND = 127;
+    private static final String PROFILE_PREFIX = "source /etc/profile && ";
+    private static final String SLIDER_PREFIX = "slider-0.80.0-incubating/bin/slider ";
+
+    // processes
+    private static final Pattern PS = Pattern.compile("ps aux \\| grep -e '(.*)' \\| grep -v grep( \\|\\| true)?");
+    private static final Pattern PGREP = Pattern.compile("pgrep -f '(.*)'");
+    private static final Pattern PKILL = Pattern.compile("pkill -9 -f '(.*)'");
+    private static final Pattern JMAP = Pattern.compile("jmap -heap (\\d+) \\| grep capacity \\| awk 'NR == 1' \\| awk '\\{print \\$3\\}'");
+    private static final Pattern CPU_STAT = Pattern.compile("cat /sys/fs/cgroup/cpu/yarn/container\\*/cpu\\.stat 2>/dev/null \\|\\| true");
+    private static final Pattern SUPERVISOR_RESTART = Pattern.compile("supervisorctl restart (yarn-nodemanager|yarn-resourcemanager)");
+    private static final Pattern CLEAN_LOCAL_DIR = Pattern.compile("rm -rf /tmp/hadoop-yarn/nm-local-dir");
+
+    // yarn
+    private static final Pattern NODE_LIST = Pattern.compile("yarn node -list");
+    private static final Pattern NODE_STATUS = Pattern.compile("yarn node -status (\\S+) \\| grep 'Node-Labels'");
+    private static final Pattern ADD_CLUSTER_LABELS = Pattern.compile("yarn rmadmin -addToClusterNodeLabels (\\S+)");
+    private static final Pattern REPLACE_LABELS = Pattern.compile("yarn rmadmin -replaceLabelsOnNode '(.*)'");
+    private static final Pattern REFRESH_QUEUES = Pattern.compile("yarn rmadmin -refreshQueues");
+    private static final Pattern QUEUE_STATUS = Pattern.compile("yarn queue -status (\\S+) \\| grep 'Accessible Node Labels'");
+
+    // hdfs
+    private static final Pattern PACKAGE_EXISTS = Pattern.compile("hdfs dfs -test -e \\.slider/package/(\\S+)/(\\S+)");
+
+    // slider
+    private static final Pattern SLIDER_HELP = Pattern.compile("help");
+    private static final Pattern SLIDER_STATUS = Pattern.compile("status (\\S+) --out (\\S+) > /dev/null && cat \\2");
+    private static final Pattern SLIDER_CREATE = Pattern.compile("create (\\S+) --template (\\S+) --resources (\\S+)");
+    private static final Pattern SLIDER_EXISTS_LIVE = Pattern.compile("exists (\\S+) --live");
+    private static final Pattern SLIDER_START = Pattern.compile("start (\\S+)");
+    private static final Pattern SLIDER_STOP = Pattern.compile("stop (\\S+)\\s*(--force)?");
+    private static final Pattern SLIDER_DESTROY = Pattern.compile("destroy (\\S+)");
+    private static final Pattern SLIDER_FLEX = Pattern.compile("flex (\\S+) --component (\\S+) (\\d+)");
+    private static final Pattern SLIDER_INSTALL_PACKAGE = Pattern.compile("package --install --name (\\S+) --package (\\S+) --replacepkg");
+    private static final Pattern SLIDER_DELETE_PACKAGE = Pattern.compile("package --delete --name (\\S+)");
+
+    // files, as used by DigestUploader and slider installation
+    private static final Pattern HEALTH_CHECK = Pattern.compile("true");
+    private static final Pattern MD5SUM = Pattern.compile("md5sum (\\S+)");
+    private static final Pattern CAT_IF_EXISTS = Pattern.compile("cat (\\S+) 2>/dev/null; true");
+    private static final Pattern WRITE = Pattern.compile("mkdir -p \\S+ && echo (\\S+) > (\\S+)");
+    private static final Pattern REMOVE = Pattern.compile("rm -f (\\S+)");
+    private static final Pattern SIZE = Pattern.compile("stat -c %s (\\S+) 2>/dev/null; true");
+    private static final Pattern PARTS_MD5SUM = Pattern.compile("mkdir -p (\\S+) && cd \\1 && md5sum part-\\* 2>/dev/null; true");
+    private static final Pattern JOIN_PARTS = Pattern.compile("cat (.+) > (\\S+) && mv \\2 (\\S+) && rm -rf (\\S+)");
+    private static final Pattern UNZIP = Pattern.compile("unzip (\\S+)");
+
+    private final SimulatedCluster cluster;
+    private final String host;
+    private final SimulatedFiles files;
+
+    private SimulatedSshClient(SimulatedCluster cluster, String host)
+    {
+        this.cluster = requireNonNull(cluster, "cluster is null");
+        this.host = requireNonNull(host, "host is null");
+        this.files = cluster.getFiles(host);
+    }
+
+    static SshClient create(SimulatedCluster cluster, String host)
+    {
+        return (SshClient) Proxy.newProxyInstance(
+                SshClient.class.getClassLoader(),
+                new Class<?>[] {SshClient.class},
+                new SimulatedSshClient(cluster, host));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        switch (method.getName()) {
+            case "command":
+                return command((String) args[0]);
+            case "upload":
+                upload((Path) args[0], (String) args[1]);
+                return null;
+            case "close":
+                return null;
+            case "toString":
+                return "simulated ssh client of " + host;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException("not supported by simulated ssh client: " + method);
+        }
+    }
+
+    private String command(String command)
+    {
+        String line = command.startsWith(PROFILE_PREFIX) ? command.substring(PROFILE_PREFIX.length()) : command;
+        if (line.startsWith(SLIDER_PREFIX)) {
+            cluster.beforeCommand(host, cluster.getSettings().getSliderCommandLatency());
+            return slider(line.substring(SLIDER_PREFIX.length()));
+        }
+        cluster.beforeCommand(host, cluster.getSettings().getCommandLatency());
+        Matcher matcher;
+        if ((matcher = match(PS, line)) != null) {
+            Pattern pattern = Pattern.compile(matcher.group(1));
+            List<String> processes = cluster.getProcesses(host).stream()
+                    .map(SimulatedSshClient::psLine)
+                    .filter(psLine -> pattern.matcher(psLine).find())
+                    .collect(toList());
+            if (processes.isEmpty() && matcher.group(2) == null) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return lines(processes);
+        }
+        if ((matcher = match(PGREP, line)) != null) {
+            Pattern pattern = Pattern.compile(matcher.group(1));
+            List<String> pids = cluster.getProcesses(host).stream()
+                    .filter(process -> pattern.matcher(process.getCommandLine()).find())
+                    .map(process -> String.valueOf(process.getPid()))
+                    .collect(toList());
+            if (pids.isEmpty()) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return lines(pids);
+        }
+        if ((matcher = match(PKILL, line)) != null) {
+            if (cluster.kill(host, Pattern.compile(matcher.group(1))) == 0) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return "";
+        }
+        if ((matcher = match(JMAP, line)) != null) {
+            int pid = Integer.parseInt(matcher.group(1));
+            return cluster.getProcesses(host).stream()
+                    .filter(process -> process.getPid() == pid)
+                    .map(process -> String.valueOf(process.getMaxHeapSize()))
+                    .findFirst()
+                    .orElse("");
+        }
+        if (match(CPU_STAT, line) != null) {
+            return lines(cluster.getProcesses(host).stream()
+                    .map(process -> "nr_periods 0\nnr_throttled 0\nthrottled_time 0")
+                    .collect(toList()));
+        }
+        if ((matcher = match(SUPERVISOR_RESTART, line)) != null) {
+            String service = matcher.group(1);
+            if (service.equals("yarn-resourcemanager")) {
+                checkOnMaster(line);
+                cluster.restartResourceManager();
+            }
+            else {
+                cluster.restartNodeManager(host);
+            }
+            return service + ": stopped\n" + service + ": started";
+        }
+        if (match(CLEAN_LOCAL_DIR, line) != null || match(HEALTH_CHECK, line) != null) {
+            return "";
+        }
+        if (line.startsWith("yarn ")) {
+            checkOnMaster(line);
+            return yarn(line);
+        }
+        if ((matcher = match(PACKAGE_EXISTS, line)) != null) {
+            checkOnMaster(line);
+            if (!cluster.hasPackage(matcher.group(1), matcher.group(2))) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return "";
+        }
+        return file(line);
+    }
+
+    private String yarn(String line)
+    {
+        Matcher matcher;
+        if (match(NODE_LIST, line) != null) {
+            Map<String, Integer> nodes = cluster.getRunningNodes();
+            ImmutableList.Builder<String> output = ImmutableList.builder();
+            output.add("Total Nodes:" + nodes.size());
+            output.add("         Node-Id\t     Node-State\tNode-Http-Address\tNumber-of-Running-Containers");
+            nodes.forEach((nodeId, containers) -> output.add(format("%16s\t%15s\t%17s\t%28d", nodeId, "RUNNING", nodeId.replaceFirst(":.*", ":8042"), containers)));
+            return lines(output.build());
+        }
+        if ((matcher = match(NODE_STATUS, line)) != null) {
+            Optional<Set<String>> labels = cluster.getNodeLabels(matcher.group(1));
+            if (!labels.isPresent()) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return "\tNode-Labels : " + Joiner.on(",").join(labels.get());
+        }
+        if ((matcher = match(ADD_CLUSTER_LABELS, line)) != null) {
+            cluster.addClusterLabels(Splitter.on(',').omitEmptyStrings().trimResults().splitToList(matcher.group(1)));
+            return "";
+        }
+        if ((matcher = match(REPLACE_LABELS, line)) != null) {
+            ImmutableMap.Builder<String, String> nodeLabels = ImmutableMap.builder();
+            for (String nodeLabel : Splitter.on(' ').omitEmptyStrings().split(matcher.group(1))) {
+                List<String> fields = Splitter.on(',').splitToList(nodeLabel);
+                if (fields.size() != 2) {
+                    throw failure(line, EXIT_FALSE);
+                }
+                nodeLabels.put(fields.get(0), fields.get(1));
+            }
+            cluster.replaceLabels(nodeLabels.build());
+            return "";
+        }
+        if (match(REFRESH_QUEUES, line) != null) {
+            return "";
+        }
+        if (match(QUEUE_STATUS, line) != null) {
+            Set<String> labels = cluster.getClusterLabels();
+            return "\tAccessible Node Labels : " + (labels.isEmpty() ? "*" : Joiner.on(",").join(labels));
+        }
+        throw failure(line, EXIT_COMMAND_NOT_FOUND);
+    }
+
+    private String slider(String arguments)
+    {
+        String line = SLIDER_PREFIX + arguments;
+        checkOnMaster(line);
+        Matcher matcher;
+        if (match(SLIDER_HELP, arguments) != null) {
+            return "Usage: slider COMMAND [options]";
+        }
+        if ((matcher = match(SLIDER_STATUS, arguments)) != null) {
+            if (cluster.chance(cluster.getSettings().getStatusFailureRate())) {
+                throw failure(line, EXIT_CONNECTIVITY_PROBLEM);
+            }
+            String status = cluster.getStatusDocument(matcher.group(1));
+            files.write(matcher.group(2), status.getBytes(UTF_8));
+            return status;
+        }
+        if ((matcher = match(SLIDER_CREATE, arguments)) != null) {
+            cluster.createApplication(matcher.group(1), matcher.group(2), matcher.group(3));
+            return "";
+        }
+        if ((matcher = match(SLIDER_EXISTS_LIVE, arguments)) != null) {
+            if (!cluster.isLive(matcher.group(1))) {
+                throw failure(line, EXIT_FALSE);
+            }
+            return "";
+        }
+        if ((matcher = match(SLIDER_START, arguments)) != null) {
+            cluster.startApplication(matcher.group(1));
+            return "";
+        }
+        if ((matcher = match(SLIDER_STOP, arguments)) != null) {
+            cluster.stopApplication(matcher.group(1));
+            return "";
+        }
+        if ((matcher = match(SLIDER_DESTROY, arguments)) != null) {
+            cluster.destroyApplication(matcher.group(1));
+            return "";
+        }
+        if ((matcher = match(SLIDER_FLEX, arguments)) != null) {
+            cluster.flex(matcher.group(1), matcher.group(2), Integer.parseInt(matcher.group(3)));
+            return "";
+        }
+        if ((matcher = match(SLIDER_INSTALL_PACKAGE, arguments)) != null) {
+            cluster.installPackage(matcher.group(1), matcher.group(2));
+            return "";
+        }
+        if ((matcher = match(SLIDER_DELETE_PACKAGE, arguments)) != null) {
+            cluster.deletePackage(matcher.group(1));
+            return "";
+        }
+        throw failure(line, EXIT_COMMAND_NOT_FOUND);
+    }
+
+    private String file(String line)
+    {
+        Matcher matcher;
+        if ((matcher = match(MD5SUM, line)) != null) {
+            String path = matcher.group(1);
+            byte[] content = files.read(path).orElseThrow(() -> failure(line, EXIT_FALSE));
+            return md5sum(content) + "  " + path;
+        }
+        if ((matcher = match(CAT_IF_EXISTS, line)) != null) {
+            return files.read(matcher.group(1)).map(content -> new String(content, UTF_8)).orElse("");
+        }
+        if ((matcher = match(WRITE, line)) != null) {
+            files.write(matcher.group(2), (matcher.group(1) + "\n").getBytes(UTF_8));
+            return "";
+        }
+        if ((matcher = match(REMOVE, line)) != null) {
+            files.delete(matcher.group(1));
+            return "";
+        }
+        if ((matcher = match(SIZE, line)) != null) {
+            return files.read(matcher.group(1)).map(content -> String.valueOf(content.length)).orElse("");
+        }
+        if ((matcher = match(PARTS_MD5SUM, line)) != null) {
+            String directory = matcher.group(1);
+            return lines(files.list(directory).stream()
+                    .filter(name -> name.startsWith("part-"))
+                    .map(name -> md5sum(files.read(directory + "/" + name).get()) + "  " + name)
+                    .collect(toList()));
+        }
+        if ((matcher = match(JOIN_PARTS, line)) != null) {
+            ByteArrayOutputStream joined = new ByteArrayOutputStream();
+            for (String part : Splitter.on(' ').omitEmptyStrings().split(matcher.group(1))) {
+                byte[] content = files.read(part).orElseThrow(() -> failure(line, EXIT_FALSE));
+                joined.write(content, 0, content.length);
+            }
+            files.write(matcher.group(3), joined.toByteArray());
+            files.deleteDirectory(matcher.group(4));
+            return "";
+        }
+        if ((matcher = match(UNZIP, line)) != null) {
+            // slider is preinstalled, the archive only has to be there
+            if (!files.read(matcher.group(1)).isPresent()) {
+                throw failure(line, 9);
+            }
+            return "";
+        }
+        throw failure(line, EXIT_COMMAND_NOT_FOUND);
+    }
+
+    private void upload(Path file, String remotePath)
+    {
+        cluster.beforeCommand(host, cluster.getSettings().getCommandLatency());
+        String target = remotePath.equals(".") || remotePath.endsWith("/") ? remotePath + "/" + file.getFileName() : remotePath;
+        try {
+            files.write(target, Files.readAllBytes(file));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkOnMaster(String line)
+    {
+        if (!host.equals(MASTER)) {
+            throw failure(line, EXIT_COMMAND_NOT_FOUND);
+        }
+    }
+
+    private CommandExecutionException failure(String line, int exitStatus)
+    {
+        return new CommandExecutionException(format("command '%s' on %s failed with exit status %d", line, host, exitStatus), exitStatus);
+    }
+
+    private static Matcher match(Pattern pattern, String line)
+    {
+        Matcher matcher = pattern.matcher(line);
+        return matcher.matches() ? matcher : null;
+    }
+
+    private static String psLine(Process process)
+    {
+        return format("yarn %8d  1.0  2.0 4000000 1000000 ?   Sl   00:00   0:05 %s", process.getPid(), process.getCommandLine());
+    }
+
+    private static String lines(List<String> lines)
+    {
+        return Joiner.on("\n").join(lines);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Size, latencies and failure rates of a {@link SimulatedCluster}. Latencies are in milliseconds of
+ * wall clock time, failure rates are probabilities from [0, 1] range.
+ */
+public class SimulationSettings
+{
+    public static final long DEFAULT_COMMAND_LATENCY = 20;
+    public static final long DEFAULT_SLIDER_COMMAND_LATENCY = 500;
+    public static final long DEFAULT_CONTAINER_STARTUP = SECONDS.toMillis(2);
+    public static final long DEFAULT_NODE_MANAGER_RESTART = SECONDS.toMillis(5);
+    // same as yarn.container.failure.threshold default of slider
+    public static final int DEFAULT_CONTAINER_FAILURE_THRESHOLD = 5;
+
+    private final int nodes;
+    private final long commandLatency;
+    private final long sliderCommandLatency;
+    private final long containerStartup;
+    private final long nodeManagerRestart;
+    private final double connectionFailureRate;
+    private final double statusFailureRate;
+    private final double containerFailureRate;
+    private final int containerFailureThreshold;
+    private final long seed;
+
+    public static SimulationSettings simulationSettings(int nodes)
+    {
+        return new SimulationSettings(
+                nodes,
+                DEFAULT_COMMAND_LATENCY,
+                DEFAULT_SLIDER_COMMAND_LATENCY,
+                DEFAULT_CONTAINER_STARTUP,
+                DEFAULT_NODE_MANAGER_RESTART,
+                0,
+                0,
+                0,
+                DEFAULT_CONTAINER_FAILURE_THRESHOLD,
+                0);
+    }
+
+    private SimulationSettings(
+            int nodes,
+            long commandLatency,
+            long sliderCommandLatency,
+            long containerStartup,
+            long nodeManagerRestart,
+            double connectionFailureRate,
+            double statusFailureRate,
+            double containerFailureRate,
+            int containerFailureThreshold,
+            long seed)
+    {
+        checkArgument(nodes > 0, "nodes must be positive");
+        checkArgument(commandLatency >= 0, "commandLatency is negative");
+        checkArgument(sliderCommandLatency >= 0, "sliderCommandLatency is negative");
+        checkArgument(containerStartup >= 0, "containerStartup is negative");
+        checkArgument(nodeManagerRestart >= 0, "nodeManagerRestart is negative");
+        checkRate(connectionFailureRate, "connectionFailureRate");
+        checkRate(statusFailureRate, "statusFailureRate");
+        checkRate(containerFailureRate, "containerFailureRate");
+        checkArgument(containerFailureThreshold >= 0, "containerFailureThreshold is negative");
+        this.nodes = nodes;
+        this.commandLatency = commandLatency;
+        this.sliderCommandLatency = sliderCommandLatency;
+        this.containerStartup = containerStartup;
+        this.nodeManagerRestart = nodeManagerRestart;
+        this.connectionFailureRate = connectionFailureRate;
+        this.statusFailureRate = statusFailureRate;
+        this.containerFailureRate = containerFailureRate;
+        this.containerFailureThreshold = containerFailureThreshold;
+        this.seed = seed;
+    }
+
+    private static void checkRate(double rate, String name)
+    {
+        checkArgument(rate >= 0.0 && rate <= 1.0, "%s must be in [0, 1] range", name);
+    }
+
+    /**
+     * Latency of a single ssh command (other than slider client invocations).
+     */
+    public SimulationSettings withCommandLatency(long commandLatency)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Latency of a single slider client invocation, which starts a new JVM each time.
+     */
+    public SimulationSettings withSliderCommandLatency(long sliderCommandLatency)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Time between allocating a container and the Presto server in it being up.
+     */
+    public SimulationSettings withContainerStartup(long containerStartup)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Time a restarted node (or resource) manager needs before nodes are listed as running again.
+     */
+    public SimulationSettings withNodeManagerRestart(long nodeManagerRestart)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    public SimulationSettings withoutLatencies()
+    {
+        return new SimulationSettings(nodes, 0, 0, 0, 0, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Probability that a command fails because the ssh connection broke.
+     */
+    public SimulationSettings withConnectionFailureRate(double connectionFailureRate)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Probability that {@code slider status} fails with exit code 56 (application master unreachable).
+     */
+    public SimulationSettings withStatusFailureRate(double statusFailureRate)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Probability that a container dies while starting up.
+     */
+    public SimulationSettings withContainerFailureRate(double containerFailureRate)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Number of failed containers an application survives, the next failure stops it.
+     */
+    public SimulationSettings withContainerFailureThreshold(int containerFailureThreshold)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    /**
+     * Seed of the random failures, runs with the same seed and the same sequence of commands fail the same way.
+     */
+    public SimulationSettings withSeed(long seed)
+    {
+        return new SimulationSettings(nodes, commandLatency, sliderCommandLatency, containerStartup, nodeManagerRestart, connectionFailureRate, statusFailureRate, containerFailureRate, containerFailureThreshold, seed);
+    }
+
+    public int getNodes()
+    {
+        return nodes;
+    }
+
+    public long getCommandLatency()
+    {
+        return commandLatency;
+    }
+
+    public long getSliderCommandLatency()
+    {
+        return sliderCommandLatency;
+    }
+
+    public long getContainerStartup()
+    {
+        return containerStartup;
+    }
+
+    public long getNodeManagerRestart()
+    {
+        return nodeManagerRestart;
+    }
+
+    public double getConnectionFailureRate()
+    {
+        return connectionFailureRate;
+    }
+
+    public double getStatusFailureRate()
+    {
+        return statusFailureRate;
+    }
+
+    public double getContainerFailureRate()
+    {
+        return containerFailureRate;
+    }
+
+    public int getContainerFailureThreshold()
+    {
+        return containerFailureThreshold;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+}
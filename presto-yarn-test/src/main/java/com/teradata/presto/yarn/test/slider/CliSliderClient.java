@@ -0,0 +1,212 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.teradata.presto.yarn.test.utils.DigestUploader;
+import com.teradata.tempto.process.CommandExecutionException;
+import com.teradata.tempto.ssh.SshClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.teradata.presto.yarn.test.utils.Resources.extractResource;
+
+/**
+ * Runs slider command line client over ssh on the node where slider is installed.
+ */
+public class CliSliderClient
+        implements SliderClient
+{
+    private static final Logger log = LoggerFactory.getLogger(CliSliderClient.class);
+
+    private static final String SLIDER_REMOTE_CONF_DIR = "slider-0.80.0-incubating/conf/";
+    // relative to the HDFS home directory of the user running slider
+    private static final String SLIDER_PACKAGE_DIR = ".slider/package/";
+    private final SshClient sshClient;
+    private final DigestUploader uploader;
+
+    public CliSliderClient(SshClient sshClient)
+    {
+        this.sshClient = sshClient;
+        this.uploader = new DigestUploader(sshClient);
+    }
+
+    @Override
+    public void install(final Path sliderBinary)
+    {
+        if (isInstalled()) {
+            log.info("Slider is already installed on cluster");
+            return;
+        }
+
+        sshClient.command("unzip " + String.valueOf(upload(sliderBinary)));
+
+        sshClient.upload(extractResource("/conf/slider/log4j.properties"), SLIDER_REMOTE_CONF_DIR);
+        sshClient.upload(extractResource("/conf/slider/slider-client.xml"), SLIDER_REMOTE_CONF_DIR);
+        sshClient.upload(extractResource("/conf/slider/slider-env.sh"), SLIDER_REMOTE_CONF_DIR);
+    }
+
+    private Path upload(Path path)
+    {
+        uploader.upload(path);
+        return path.getFileName();
+    }
+
+    private boolean isInstalled()
+    {
+        try {
+            action("help");
+            return true;
+        }
+        catch (CommandExecutionException e) {
+            log.debug("Checking if slider is installed", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void installLocalPackage(Path clusterPackage, final String packageName)
+    {
+        String digest = uploader.upload(clusterPackage);
+        String installedPackage = installedPackageKey(packageName);
+        Path remotePackage = clusterPackage.getFileName();
+        if (uploader.getRecorded(installedPackage).equals(Optional.of(digest))) {
+            // the record survives the package being deleted from HDFS, e.g. when HDFS is reformatted
+            if (isPackageInHdfs(packageName, remotePackage)) {
+                log.info("Package {} is already installed from {}", packageName, remotePackage);
+                return;
+            }
+            log.info("Package {} is recorded as installed but it is missing in HDFS", packageName);
+        }
+        action("package --install --name " + packageName + " --package " + remotePackage + " --replacepkg");
+        uploader.record(installedPackage, digest);
+    }
+
+    private boolean isPackageInHdfs(String packageName, Path remotePackage)
+    {
+        try {
+            sshClient.command("source /etc/profile && hdfs dfs -test -e " + SLIDER_PACKAGE_DIR + packageName + "/" + remotePackage);
+            return true;
+        }
+        catch (CommandExecutionException e) {
+            log.debug("Checking if package {} is in HDFS", packageName, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void uninstallPackage(final String packageName)
+    {
+        uploader.forget(installedPackageKey(packageName));
+        action("package --delete --name " + packageName);
+    }
+
+    private static String installedPackageKey(String packageName)
+    {
+        return "package-" + packageName;
+    }
+
+    @Override
+    public void cleanup(final String appName)
+    {
+        try {
+            stop(appName, true);
+        }
+        catch (CommandExecutionException e) {
+            if (e.getExitStatus() == 69) {
+                log.warn("Unable to stop cluster (it is not started)");
+            }
+            else {
+                throw e;
+            }
+        }
+
+        try {
+            action("destroy " + appName);
+        }
+        catch (CommandExecutionException e) {
+            log.warn("Unable to destroy cluster (is it not created?)", e);
+        }
+    }
+
+    @Override
+    public void create(final String appName, final Path template, final Path resource)
+    {
+        action("create " + appName + " --template " + String.valueOf(upload(template)) + " --resources " + String.valueOf(upload(resource)));
+        action("exists " + appName + " --live");
+    }
+
+    @Override
+    public Optional<SliderStatus> status(final String appName)
+    {
+        int count = 0;
+        int maxRetries = 10;
+        while (true) {
+            try {
+                // single round trip: slider logs to stdout, so only the written status file is printed back
+                String statusFile = "status_" + appName;
+                return Optional.of(new SliderStatus(sshClient.command(
+                        sliderCommand("status " + appName + " --out " + statusFile) + " > /dev/null && cat " + statusFile)));
+            }
+            catch (CommandExecutionException e) {
+                if (e.getExitStatus() == 70) {
+                    log.warn("Unable to retrieve status, application is not yet running");
+                    return Optional.empty();
+                }
+                else if (e.getExitStatus() == 56) {
+                    log.warn("Unable to retrieve status,  node is unreachable temporarily. Retrying..");
+                    if ((count = ++count) == maxRetries) {
+                        throw e;
+                    }
+                }
+                else {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start(String clusterName)
+    {
+        action("start " + clusterName);
+        action("exists " + clusterName + " --live");
+    }
+
+    @Override
+    public void stop(String clusterName, boolean force)
+    {
+        String forceArgument = force ? "--force" : "";
+        action("stop " + clusterName + " " + forceArgument);
+    }
+
+    @Override
+    public void flex(final String clusterName, final String component_name, final int component_count)
+    {
+        action("flex " + clusterName + " --component " + component_name + " " + String.valueOf(component_count));
+    }
+
+    public void action(final String arg)
+    {
+        sshClient.command(sliderCommand(arg));
+    }
+
+    private static String sliderCommand(String arg)
+    {
+        return "slider-0.80.0-incubating/bin/slider " + arg;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.teradata.presto.yarn.test.utils.JsonHttpClient;
+import com.teradata.presto.yarn.test.utils.JsonHttpClient.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Talks directly to YARN ResourceManager and Slider application master REST endpoints
+ * instead of starting slider command line client for each call. Operations which are not
+ * exposed over REST (package management, create and destroy) are delegated to
+ * {@link CliSliderClient}.
+ */
+public class RestSliderClient
+        implements SliderClient
+{
+    private static final Logger log = LoggerFactory.getLogger(RestSliderClient.class);
+
+    private static final String SLIDER_APPLICATION_TYPE = "org-apache-slider";
+    private static final Set<String> ACTIVE_STATES = ImmutableSet.of("NEW", "NEW_SAVING", "SUBMITTED", "ACCEPTED", "RUNNING");
+    private static final String LIVE_CONTAINERS_PATH = "ws/v1/slider/application/live/containers";
+    private static final String LIVE_COMPONENTS_PATH = "ws/v1/slider/application/live/components";
+    private static final String DESIRED_RESOURCES_PATH = "ws/v1/slider/application/model/desired/resources";
+    private static final String COMPONENT_INSTANCES = "yarn.component.instances";
+
+    private final SliderClient cliClient;
+    private final URI resourceManagerUri;
+    private final JsonHttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RestSliderClient(SliderClient cliClient, URI resourceManagerUri)
+    {
+        this(cliClient, resourceManagerUri, new JsonHttpClient());
+    }
+
+    public RestSliderClient(SliderClient cliClient, URI resourceManagerUri, JsonHttpClient httpClient)
+    {
+        this.cliClient = requireNonNull(cliClient, "cliClient is null");
+        this.resourceManagerUri = requireNonNull(resourceManagerUri, "resourceManagerUri is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+    }
+
+    @Override
+    public void install(Path sliderBinary)
+    {
+        cliClient.install(sliderBinary);
+    }
+
+    @Override
+    public void installLocalPackage(Path clusterPackage, String packageName)
+    {
+        cliClient.installLocalPackage(clusterPackage, packageName);
+    }
+
+    @Override
+    public void uninstallPackage(String packageName)
+    {
+        cliClient.uninstallPackage(packageName);
+    }
+
+    @Override
+    public void create(String appName, Path template, Path resource)
+    {
+        cliClient.create(appName, template, resource);
+    }
+
+    @Override
+    public void cleanup(String appName)
+    {
+        if (findApplication(appName).isPresent()) {
+            stop(appName, true);
+        }
+        cliClient.cleanup(appName);
+    }
+
+    @Override
+    public Optional<SliderStatus> status(String appName)
+    {
+        Optional<JsonNode> application = findApplication(appName);
+        if (!application.isPresent() || !application.get().path("state").asText().equals("RUNNING")) {
+            log.warn("Unable to retrieve status, application is not yet running");
+            return Optional.empty();
+        }
+        URI applicationMaster = getApplicationMasterUri(application.get());
+        JsonNode containers = httpClient.get(applicationMaster.resolve(LIVE_CONTAINERS_PATH));
+        JsonNode components = httpClient.get(applicationMaster.resolve(LIVE_COMPONENTS_PATH));
+        return Optional.of(new SliderStatus(toStatusDocument(containers, components)));
+    }
+
+    /**
+     * Translates application master REST responses into the document printed by
+     * {@code slider status}, limited to the parts {@link SliderStatus} reads.
+     */
+    private String toStatusDocument(JsonNode containers, JsonNode components)
+    {
+        ObjectNode document = objectMapper.createObjectNode();
+        ObjectNode live = document.putObject("status").putObject("live");
+        for (JsonNode container : containers) {
+            if (container.path("released").asBoolean()) {
+                continue;
+            }
+            String component = container.path("component").asText();
+            ObjectNode liveComponent = live.has(component) ? (ObjectNode) live.get(component) : live.putObject(component);
+            liveComponent.putObject(container.path("containerId").asText())
+                    .put("host", container.path("host").asText())
+                    .put("createTime", container.path("createTime").asLong())
+                    .put("startTime", container.path("startTime").asLong());
+        }
+
+        ObjectNode statistics = document.putObject("statistics");
+        Iterator<Map.Entry<String, JsonNode>> fields = components.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> component = fields.next();
+            statistics.putObject(component.getKey())
+                    .put("containers.live", component.getValue().path("actual").asInt())
+                    .put("containers.desired", component.getValue().path("desired").asInt())
+                    .put("containers.requested", component.getValue().path("requested").asInt())
+                    .put("containers.failed", component.getValue().path("failed").asInt());
+        }
+        try {
+            return objectMapper.writeValueAsString(document);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void start(String appName)
+    {
+        cliClient.start(appName);
+    }
+
+    @Override
+    public void stop(String appName, boolean force)
+    {
+        if (!force) {
+            // graceful stop is only available through the application master RPC
+            cliClient.stop(appName, false);
+            return;
+        }
+        Optional<JsonNode> application = findApplication(appName);
+        if (!application.isPresent()) {
+            log.warn("Unable to stop cluster (it is not started)");
+            return;
+        }
+        String applicationId = application.get().path("id").asText();
+        // with simple authentication ResourceManager accepts the application owner passed as user.name
+        String owner = application.get().path("user").asText();
+        String query = owner.isEmpty() ? "" : "?user.name=" + owner;
+        try {
+            httpClient.put(resourceManagerUri.resolve("/ws/v1/cluster/apps/" + applicationId + "/state" + query), ImmutableMap.of("state", "KILLED"));
+        }
+        catch (HttpStatusException e) {
+            if (e.getStatusCode() != 401 && e.getStatusCode() != 403) {
+                throw e;
+            }
+            log.info("ResourceManager does not allow to kill the application over REST, falling back to slider client");
+            cliClient.stop(appName, true);
+            return;
+        }
+        retryUntil("application " + appName + " killed", () -> !findApplication(appName).isPresent(), MINUTES.toMillis(2));
+    }
+
+    @Override
+    public void flex(String appName, String componentName, int componentCount)
+    {
+        Optional<JsonNode> application = findApplication(appName);
+        if (!application.isPresent()) {
+            cliClient.flex(appName, componentName, componentCount);
+            return;
+        }
+        URI desiredResources = getApplicationMasterUri(application.get()).resolve(DESIRED_RESOURCES_PATH);
+        try {
+            JsonNode resources = httpClient.get(desiredResources);
+            ((ObjectNode) resources).with("components").with(componentName)
+                    .put(COMPONENT_INSTANCES, String.valueOf(componentCount));
+            httpClient.put(desiredResources, resources);
+        }
+        catch (HttpStatusException e) {
+            if (e.getStatusCode() != 404 && e.getStatusCode() != 405) {
+                throw e;
+            }
+            log.info("Application master does not support flex over REST, falling back to slider client");
+            cliClient.flex(appName, componentName, componentCount);
+        }
+    }
+
+    private Optional<JsonNode> findApplication(String appName)
+    {
+        JsonNode apps = httpClient.get(resourceManagerUri.resolve("/ws/v1/cluster/apps?applicationTypes=" + SLIDER_APPLICATION_TYPE));
+        JsonNode latest = null;
+        for (JsonNode app : apps.path("apps").path("app")) {
+            if (app.path("name").asText().equals(appName)
+                    && ACTIVE_STATES.contains(app.path("state").asText())
+                    && (latest == null || app.path("startedTime").asLong() > latest.path("startedTime").asLong())) {
+                latest = app;
+            }
+        }
+        return Optional.ofNullable(latest);
+    }
+
+    private URI getApplicationMasterUri(JsonNode application)
+    {
+        String trackingUrl = application.path("trackingUrl").asText();
+        if (trackingUrl.isEmpty()) {
+            trackingUrl = resourceManagerUri.resolve("/proxy/" + application.path("id").asText() + "/").toString();
+        }
+        return URI.create(trackingUrl.endsWith("/") ? trackingUrl : trackingUrl + "/");
+    }
+}
@@ -14,148 +14,84 @@
 package com.teradata.presto.yarn.test.slider;
 
 import com.teradata.tempto.context.State;
-import com.teradata.tempto.process.CommandExecutionException;
 import com.teradata.tempto.ssh.SshClient;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.util.Optional;
 
-import static com.google.common.base.Preconditions.checkState;
-import static com.teradata.presto.yarn.test.utils.Resources.extractResource;
+import static java.util.Objects.requireNonNull;
 
+/**
+ * Slider client exposed to the tests. Operations are delegated to the configured backend,
+ * see {@link CliSliderClient} and {@link RestSliderClient}.
+ */
 public class Slider
-        implements State
+        implements SliderClient, State
 {
-    private static final Logger log = LoggerFactory.getLogger(Slider.class);
-
-    private static final String SLIDER_REMOTE_CONF_DIR = "slider-0.80.0-incubating/conf/";
-    private final SshClient sshClient;
+    private final SliderClient client;
 
     public Slider(SshClient sshClient)
     {
-        this.sshClient = sshClient;
-    }
-
-    public void install(final Path sliderBinary)
-    {
-        if (isInstalled()) {
-            log.info("Slider is already installed on cluster");
-            return;
-        }
-
-        sshClient.command("unzip " + String.valueOf(upload(sliderBinary)));
-
-        sshClient.upload(extractResource("/conf/slider/log4j.properties"), SLIDER_REMOTE_CONF_DIR);
-        sshClient.upload(extractResource("/conf/slider/slider-client.xml"), SLIDER_REMOTE_CONF_DIR);
-        sshClient.upload(extractResource("/conf/slider/slider-env.sh"), SLIDER_REMOTE_CONF_DIR);
-    }
-
-    private Path upload(Path path)
-    {
-        sshClient.upload(path, ".");
-        return path.getFileName();
+        this(new CliSliderClient(sshClient));
     }
 
-    private boolean isInstalled()
+    public Slider(SliderClient client)
     {
-        try {
-            action("help");
-            return true;
-        }
-        catch (CommandExecutionException e) {
-            log.debug("Checking if slider is installed", e);
-            return false;
-        }
+        this.client = requireNonNull(client, "client is null");
     }
 
-    public void installLocalPackage(Path clusterPackage, final String packageName)
+    @Override
+    public void install(Path sliderBinary)
     {
-        upload(clusterPackage);
-        Path remotePackage = clusterPackage.getFileName();
-        action("package --install --name " + packageName + " --package " + remotePackage + " --replacepkg");
+        client.install(sliderBinary);
     }
 
-    public void uninstallPackage(final String packageName)
+    @Override
+    public void installLocalPackage(Path clusterPackage, String packageName)
     {
-        action("package --delete --name " + packageName);
+        client.installLocalPackage(clusterPackage, packageName);
     }
 
-    public void cleanup(final String appName)
+    @Override
+    public void uninstallPackage(String packageName)
     {
-        try {
-            stop(appName, true);
-        }
-        catch (CommandExecutionException e) {
-            if (e.getExitStatus() == 69) {
-                log.warn("Unable to stop cluster (it is not started)");
-            }
-            else {
-                throw e;
-            }
-        }
-
-        try {
-            action("destroy " + appName);
-        }
-        catch (CommandExecutionException e) {
-            log.warn("Unable to destroy cluster (is it not created?)", e);
-        }
+        client.uninstallPackage(packageName);
     }
 
-    public void create(final String appName, final Path template, final Path resource)
+    @Override
+    public void create(String appName, Path template, Path resource)
     {
-        action("create " + appName + " --template " + String.valueOf(upload(template)) + " --resources " + String.valueOf(upload(resource)));
-        action("exists " + appName + " --live");
+        client.create(appName, template, resource);
     }
 
-    public Optional<SliderStatus> status(final String appName)
+    @Override
+    public void cleanup(String appName)
     {
-        int count = 0;
-        int maxRetries = 10;
-        while (true) {
-            try {
-                action("status " + appName + " --out status_file");
-                return Optional.of(new SliderStatus(sshClient.command("cat status_file")));
-            }
-            catch (CommandExecutionException e) {
-                if (e.getExitStatus() == 70) {
-                    log.warn("Unable to retrieve status, application is not yet running");
-                    return Optional.empty();
-                }
-                else if (e.getExitStatus() == 56) {
-                    log.warn("Unable to retrieve status,  node is unreachable temporarily. Retrying..");
-                    if ((count = ++count) == maxRetries) {
-                        throw e;
-                    }
-                }
-                else {
-                    throw e;
-                }
-            }
-        }
+        client.cleanup(appName);
     }
 
-    public void stop(String clusterName, boolean force)
+    @Override
+    public Optional<SliderStatus> status(String appName)
     {
-        String forceArgument = force ? "--force" : "";
-        action("stop " + clusterName + " " + forceArgument);
+        return client.status(appName);
     }
 
-    public void stop(String clusterName)
+    @Override
+    public void start(String appName)
     {
-        stop(clusterName, false);
+        client.start(appName);
     }
 
-    public void flex(final String clusterName, final String component_name, final int component_count)
+    @Override
+    public void stop(String appName, boolean force)
     {
-        action("flex " + clusterName + " --component " + component_name + " " + String.valueOf(component_count));
+        client.stop(appName, force);
     }
 
-    public void action(final String arg)
+    @Override
+    public void flex(String appName, String componentName, int componentCount)
     {
-        sshClient.command("slider-0.80.0-incubating/bin/slider " + arg);
+        client.flex(appName, componentName, componentCount);
     }
 
     @Override
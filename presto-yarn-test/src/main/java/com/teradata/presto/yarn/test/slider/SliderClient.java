@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Operations on slider applications and packages used by the tests.
+ */
+public interface SliderClient
+{
+    void install(Path sliderBinary);
+
+    void installLocalPackage(Path clusterPackage, String packageName);
+
+    void uninstallPackage(String packageName);
+
+    void create(String appName, Path template, Path resource);
+
+    /**
+     * Stops and destroys the application, if it exists.
+     */
+    void cleanup(String appName);
+
+    /**
+     * Returns status of the application or {@link Optional#empty()} when application is not running.
+     */
+    Optional<SliderStatus> status(String appName);
+
+    /**
+     * Starts the previously stopped application and waits until it is live.
+     */
+    void start(String appName);
+
+    void stop(String appName, boolean force);
+
+    default void stop(String appName)
+    {
+        stop(appName, false);
+    }
+
+    void flex(String appName, String componentName, int componentCount);
+}
@@ -13,50 +13,209 @@
  */
 package com.teradata.presto.yarn.test.slider;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
-import java.io.IOException;
-import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
-import static com.teradata.presto.yarn.test.utils.Streams.stream;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.collectingAndThen;
+import static java.util.stream.Collectors.toList;
 
+/**
+ * Typed view of the document printed by {@code slider status}. Only the parts read by the tests are
+ * kept, see {@link SliderStatusDecoder}.
+ */
 public class SliderStatus
 {
-    private final JsonNode status;
+    private final Map<String, ComponentStatus> components;
 
     public SliderStatus(String statusJson)
     {
-        ObjectMapper objectMapper = new ObjectMapper();
-        try {
-            this.status = objectMapper.readTree(statusJson);
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        this(SliderStatusDecoder.decode(statusJson));
     }
 
-    public List<String> getLiveComponentsHost(String component)
+    public SliderStatus(Map<String, ComponentStatus> components)
     {
-        return stream(getLiveComponents(component)).
-                map(liveComponent -> liveComponent.path("host").asText())
-                .collect(Collectors.toList());
+        this.components = ImmutableMap.copyOf(requireNonNull(components, "components is null"));
     }
 
-    private Iterator<JsonNode> getLiveComponents(String component)
+    public Map<String, ComponentStatus> getComponents()
     {
-        return getLiveStatus().path(component).elements();
+        return components;
     }
 
-    private JsonNode getLiveStatus()
+    public Optional<ComponentStatus> getComponent(String component)
+    {
+        return Optional.ofNullable(components.get(component));
+    }
+
+    public List<String> getLiveComponentsHost(String component)
     {
-        return status.path("status").path("live");
+        return getComponent(component).map(ComponentStatus::getLiveHosts).orElse(ImmutableList.of());
     }
 
     public int getLiveContainers(String component)
     {
-        return status.path("statistics").path(component).path("containers.live").asInt();
+        return getComponent(component).map(ComponentStatus::getLiveContainers).orElse(0);
+    }
+
+    public List<String> getContainerIds(String component)
+    {
+        return getComponent(component).map(ComponentStatus::getContainerIds).orElse(ImmutableList.of());
+    }
+
+    public int getRequestedContainers(String component)
+    {
+        return getComponent(component).map(ComponentStatus::getRequestedContainers).orElse(0);
+    }
+
+    public int getFailedContainers(String component)
+    {
+        return getComponent(component).map(ComponentStatus::getFailedContainers).orElse(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return components.values().toString();
+    }
+
+    public static class ComponentStatus
+    {
+        private final String name;
+        private final List<ContainerStatus> liveContainerStatuses;
+        private final List<String> liveHosts;
+        private final List<String> liveContainerIds;
+        private final List<String> containerIds;
+        private final int liveContainers;
+        private final int desiredContainers;
+        private final int requestedContainers;
+        private final int failedContainers;
+
+        public ComponentStatus(
+                String name,
+                List<ContainerStatus> liveContainerStatuses,
+                List<String> containerIds,
+                int liveContainers,
+                int desiredContainers,
+                int requestedContainers,
+                int failedContainers)
+        {
+            this.name = requireNonNull(name, "name is null");
+            this.liveContainerStatuses = ImmutableList.copyOf(requireNonNull(liveContainerStatuses, "liveContainerStatuses is null"));
+            this.liveHosts = liveContainerStatuses.stream().map(ContainerStatus::getHost).collect(collectingAndThen(toList(), ImmutableList::copyOf));
+            this.liveContainerIds = liveContainerStatuses.stream().map(ContainerStatus::getId).collect(collectingAndThen(toList(), ImmutableList::copyOf));
+            this.containerIds = ImmutableList.copyOf(requireNonNull(containerIds, "containerIds is null"));
+            this.liveContainers = liveContainers;
+            this.desiredContainers = desiredContainers;
+            this.requestedContainers = requestedContainers;
+            this.failedContainers = failedContainers;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Live containers (from {@code status.live}), in document order.
+         */
+        public List<ContainerStatus> getLiveContainerStatuses()
+        {
+            return liveContainerStatuses;
+        }
+
+        /**
+         * Hosts of the live containers (from {@code status.live}), in document order. A host is listed once per container.
+         */
+        public List<String> getLiveHosts()
+        {
+            return liveHosts;
+        }
+
+        public List<String> getLiveContainerIds()
+        {
+            return liveContainerIds;
+        }
+
+        /**
+         * Container ids assigned to the component (from {@code instances}).
+         */
+        public List<String> getContainerIds()
+        {
+            return containerIds;
+        }
+
+        public int getLiveContainers()
+        {
+            return liveContainers;
+        }
+
+        public int getDesiredContainers()
+        {
+            return desiredContainers;
+        }
+
+        public int getRequestedContainers()
+        {
+            return requestedContainers;
+        }
+
+        public int getFailedContainers()
+        {
+            return failedContainers;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s{live: %d, desired: %d, requested: %d, failed: %d, hosts: %s}",
+                    name, liveContainers, desiredContainers, requestedContainers, failedContainers, liveHosts);
+        }
+    }
+
+    public static class ContainerStatus
+    {
+        private final String id;
+        private final String host;
+        private final long createTime;
+        private final long startTime;
+
+        public ContainerStatus(String id, String host, long createTime, long startTime)
+        {
+            this.id = requireNonNull(id, "id is null");
+            this.host = requireNonNull(host, "host is null");
+            this.createTime = createTime;
+            this.startTime = startTime;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public String getHost()
+        {
+            return host;
+        }
+
+        /**
+         * Time (epoch milliseconds) the container was allocated by YARN, or 0 if unknown.
+         */
+        public long getCreateTime()
+        {
+            return createTime;
+        }
+
+        /**
+         * Time (epoch milliseconds) the container was started by the node manager, or 0 if unknown.
+         */
+        public long getStartTime()
+        {
+            return startTime;
+        }
     }
 }
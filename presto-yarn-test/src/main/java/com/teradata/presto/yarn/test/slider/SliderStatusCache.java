@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Caches the last fetched slider status for a short period of time. Concurrent callers which
+ * miss the cache wait for a single fetch instead of issuing their own.
+ */
+public class SliderStatusCache
+{
+    public static final long DEFAULT_TTL = SECONDS.toMillis(2);
+
+    private final Supplier<Optional<SliderStatus>> loader;
+    private final long ttlInMilliseconds;
+
+    private Optional<SliderStatus> snapshot;
+    private long snapshotTime;
+    private CompletableFuture<Optional<SliderStatus>> inFlight;
+    private long generation;
+
+    public SliderStatusCache(Supplier<Optional<SliderStatus>> loader)
+    {
+        this(loader, DEFAULT_TTL);
+    }
+
+    public SliderStatusCache(Supplier<Optional<SliderStatus>> loader, long ttlInMilliseconds)
+    {
+        checkArgument(ttlInMilliseconds >= 0, "ttlInMilliseconds is negative");
+        this.loader = requireNonNull(loader, "loader is null");
+        this.ttlInMilliseconds = ttlInMilliseconds;
+    }
+
+    public Optional<SliderStatus> get()
+    {
+        CompletableFuture<Optional<SliderStatus>> future;
+        long loadGeneration;
+        synchronized (this) {
+            if (snapshot != null && System.currentTimeMillis() - snapshotTime <= ttlInMilliseconds) {
+                return snapshot;
+            }
+            if (inFlight != null) {
+                future = inFlight;
+                loadGeneration = -1;
+            }
+            else {
+                future = new CompletableFuture<>();
+                inFlight = future;
+                loadGeneration = generation;
+            }
+        }
+
+        if (loadGeneration >= 0) {
+            load(future, loadGeneration);
+        }
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the cached status, so that the next call fetches it again. Results of fetches
+     * started before invalidation are not cached.
+     */
+    public synchronized void invalidate()
+    {
+        snapshot = null;
+        inFlight = null;
+        generation++;
+    }
+
+    private void load(CompletableFuture<Optional<SliderStatus>> future, long loadGeneration)
+    {
+        try {
+            Optional<SliderStatus> status = loader.get();
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    snapshot = status;
+                    snapshotTime = System.currentTimeMillis();
+                    inFlight = null;
+                }
+            }
+            future.complete(status);
+        }
+        catch (RuntimeException e) {
+            synchronized (this) {
+                if (inFlight == future) {
+                    inFlight = null;
+                }
+            }
+            future.completeExceptionally(e);
+        }
+    }
+}
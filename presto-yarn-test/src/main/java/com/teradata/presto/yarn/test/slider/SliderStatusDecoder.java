@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ComponentStatus;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ContainerStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+
+/**
+ * Decodes {@code slider status} output in a single pass over the token stream. Only
+ * {@code statistics}, {@code instances} and the container hosts from {@code status.live} are read,
+ * everything else (container commands, environment, configuration) is skipped without being
+ * materialized, so the cost does not grow with the size of per container metadata.
+ */
+final class SliderStatusDecoder
+{
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Map<String, ComponentStatusBuilder> components = new LinkedHashMap<>();
+
+    private SliderStatusDecoder() {}
+
+    static Map<String, ComponentStatus> decode(String statusJson)
+    {
+        try (JsonParser parser = JSON_FACTORY.createParser(statusJson)) {
+            return new SliderStatusDecoder().decode(parser);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Unable to parse slider status", e);
+        }
+    }
+
+    private Map<String, ComponentStatus> decode(JsonParser parser)
+            throws IOException
+    {
+        if (parser.nextToken() != START_OBJECT) {
+            throw new IOException("slider status is not a JSON object");
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "statistics":
+                    readStatistics(parser);
+                    break;
+                case "instances":
+                    readInstances(parser);
+                    break;
+                case "status":
+                    readStatus(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        ImmutableMap.Builder<String, ComponentStatus> result = ImmutableMap.builder();
+        components.forEach((name, builder) -> result.put(name, builder.build()));
+        return result.build();
+    }
+
+    private void readStatistics(JsonParser parser)
+            throws IOException
+    {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            ComponentStatusBuilder component = component(parser.getCurrentName());
+            parser.nextToken();
+            if (!isObject(parser)) {
+                continue;
+            }
+            while (parser.nextToken() == FIELD_NAME) {
+                String counter = parser.getCurrentName();
+                parser.nextToken();
+                switch (counter) {
+                    case "containers.live":
+                        component.liveContainersCount = parser.getValueAsInt();
+                        break;
+                    case "containers.desired":
+                        component.desiredContainers = parser.getValueAsInt();
+                        break;
+                    case "containers.requested":
+                        component.requestedContainers = parser.getValueAsInt();
+                        break;
+                    case "containers.failed":
+                        component.failedContainers = parser.getValueAsInt();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readInstances(JsonParser parser)
+            throws IOException
+    {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            ComponentStatusBuilder component = component(parser.getCurrentName());
+            if (parser.nextToken() != START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != END_ARRAY) {
+                if (token.isScalarValue()) {
+                    component.containerIds.add(parser.getText());
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readStatus(JsonParser parser)
+            throws IOException
+    {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("live")) {
+                readLive(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readLive(JsonParser parser)
+            throws IOException
+    {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            ComponentStatusBuilder component = component(parser.getCurrentName());
+            parser.nextToken();
+            if (!isObject(parser)) {
+                continue;
+            }
+            while (parser.nextToken() == FIELD_NAME) {
+                String containerId = parser.getCurrentName();
+                parser.nextToken();
+                component.liveContainers.add(readContainer(containerId, parser));
+            }
+        }
+    }
+
+    private static ContainerStatus readContainer(String containerId, JsonParser parser)
+            throws IOException
+    {
+        String host = "";
+        long createTime = 0;
+        long startTime = 0;
+        if (!isObject(parser)) {
+            return new ContainerStatus(containerId, host, createTime, startTime);
+        }
+        while (parser.nextToken() == FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (!parser.nextToken().isScalarValue()) {
+                parser.skipChildren();
+            }
+            else if (field.equals("host")) {
+                host = parser.getText();
+            }
+            else if (field.equals("createTime")) {
+                createTime = parser.getValueAsLong();
+            }
+            else if (field.equals("startTime")) {
+                startTime = parser.getValueAsLong();
+            }
+        }
+        return new ContainerStatus(containerId, host, createTime, startTime);
+    }
+
+    /**
+     * Returns true if the parser is positioned at the start of an object, otherwise skips the current value.
+     */
+    private static boolean isObject(JsonParser parser)
+            throws IOException
+    {
+        if (parser.getCurrentToken() == START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    private ComponentStatusBuilder component(String name)
+    {
+        return components.computeIfAbsent(name, ComponentStatusBuilder::new);
+    }
+
+    private static class ComponentStatusBuilder
+    {
+        private final String name;
+        private final List<ContainerStatus> liveContainers = new ArrayList<>();
+        private final List<String> containerIds = new ArrayList<>();
+        private int liveContainersCount;
+        private int desiredContainers;
+        private int requestedContainers;
+        private int failedContainers;
+
+        private ComponentStatusBuilder(String name)
+        {
+            this.name = name;
+        }
+
+        private ComponentStatus build()
+        {
+            return new ComponentStatus(name, liveContainers, containerIds, liveContainersCount, desiredContainers, requestedContainers, failedContainers);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.startup;
+
+import com.google.common.base.Splitter;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static java.lang.Long.parseLong;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Startup timestamps recorded on a node: phase markers written by {@code presto_server.py} to
+ * {@code startup-phases.log} and the time the Presto server reported it started. All timestamps are
+ * translated to the local clock using the clock offset measured when the markers were read.
+ */
+public class NodeStartupMarkers
+{
+    private static final DateTimeFormatter SERVER_LOG_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS[XXX][XX]");
+    private static final String SERVER_STARTED = "SERVER STARTED";
+
+    private final String host;
+    private final long clockOffset;
+    private final Map<String, Long> phases;
+    private final OptionalLong serverStarted;
+
+    public NodeStartupMarkers(String host, long clockOffset, Map<String, Long> phases, OptionalLong serverStarted)
+    {
+        this.host = requireNonNull(host, "host is null");
+        this.clockOffset = clockOffset;
+        this.phases = requireNonNull(phases, "phases is null");
+        this.serverStarted = requireNonNull(serverStarted, "serverStarted is null");
+    }
+
+    /**
+     * Reads markers recorded on the host not earlier than {@code notBefore} (local clock).
+     */
+    public static NodeStartupMarkers read(NodeSshUtils nodeSshUtils, String host, String logDir, long notBefore)
+    {
+        return nodeSshUtils.withSshClient(host, sshClient -> {
+            long before = System.currentTimeMillis();
+            long remoteTime = parseLong(sshClient.command("date +%s%3N").trim());
+            long after = System.currentTimeMillis();
+            long clockOffset = remoteTime - (before + after) / 2;
+
+            String phases = sshClient.command("cat " + logDir + "/startup-phases.log 2>/dev/null || true");
+            String serverLog = sshClient.command("grep '" + SERVER_STARTED + "' " + logDir + "/server.log 2>/dev/null || true");
+            return parse(host, clockOffset, phases, serverLog, notBefore);
+        });
+    }
+
+    static NodeStartupMarkers parse(String host, long clockOffset, String phasesLog, String serverLog, long notBefore)
+    {
+        Map<String, Long> phases = new HashMap<>();
+        for (String line : Splitter.on('\n').trimResults().omitEmptyStrings().split(phasesLog)) {
+            List<String> fields = Splitter.on(' ').omitEmptyStrings().splitToList(line);
+            if (fields.size() != 3) {
+                continue;
+            }
+            long time = parseLong(fields.get(2)) - clockOffset;
+            if (time >= notBefore) {
+                // the first marker after the cluster was created, later ones come from respawned containers
+                phases.putIfAbsent(fields.get(0) + " " + fields.get(1), time);
+            }
+        }
+
+        OptionalLong serverStarted = OptionalLong.empty();
+        for (String line : Splitter.on('\n').trimResults().omitEmptyStrings().split(serverLog)) {
+            if (!line.contains(SERVER_STARTED)) {
+                continue;
+            }
+            try {
+                String timestamp = Splitter.onPattern("\\s+").split(line).iterator().next();
+                long time = OffsetDateTime.parse(timestamp, SERVER_LOG_TIMESTAMP).toInstant().toEpochMilli() - clockOffset;
+                if (time >= notBefore) {
+                    serverStarted = OptionalLong.of(time);
+                    break;
+                }
+            }
+            catch (DateTimeParseException e) {
+                // not a log line
+            }
+        }
+        return new NodeStartupMarkers(host, clockOffset, phases, serverStarted);
+    }
+
+    public String getHost()
+    {
+        return host;
+    }
+
+    /**
+     * Difference between the node clock and the local clock in milliseconds.
+     */
+    public long getClockOffset()
+    {
+        return clockOffset;
+    }
+
+    /**
+     * Returns local time of the given phase marker (e.g. {@code install_start}) of the component, if recorded.
+     */
+    public OptionalLong getPhase(String component, String phase)
+    {
+        Long time = phases.get(component + " " + phase);
+        return time == null ? OptionalLong.empty() : OptionalLong.of(time);
+    }
+
+    public OptionalLong getServerStarted()
+    {
+        return serverStarted;
+    }
+}
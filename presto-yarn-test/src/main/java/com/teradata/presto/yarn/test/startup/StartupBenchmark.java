@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.startup;
+
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.PrestoCluster;
+import com.teradata.presto.yarn.test.slider.SliderStatus;
+import com.teradata.presto.yarn.test.slider.SliderStatus.ContainerStatus;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
+import com.teradata.tempto.query.QueryExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import static com.teradata.presto.yarn.test.PrestoCluster.COORDINATOR_COMPONENT;
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.utils.Poller.waitFor;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.function.Function.identity;
+
+/**
+ * Creates the cluster and measures how long each startup phase takes:
+ * <ul>
+ * <li>slider_create - {@code slider create} command</li>
+ * <li>am_launch - until the application master reports status</li>
+ * <li>allocation_COMPONENT - from application master start until the last container of the component was allocated</li>
+ * <li>container_start_COMPONENT - from allocation until the node manager started the container</li>
+ * <li>localization - from container start until {@code presto_server.py install} was called</li>
+ * <li>extraction - {@code presto_server.py install}, i.e. extraction of presto-server tarball</li>
+ * <li>configure - {@code presto_server.py configure}</li>
+ * <li>jvm_boot - from Presto launch until it logged that the server started</li>
+ * <li>discovery - from the last server start until all nodes are active in {@code system.runtime.nodes}</li>
+ * <li>first_query - from coordinator start until the first successful query</li>
+ * <li>total - from {@code slider create} until all nodes are active</li>
+ * </ul>
+ * Phases which run on every node report the slowest node. Timestamps recorded on nodes are
+ * corrected by the node clock offset.
+ */
+public class StartupBenchmark
+{
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    private static final long TIMEOUT = MINUTES.toMillis(10);
+    private static final long POLL_INTERVAL = 100;
+    private static final String APPLICATION_MASTER_COMPONENT = "slider-appmaster";
+
+    private final PrestoCluster prestoCluster;
+    private final NodeSshUtils nodeSshUtils;
+    private final String logDir;
+
+    public StartupBenchmark(PrestoCluster prestoCluster, NodeSshUtils nodeSshUtils, String logDir)
+    {
+        this.prestoCluster = requireNonNull(prestoCluster, "prestoCluster is null");
+        this.nodeSshUtils = requireNonNull(nodeSshUtils, "nodeSshUtils is null");
+        this.logDir = requireNonNull(logDir, "logDir is null");
+    }
+
+    /**
+     * Starts the cluster the given number of times (cleaning it up in between) and collects timelines of all runs.
+     */
+    public StartupReport run(int runs, int workersCount)
+    {
+        List<StartupTimeline> timelines = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            try {
+                StartupTimeline timeline = measure(workersCount);
+                log.info("Startup run {}/{}: {}", run, runs, timeline);
+                timelines.add(timeline);
+            }
+            finally {
+                prestoCluster.cleanup();
+            }
+        }
+        return new StartupReport(timelines);
+    }
+
+    public StartupTimeline measure(int workersCount)
+    {
+        long start = System.currentTimeMillis();
+        prestoCluster.create();
+        long created = System.currentTimeMillis();
+
+        poll("application master", () -> prestoCluster.status().isPresent());
+        long applicationMasterUp = System.currentTimeMillis();
+
+        poll("all containers", () -> prestoCluster.getComponentHosts(COORDINATOR_COMPONENT).size() == 1 &&
+                prestoCluster.getComponentHosts(WORKER_COMPONENT).size() == workersCount);
+        SliderStatus status = prestoCluster.status().get();
+
+        PooledQueryExecutor queryExecutor = prestoCluster.getQueryExecutor();
+        poll("first query", () -> isPrestoAccessible(queryExecutor));
+        long firstQuery = System.currentTimeMillis();
+        poll("all nodes active", () -> activeNodes(queryExecutor) == workersCount + 1);
+        long allNodesActive = System.currentTimeMillis();
+
+        List<ContainerStatus> applicationMaster = containers(status, APPLICATION_MASTER_COMPONENT);
+        List<ContainerStatus> coordinators = containers(status, COORDINATOR_COMPONENT);
+        List<ContainerStatus> workers = containers(status, WORKER_COMPONENT);
+        Set<String> hosts = new LinkedHashSet<>();
+        applicationMaster.forEach(container -> hosts.add(container.getHost()));
+        coordinators.forEach(container -> hosts.add(container.getHost()));
+        workers.forEach(container -> hosts.add(container.getHost()));
+        // container times are recorded by the application master
+        Map<String, NodeStartupMarkers> markers = nodeSshUtils.onHosts(hosts, host -> NodeStartupMarkers.read(nodeSshUtils, host, logDir, start)).stream()
+                .collect(Collectors.toMap(NodeStartupMarkers::getHost, identity()));
+        long amClockOffset = applicationMaster.isEmpty() ? 0 : markers.get(applicationMaster.get(0).getHost()).getClockOffset();
+
+        StartupTimeline.Builder timeline = StartupTimeline.builder()
+                .add("slider_create", created - start)
+                .add("am_launch", applicationMasterUp - created);
+
+        if (!applicationMaster.isEmpty()) {
+            long applicationMasterStart = applicationMaster.get(0).getStartTime();
+            for (String component : ImmutableList.of(COORDINATOR_COMPONENT, WORKER_COMPONENT)) {
+                List<ContainerStatus> containers = containers(status, component);
+                if (!containers.isEmpty()) {
+                    timeline.add("allocation_" + component, max(containers, ContainerStatus::getCreateTime) - applicationMasterStart);
+                    timeline.add("container_start_" + component, max(containers, container -> container.getStartTime() - container.getCreateTime()));
+                }
+            }
+        }
+
+        List<NodePhases> nodes = new ArrayList<>();
+        coordinators.forEach(container -> nodes.add(new NodePhases(COORDINATOR_COMPONENT, container, markers.get(container.getHost()), amClockOffset)));
+        workers.forEach(container -> nodes.add(new NodePhases(WORKER_COMPONENT, container, markers.get(container.getHost()), amClockOffset)));
+
+        addSlowest(timeline, "localization", nodes, node -> node.between(node.containerStart, node.phase("install_start")));
+        addSlowest(timeline, "extraction", nodes, node -> node.between(node.phase("install_start"), node.phase("install_end")));
+        addSlowest(timeline, "configure", nodes, node -> node.between(node.phase("configure_start"), node.phase("configure_end")));
+        addSlowest(timeline, "jvm_boot", nodes, node -> node.between(node.phase("launch"), node.markers.getServerStarted()));
+
+        OptionalLong lastServerStart = nodes.stream()
+                .map(node -> node.markers.getServerStarted())
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .max();
+        if (lastServerStart.isPresent()) {
+            timeline.add("discovery", allNodesActive - lastServerStart.getAsLong());
+        }
+        nodes.stream()
+                .filter(node -> node.component.equals(COORDINATOR_COMPONENT))
+                .map(node -> node.markers.getServerStarted())
+                .filter(OptionalLong::isPresent)
+                .findFirst()
+                .ifPresent(coordinatorStart -> timeline.add("first_query", firstQuery - coordinatorStart.getAsLong()));
+
+        return timeline
+                .add("total", allNodesActive - start)
+                .build();
+    }
+
+    private static void addSlowest(StartupTimeline.Builder timeline, String phase, List<NodePhases> nodes, Function<NodePhases, OptionalLong> duration)
+    {
+        nodes.stream()
+                .map(duration)
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .max()
+                .ifPresent(slowest -> timeline.add(phase, slowest));
+    }
+
+    private static List<ContainerStatus> containers(SliderStatus status, String component)
+    {
+        return status.getComponent(component)
+                .map(SliderStatus.ComponentStatus::getLiveContainerStatuses)
+                .orElse(ImmutableList.of());
+    }
+
+    private static long max(List<ContainerStatus> containers, ToLongFunction<ContainerStatus> function)
+    {
+        return containers.stream().mapToLong(function).max().getAsLong();
+    }
+
+    private static void poll(String name, Callable<Boolean> condition)
+    {
+        waitFor(name, TIMEOUT).withFixedInterval(POLL_INTERVAL).withJitter(0).until(condition);
+    }
+
+    private static boolean isPrestoAccessible(PooledQueryExecutor queryExecutor)
+    {
+        try {
+            queryExecutor.streamQuery("SELECT 1", row -> {});
+            return true;
+        }
+        catch (QueryExecutionException e) {
+            return false;
+        }
+    }
+
+    private static long activeNodes(PooledQueryExecutor queryExecutor)
+    {
+        long[] count = new long[1];
+        queryExecutor.streamQuery("SELECT count(*) FROM system.runtime.nodes WHERE state = 'active'", row -> count[0] = row.getLong(1));
+        return count[0];
+    }
+
+    private static class NodePhases
+    {
+        private final String component;
+        private final OptionalLong containerStart;
+        private final NodeStartupMarkers markers;
+
+        private NodePhases(String component, ContainerStatus container, NodeStartupMarkers markers, long amClockOffset)
+        {
+            this.component = component;
+            this.containerStart = container.getStartTime() == 0 ? OptionalLong.empty() : OptionalLong.of(container.getStartTime() - amClockOffset);
+            this.markers = requireNonNull(markers, "markers is null");
+        }
+
+        private OptionalLong phase(String phase)
+        {
+            return markers.getPhase(component, phase);
+        }
+
+        private OptionalLong between(OptionalLong from, OptionalLong to)
+        {
+            if (!from.isPresent() || !to.isPresent()) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(to.getAsLong() - from.getAsLong());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.startup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.workload.LatencyHistogram;
+import com.teradata.presto.yarn.test.workload.LatencyHistogram.Snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Distribution of startup phase durations over a number of {@link StartupBenchmark} runs.
+ */
+public class StartupReport
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final List<StartupTimeline> runs;
+    private final Map<String, Snapshot> phases;
+
+    public StartupReport(List<StartupTimeline> runs)
+    {
+        this.runs = ImmutableList.copyOf(runs);
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        for (StartupTimeline run : runs) {
+            run.getPhases().forEach((phase, duration) -> histograms.computeIfAbsent(phase, name -> new LatencyHistogram()).record(duration));
+        }
+        Map<String, Snapshot> phases = new LinkedHashMap<>();
+        histograms.forEach((phase, histogram) -> phases.put(phase, histogram.snapshot()));
+        this.phases = phases;
+    }
+
+    public List<StartupTimeline> getRuns()
+    {
+        return runs;
+    }
+
+    public Map<String, Snapshot> getPhases()
+    {
+        return phases;
+    }
+
+    public String toJson()
+    {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        report.put("runs", runs.size());
+        ObjectNode phasesNode = report.putObject("phasesMillis");
+        phases.forEach((phase, snapshot) -> phasesNode.putObject(phase)
+                .put("min", snapshot.getMin())
+                .put("p50", snapshot.getPercentile(0.5))
+                .put("p90", snapshot.getPercentile(0.9))
+                .put("max", snapshot.getMax())
+                .put("mean", snapshot.getMean()));
+        ArrayNode runsNode = report.putArray("timelines");
+        runs.forEach(run -> {
+            ObjectNode runNode = runsNode.addObject();
+            run.getPhases().forEach(runNode::put);
+        });
+        try {
+            return OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeTo(Path path)
+    {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, toJson().getBytes(UTF_8));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder summary = new StringBuilder(String.format("%d runs", runs.size()));
+        phases.forEach((phase, snapshot) -> summary.append(String.format("%n  %-25s p50: %7d ms, p90: %7d ms, max: %7d ms",
+                phase, snapshot.getPercentile(0.5), snapshot.getPercentile(0.9), snapshot.getMax())));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.startup;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.Math.max;
+
+/**
+ * Duration of each startup phase of a single cluster start, in milliseconds, in the order of phases.
+ */
+public class StartupTimeline
+{
+    private final Map<String, Long> phases;
+
+    private StartupTimeline(Map<String, Long> phases)
+    {
+        this.phases = ImmutableMap.copyOf(phases);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public Map<String, Long> getPhases()
+    {
+        return phases;
+    }
+
+    @Override
+    public String toString()
+    {
+        return phases.toString();
+    }
+
+    public static class Builder
+    {
+        private final Map<String, Long> phases = new LinkedHashMap<>();
+
+        public Builder add(String phase, long durationInMilliseconds)
+        {
+            // small negative values come from clock offset estimation errors
+            phases.put(phase, max(0, durationInMilliseconds));
+            return this;
+        }
+
+        public StartupTimeline build()
+        {
+            return new StartupTimeline(phases);
+        }
+    }
+}
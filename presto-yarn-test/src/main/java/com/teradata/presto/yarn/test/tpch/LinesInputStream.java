@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streams lines as they are generated, so that table parts are not kept in memory.
+ */
+class LinesInputStream
+        extends InputStream
+{
+    private final Iterator<String> lines;
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    LinesInputStream(Iterator<String> lines)
+    {
+        this.lines = requireNonNull(lines, "lines is null");
+    }
+
+    @Override
+    public int read()
+    {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length)
+    {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int read = Math.min(length, buffer.length - position);
+        System.arraycopy(buffer, position, target, offset, read);
+        position += read;
+        return read;
+    }
+
+    private boolean fill()
+    {
+        while (position == buffer.length) {
+            if (!lines.hasNext()) {
+                return false;
+            }
+            buffer = (lines.next() + "\n").getBytes(UTF_8);
+            position = 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.workload.LatencyHistogram;
+import com.teradata.presto.yarn.test.workload.LatencyHistogram.Snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Scan throughput of TPC-H lineitem table per storage format, normalized by the number of workers.
+ */
+public class ScanReport
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final double scaleFactor;
+    private final int workers;
+    private final Map<TpchFormat, Scans> scans = new LinkedHashMap<>();
+
+    public ScanReport(double scaleFactor, int workers)
+    {
+        checkArgument(workers > 0, "workers must be positive");
+        this.scaleFactor = scaleFactor;
+        this.workers = workers;
+    }
+
+    public ScanReport record(TpchFormat format, long rows, List<Long> scanMillis)
+    {
+        checkArgument(!scanMillis.isEmpty(), "no scans");
+        scans.put(format, new Scans(rows, scanMillis));
+        return this;
+    }
+
+    /**
+     * Rows scanned per second by each worker, based on the median scan time.
+     */
+    public double getRowsPerSecondPerWorker(TpchFormat format)
+    {
+        Scans formatScans = scans.get(format);
+        checkArgument(formatScans != null, "format %s was not scanned", format);
+        long median = formatScans.snapshot.getPercentile(0.5);
+        return formatScans.rows * 1000.0 / Math.max(median, 1) / workers;
+    }
+
+    public String toJson()
+    {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        report.put("scaleFactor", scaleFactor);
+        report.put("workers", workers);
+        ObjectNode formats = report.putObject("formats");
+        scans.forEach((format, formatScans) -> formats.putObject(format.name().toLowerCase())
+                .put("rows", formatScans.rows)
+                .put("runs", formatScans.millis.size())
+                .put("minMillis", formatScans.snapshot.getMin())
+                .put("p50Millis", formatScans.snapshot.getPercentile(0.5))
+                .put("maxMillis", formatScans.snapshot.getMax())
+                .put("rowsPerSecondPerWorker", getRowsPerSecondPerWorker(format)));
+        try {
+            return OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeTo(Path path)
+    {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, toJson().getBytes(UTF_8));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("scale factor " + scaleFactor + ", " + workers + " workers");
+        scans.keySet().forEach(format -> builder.append(String.format(", %s: %.0f rows/s/worker", format, getRowsPerSecondPerWorker(format))));
+        return builder.toString();
+    }
+
+    private static class Scans
+    {
+        private final long rows;
+        private final List<Long> millis;
+        private final Snapshot snapshot;
+
+        private Scans(long rows, List<Long> millis)
+        {
+            this.rows = rows;
+            this.millis = ImmutableList.copyOf(millis);
+            LatencyHistogram histogram = new LatencyHistogram();
+            millis.forEach(histogram::record);
+            this.snapshot = histogram.snapshot();
+        }
+    }
+}
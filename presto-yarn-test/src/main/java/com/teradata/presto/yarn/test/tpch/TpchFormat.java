@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+/**
+ * Storage formats of the generated TPC-H tables.
+ */
+public enum TpchFormat
+{
+    TEXT("ROW FORMAT DELIMITED FIELDS TERMINATED BY '|' STORED AS TEXTFILE"),
+    ORC("STORED AS ORC");
+
+    private final String storageClause;
+
+    TpchFormat(String storageClause)
+    {
+        this.storageClause = storageClause;
+    }
+
+    String getStorageClause()
+    {
+        return storageClause;
+    }
+
+    public static TpchFormat fromString(String format)
+    {
+        return valueOf(format.trim().toUpperCase());
+    }
+}
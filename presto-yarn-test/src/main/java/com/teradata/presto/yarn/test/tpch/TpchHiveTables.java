@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.teradata.tempto.hadoop.hdfs.HdfsClient;
+import com.teradata.tempto.query.QueryExecutor;
+import io.airlift.tpch.TpchEntity;
+import io.airlift.tpch.TpchTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterators.transform;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Generates TPC-H tables at the given scale factor into HDFS and registers them in the Hive metastore.
+ * Text files are written by parallel writers, each generating one part of a table; ORC tables are
+ * converted from the text ones by Hive.
+ * <p>
+ * Digest of the table definition, scale factor and number of parts is stored as an extended attribute
+ * of the table directory. Tables with matching digest are reused, so data is generated only once per
+ * HDFS cluster.
+ */
+public class TpchHiveTables
+{
+    private static final Logger log = LoggerFactory.getLogger(TpchHiveTables.class);
+
+    static final String DIGEST_ATTRIBUTE = "user.presto-yarn.digest";
+    // bump when the generated data changes
+    private static final int DATA_VERSION = 1;
+
+    private final HdfsClient hdfsClient;
+    private final QueryExecutor hiveQueryExecutor;
+    private final String hdfsDirectory;
+    private final int writers;
+    private final TableGenerator generator;
+
+    public TpchHiveTables(HdfsClient hdfsClient, QueryExecutor hiveQueryExecutor, String hdfsDirectory, int writers)
+    {
+        this(hdfsClient, hiveQueryExecutor, hdfsDirectory, writers, TpchHiveTables::generate);
+    }
+
+    TpchHiveTables(HdfsClient hdfsClient, QueryExecutor hiveQueryExecutor, String hdfsDirectory, int writers, TableGenerator generator)
+    {
+        checkArgument(writers > 0, "writers must be positive");
+        this.hdfsClient = requireNonNull(hdfsClient, "hdfsClient is null");
+        this.hiveQueryExecutor = requireNonNull(hiveQueryExecutor, "hiveQueryExecutor is null");
+        this.hdfsDirectory = requireNonNull(hdfsDirectory, "hdfsDirectory is null");
+        this.writers = writers;
+        this.generator = requireNonNull(generator, "generator is null");
+    }
+
+    /**
+     * Makes sure all TPC-H tables of the given scale factor and format exist. Returns name of the Hive schema.
+     */
+    public String create(double scaleFactor, TpchFormat format)
+    {
+        checkArgument(scaleFactor > 0, "scaleFactor must be positive");
+        List<String> textDigests = createTextTables(scaleFactor);
+        if (format == TpchFormat.TEXT) {
+            return schema(scaleFactor, TpchFormat.TEXT);
+        }
+
+        String schema = schema(scaleFactor, format);
+        hiveQueryExecutor.executeQuery("CREATE DATABASE IF NOT EXISTS " + schema);
+        TpchTableDefinition[] tables = TpchTableDefinition.values();
+        for (int i = 0; i < tables.length; i++) {
+            TpchTableDefinition table = tables[i];
+            String directory = tableDirectory(scaleFactor, format, table);
+            String digest = digest(textDigests.get(i), format.name());
+            if (isUpToDate(directory, digest)) {
+                registerTable(schema, table, format, directory, false);
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            hdfsClient.delete(directory);
+            hdfsClient.createDirectory(directory);
+            registerTable(schema, table, format, directory, true);
+            hiveQueryExecutor.executeQuery(format("INSERT OVERWRITE TABLE %s.%s SELECT * FROM %s.%s",
+                    schema, table.getName(), schema(scaleFactor, TpchFormat.TEXT), table.getName()));
+            hdfsClient.setXAttr(directory, DIGEST_ATTRIBUTE, digest);
+            log.info("Converted {}.{} in {} ms", schema, table.getName(), System.currentTimeMillis() - start);
+        }
+        return schema;
+    }
+
+    private List<String> createTextTables(double scaleFactor)
+    {
+        String schema = schema(scaleFactor, TpchFormat.TEXT);
+        hiveQueryExecutor.executeQuery("CREATE DATABASE IF NOT EXISTS " + schema);
+
+        ImmutableList.Builder<String> digests = ImmutableList.builder();
+        ImmutableList.Builder<TpchTableDefinition> changedTables = ImmutableList.builder();
+        ImmutableList.Builder<Runnable> writes = ImmutableList.builder();
+        for (TpchTableDefinition table : TpchTableDefinition.values()) {
+            String directory = tableDirectory(scaleFactor, TpchFormat.TEXT, table);
+            int parts = table.isScalable() ? writers : 1;
+            String digest = digest(table.name(), table.getColumnsDefinition(), String.valueOf(scaleFactor), String.valueOf(parts), String.valueOf(DATA_VERSION));
+            digests.add(digest);
+            if (isUpToDate(directory, digest)) {
+                log.info("Reusing {}.{}", schema, table.getName());
+                continue;
+            }
+            hdfsClient.delete(directory);
+            hdfsClient.createDirectory(directory);
+            changedTables.add(table);
+            for (int part = 1; part <= parts; part++) {
+                int partNumber = part;
+                writes.add(() -> writePart(scaleFactor, table, directory, partNumber, parts));
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        runInParallel(writes.build());
+        log.info("Generated TPC-H scale factor {} text files in {} ms", scaleFactor, System.currentTimeMillis() - start);
+
+        List<TpchTableDefinition> changed = changedTables.build();
+        List<String> tableDigests = digests.build();
+        TpchTableDefinition[] tables = TpchTableDefinition.values();
+        for (int i = 0; i < tables.length; i++) {
+            String directory = tableDirectory(scaleFactor, TpchFormat.TEXT, tables[i]);
+            registerTable(schema, tables[i], TpchFormat.TEXT, directory, changed.contains(tables[i]));
+            if (changed.contains(tables[i])) {
+                hdfsClient.setXAttr(directory, DIGEST_ATTRIBUTE, tableDigests.get(i));
+            }
+        }
+        return tableDigests;
+    }
+
+    private void writePart(double scaleFactor, TpchTableDefinition table, String directory, int part, int parts)
+    {
+        String path = format("%s/part-%05d", directory, part);
+        try (InputStream lines = new LinesInputStream(generator.generate(table, scaleFactor, part, parts))) {
+            hdfsClient.saveFile(path, lines);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Written {}", path);
+    }
+
+    private void runInParallel(List<Runnable> tasks)
+    {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = tasks.stream()
+                    .map(executor::submit)
+                    .collect(toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void registerTable(String schema, TpchTableDefinition table, TpchFormat format, String directory, boolean replace)
+    {
+        if (replace) {
+            hiveQueryExecutor.executeQuery(format("DROP TABLE IF EXISTS %s.%s", schema, table.getName()));
+        }
+        // metastore may have been reset since the data was generated
+        hiveQueryExecutor.executeQuery(format("CREATE EXTERNAL TABLE IF NOT EXISTS %s.%s (%s) %s LOCATION '%s'",
+                schema, table.getName(), table.getColumnsDefinition(), format.getStorageClause(), directory));
+    }
+
+    private boolean isUpToDate(String directory, String digest)
+    {
+        return hdfsClient.exist(directory) && hdfsClient.getXAttr(directory, DIGEST_ATTRIBUTE).equals(Optional.of(digest));
+    }
+
+    private String tableDirectory(double scaleFactor, TpchFormat format, TpchTableDefinition table)
+    {
+        return format("%s/tpch/%s/%s", hdfsDirectory, schema(scaleFactor, format), table.getName());
+    }
+
+    /**
+     * Returns name of the Hive schema with the tables of the given scale factor and format, e.g. {@code tpch_sf0_1_orc}.
+     */
+    public static String schema(double scaleFactor, TpchFormat format)
+    {
+        String scale = scaleFactor == Math.rint(scaleFactor) ? String.valueOf((long) scaleFactor) : String.valueOf(scaleFactor).replace('.', '_');
+        return "tpch_sf" + scale + "_" + format.name().toLowerCase();
+    }
+
+    private static String digest(String... values)
+    {
+        return Hashing.md5().hashString(String.join("|", values), UTF_8).toString();
+    }
+
+    private static Iterator<String> generate(TpchTableDefinition table, double scaleFactor, int part, int parts)
+    {
+        TpchTable<?> tpchTable = TpchTable.getTable(table.getName());
+        Iterator<? extends TpchEntity> entities = tpchTable.createGenerator(scaleFactor, part, parts).iterator();
+        return transform(entities, TpchEntity::toLine);
+    }
+
+    interface TableGenerator
+    {
+        /**
+         * Returns lines of the given part (numbered from 1) of the table.
+         */
+        Iterator<String> generate(TpchTableDefinition table, double scaleFactor, int part, int parts);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Hive definitions of TPC-H tables. Column names and order are the same as in the Presto tpch connector,
+ * so queries of {@link com.teradata.presto.yarn.test.workload.QueryMix} run against both.
+ */
+public enum TpchTableDefinition
+{
+    NATION(false, "nationkey BIGINT", "name STRING", "regionkey BIGINT", "comment STRING"),
+    REGION(false, "regionkey BIGINT", "name STRING", "comment STRING"),
+    PART(true, "partkey BIGINT", "name STRING", "mfgr STRING", "brand STRING", "type STRING", "size INT", "container STRING",
+            "retailprice DOUBLE", "comment STRING"),
+    SUPPLIER(true, "suppkey BIGINT", "name STRING", "address STRING", "nationkey BIGINT", "phone STRING", "acctbal DOUBLE",
+            "comment STRING"),
+    PARTSUPP(true, "partkey BIGINT", "suppkey BIGINT", "availqty INT", "supplycost DOUBLE", "comment STRING"),
+    CUSTOMER(true, "custkey BIGINT", "name STRING", "address STRING", "nationkey BIGINT", "phone STRING", "acctbal DOUBLE",
+            "mktsegment STRING", "comment STRING"),
+    ORDERS(true, "orderkey BIGINT", "custkey BIGINT", "orderstatus STRING", "totalprice DOUBLE", "orderdate DATE",
+            "orderpriority STRING", "clerk STRING", "shippriority INT", "comment STRING"),
+    LINEITEM(true, "orderkey BIGINT", "partkey BIGINT", "suppkey BIGINT", "linenumber INT", "quantity DOUBLE",
+            "extendedprice DOUBLE", "discount DOUBLE", "tax DOUBLE", "returnflag STRING", "linestatus STRING", "shipdate DATE",
+            "commitdate DATE", "receiptdate DATE", "shipinstruct STRING", "shipmode STRING", "comment STRING");
+
+    // nation and region have fixed size and are not split
+    private final boolean scalable;
+    private final List<String> columns;
+
+    TpchTableDefinition(boolean scalable, String... columns)
+    {
+        this.scalable = scalable;
+        this.columns = ImmutableList.copyOf(columns);
+    }
+
+    public String getName()
+    {
+        return name().toLowerCase();
+    }
+
+    public boolean isScalable()
+    {
+        return scalable;
+    }
+
+    public String getColumnsDefinition()
+    {
+        return Joiner.on(", ").join(columns);
+    }
+}
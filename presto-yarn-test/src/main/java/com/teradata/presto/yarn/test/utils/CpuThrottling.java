@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * CFS throttling counters of CPU cgroups ({@code cpu.stat}): number of enforcement periods, number of
+ * periods in which the cgroup was throttled and the total time it was throttled.
+ */
+public class CpuThrottling
+{
+    public static final CpuThrottling NONE = new CpuThrottling(0, 0, 0);
+
+    private final long periods;
+    private final long throttledPeriods;
+    private final long throttledNanos;
+
+    public CpuThrottling(long periods, long throttledPeriods, long throttledNanos)
+    {
+        checkArgument(periods >= 0 && throttledPeriods >= 0 && throttledNanos >= 0, "counters must not be negative");
+        this.periods = periods;
+        this.throttledPeriods = throttledPeriods;
+        this.throttledNanos = throttledNanos;
+    }
+
+    /**
+     * Sums counters of all {@code cpu.stat} files concatenated in the given output.
+     */
+    public static CpuThrottling parse(String cpuStats)
+    {
+        long periods = 0;
+        long throttledPeriods = 0;
+        long throttledNanos = 0;
+        for (String line : cpuStats.split("\n")) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length != 2) {
+                continue;
+            }
+            switch (fields[0]) {
+                case "nr_periods":
+                    periods += Long.parseLong(fields[1]);
+                    break;
+                case "nr_throttled":
+                    throttledPeriods += Long.parseLong(fields[1]);
+                    break;
+                case "throttled_time":
+                    throttledNanos += Long.parseLong(fields[1]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new CpuThrottling(periods, throttledPeriods, throttledNanos);
+    }
+
+    public CpuThrottling plus(CpuThrottling other)
+    {
+        return new CpuThrottling(periods + other.periods, throttledPeriods + other.throttledPeriods, throttledNanos + other.throttledNanos);
+    }
+
+    /**
+     * Counters accumulated since the given (earlier) snapshot. Counters of containers which
+     * were restarted in between are reset, so the difference is never negative.
+     */
+    public CpuThrottling since(CpuThrottling earlier)
+    {
+        return new CpuThrottling(
+                Math.max(0, periods - earlier.periods),
+                Math.max(0, throttledPeriods - earlier.throttledPeriods),
+                Math.max(0, throttledNanos - earlier.throttledNanos));
+    }
+
+    public long getPeriods()
+    {
+        return periods;
+    }
+
+    public long getThrottledPeriods()
+    {
+        return throttledPeriods;
+    }
+
+    public long getThrottledNanos()
+    {
+        return throttledNanos;
+    }
+
+    /**
+     * Fraction of enforcement periods in which the cgroup was throttled.
+     */
+    public double getThrottledRatio()
+    {
+        return periods == 0 ? 0 : (double) throttledPeriods / periods;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("periods: %d, throttled: %d (%.1f%%), throttled time: %d ms",
+                periods, throttledPeriods, getThrottledRatio() * 100, throttledNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.tempto.ssh.SshClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Uploads files over ssh to the home directory of the remote user, skipping the ones which did not
+ * change since the last upload. Digests of uploaded files are recorded in a remote manifest directory,
+ * which can also keep digests of other artifacts (e.g. installed packages), see {@link #record(String, String)}.
+ * <p>
+ * Large files are transferred in chunks which are joined remotely, so an interrupted upload is resumed
+ * from the first chunk which was not completely transferred.
+ */
+public class DigestUploader
+{
+    private static final Logger log = LoggerFactory.getLogger(DigestUploader.class);
+
+    public static final String MANIFEST_DIR = ".presto-yarn-manifest";
+    public static final long DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final SshClient sshClient;
+    private final long chunkSize;
+
+    public DigestUploader(SshClient sshClient)
+    {
+        this(sshClient, DEFAULT_CHUNK_SIZE);
+    }
+
+    public DigestUploader(SshClient sshClient, long chunkSize)
+    {
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.sshClient = requireNonNull(sshClient, "sshClient is null");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Uploads the file unless the remote copy has the same digest. Returns the digest of the file.
+     */
+    public String upload(Path file)
+    {
+        String name = file.getFileName().toString();
+        String digest = md5sum(file);
+        long size = size(file);
+        if (isUpToDate(name, digest, size)) {
+            log.info("Skipping upload of {}, it did not change", name);
+            return digest;
+        }
+
+        long start = System.currentTimeMillis();
+        if (size <= chunkSize) {
+            sshClient.upload(file, ".");
+        }
+        else {
+            uploadInChunks(file, name, size);
+        }
+        String remoteDigest = sshClient.command("md5sum " + name).trim().split("\\s+")[0];
+        checkState(remoteDigest.equals(digest), "digest of uploaded %s is %s, expected %s", name, remoteDigest, digest);
+        record(name, digest);
+        log.info("Uploaded {} ({} bytes) in {} ms", name, size, System.currentTimeMillis() - start);
+        return digest;
+    }
+
+    /**
+     * Returns the digest recorded remotely for the given key.
+     */
+    public Optional<String> getRecorded(String key)
+    {
+        String recorded = sshClient.command("cat " + manifest(key) + " 2>/dev/null; true").trim();
+        return recorded.isEmpty() ? Optional.empty() : Optional.of(recorded);
+    }
+
+    public void record(String key, String digest)
+    {
+        sshClient.command("mkdir -p " + MANIFEST_DIR + " && echo " + digest + " > " + manifest(key));
+    }
+
+    public void forget(String key)
+    {
+        sshClient.command("rm -f " + manifest(key));
+    }
+
+    private boolean isUpToDate(String name, String digest, long size)
+    {
+        if (!getRecorded(name).equals(Optional.of(digest))) {
+            return false;
+        }
+        // the file might have been changed or removed without updating the manifest
+        String remoteSize = sshClient.command("stat -c %s " + name + " 2>/dev/null; true").trim();
+        return remoteSize.equals(String.valueOf(size));
+    }
+
+    private void uploadInChunks(Path file, String name, long size)
+    {
+        String partsDirectory = name + ".parts";
+        Map<String, String> uploadedParts = getUploadedParts(partsDirectory);
+        ImmutableList.Builder<String> parts = ImmutableList.builder();
+        Path localDirectory = createTempDirectory();
+        try {
+            for (long offset = 0, index = 0; offset < size; offset += chunkSize, index++) {
+                String part = String.format("part-%05d", index);
+                long length = min(chunkSize, size - offset);
+                parts.add(part);
+                if (md5sum(file, offset, length).equals(uploadedParts.get(part))) {
+                    log.debug("Skipping already uploaded {} of {}", part, name);
+                    continue;
+                }
+                Path chunk = localDirectory.resolve(part);
+                try {
+                    copyRange(file, offset, length, chunk);
+                    sshClient.upload(chunk, partsDirectory + "/");
+                }
+                finally {
+                    Files.deleteIfExists(chunk);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            localDirectory.toFile().delete();
+        }
+
+        List<String> partPaths = parts.build().stream()
+                .map(part -> partsDirectory + "/" + part)
+                .collect(toList());
+        sshClient.command("cat " + String.join(" ", partPaths) + " > " + name + ".tmp && mv " + name + ".tmp " + name + " && rm -rf " + partsDirectory);
+    }
+
+    private Map<String, String> getUploadedParts(String partsDirectory)
+    {
+        String output = sshClient.command("mkdir -p " + partsDirectory + " && cd " + partsDirectory + " && md5sum part-* 2>/dev/null; true");
+        ImmutableMap.Builder<String, String> parts = ImmutableMap.builder();
+        for (String line : output.split("\n")) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 2) {
+                parts.put(fields[1], fields[0]);
+            }
+        }
+        return parts.build();
+    }
+
+    private static String manifest(String key)
+    {
+        return MANIFEST_DIR + "/" + key + ".md5";
+    }
+
+    private static void copyRange(Path file, long offset, long length, Path target)
+            throws IOException
+    {
+        byte[] buffer = new byte[64 * 1024];
+        try (RandomAccessFile input = new RandomAccessFile(file.toFile(), "r");
+                OutputStream output = Files.newOutputStream(target)) {
+            input.seek(offset);
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = input.read(buffer, 0, (int) min(buffer.length, remaining))) > 0) {
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static long size(Path file)
+    {
+        try {
+            return Files.size(file);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path createTempDirectory()
+    {
+        try {
+            return Files.createTempDirectory("upload");
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
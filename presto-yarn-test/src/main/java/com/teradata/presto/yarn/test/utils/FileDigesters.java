@@ -3,11 +3,14 @@ package com.teradata.presto.yarn.test.utils;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import static java.lang.Math.min;
+
 /**
  * Utility class to help digest (calculate md5sum etc.) files data.
  */
@@ -29,6 +32,33 @@ public class FileDigesters
         return String.format("%032x", new BigInteger(1, messageDigest.digest()));
     }
 
+    /**
+     * Calculates md5sum of the given range of the file.
+     */
+    public static String md5sum(Path path, long offset, long length)
+    {
+        MessageDigest messageDigest = getMd5();
+        byte[] buffer = new byte[4096];
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            file.seek(offset);
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = file.read(buffer, 0, (int) min(buffer.length, remaining))) > 0) {
+                messageDigest.update(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return String.format("%032x", new BigInteger(1, messageDigest.digest()));
+    }
+
+    public static String md5sum(byte[] content)
+    {
+        return String.format("%032x", new BigInteger(1, getMd5().digest(content)));
+    }
+
     private static MessageDigest getMd5()
     {
         try {
@@ -0,0 +1,310 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps open JDBC connections per connection url, so that consecutive queries do not pay for
+ * connection setup. Connections which were idle for a while are validated with a query before
+ * being handed out again, connections which failed are discarded.
+ */
+public class JdbcConnectionPool
+        implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_URL = 8;
+    public static final long DEFAULT_IDLE_TIMEOUT = MINUTES.toMillis(5);
+    public static final long DEFAULT_VALIDATION_INTERVAL = SECONDS.toMillis(30);
+    private static final long BORROW_TIMEOUT = MINUTES.toMillis(5);
+    private static final String VALIDATION_QUERY = "SELECT 1";
+
+    private final Function<String, Connection> connectionFactory;
+    private final int maxConnectionsPerUrl;
+    private final long idleTimeoutInMilliseconds;
+    private final long validationIntervalInMilliseconds;
+    private final Map<String, UrlConnections> urlConnections = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public JdbcConnectionPool(Function<String, Connection> connectionFactory)
+    {
+        this(connectionFactory, DEFAULT_MAX_CONNECTIONS_PER_URL, DEFAULT_IDLE_TIMEOUT, DEFAULT_VALIDATION_INTERVAL);
+    }
+
+    public JdbcConnectionPool(Function<String, Connection> connectionFactory, int maxConnectionsPerUrl, long idleTimeoutInMilliseconds, long validationIntervalInMilliseconds)
+    {
+        checkArgument(maxConnectionsPerUrl > 0, "maxConnectionsPerUrl must be positive");
+        checkArgument(idleTimeoutInMilliseconds >= 0, "idleTimeoutInMilliseconds is negative");
+        checkArgument(validationIntervalInMilliseconds >= 0, "validationIntervalInMilliseconds is negative");
+        this.connectionFactory = requireNonNull(connectionFactory, "connectionFactory is null");
+        this.maxConnectionsPerUrl = maxConnectionsPerUrl;
+        this.idleTimeoutInMilliseconds = idleTimeoutInMilliseconds;
+        this.validationIntervalInMilliseconds = validationIntervalInMilliseconds;
+    }
+
+    /**
+     * Runs the function with a connection to the given url. The connection is returned to the pool
+     * when the function completes, or closed when the function fails.
+     */
+    public <T> T withConnection(String url, Function<Connection, T> function)
+    {
+        UrlConnections connections = urlConnections.computeIfAbsent(url, UrlConnections::new);
+        PooledConnection connection = connections.borrow();
+        boolean reusable = false;
+        try {
+            T result = function.apply(connection.connection);
+            reusable = true;
+            return result;
+        }
+        finally {
+            connections.release(connection, reusable);
+        }
+    }
+
+    /**
+     * Borrows a connection to the given url, which is returned to the pool when the caller closes it.
+     * The connection is discarded instead when any of its methods failed.
+     */
+    public Connection getConnection(String url)
+    {
+        UrlConnections connections = urlConnections.computeIfAbsent(url, UrlConnections::new);
+        PooledConnection connection = connections.borrow();
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean reusable = new AtomicBoolean(true);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                connections.release(connection, reusable.get());
+                            }
+                            return null;
+                        case "isClosed":
+                            if (released.get()) {
+                                return true;
+                            }
+                            break;
+                        default:
+                            checkState(!released.get(), "connection is closed");
+                    }
+                    try {
+                        return method.invoke(connection.connection, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        reusable.set(false);
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Closes connections to the given url. Connections which are in use are closed once released.
+     */
+    public void invalidate(String url)
+    {
+        UrlConnections connections = urlConnections.remove(url);
+        if (connections != null) {
+            log.info("Closing connections to {}", url);
+            connections.invalidate();
+        }
+    }
+
+    public void invalidateAll()
+    {
+        urlConnections.keySet().forEach(this::invalidate);
+    }
+
+    public int getIdleConnectionsCount(String url)
+    {
+        UrlConnections connections = urlConnections.get(url);
+        return connections == null ? 0 : connections.idleCount();
+    }
+
+    /**
+     * Closes all idle connections which were not used for longer than idle timeout.
+     */
+    public void evictIdleConnections()
+    {
+        urlConnections.values().forEach(UrlConnections::evictIdle);
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        invalidateAll();
+    }
+
+    private static void closeQuietly(PooledConnection connection)
+    {
+        try {
+            connection.connection.close();
+        }
+        catch (SQLException | RuntimeException e) {
+            log.debug("Unable to close connection to {}", connection.url, e);
+        }
+    }
+
+    private class UrlConnections
+    {
+        private final String url;
+        private final Semaphore permits = new Semaphore(maxConnectionsPerUrl, true);
+        private final Deque<PooledConnection> idle = new ArrayDeque<>();
+        private boolean invalidated;
+
+        private UrlConnections(String url)
+        {
+            this.url = url;
+        }
+
+        private PooledConnection borrow()
+        {
+            checkState(!closed, "connection pool is closed");
+            acquirePermit();
+            try {
+                evictIdle();
+                PooledConnection connection;
+                while ((connection = pollIdle()) != null) {
+                    if (isValid(connection)) {
+                        return connection;
+                    }
+                    closeQuietly(connection);
+                }
+                log.debug("Opening new connection to {}", url);
+                return new PooledConnection(url, connectionFactory.apply(url));
+            }
+            catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void release(PooledConnection connection, boolean reusable)
+        {
+            try {
+                synchronized (this) {
+                    if (reusable && !invalidated && !closed) {
+                        connection.lastUsed = System.currentTimeMillis();
+                        idle.push(connection);
+                        return;
+                    }
+                }
+                closeQuietly(connection);
+            }
+            finally {
+                permits.release();
+            }
+        }
+
+        private void acquirePermit()
+        {
+            try {
+                checkState(permits.tryAcquire(BORROW_TIMEOUT, MILLISECONDS),
+                        "Unable to get connection to %s, all %s connections are in use", url, maxConnectionsPerUrl);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        private synchronized PooledConnection pollIdle()
+        {
+            return idle.poll();
+        }
+
+        private synchronized int idleCount()
+        {
+            return idle.size();
+        }
+
+        private boolean isValid(PooledConnection connection)
+        {
+            if (System.currentTimeMillis() - connection.lastUsed < validationIntervalInMilliseconds) {
+                return true;
+            }
+            try (Statement statement = connection.connection.createStatement()) {
+                statement.executeQuery(VALIDATION_QUERY).close();
+                return true;
+            }
+            catch (SQLException | RuntimeException e) {
+                log.info("Discarding broken connection to {}", url, e);
+                return false;
+            }
+        }
+
+        private void evictIdle()
+        {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                Iterator<PooledConnection> iterator = idle.iterator();
+                while (iterator.hasNext()) {
+                    PooledConnection connection = iterator.next();
+                    if (now - connection.lastUsed > idleTimeoutInMilliseconds) {
+                        iterator.remove();
+                        closeQuietly(connection);
+                    }
+                }
+            }
+        }
+
+        private void invalidate()
+        {
+            synchronized (this) {
+                invalidated = true;
+                idle.forEach(JdbcConnectionPool::closeQuietly);
+                idle.clear();
+            }
+        }
+    }
+
+    private static class PooledConnection
+    {
+        private final String url;
+        private final Connection connection;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(String url, Connection connection)
+        {
+            this.url = url;
+            this.connection = requireNonNull(connection, "connection is null");
+        }
+    }
+}
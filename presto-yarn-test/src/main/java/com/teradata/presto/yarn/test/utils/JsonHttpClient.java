@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Minimal JSON over HTTP client for YARN and Slider REST endpoints. Response bodies are always
+ * read till the end, so that the JDK keeps the underlying connections alive and reuses them
+ * for subsequent requests to the same host.
+ */
+public class JsonHttpClient
+{
+    private static final int CONNECT_TIMEOUT = (int) SECONDS.toMillis(10);
+    private static final int READ_TIMEOUT = (int) SECONDS.toMillis(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public JsonNode get(URI uri)
+    {
+        return execute(uri, "GET", null);
+    }
+
+    public JsonNode put(URI uri, Object body)
+    {
+        return execute(uri, "PUT", body);
+    }
+
+    private JsonNode execute(URI uri, String method, Object body)
+    {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(body));
+                }
+            }
+
+            int statusCode = connection.getResponseCode();
+            byte[] response = readFully(statusCode < 400 ? connection.getInputStream() : connection.getErrorStream());
+            if (statusCode >= 400) {
+                throw new HttpStatusException(method, uri, statusCode, new String(response, "UTF-8"));
+            }
+            return response.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(response);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(method + " " + uri + " failed", e);
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream)
+            throws IOException
+    {
+        if (inputStream == null) {
+            return new byte[0];
+        }
+        try (InputStream closingInputStream = inputStream) {
+            return ByteStreams.toByteArray(closingInputStream);
+        }
+    }
+
+    public static class HttpStatusException
+            extends RuntimeException
+    {
+        private final int statusCode;
+
+        public HttpStatusException(String method, URI uri, int statusCode, String response)
+        {
+            super(method + " " + uri + " failed with status " + statusCode + ": " + response);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.min;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs the same operation for a number of hosts, either one host after another or concurrently
+ * with bounded parallelism. Results are always returned in the order of given hosts and failures
+ * of all the hosts are reported together with {@link MultiHostExecutionException}.
+ */
+public class MultiHostExecutor
+{
+    public static final long DEFAULT_HOST_TIMEOUT = MINUTES.toMillis(10);
+    private static final long START_POLL_INTERVAL = 100;
+
+    private final int parallelism;
+    private final long hostTimeoutInMilliseconds;
+
+    public static MultiHostExecutor serial()
+    {
+        return new MultiHostExecutor(1, DEFAULT_HOST_TIMEOUT);
+    }
+
+    public static MultiHostExecutor parallel(int parallelism)
+    {
+        return new MultiHostExecutor(parallelism, DEFAULT_HOST_TIMEOUT);
+    }
+
+    public MultiHostExecutor(int parallelism, long hostTimeoutInMilliseconds)
+    {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        checkArgument(hostTimeoutInMilliseconds > 0, "hostTimeoutInMilliseconds must be positive");
+        this.parallelism = parallelism;
+        this.hostTimeoutInMilliseconds = hostTimeoutInMilliseconds;
+    }
+
+    public boolean isSerial()
+    {
+        return parallelism == 1;
+    }
+
+    public <T> List<T> execute(Collection<String> hosts, Function<String, T> function)
+    {
+        if (isSerial() || hosts.size() <= 1) {
+            return executeSerially(hosts, function);
+        }
+        return executeConcurrently(hosts, function);
+    }
+
+    private <T> List<T> executeSerially(Collection<String> hosts, Function<String, T> function)
+    {
+        List<T> results = new ArrayList<>(hosts.size());
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (String host : hosts) {
+            try {
+                results.add(function.apply(host));
+            }
+            catch (RuntimeException e) {
+                failures.put(host, e);
+            }
+        }
+        throwIfFailed(failures);
+        return results;
+    }
+
+    private <T> List<T> executeConcurrently(Collection<String> hosts, Function<String, T> function)
+    {
+        ExecutorService executor = newFixedThreadPool(
+                min(parallelism, hosts.size()),
+                new ThreadFactoryBuilder().setNameFormat("multi-host-executor-%s").setDaemon(true).build());
+        try {
+            List<HostTask<T>> tasks = hosts.stream()
+                    .map(host -> new HostTask<>(host, function))
+                    .collect(toList());
+            tasks.forEach(executor::execute);
+            // queued tasks can only wait for as many host timeouts as there are task waves ahead of them
+            long waves = (hosts.size() + parallelism - 1) / parallelism;
+            long startDeadlineNanos = System.nanoTime() + MILLISECONDS.toNanos(hostTimeoutInMilliseconds * waves);
+
+            List<T> results = new ArrayList<>(hosts.size());
+            Map<String, Throwable> failures = new LinkedHashMap<>();
+            for (HostTask<T> task : tasks) {
+                try {
+                    results.add(task.await(startDeadlineNanos));
+                }
+                catch (ExecutionException e) {
+                    failures.put(task.host, e.getCause());
+                }
+                catch (TimeoutException e) {
+                    task.cancel(true);
+                    failures.put(task.host, e);
+                }
+            }
+            throwIfFailed(failures);
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void throwIfFailed(Map<String, Throwable> failures)
+    {
+        if (!failures.isEmpty()) {
+            throw new MultiHostExecutionException(failures);
+        }
+    }
+
+    private class HostTask<T>
+            extends FutureTask<T>
+    {
+        private final String host;
+        private volatile long startNanos;
+
+        private HostTask(String host, Function<String, T> function)
+        {
+            super(() -> function.apply(host));
+            this.host = host;
+        }
+
+        @Override
+        public void run()
+        {
+            startNanos = System.nanoTime();
+            super.run();
+        }
+
+        private T await(long startDeadlineNanos)
+                throws ExecutionException, TimeoutException
+        {
+            try {
+                // the timeout counts from the moment the task started, not from when it was queued
+                while (startNanos == 0 && !isDone()) {
+                    if (System.nanoTime() > startDeadlineNanos) {
+                        throw new TimeoutException("Operation on " + host + " did not start in time");
+                    }
+                    try {
+                        return get(START_POLL_INTERVAL, MILLISECONDS);
+                    }
+                    catch (TimeoutException e) {
+                        // not started yet or still running
+                    }
+                }
+                long elapsed = startNanos == 0 ? 0 : NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                try {
+                    return get(Math.max(hostTimeoutInMilliseconds - elapsed, 0), MILLISECONDS);
+                }
+                catch (TimeoutException e) {
+                    throw new TimeoutException("Operation on " + host + " did not finish within " + hostTimeoutInMilliseconds + "ms");
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static class MultiHostExecutionException
+            extends RuntimeException
+    {
+        private final Map<String, Throwable> failures;
+
+        public MultiHostExecutionException(Map<String, Throwable> failures)
+        {
+            super("Operation failed on hosts: " + failures.keySet(), failures.values().iterator().next());
+            this.failures = new LinkedHashMap<>(failures);
+            failures.values().stream().skip(1).forEach(this::addSuppressed);
+        }
+
+        public Map<String, Throwable> getFailures()
+        {
+            return failures;
+        }
+    }
+}
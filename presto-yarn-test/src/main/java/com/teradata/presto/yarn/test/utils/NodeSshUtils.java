@@ -15,6 +15,7 @@ package com.teradata.presto.yarn.test.utils;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
 import com.teradata.tempto.context.State;
 import com.teradata.tempto.ssh.SshClient;
 import com.teradata.tempto.ssh.SshClientFactory;
@@ -22,11 +23,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -38,6 +39,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static com.teradata.presto.yarn.test.utils.TimeUtils.retryUntil;
 import static java.lang.Long.parseLong;
 import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -47,19 +49,48 @@ public class NodeSshUtils
 {
     private static final Logger log = LoggerFactory.getLogger(NodeSshUtils.class);
 
-    private final SshClientFactory sshClientFactory;
+    private static final String PRESTO_PROCESS = "PrestoServer";
+
+    private final SshClientPool sshClientPool;
+    private final MultiHostExecutor multiHostExecutor;
     private final SshClient yarnSshClient;
+    private final Optional<ResourceManagerClient> resourceManagerClient;
 
     public NodeSshUtils(SshClientFactory sshClientFactory, SshClient yarnSshClient)
+    {
+        this(new SshClientPool(sshClientFactory), MultiHostExecutor.serial(), yarnSshClient);
+    }
+
+    public NodeSshUtils(SshClientPool sshClientPool, MultiHostExecutor multiHostExecutor, SshClient yarnSshClient)
+    {
+        this(sshClientPool, multiHostExecutor, yarnSshClient, Optional.empty());
+    }
+
+    /**
+     * @param resourceManagerClient when present, node inventory and labels are read from ResourceManager
+     * REST API instead of running yarn command line client over ssh
+     */
+    public NodeSshUtils(SshClientPool sshClientPool, MultiHostExecutor multiHostExecutor, SshClient yarnSshClient, Optional<ResourceManagerClient> resourceManagerClient)
     {
         this.yarnSshClient = yarnSshClient;
-        this.sshClientFactory = sshClientFactory;
+        this.sshClientPool = sshClientPool;
+        this.multiHostExecutor = multiHostExecutor;
+        this.resourceManagerClient = requireNonNull(resourceManagerClient, "resourceManagerClient is null");
     }
 
     public boolean isPrestoProcessRunning(String host)
+    {
+        return isPrestoProcessRunning(host, PRESTO_PROCESS);
+    }
+
+    /**
+     * Checks if a Presto server whose command line matches the given pattern is running, see
+     * {@link com.teradata.presto.yarn.test.ApplicationInstance#getProcessPattern()}.
+     */
+    public boolean isPrestoProcessRunning(String host, String processPattern)
     {
         return withSshClient(host, sshClient -> {
-            String prestoProcessesCountRow = sshClient.command("ps aux | grep PrestoServer | grep -v grep || true").trim();
+            String prestoProcessesCountRow = sshClient.command("ps aux | grep -e '" + processPattern + "' | grep -v grep || true").trim();
             int processesCount = prestoProcessesCountRow.split("\n").length;
             if (StringUtils.isEmpty(prestoProcessesCountRow)) {
                 processesCount = 0;
@@ -73,14 +104,24 @@ public class NodeSshUtils
 
     public void killPrestoProcesses(String host)
     {
-        runOnNode(host, singletonList("pkill -9 -f 'java.*PrestoServer.*'"));
-        retryUntil(() -> !isPrestoProcessRunning(host), TimeUnit.SECONDS.toMillis(10));
+        killPrestoProcesses(host, PRESTO_PROCESS);
+    }
+
+    public void killPrestoProcesses(String host, String processPattern)
+    {
+        runOnNode(host, singletonList("pkill -9 -f 'java.*" + processPattern + ".*'"));
+        retryUntil("presto killed on " + host, () -> !isPrestoProcessRunning(host, processPattern), TimeUnit.SECONDS.toMillis(10));
     }
 
     public long getPrestoJvmMemory(String host)
+    {
+        return getPrestoJvmMemory(host, PRESTO_PROCESS);
+    }
+
+    public long getPrestoJvmMemory(String host, String processPattern)
     {
         return withSshClient(host, sshClient -> {
-            String prestoServerPid = sshClient.command("pgrep -f PrestoServer").trim();
+            String prestoServerPid = sshClient.command("pgrep -f '" + processPattern + "'").trim();
             long prestoProcessJvm = parseLong(sshClient.command("jmap -heap " + prestoServerPid + " | grep capacity | awk 'NR == 1' | awk '{print $3}'"));
             log.info("Presto jvm memory " + host + ": " + prestoProcessJvm);
             return prestoProcessJvm;
@@ -89,7 +130,22 @@ public class NodeSshUtils
 
     public String getPrestoJvmProcess(String host)
     {
-        return withSshClient(host, sshClient -> sshClient.command("ps aux | grep PrestoServer | grep -v grep").trim());
+        return getPrestoJvmProcess(host, PRESTO_PROCESS);
+    }
+
+    public String getPrestoJvmProcess(String host, String processPattern)
+    {
+        return withSshClient(host, sshClient -> sshClient.command("ps aux | grep -e '" + processPattern + "' | grep -v grep").trim());
+    }
+
+    /**
+     * Returns CFS throttling counters summed over CPU cgroups of all YARN containers on the given hosts.
+     */
+    public CpuThrottling getContainersCpuThrottling(Collection<String> hosts)
+    {
+        return onHosts(hosts, host -> withSshClient(host, sshClient -> CpuThrottling.parse(sshClient.command("cat /sys/fs/cgroup/cpu/yarn/container*/cpu.stat 2>/dev/null || true"))))
+                .stream()
+                .reduce(CpuThrottling.NONE, CpuThrottling::plus);
     }
 
     public String createLabels(Map<String, String> labels)
@@ -111,7 +167,13 @@ public class NodeSshUtils
         commandOnYarn("yarn rmadmin -replaceLabelsOnNode \'" + replaceLabelsArgument + "\'");
         commandOnYarn("yarn rmadmin -refreshQueues");
 
-        checkThatLabelsAreSetCorrectly(labels, nodeToNodeIds);
+        if (resourceManagerClient.isPresent()) {
+            resourceManagerClient.get().invalidate();
+            checkThatLabelsAreSetCorrectly(resourceManagerClient.get(), labels, nodeToNodeIds);
+        }
+        else {
+            checkThatLabelsAreSetCorrectly(labels, nodeToNodeIds);
+        }
     }
 
     private static BinaryOperator<String> joinOn(String separator)
@@ -131,14 +193,37 @@ public class NodeSshUtils
         });
     }
 
+    private static void checkThatLabelsAreSetCorrectly(ResourceManagerClient resourceManagerClient, Map<String, String> labels, Map<String, String> nodeToNodeIds)
+    {
+        Set<String> clusterNodeLabels = resourceManagerClient.getClusterNodeLabels();
+        labels.values().forEach(label -> checkState(clusterNodeLabels.contains(label), "Cluster node labels '%s', does not contain label '%s'", clusterNodeLabels, label));
+        Set<String> queueNodeLabels = resourceManagerClient.getQueueNodeLabels("default");
+        labels.values().forEach(label -> checkState(queueNodeLabels.contains("*") || queueNodeLabels.contains(label), "Queue node labels '%s', does not contain label '%s'", queueNodeLabels, label));
+        Map<String, Set<String>> nodeLabels = resourceManagerClient.getNodes().stream()
+                .collect(toMap(YarnNode::getId, YarnNode::getLabels));
+        labels.forEach((node, label) -> {
+            Set<String> labelsOfNode = nodeLabels.getOrDefault(nodeToNodeIds.get(node), ImmutableSet.of());
+            checkState(labelsOfNode.contains(label), "Node labels '%s' on node '%s' does not contain label '%s'", labelsOfNode, node, label);
+        });
+    }
+
     private void waitForNodeManagers(int numberOfNodes)
     {
         log.info("Waiting for NodeManagers...");
-        retryUntil(() -> getNodeIds().size() >= numberOfNodes, MINUTES.toMillis(2));
+        resourceManagerClient.ifPresent(ResourceManagerClient::invalidate);
+        retryUntil("node managers", () -> getNodeIds().size() >= numberOfNodes, MINUTES.toMillis(2));
     }
 
+    /**
+     * Returns ids of running NodeManagers.
+     */
     public List<String> getNodeIds()
     {
+        if (resourceManagerClient.isPresent()) {
+            return resourceManagerClient.get().getRunningNodes().stream()
+                    .map(YarnNode::getId)
+                    .collect(toList());
+        }
         return Stream.of(commandOnYarn("yarn node -list").split("\n"))
                 .filter(line -> line.contains("RUNNING"))
                 .map(line -> Splitter.on(anyOf(" \t")).omitEmptyStrings().trimResults().split(line).iterator().next())
@@ -164,21 +249,35 @@ public class NodeSshUtils
         });
     }
 
-    public <T> List<T> withSshClient(Collection<String> hosts, Function<SshClient, T> closure)
+    public List<String> runOnNodes(Collection<String> nodes, List<String> commands)
     {
-        return hosts.stream()
-                .map(host -> withSshClient(host, closure))
+        return onHosts(nodes, node -> runOnNode(node, commands)).stream()
+                .flatMap(List::stream)
                 .collect(toList());
     }
 
+    public <T> List<T> withSshClient(Collection<String> hosts, Function<SshClient, T> closure)
+    {
+        return onHosts(hosts, host -> withSshClient(host, closure));
+    }
+
+    /**
+     * Runs function for each of the hosts, concurrently unless configured otherwise.
+     * Results are returned in the order of hosts.
+     */
+    public <T> List<T> onHosts(Collection<String> hosts, Function<String, T> function)
+    {
+        return multiHostExecutor.execute(hosts, function);
+    }
+
     public <T> T withSshClient(String host, Function<SshClient, T> function)
     {
-        try (SshClient sshClient = sshClientFactory.create(host)) {
-            return function.apply(sshClient);
-        }
-        catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return sshClientPool.withSshClient(host, function);
+    }
+
+    public void close()
+    {
+        sshClientPool.close();
     }
 
     @Override
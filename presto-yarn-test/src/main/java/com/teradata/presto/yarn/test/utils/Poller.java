@@ -0,0 +1,245 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Polls a condition until it is met. The first probes are issued shortly one after another and
+ * then the interval grows exponentially (with some random jitter) up to the configured cap, so that
+ * short waits finish quickly and long waits do not overload the cluster. The wait fails when the
+ * deadline is exceeded or when one of the abort conditions is met.
+ * <p>
+ * Every finished wait is recorded in {@link WaitStatistics}.
+ */
+public class Poller
+{
+    private static final Logger log = LoggerFactory.getLogger(Poller.class);
+
+    public static final long DEFAULT_INITIAL_INTERVAL = 250;
+    public static final long DEFAULT_MAX_INTERVAL = SECONDS.toMillis(8);
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+    public static final double DEFAULT_JITTER = 0.2;
+
+    private final String name;
+    private final long timeoutInMilliseconds;
+    private final long initialInterval;
+    private final long maxInterval;
+    private final double multiplier;
+    private final double jitter;
+    private final List<AbortCondition> abortConditions;
+    private final Sleeper sleeper;
+
+    public static Poller waitFor(String name, long timeoutInMilliseconds)
+    {
+        return new Poller(name, timeoutInMilliseconds, DEFAULT_INITIAL_INTERVAL, DEFAULT_MAX_INTERVAL, DEFAULT_MULTIPLIER, DEFAULT_JITTER, ImmutableList.of(), Thread::sleep);
+    }
+
+    private Poller(
+            String name,
+            long timeoutInMilliseconds,
+            long initialInterval,
+            long maxInterval,
+            double multiplier,
+            double jitter,
+            List<AbortCondition> abortConditions,
+            Sleeper sleeper)
+    {
+        checkArgument(timeoutInMilliseconds >= 0, "timeout is negative");
+        checkArgument(initialInterval > 0, "initial interval must be positive");
+        checkArgument(maxInterval >= initialInterval, "max interval is lower than initial interval");
+        checkArgument(multiplier >= 1.0, "multiplier must not be lower than 1");
+        checkArgument(jitter >= 0.0 && jitter < 1.0, "jitter must be in [0, 1) range");
+        this.name = requireNonNull(name, "name is null");
+        this.timeoutInMilliseconds = timeoutInMilliseconds;
+        this.initialInterval = initialInterval;
+        this.maxInterval = maxInterval;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.abortConditions = ImmutableList.copyOf(abortConditions);
+        this.sleeper = requireNonNull(sleeper, "sleeper is null");
+    }
+
+    public Poller withInitialInterval(long initialInterval)
+    {
+        return new Poller(name, timeoutInMilliseconds, initialInterval, max(initialInterval, maxInterval), multiplier, jitter, abortConditions, sleeper);
+    }
+
+    public Poller withMaxInterval(long maxInterval)
+    {
+        return new Poller(name, timeoutInMilliseconds, min(initialInterval, maxInterval), maxInterval, multiplier, jitter, abortConditions, sleeper);
+    }
+
+    /**
+     * Polls with the same interval all the time.
+     */
+    public Poller withFixedInterval(long interval)
+    {
+        return new Poller(name, timeoutInMilliseconds, interval, interval, 1.0, jitter, abortConditions, sleeper);
+    }
+
+    public Poller withMultiplier(double multiplier)
+    {
+        return new Poller(name, timeoutInMilliseconds, initialInterval, maxInterval, multiplier, jitter, abortConditions, sleeper);
+    }
+
+    public Poller withJitter(double jitter)
+    {
+        return new Poller(name, timeoutInMilliseconds, initialInterval, maxInterval, multiplier, jitter, abortConditions, sleeper);
+    }
+
+    /**
+     * Fails the wait immediately (without waiting for the deadline) once the given condition is met.
+     * Abort conditions are checked before each probe.
+     */
+    public Poller abortIf(Callable<Boolean> condition, String reason)
+    {
+        List<AbortCondition> conditions = ImmutableList.<AbortCondition>builder()
+                .addAll(abortConditions)
+                .add(new AbortCondition(condition, reason))
+                .build();
+        return new Poller(name, timeoutInMilliseconds, initialInterval, maxInterval, multiplier, jitter, conditions, sleeper);
+    }
+
+    Poller withSleeper(Sleeper sleeper)
+    {
+        return new Poller(name, timeoutInMilliseconds, initialInterval, maxInterval, multiplier, jitter, abortConditions, sleeper);
+    }
+
+    public void until(Callable<Boolean> condition)
+    {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutInMilliseconds;
+        long interval = initialInterval;
+        int probes = 0;
+        boolean success = false;
+        try {
+            while (true) {
+                checkAbortConditions();
+                probes++;
+                if (call(condition)) {
+                    success = true;
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new PollingTimeoutException(name, timeoutInMilliseconds, probes);
+                }
+                // last probe is done right at the deadline, not after it
+                sleep(min(withJitter(interval), remaining));
+                interval = min((long) (interval * multiplier), maxInterval);
+            }
+        }
+        finally {
+            long elapsed = System.currentTimeMillis() - start;
+            WaitStatistics.record(name, elapsed, probes, success);
+            if (success) {
+                log.info("Waited {} ms for {} ({} probes)", elapsed, name, probes);
+            }
+            else {
+                log.warn("Gave up waiting for {} after {} ms ({} probes)", name, elapsed, probes);
+            }
+        }
+    }
+
+    private long withJitter(long interval)
+    {
+        if (jitter == 0.0) {
+            return interval;
+        }
+        double factor = 1.0 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return max(1, (long) (interval * factor));
+    }
+
+    private void checkAbortConditions()
+    {
+        for (AbortCondition abortCondition : abortConditions) {
+            if (call(abortCondition.condition)) {
+                throw new PollingAbortedException(name, abortCondition.reason);
+            }
+        }
+    }
+
+    private void sleep(long millis)
+    {
+        try {
+            sleeper.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Boolean call(Callable<Boolean> condition)
+    {
+        try {
+            return condition.call();
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    interface Sleeper
+    {
+        void sleep(long millis)
+                throws InterruptedException;
+    }
+
+    private static class AbortCondition
+    {
+        private final Callable<Boolean> condition;
+        private final String reason;
+
+        private AbortCondition(Callable<Boolean> condition, String reason)
+        {
+            this.condition = requireNonNull(condition, "condition is null");
+            this.reason = requireNonNull(reason, "reason is null");
+        }
+    }
+
+    public static class PollingTimeoutException
+            extends RuntimeException
+    {
+        public PollingTimeoutException(String name, long timeoutInMilliseconds, int probes)
+        {
+            super("exceeded timeout of " + timeoutInMilliseconds + " ms waiting for " + name + " (" + probes + " probes)");
+        }
+    }
+
+    public static class PollingAbortedException
+            extends RuntimeException
+    {
+        public PollingAbortedException(String name, String reason)
+        {
+            super("aborted waiting for " + name + ": " + reason);
+        }
+    }
+}
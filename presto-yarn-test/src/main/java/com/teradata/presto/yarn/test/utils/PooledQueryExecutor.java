@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.base.Throwables;
+import com.teradata.presto.yarn.test.utils.SimpleJdbcQueryExecutor.RowConsumer;
+import com.teradata.tempto.query.QueryExecutionException;
+import com.teradata.tempto.query.QueryExecutor;
+import com.teradata.tempto.query.QueryResult;
+import com.teradata.tempto.query.QueryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executes each query on a connection borrowed from {@link JdbcConnectionPool}. The connection
+ * url is taken from the url supplier before every query, so the supplier is expected to cache it;
+ * when a connection to the url fails, the given callback is run so that the supplier resolves
+ * the url again. When the url changes (e.g. the coordinator was respawned on another host),
+ * connections to the previous url are closed.
+ */
+public class PooledQueryExecutor
+        implements QueryExecutor
+{
+    private static final Logger log = LoggerFactory.getLogger(PooledQueryExecutor.class);
+
+    private final JdbcConnectionPool connectionPool;
+    private final Supplier<String> urlSupplier;
+    private final Runnable connectionFailureListener;
+    private final int fetchSize;
+    private String lastUrl;
+
+    public PooledQueryExecutor(JdbcConnectionPool connectionPool, Supplier<String> urlSupplier)
+    {
+        this(connectionPool, urlSupplier, () -> {});
+    }
+
+    public PooledQueryExecutor(JdbcConnectionPool connectionPool, Supplier<String> urlSupplier, Runnable connectionFailureListener)
+    {
+        this(connectionPool, urlSupplier, connectionFailureListener, SimpleJdbcQueryExecutor.DEFAULT_FETCH_SIZE);
+    }
+
+    public PooledQueryExecutor(JdbcConnectionPool connectionPool, Supplier<String> urlSupplier, Runnable connectionFailureListener, int fetchSize)
+    {
+        this.connectionPool = requireNonNull(connectionPool, "connectionPool is null");
+        this.urlSupplier = requireNonNull(urlSupplier, "urlSupplier is null");
+        this.connectionFailureListener = requireNonNull(connectionFailureListener, "connectionFailureListener is null");
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public QueryResult executeQuery(String sql, QueryType ignored, QueryParam... params)
+            throws QueryExecutionException
+    {
+        return executeQuery(sql, params);
+    }
+
+    @Override
+    public QueryResult executeQuery(String sql, QueryParam... params)
+            throws QueryExecutionException
+    {
+        return withConnection(connection -> executor(connection).executeQuery(sql, params));
+    }
+
+    /**
+     * See {@link SimpleJdbcQueryExecutor#streamQuery(String, RowConsumer)}.
+     */
+    public QueryStatistics streamQuery(String sql, RowConsumer consumer)
+            throws QueryExecutionException
+    {
+        return withConnection(connection -> executor(connection).streamQuery(sql, consumer));
+    }
+
+    /**
+     * Returns a connection borrowed from the pool, the caller has to close it to return it back.
+     */
+    @Override
+    public Connection getConnection()
+    {
+        try {
+            return connectionPool.getConnection(getUrl());
+        }
+        catch (RuntimeException e) {
+            connectionFailureListener.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Does nothing, connections are closed by the pool.
+     */
+    @Override
+    public void close()
+    {
+    }
+
+    private <T> T withConnection(Function<Connection, T> function)
+    {
+        boolean[] connected = new boolean[1];
+        try {
+            return connectionPool.withConnection(getUrl(), connection -> {
+                connected[0] = true;
+                return function.apply(connection);
+            });
+        }
+        catch (RuntimeException e) {
+            if (!connected[0] || isConnectionFailure(e)) {
+                connectionFailureListener.run();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Query failures caused by I/O errors, e.g. the coordinator went away, as opposed to query errors.
+     */
+    private static boolean isConnectionFailure(Throwable failure)
+    {
+        return Throwables.getCausalChain(failure).stream()
+                .anyMatch(cause -> cause instanceof IOException || cause instanceof UncheckedIOException);
+    }
+
+    private SimpleJdbcQueryExecutor executor(Connection connection)
+    {
+        return new SimpleJdbcQueryExecutor(connection, fetchSize);
+    }
+
+    private String getUrl()
+    {
+        String url = urlSupplier.get();
+        String previousUrl;
+        synchronized (this) {
+            previousUrl = lastUrl;
+            lastUrl = url;
+        }
+        if (!Objects.equals(previousUrl, url)) {
+            log.info("Using Presto at connection url: {}", url);
+            if (previousUrl != null) {
+                connectionPool.invalidate(previousUrl);
+            }
+        }
+        return url;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Volume and timings of a streamed query. Times are measured from the moment the query was submitted.
+ */
+public class QueryStatistics
+{
+    private final long rows;
+    private final long bytes;
+    private final long timeToFirstRowNanos;
+    private final long timeToLastRowNanos;
+
+    public QueryStatistics(long rows, long bytes, long timeToFirstRowNanos, long timeToLastRowNanos)
+    {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.timeToFirstRowNanos = timeToFirstRowNanos;
+        this.timeToLastRowNanos = timeToLastRowNanos;
+    }
+
+    static Builder builder(long startNanos)
+    {
+        return new Builder(startNanos);
+    }
+
+    public long getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Approximate size of the values in all rows.
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Time to first row in milliseconds, or -1 when the query returned no rows.
+     */
+    public long getTimeToFirstRow()
+    {
+        return timeToFirstRowNanos < 0 ? -1 : NANOSECONDS.toMillis(timeToFirstRowNanos);
+    }
+
+    /**
+     * Time until the whole result was fetched (and consumed) in milliseconds.
+     */
+    public long getTimeToLastRow()
+    {
+        return NANOSECONDS.toMillis(timeToLastRowNanos);
+    }
+
+    /**
+     * Bytes per second, counted from the first row to the last row.
+     */
+    public double getThroughput()
+    {
+        long transferNanos = timeToLastRowNanos - Math.max(timeToFirstRowNanos, 0);
+        if (transferNanos <= 0) {
+            return 0;
+        }
+        return bytes * 1_000_000_000.0 / transferNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("rows: %d, bytes: %d, first row: %d ms, last row: %d ms",
+                rows, bytes, getTimeToFirstRow(), getTimeToLastRow());
+    }
+
+    static class Builder
+    {
+        private final long startNanos;
+        private long rows;
+        private long bytes;
+        private long timeToFirstRowNanos = -1;
+
+        private Builder(long startNanos)
+        {
+            this.startNanos = startNanos;
+        }
+
+        void addRow(long rowBytes)
+        {
+            if (rows == 0) {
+                timeToFirstRowNanos = System.nanoTime() - startNanos;
+            }
+            rows++;
+            bytes += rowBytes;
+        }
+
+        QueryStatistics build()
+        {
+            return new QueryStatistics(rows, bytes, timeToFirstRowNanos, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Reads node inventory and node labels from YARN ResourceManager REST API. A single request
+ * returns state, labels and capacity of all NodeManagers, which replaces parsing
+ * {@code yarn node -list} and running {@code yarn node -status} for every node.
+ * <p>
+ * Nodes are cached for a short period of time, so that polling loops and checks done one
+ * after another share a single request. Call {@link #invalidate()} after changing the cluster.
+ */
+public class ResourceManagerClient
+{
+    public static final long DEFAULT_TTL = SECONDS.toMillis(2);
+
+    private static final String NODES_PATH = "ws/v1/cluster/nodes";
+    private static final String NODE_LABELS_PATH = "ws/v1/cluster/get-node-labels";
+    private static final String SCHEDULER_PATH = "ws/v1/cluster/scheduler";
+
+    private final URI resourceManagerUri;
+    private final JsonHttpClient httpClient;
+    private final long ttlInMilliseconds;
+
+    private List<YarnNode> nodes;
+    private long nodesTime;
+
+    public ResourceManagerClient(URI resourceManagerUri)
+    {
+        this(resourceManagerUri, new JsonHttpClient(), DEFAULT_TTL);
+    }
+
+    public ResourceManagerClient(URI resourceManagerUri, JsonHttpClient httpClient, long ttlInMilliseconds)
+    {
+        checkArgument(ttlInMilliseconds >= 0, "ttlInMilliseconds is negative");
+        this.resourceManagerUri = requireNonNull(resourceManagerUri, "resourceManagerUri is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.ttlInMilliseconds = ttlInMilliseconds;
+    }
+
+    /**
+     * Returns all nodes known to ResourceManager, including the ones which are not running.
+     * Concurrent callers which miss the cache wait for a single request.
+     */
+    public synchronized List<YarnNode> getNodes()
+    {
+        if (nodes == null || System.currentTimeMillis() - nodesTime > ttlInMilliseconds) {
+            nodes = elements(httpClient.get(resourceManagerUri.resolve(NODES_PATH)).path("nodes").path("node")).stream()
+                    .map(ResourceManagerClient::toYarnNode)
+                    .collect(toList());
+            nodesTime = System.currentTimeMillis();
+        }
+        return nodes;
+    }
+
+    public List<YarnNode> getRunningNodes()
+    {
+        return getNodes().stream()
+                .filter(YarnNode::isRunning)
+                .collect(toList());
+    }
+
+    public Optional<YarnNode> getNode(String host)
+    {
+        return getNodes().stream()
+                .filter(node -> node.getHost().equals(host))
+                .findFirst();
+    }
+
+    /**
+     * Drops cached nodes, so that the next call fetches them again.
+     */
+    public synchronized void invalidate()
+    {
+        nodes = null;
+    }
+
+    /**
+     * Returns labels added with {@code yarn rmadmin -addToClusterNodeLabels}.
+     */
+    public Set<String> getClusterNodeLabels()
+    {
+        JsonNode response = httpClient.get(resourceManagerUri.resolve(NODE_LABELS_PATH));
+        ImmutableSet.Builder<String> labels = ImmutableSet.builder();
+        // Hadoop 2.7 returns label names, newer versions return objects with name and exclusivity
+        elements(response.path("nodeLabels")).forEach(label -> labels.add(label.asText()));
+        elements(response.path("nodeLabelInfo")).forEach(label -> labels.add(label.path("name").asText()));
+        return labels.build();
+    }
+
+    /**
+     * Returns node labels accessible by the given capacity scheduler queue, "*" stands for all labels.
+     */
+    public Set<String> getQueueNodeLabels(String queue)
+    {
+        JsonNode schedulerInfo = httpClient.get(resourceManagerUri.resolve(SCHEDULER_PATH)).path("scheduler").path("schedulerInfo");
+        JsonNode queueInfo = findQueue(schedulerInfo, queue)
+                .orElseThrow(() -> new IllegalArgumentException("Queue " + queue + " not found"));
+        return elements(queueInfo.path("nodeLabels")).stream()
+                .map(JsonNode::asText)
+                .collect(toSet());
+    }
+
+    private static Optional<JsonNode> findQueue(JsonNode parent, String queue)
+    {
+        for (JsonNode child : elements(parent.path("queues").path("queue"))) {
+            if (child.path("queueName").asText().equals(queue)) {
+                return Optional.of(child);
+            }
+            Optional<JsonNode> found = findQueue(child, queue);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static YarnNode toYarnNode(JsonNode node)
+    {
+        return new YarnNode(
+                node.path("id").asText(),
+                node.path("nodeHostName").asText(),
+                node.path("state").asText(),
+                elements(node.path("nodeLabels")).stream()
+                        .map(JsonNode::asText)
+                        .collect(toSet()),
+                node.path("numContainers").asInt(),
+                node.path("usedMemoryMB").asLong(),
+                node.path("availMemoryMB").asLong(),
+                node.path("usedVirtualCores").asLong(),
+                node.path("availableVirtualCores").asLong());
+    }
+
+    /**
+     * ResourceManager serializes single element lists as the element itself and empty lists as null.
+     */
+    private static List<JsonNode> elements(JsonNode node)
+    {
+        if (node.isMissingNode() || node.isNull()) {
+            return ImmutableList.of();
+        }
+        if (node.isArray()) {
+            return ImmutableList.copyOf(node);
+        }
+        return ImmutableList.of(node);
+    }
+}
@@ -19,6 +19,7 @@ import com.teradata.tempto.query.QueryResult;
 import com.teradata.tempto.query.QueryType;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -28,11 +29,21 @@ import static java.util.Objects.requireNonNull;
 public class SimpleJdbcQueryExecutor
         implements QueryExecutor
 {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     private final Connection connection;
+    private final int fetchSize;
 
     public SimpleJdbcQueryExecutor(Connection connection)
     {
+        this(connection, DEFAULT_FETCH_SIZE);
+    }
+
+    public SimpleJdbcQueryExecutor(Connection connection, int fetchSize)
+    {
+        checkArgument(fetchSize > 0, "fetchSize must be positive");
         this.connection = requireNonNull(connection, "connection is null");
+        this.fetchSize = fetchSize;
     }
 
     public QueryResult executeQuery(String sql, QueryType ignored, QueryParam... params)
@@ -41,11 +52,15 @@ public class SimpleJdbcQueryExecutor
         return executeQuery(sql, params);
     }
 
+    /**
+     * Query parameters are not supported, parameterized queries should go through tempto's JDBC
+     * query executor.
+     */
     public QueryResult executeQuery(String sql, QueryParam... params)
             throws QueryExecutionException
     {
         checkArgument(params.length == 0, "Query parameters are not supported.");
-        try (Statement statement = connection.createStatement()) {
+        try (Statement statement = createStatement()) {
             return QueryResult.forResultSet(statement.executeQuery(sql));
         }
         catch (SQLException e) {
@@ -53,6 +68,35 @@ public class SimpleJdbcQueryExecutor
         }
     }
 
+    /**
+     * Executes the query and hands rows to the consumer one by one, as they are fetched, without
+     * keeping them in memory. The consumer gets the result set positioned at the current row and
+     * must not move its cursor.
+     */
+    public QueryStatistics streamQuery(String sql, RowConsumer consumer)
+            throws QueryExecutionException
+    {
+        requireNonNull(consumer, "consumer is null");
+        long start = System.nanoTime();
+        try (Statement statement = createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            QueryStatistics.Builder statistics = QueryStatistics.builder(start);
+            while (resultSet.next()) {
+                long bytes = 0;
+                for (int column = 1; column <= columns; column++) {
+                    bytes += estimateSize(resultSet.getObject(column));
+                }
+                statistics.addRow(bytes);
+                consumer.accept(resultSet);
+            }
+            return statistics.build();
+        }
+        catch (SQLException e) {
+            throw new QueryExecutionException(e);
+        }
+    }
+
     public Connection getConnection()
     {
         return connection;
@@ -67,4 +111,53 @@ public class SimpleJdbcQueryExecutor
             throw new RuntimeException(e);
         }
     }
+
+    private Statement createStatement()
+            throws SQLException
+    {
+        Statement statement = connection.createStatement();
+        try {
+            statement.setFetchSize(fetchSize);
+        }
+        catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * Approximate size of the value as transferred by the driver, strings are counted in characters.
+     */
+    private static long estimateSize(Object value)
+    {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Boolean || value instanceof Byte) {
+            return 1;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 8;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        return value.toString().length();
+    }
+
+    public interface RowConsumer
+    {
+        void accept(ResultSet row)
+                throws SQLException;
+    }
 }
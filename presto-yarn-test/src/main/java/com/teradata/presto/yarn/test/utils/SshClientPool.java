@@ -0,0 +1,267 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.base.Throwables;
+import com.teradata.tempto.ssh.SshClient;
+import com.teradata.tempto.ssh.SshClientFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps established ssh sessions per host, so that consecutive commands sent to the same node
+ * do not pay for a new ssh handshake each time.
+ */
+public class SshClientPool
+        implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(SshClientPool.class);
+
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+    public static final long DEFAULT_IDLE_TIMEOUT = MINUTES.toMillis(5);
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL = SECONDS.toMillis(30);
+    private static final long BORROW_TIMEOUT = MINUTES.toMillis(5);
+    private static final String HEALTH_CHECK_COMMAND = "true";
+    private static final String JSCH_PACKAGE = "com.jcraft.jsch.";
+
+    private final Function<String, SshClient> sessionFactory;
+    private final int maxSessionsPerHost;
+    private final long idleTimeoutInMilliseconds;
+    private final long healthCheckIntervalInMilliseconds;
+    private final Map<String, HostSessions> hostSessions = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public SshClientPool(SshClientFactory sshClientFactory)
+    {
+        this(sshClientFactory::create, DEFAULT_MAX_SESSIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT, DEFAULT_HEALTH_CHECK_INTERVAL);
+    }
+
+    public SshClientPool(Function<String, SshClient> sessionFactory, int maxSessionsPerHost, long idleTimeoutInMilliseconds, long healthCheckIntervalInMilliseconds)
+    {
+        checkArgument(maxSessionsPerHost > 0, "maxSessionsPerHost must be positive");
+        checkArgument(idleTimeoutInMilliseconds >= 0, "idleTimeoutInMilliseconds is negative");
+        checkArgument(healthCheckIntervalInMilliseconds >= 0, "healthCheckIntervalInMilliseconds is negative");
+        this.sessionFactory = requireNonNull(sessionFactory, "sessionFactory is null");
+        this.maxSessionsPerHost = maxSessionsPerHost;
+        this.idleTimeoutInMilliseconds = idleTimeoutInMilliseconds;
+        this.healthCheckIntervalInMilliseconds = healthCheckIntervalInMilliseconds;
+    }
+
+    public <T> T withSshClient(String host, Function<SshClient, T> function)
+    {
+        HostSessions sessions = hostSessions.computeIfAbsent(host, HostSessions::new);
+        PooledSession session = sessions.borrow();
+        boolean reusable = false;
+        try {
+            T result = function.apply(session.sshClient);
+            reusable = true;
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            // failed remote commands and exceptions thrown by the function leave the session intact
+            reusable = !isTransportFailure(e);
+            throw e;
+        }
+        finally {
+            sessions.release(session, reusable);
+        }
+    }
+
+    /**
+     * Tempto wraps JSch and IO failures of the ssh connection in unchecked exceptions, so look for them
+     * in the cause chain. JSch is not a direct dependency, hence it is recognized by its package.
+     */
+    private static boolean isTransportFailure(Throwable throwable)
+    {
+        return Throwables.getCausalChain(throwable).stream()
+                .anyMatch(cause -> cause instanceof IOException
+                        || cause instanceof UncheckedIOException
+                        || cause.getClass().getName().startsWith(JSCH_PACKAGE));
+    }
+
+    public int getIdleSessionsCount(String host)
+    {
+        HostSessions sessions = hostSessions.get(host);
+        return sessions == null ? 0 : sessions.idleCount();
+    }
+
+    /**
+     * Closes all idle sessions which were not used for longer than idle timeout.
+     */
+    public void evictIdleSessions()
+    {
+        hostSessions.values().forEach(HostSessions::evictIdle);
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        hostSessions.values().forEach(HostSessions::closeAll);
+        hostSessions.clear();
+    }
+
+    private static void closeQuietly(PooledSession session)
+    {
+        try {
+            session.sshClient.close();
+        }
+        catch (IOException | RuntimeException e) {
+            log.debug("Unable to close ssh session to {}", session.host, e);
+        }
+    }
+
+    private class HostSessions
+    {
+        private final String host;
+        private final Semaphore permits = new Semaphore(maxSessionsPerHost, true);
+        private final Deque<PooledSession> idle = new ArrayDeque<>();
+
+        private HostSessions(String host)
+        {
+            this.host = host;
+        }
+
+        private PooledSession borrow()
+        {
+            checkState(!closed, "ssh client pool is closed");
+            acquirePermit();
+            try {
+                evictIdle();
+                PooledSession session;
+                while ((session = pollIdle()) != null) {
+                    if (isHealthy(session)) {
+                        return session;
+                    }
+                    closeQuietly(session);
+                }
+                log.debug("Opening new ssh session to {}", host);
+                return new PooledSession(host, sessionFactory.apply(host));
+            }
+            catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void release(PooledSession session, boolean reusable)
+        {
+            try {
+                if (reusable && !closed) {
+                    session.lastUsed = System.currentTimeMillis();
+                    synchronized (this) {
+                        idle.push(session);
+                    }
+                }
+                else {
+                    closeQuietly(session);
+                }
+            }
+            finally {
+                permits.release();
+            }
+        }
+
+        private void acquirePermit()
+        {
+            try {
+                checkState(permits.tryAcquire(BORROW_TIMEOUT, MILLISECONDS),
+                        "Unable to get ssh session to %s, all %s sessions are in use", host, maxSessionsPerHost);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        private synchronized PooledSession pollIdle()
+        {
+            return idle.poll();
+        }
+
+        private synchronized int idleCount()
+        {
+            return idle.size();
+        }
+
+        private boolean isHealthy(PooledSession session)
+        {
+            if (System.currentTimeMillis() - session.lastUsed < healthCheckIntervalInMilliseconds) {
+                return true;
+            }
+            try {
+                session.sshClient.command(HEALTH_CHECK_COMMAND);
+                return true;
+            }
+            catch (RuntimeException e) {
+                log.info("Discarding broken ssh session to {}", host, e);
+                return false;
+            }
+        }
+
+        private void evictIdle()
+        {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                Iterator<PooledSession> iterator = idle.iterator();
+                while (iterator.hasNext()) {
+                    PooledSession session = iterator.next();
+                    if (now - session.lastUsed > idleTimeoutInMilliseconds) {
+                        iterator.remove();
+                        closeQuietly(session);
+                    }
+                }
+            }
+        }
+
+        private void closeAll()
+        {
+            synchronized (this) {
+                idle.forEach(SshClientPool::closeQuietly);
+                idle.clear();
+            }
+        }
+    }
+
+    private static class PooledSession
+    {
+        private final String host;
+        private final SshClient sshClient;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledSession(String host, SshClient sshClient)
+        {
+            this.host = host;
+            this.sshClient = requireNonNull(sshClient, "sshClient is null");
+        }
+    }
+}
@@ -14,42 +14,21 @@
 package com.teradata.presto.yarn.test.utils;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
 
 public class TimeUtils
 {
     public static void retryUntil(Callable<Boolean> condition, long timeoutInMilliseconds)
     {
-        long startTime = System.currentTimeMillis();
-
-        while (System.currentTimeMillis() - startTime < timeoutInMilliseconds) {
-            if (call(condition)) {
-                return;
-            }
-            sleep();
-        }
-
-        throw new RuntimeException("exceeded timeout");
-    }
-
-    private static Boolean call(Callable<Boolean> condition)
-    {
-        try {
-            return condition.call();
-        }
-        catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        retryUntil("condition", condition, timeoutInMilliseconds);
     }
 
-    private static void sleep()
+    /**
+     * Waits until condition is met, probing it with exponentially growing intervals.
+     * The name is used to report how long the wait took, see {@link WaitStatistics}.
+     */
+    public static void retryUntil(String name, Callable<Boolean> condition, long timeoutInMilliseconds)
     {
-        try {
-            Thread.sleep(TimeUnit.SECONDS.toMillis(4));
-        }
-        catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        Poller.waitFor(name, timeoutInMilliseconds).until(condition);
     }
 
     private TimeUtils() {}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.Math.max;
+
+/**
+ * Collects how long the harness waited for each named condition and how many probes it took.
+ */
+public class WaitStatistics
+{
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public static void record(String name, long elapsedInMilliseconds, int probes, boolean success)
+    {
+        entries.computeIfAbsent(name, key -> new Entry()).add(elapsedInMilliseconds, probes, success);
+    }
+
+    public static Map<String, Entry> snapshot()
+    {
+        ImmutableMap.Builder<String, Entry> snapshot = ImmutableMap.builder();
+        entries.forEach((name, entry) -> snapshot.put(name, entry.copy()));
+        return snapshot.build();
+    }
+
+    public static void reset()
+    {
+        entries.clear();
+    }
+
+    public static class Entry
+    {
+        private int waits;
+        private int failures;
+        private long probes;
+        private long totalMilliseconds;
+        private long maxMilliseconds;
+
+        private synchronized void add(long elapsedInMilliseconds, int probes, boolean success)
+        {
+            this.waits++;
+            this.failures += success ? 0 : 1;
+            this.probes += probes;
+            this.totalMilliseconds += elapsedInMilliseconds;
+            this.maxMilliseconds = max(maxMilliseconds, elapsedInMilliseconds);
+        }
+
+        private synchronized Entry copy()
+        {
+            Entry copy = new Entry();
+            copy.waits = waits;
+            copy.failures = failures;
+            copy.probes = probes;
+            copy.totalMilliseconds = totalMilliseconds;
+            copy.maxMilliseconds = maxMilliseconds;
+            return copy;
+        }
+
+        public int getWaits()
+        {
+            return waits;
+        }
+
+        public int getFailures()
+        {
+            return failures;
+        }
+
+        public long getProbes()
+        {
+            return probes;
+        }
+
+        public long getTotalMilliseconds()
+        {
+            return totalMilliseconds;
+        }
+
+        public long getMaxMilliseconds()
+        {
+            return maxMilliseconds;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("waits: %d, failures: %d, probes: %d, total: %d ms, max: %d ms", waits, failures, probes, totalMilliseconds, maxMilliseconds);
+        }
+    }
+
+    private WaitStatistics() {}
+}
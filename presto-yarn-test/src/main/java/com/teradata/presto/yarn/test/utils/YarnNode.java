@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * State, labels and capacity of a single NodeManager as reported by YARN ResourceManager.
+ */
+public class YarnNode
+{
+    private final String id;
+    private final String host;
+    private final String state;
+    private final Set<String> labels;
+    private final int containers;
+    private final long usedMemoryMB;
+    private final long availableMemoryMB;
+    private final long usedVirtualCores;
+    private final long availableVirtualCores;
+
+    public YarnNode(
+            String id,
+            String host,
+            String state,
+            Set<String> labels,
+            int containers,
+            long usedMemoryMB,
+            long availableMemoryMB,
+            long usedVirtualCores,
+            long availableVirtualCores)
+    {
+        this.id = requireNonNull(id, "id is null");
+        this.host = requireNonNull(host, "host is null");
+        this.state = requireNonNull(state, "state is null");
+        this.labels = ImmutableSet.copyOf(requireNonNull(labels, "labels is null"));
+        this.containers = containers;
+        this.usedMemoryMB = usedMemoryMB;
+        this.availableMemoryMB = availableMemoryMB;
+        this.usedVirtualCores = usedVirtualCores;
+        this.availableVirtualCores = availableVirtualCores;
+    }
+
+    /**
+     * Node id in the host:port form accepted by {@code yarn node -status}.
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getHost()
+    {
+        return host;
+    }
+
+    public String getState()
+    {
+        return state;
+    }
+
+    public boolean isRunning()
+    {
+        return state.equals("RUNNING");
+    }
+
+    public Set<String> getLabels()
+    {
+        return labels;
+    }
+
+    public int getContainers()
+    {
+        return containers;
+    }
+
+    public long getUsedMemoryMB()
+    {
+        return usedMemoryMB;
+    }
+
+    public long getAvailableMemoryMB()
+    {
+        return availableMemoryMB;
+    }
+
+    public long getUsedVirtualCores()
+    {
+        return usedVirtualCores;
+    }
+
+    public long getAvailableVirtualCores()
+    {
+        return availableVirtualCores;
+    }
+
+    @Override
+    public String toString()
+    {
+        return id + " " + state + " " + labels;
+    }
+}
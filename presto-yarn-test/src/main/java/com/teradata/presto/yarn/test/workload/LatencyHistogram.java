@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps all recorded latencies, so that percentiles are exact. Workloads issue at most a few
+ * queries per second per client, so the number of samples stays small.
+ */
+public class LatencyHistogram
+{
+    private long[] samples = new long[64];
+    private int count;
+
+    public synchronized void record(long latencyInMilliseconds)
+    {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyInMilliseconds;
+    }
+
+    public synchronized Snapshot snapshot()
+    {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted);
+    }
+
+    public static class Snapshot
+    {
+        private final long[] sorted;
+
+        private Snapshot(long[] sorted)
+        {
+            this.sorted = sorted;
+        }
+
+        public int getCount()
+        {
+            return sorted.length;
+        }
+
+        /**
+         * Returns the latency below or at which the given fraction of samples falls (nearest rank), or 0 if there are no samples.
+         */
+        public long getPercentile(double percentile)
+        {
+            checkArgument(percentile > 0 && percentile <= 1, "percentile must be in (0, 1] range");
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[rank - 1];
+        }
+
+        public long getMin()
+        {
+            return sorted.length == 0 ? 0 : sorted[0];
+        }
+
+        public long getMax()
+        {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+        }
+
+        public double getMean()
+        {
+            return Arrays.stream(sorted).average().orElse(0);
+        }
+    }
+}
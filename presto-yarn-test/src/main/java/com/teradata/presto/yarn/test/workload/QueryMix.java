@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Weighted set of named queries. Clients pick queries at random, proportionally to their weights.
+ */
+public class QueryMix
+{
+    private static final Map<String, String> TPCH_QUERIES = ImmutableMap.<String, String>builder()
+            .put("nation", "SELECT count(*) FROM %s.nation")
+            .put("q1", "SELECT returnflag, linestatus, sum(quantity), sum(extendedprice), " +
+                    "sum(extendedprice * (1 - discount)), avg(quantity), avg(discount), count(*) " +
+                    "FROM %s.lineitem WHERE shipdate <= DATE '1998-09-02' " +
+                    "GROUP BY returnflag, linestatus ORDER BY returnflag, linestatus")
+            .put("q3", "SELECT l.orderkey, sum(l.extendedprice * (1 - l.discount)) AS revenue, o.orderdate, o.shippriority " +
+                    "FROM %1$s.customer c, %1$s.orders o, %1$s.lineitem l " +
+                    "WHERE c.mktsegment = 'BUILDING' AND c.custkey = o.custkey AND l.orderkey = o.orderkey " +
+                    "AND o.orderdate < DATE '1995-03-15' AND l.shipdate > DATE '1995-03-15' " +
+                    "GROUP BY l.orderkey, o.orderdate, o.shippriority ORDER BY revenue DESC, o.orderdate LIMIT 10")
+            .put("q6", "SELECT sum(extendedprice * discount) FROM %s.lineitem " +
+                    "WHERE shipdate >= DATE '1994-01-01' AND shipdate < DATE '1995-01-01' " +
+                    "AND discount BETWEEN 0.05 AND 0.07 AND quantity < 24")
+            .put("q10", "SELECT c.custkey, c.name, sum(l.extendedprice * (1 - l.discount)) AS revenue, n.name " +
+                    "FROM %1$s.customer c, %1$s.orders o, %1$s.lineitem l, %1$s.nation n " +
+                    "WHERE c.custkey = o.custkey AND l.orderkey = o.orderkey AND o.orderdate >= DATE '1993-10-01' " +
+                    "AND o.orderdate < DATE '1994-01-01' AND l.returnflag = 'R' AND c.nationkey = n.nationkey " +
+                    "GROUP BY c.custkey, c.name, n.name ORDER BY revenue DESC LIMIT 20")
+            .build();
+
+    private final List<Query> queries;
+    private final int totalWeight;
+
+    public QueryMix(List<Query> queries)
+    {
+        checkArgument(!queries.isEmpty(), "queries is empty");
+        this.queries = ImmutableList.copyOf(queries);
+        this.totalWeight = queries.stream().mapToInt(Query::getWeight).sum();
+    }
+
+    /**
+     * Creates a mix of TPC-H queries against the given schema (e.g. {@code tpch.tiny} or {@code tpch.sf1}).
+     * The specification is a comma separated list of query names with optional weights, e.g. {@code q1=2,q6,nation=4}.
+     * Available queries: nation, q1, q3, q6, q10.
+     */
+    public static QueryMix tpch(String schema, String specification)
+    {
+        ImmutableList.Builder<Query> queries = ImmutableList.builder();
+        for (String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(specification)) {
+            List<String> nameAndWeight = Splitter.on('=').trimResults().splitToList(entry);
+            String name = nameAndWeight.get(0);
+            checkArgument(TPCH_QUERIES.containsKey(name), "Unknown query %s, available queries: %s", name, TPCH_QUERIES.keySet());
+            int weight = nameAndWeight.size() > 1 ? Integer.parseInt(nameAndWeight.get(1)) : 1;
+            queries.add(new Query(name, String.format(TPCH_QUERIES.get(name), schema), weight));
+        }
+        return new QueryMix(queries.build());
+    }
+
+    public static QueryMix tpch(String schema)
+    {
+        return tpch(schema, String.join(",", TPCH_QUERIES.keySet()));
+    }
+
+    public List<Query> getQueries()
+    {
+        return queries;
+    }
+
+    public Query next(Random random)
+    {
+        int position = random.nextInt(totalWeight);
+        for (Query query : queries) {
+            position -= query.getWeight();
+            if (position < 0) {
+                return query;
+            }
+        }
+        throw new IllegalStateException("weights changed");
+    }
+
+    public static class Query
+    {
+        private final String name;
+        private final String sql;
+        private final int weight;
+
+        public Query(String name, String sql, int weight)
+        {
+            checkArgument(weight > 0, "weight must be positive");
+            this.name = requireNonNull(name, "name is null");
+            this.sql = requireNonNull(sql, "sql is null");
+            this.weight = weight;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getSql()
+        {
+            return sql;
+        }
+
+        public int getWeight()
+        {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
+import com.teradata.presto.yarn.test.utils.QueryStatistics;
+import com.teradata.presto.yarn.test.workload.QueryMix.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs a number of concurrent clients, each sending queries picked from the {@link QueryMix} one
+ * after another, either for a fixed time or for a fixed number of queries per client.
+ */
+public class WorkloadDriver
+{
+    private static final Logger log = LoggerFactory.getLogger(WorkloadDriver.class);
+
+    private final QueryMix queryMix;
+    private final int clients;
+    private final long durationInMilliseconds;
+    private final int iterations;
+
+    public static WorkloadDriver workload(QueryMix queryMix)
+    {
+        return new WorkloadDriver(queryMix, 1, MINUTES.toMillis(1), 0);
+    }
+
+    private WorkloadDriver(QueryMix queryMix, int clients, long durationInMilliseconds, int iterations)
+    {
+        checkArgument(clients > 0, "clients must be positive");
+        checkArgument(durationInMilliseconds >= 0, "duration is negative");
+        checkArgument(iterations >= 0, "iterations is negative");
+        this.queryMix = requireNonNull(queryMix, "queryMix is null");
+        this.clients = clients;
+        this.durationInMilliseconds = durationInMilliseconds;
+        this.iterations = iterations;
+    }
+
+    public WorkloadDriver withClients(int clients)
+    {
+        return new WorkloadDriver(queryMix, clients, durationInMilliseconds, iterations);
+    }
+
+    /**
+     * Each client sends queries until the duration elapses.
+     */
+    public WorkloadDriver withDuration(long durationInMilliseconds)
+    {
+        return new WorkloadDriver(queryMix, clients, durationInMilliseconds, 0);
+    }
+
+    /**
+     * Each client sends the given number of queries, regardless of how long it takes.
+     */
+    public WorkloadDriver withIterations(int iterations)
+    {
+        return new WorkloadDriver(queryMix, clients, durationInMilliseconds, iterations);
+    }
+
+    public int getClients()
+    {
+        return clients;
+    }
+
+    public WorkloadReport run(PooledQueryExecutor queryExecutor)
+    {
+        Map<String, QueryRecorder> recorders = new LinkedHashMap<>();
+        queryMix.getQueries().forEach(query -> recorders.put(query.getName(), new QueryRecorder()));
+
+        ExecutorService executor = newFixedThreadPool(clients, new ThreadFactoryBuilder()
+                .setNameFormat("workload-client-%s")
+                .setDaemon(true)
+                .build());
+        CountDownLatch startSignal = new CountDownLatch(1);
+        long start;
+        long end;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                Random random = new Random(client);
+                futures.add(executor.submit(() -> runClient(queryExecutor, random, recorders, startSignal)));
+            }
+            log.info("Starting workload with {} clients", clients);
+            start = System.nanoTime();
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                getUnchecked(future);
+            }
+            end = System.nanoTime();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        WorkloadReport.Builder report = WorkloadReport.builder(clients, NANOSECONDS.toMillis(end - start));
+        recorders.forEach((name, recorder) -> report.addQuery(name, recorder.latencies.snapshot(), recorder.getErrors(), recorder.getRows(), recorder.getErrorMessages()));
+        return report.build();
+    }
+
+    private void runClient(PooledQueryExecutor queryExecutor, Random random, Map<String, QueryRecorder> recorders, CountDownLatch startSignal)
+    {
+        awaitUninterruptibly(startSignal);
+        long deadline = System.nanoTime() + MILLISECONDS.toNanos(durationInMilliseconds);
+        for (int iteration = 0; iterations > 0 ? iteration < iterations : System.nanoTime() < deadline; iteration++) {
+            Query query = queryMix.next(random);
+            QueryRecorder recorder = recorders.get(query.getName());
+            try {
+                // latency counts from statement execution, without borrowing the connection and resolving the coordinator
+                QueryStatistics statistics = queryExecutor.streamQuery(query.getSql(), row -> {});
+                recorder.recordSuccess(statistics.getTimeToLastRow(), statistics.getRows());
+            }
+            catch (RuntimeException e) {
+                log.debug("Query {} failed", query.getName(), e);
+                recorder.recordFailure(e);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void getUnchecked(Future<?> future)
+    {
+        try {
+            future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static class QueryRecorder
+    {
+        private static final int MAX_ERROR_MESSAGES = 5;
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final List<String> errorMessages = new ArrayList<>();
+        private long errors;
+        private long rows;
+
+        private void recordSuccess(long latencyInMilliseconds, long rows)
+        {
+            latencies.record(latencyInMilliseconds);
+            synchronized (this) {
+                this.rows += rows;
+            }
+        }
+
+        private synchronized void recordFailure(RuntimeException e)
+        {
+            errors++;
+            String message = String.valueOf(e.getMessage());
+            if (errorMessages.size() < MAX_ERROR_MESSAGES && !errorMessages.contains(message)) {
+                errorMessages.add(message);
+            }
+        }
+
+        private synchronized long getErrors()
+        {
+            return errors;
+        }
+
+        private synchronized long getRows()
+        {
+            return rows;
+        }
+
+        private synchronized List<String> getErrorMessages()
+        {
+            return new ArrayList<>(errorMessages);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.workload.LatencyHistogram.Snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of a {@link WorkloadDriver} run: latency percentiles, throughput and errors per query and in total.
+ */
+public class WorkloadReport
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int clients;
+    private final long durationInMilliseconds;
+    private final Map<String, QueryReport> queries;
+    private final Map<String, String> properties;
+
+    private WorkloadReport(int clients, long durationInMilliseconds, Map<String, QueryReport> queries, Map<String, String> properties)
+    {
+        this.clients = clients;
+        this.durationInMilliseconds = durationInMilliseconds;
+        this.queries = ImmutableMap.copyOf(queries);
+        this.properties = ImmutableMap.copyOf(properties);
+    }
+
+    static Builder builder(int clients, long durationInMilliseconds)
+    {
+        return new Builder(clients, durationInMilliseconds);
+    }
+
+    /**
+     * Returns a copy of the report with an additional property describing the run (e.g. cluster resources).
+     */
+    public WorkloadReport withProperty(String name, String value)
+    {
+        Map<String, String> properties = new LinkedHashMap<>(this.properties);
+        properties.put(name, value);
+        return new WorkloadReport(clients, durationInMilliseconds, queries, properties);
+    }
+
+    public int getClients()
+    {
+        return clients;
+    }
+
+    public long getDurationInMilliseconds()
+    {
+        return durationInMilliseconds;
+    }
+
+    public Map<String, QueryReport> getQueries()
+    {
+        return queries;
+    }
+
+    public long getCompletedQueries()
+    {
+        return queries.values().stream().mapToLong(QueryReport::getCompleted).sum();
+    }
+
+    public long getFailedQueries()
+    {
+        return queries.values().stream().mapToLong(QueryReport::getErrors).sum();
+    }
+
+    public double getQueriesPerSecond()
+    {
+        return durationInMilliseconds == 0 ? 0 : getCompletedQueries() * 1000.0 / durationInMilliseconds;
+    }
+
+    public double getErrorRate()
+    {
+        long total = getCompletedQueries() + getFailedQueries();
+        return total == 0 ? 0 : (double) getFailedQueries() / total;
+    }
+
+    public String toJson()
+    {
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        ObjectNode runProperties = report.putObject("properties");
+        properties.forEach(runProperties::put);
+        report.put("clients", clients)
+                .put("durationMillis", durationInMilliseconds)
+                .put("completed", getCompletedQueries())
+                .put("failed", getFailedQueries())
+                .put("qps", getQueriesPerSecond())
+                .put("errorRate", getErrorRate());
+        ObjectNode queriesNode = report.putObject("queries");
+        queries.forEach((name, query) -> {
+            ObjectNode queryNode = queriesNode.putObject(name)
+                    .put("completed", query.getCompleted())
+                    .put("failed", query.getErrors())
+                    .put("rows", query.getRows())
+                    .put("qps", durationInMilliseconds == 0 ? 0 : query.getCompleted() * 1000.0 / durationInMilliseconds)
+                    .put("errorRate", query.getErrorRate());
+            queryNode.putObject("latencyMillis")
+                    .put("p50", query.getLatencies().getPercentile(0.5))
+                    .put("p95", query.getLatencies().getPercentile(0.95))
+                    .put("p99", query.getLatencies().getPercentile(0.99))
+                    .put("max", query.getLatencies().getMax())
+                    .put("mean", query.getLatencies().getMean());
+            query.getErrorMessages().forEach(queryNode.putArray("errors")::add);
+        });
+        try {
+            return OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeTo(Path path)
+    {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, toJson().getBytes(UTF_8));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder summary = new StringBuilder(String.format("%d clients, %d ms, %d completed, %d failed, %.2f qps",
+                clients, durationInMilliseconds, getCompletedQueries(), getFailedQueries(), getQueriesPerSecond()));
+        queries.forEach((name, query) -> summary.append(String.format("%n  %-8s completed: %6d, failed: %4d, p50: %6d ms, p95: %6d ms, p99: %6d ms, max: %6d ms",
+                name,
+                query.getCompleted(),
+                query.getErrors(),
+                query.getLatencies().getPercentile(0.5),
+                query.getLatencies().getPercentile(0.95),
+                query.getLatencies().getPercentile(0.99),
+                query.getLatencies().getMax())));
+        return summary.toString();
+    }
+
+    public static class QueryReport
+    {
+        private final Snapshot latencies;
+        private final long errors;
+        private final long rows;
+        private final List<String> errorMessages;
+
+        public QueryReport(Snapshot latencies, long errors, long rows, List<String> errorMessages)
+        {
+            this.latencies = requireNonNull(latencies, "latencies is null");
+            this.errors = errors;
+            this.rows = rows;
+            this.errorMessages = ImmutableList.copyOf(requireNonNull(errorMessages, "errorMessages is null"));
+        }
+
+        public Snapshot getLatencies()
+        {
+            return latencies;
+        }
+
+        public long getCompleted()
+        {
+            return latencies.getCount();
+        }
+
+        public long getErrors()
+        {
+            return errors;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public double getErrorRate()
+        {
+            long total = getCompleted() + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+
+        public List<String> getErrorMessages()
+        {
+            return errorMessages;
+        }
+    }
+
+    static class Builder
+    {
+        private final int clients;
+        private final long durationInMilliseconds;
+        private final Map<String, QueryReport> queries = new LinkedHashMap<>();
+
+        private Builder(int clients, long durationInMilliseconds)
+        {
+            this.clients = clients;
+            this.durationInMilliseconds = durationInMilliseconds;
+        }
+
+        Builder addQuery(String name, Snapshot latencies, long errors, long rows, List<String> errorMessages)
+        {
+            queries.put(name, new QueryReport(latencies, errors, rows, errorMessages));
+            return this;
+        }
+
+        WorkloadReport build()
+        {
+            return new WorkloadReport(clients, durationInMilliseconds, queries, ImmutableMap.of());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplicationInstanceTest
+{
+    private static final String TEMPLATE = "{\"global\": {" +
+            "\"site.global.presto_server_port\": \"8080\"," +
+            "\"site.global.data_dir\": \"/var/lib/presto/data\"," +
+            "\"site.global.config_dir\": \"/var/lib/presto/etc\"," +
+            "\"site.global.singlenode\": \"true\"" +
+            "}}";
+
+    @Test
+    public void testIsolatedInstancesDoNotShareResources()
+    {
+        ApplicationInstance first = ApplicationInstance.isolated();
+        ApplicationInstance second = ApplicationInstance.isolated();
+
+        assertThat(first.getName()).isNotEqualTo(second.getName());
+        assertThat(first.getPort()).isNotEqualTo(second.getPort());
+        assertThat(first.getHdfsDirectory()).isEqualTo(".slider/cluster/" + first.getName());
+        assertThat(first.getProcessPattern()).isNotEqualTo(second.getProcessPattern());
+        assertThat(ApplicationInstance.defaultInstance().getProcessPattern()).isEqualTo("PrestoServer");
+    }
+
+    @Test
+    public void testReleasedPortIsReused()
+    {
+        ApplicationInstance first = ApplicationInstance.isolated(28080);
+        ApplicationInstance second = ApplicationInstance.isolated(28080);
+        assertThat(first.getPort()).isEqualTo(28080);
+        assertThat(second.getPort()).isEqualTo(28081);
+
+        first.release();
+        ApplicationInstance third = ApplicationInstance.isolated(28080);
+        assertThat(third.getPort()).isEqualTo(28080);
+
+        // releasing twice does not give away the port of another application
+        first.release();
+        assertThat(ApplicationInstance.isolated(28080).getPort()).isEqualTo(28082);
+        assertThat(ApplicationInstance.isolated().getPort()).isGreaterThanOrEqualTo(ApplicationInstance.DEFAULT_ISOLATED_BASE_PORT);
+    }
+
+    @Test
+    public void testTemplateIsRewritten()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("application-instance");
+        Path template = Files.write(directory.resolve("appConfig.json"), TEMPLATE.getBytes(UTF_8));
+        ApplicationInstance instance = ApplicationInstance.isolated();
+
+        Path copy = instance.writeTemplate(template, directory);
+
+        assertThat(copy.getFileName().toString()).isEqualTo(instance.getName() + "-appConfig.json");
+        JsonNode global = new ObjectMapper().readTree(Files.readAllBytes(copy)).get("global");
+        assertThat(global.get("site.global.presto_server_port").asText()).isEqualTo(String.valueOf(instance.getPort()));
+        assertThat(global.get("site.global.data_dir").asText()).isEqualTo("/var/lib/presto/apps/" + instance.getName() + "/data");
+        assertThat(global.get("site.global.config_dir").asText()).isEqualTo("/var/lib/presto/apps/" + instance.getName() + "/etc");
+        assertThat(global.get("site.global.singlenode").asText()).isEqualTo("true");
+        assertThat(instance.getProcessPattern()).startsWith(global.get("site.global.config_dir").asText());
+    }
+
+    @Test
+    public void testDefaultInstanceKeepsTemplate()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("application-instance");
+        Path template = Files.write(directory.resolve("appConfig.json"), TEMPLATE.getBytes(UTF_8));
+
+        Path copy = ApplicationInstance.defaultInstance().writeTemplate(template, directory);
+
+        JsonNode global = new ObjectMapper().readTree(Files.readAllBytes(copy)).get("global");
+        assertThat(global.get("site.global.presto_server_port").asText()).isEqualTo("8080");
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrestoClusterPoolTest
+{
+    @Test
+    public void testWorkerInstances()
+            throws IOException
+    {
+        assertThat(PrestoClusterPool.getWorkerInstances(write("{\"components\": {\"COORDINATOR\": {}, \"WORKER\": {\"yarn.component.instances\": \"3\"}}}"))).isEqualTo(3);
+        assertThat(PrestoClusterPool.getWorkerInstances(write("{\"components\": {\"COORDINATOR\": {}, \"WORKER\": {}}}"))).isEqualTo(1);
+        assertThat(PrestoClusterPool.getWorkerInstances(write("{\"components\": {\"COORDINATOR\": {}}}"))).isEqualTo(0);
+    }
+
+    @Test
+    public void testCatalogs()
+            throws IOException
+    {
+        Path template = write("{\"global\": {\"site.global.catalog\": " +
+                "\"{'hive': ['connector.name=hive-hadoop2', 'hive.metastore.uri=thrift://${NN_HOST}:9083'], 'tpch': ['connector.name=tpch']}\"}}");
+
+        assertThat(PrestoClusterPool.getCatalogs(template)).containsOnly("hive", "tpch");
+        assertThat(PrestoClusterPool.getCatalogs(write("{\"global\": {}}"))).isEmpty();
+    }
+
+    private static Path write(String json)
+            throws IOException
+    {
+        Path file = Files.createTempFile("pool", ".json");
+        file.toFile().deleteOnExit();
+        Files.write(file, json.getBytes(UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import com.teradata.presto.yarn.test.autoscaling.AutoscalerSimulation.SimulationResult;
+import org.testng.annotations.Test;
+
+import static com.teradata.presto.yarn.test.autoscaling.AutoscalerSimulation.simulate;
+import static com.teradata.presto.yarn.test.autoscaling.ScalingPolicy.scalingPolicy;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AutoscalerSimulationTest
+{
+    @Test
+    public void testScalesUpForBurstAndBackDown()
+    {
+        SimulationResult result = simulate(
+                scalingPolicy(1, 16),
+                LoadProfile.burst(0.1, 2, MINUTES.toMillis(10), MINUTES.toMillis(20)))
+                .withDuration(HOURS.toMillis(1))
+                .run();
+
+        assertThat(result.getMaxWorkers()).isEqualTo(16);
+        assertThat(result.getFinalWorkers()).isLessThanOrEqualTo(2);
+        assertThat(result.getScaleUps()).isGreaterThan(0);
+        assertThat(result.getScaleDowns()).isGreaterThan(0);
+        assertThat(result.getAverageWorkers()).isLessThan(16);
+    }
+
+    @Test
+    public void testStaysAtMinimumWithoutLoad()
+    {
+        SimulationResult result = simulate(scalingPolicy(2, 16), LoadProfile.constant(0)).run();
+
+        assertThat(result.getEvents()).isEmpty();
+        assertThat(result.getFinalWorkers()).isEqualTo(2);
+        assertThat(result.getCompletedQueries()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testAutoscalingReducesQueueing()
+    {
+        LoadProfile profile = LoadProfile.constant(1);
+        SimulationResult fixed = simulate(scalingPolicy(2, 2), profile).run();
+        SimulationResult autoscaled = simulate(scalingPolicy(2, 16), profile).run();
+
+        assertThat(autoscaled.getPendingQuerySeconds()).isLessThan(fixed.getPendingQuerySeconds() / 10);
+        assertThat(autoscaled.getCompletedQueries()).isGreaterThan(fixed.getCompletedQueries());
+    }
+}
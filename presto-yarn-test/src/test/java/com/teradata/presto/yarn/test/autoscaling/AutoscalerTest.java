@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.autoscaling;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.autoscaling.ScalingPolicy.scalingPolicy;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AutoscalerTest
+{
+    private static final String APP_NAME = "presto_test";
+
+    private static final LoadSample IDLE = new LoadSample(0, 0, 0, 4, 0.0);
+    private static final LoadSample BALANCED = new LoadSample(0, 8, 0, 4, 0.5);
+    private static final LoadSample OVERLOADED = new LoadSample(20, 16, 0, 4, 1.0);
+
+    @Test
+    public void testTargetWorkers()
+    {
+        ScalingPolicy policy = scalingPolicy(1, 10).withQueriesPerWorker(4).withMaxStep(100);
+
+        assertThat(policy.targetWorkers(4, BALANCED)).isEqualTo(4);
+        assertThat(policy.targetWorkers(4, OVERLOADED)).isEqualTo(9);
+        assertThat(policy.targetWorkers(4, IDLE)).isEqualTo(1);
+        // high utilization without queued queries adds a single worker
+        assertThat(policy.targetWorkers(4, new LoadSample(0, 14, 0, 4, 0.9))).isEqualTo(5);
+        // workers which are still starting are not requested again
+        assertThat(policy.targetWorkers(6, new LoadSample(0, 14, 0, 4, 0.9))).isEqualTo(6);
+        // scaling down leaves headroom below the high utilization threshold
+        assertThat(policy.targetWorkers(8, new LoadSample(0, 7, 0, 8, 0.2))).isEqualTo(3);
+    }
+
+    @Test
+    public void testTargetWorkersBounds()
+    {
+        assertThat(scalingPolicy(1, 6).withMaxStep(100).targetWorkers(4, OVERLOADED)).isEqualTo(6);
+        assertThat(scalingPolicy(2, 10).withMaxStep(100).targetWorkers(4, IDLE)).isEqualTo(2);
+        assertThat(scalingPolicy(1, 10).withMaxStep(2).targetWorkers(4, OVERLOADED)).isEqualTo(6);
+        assertThat(scalingPolicy(1, 10).withMaxStep(2).targetWorkers(4, IDLE)).isEqualTo(2);
+    }
+
+    @Test
+    public void testHysteresis()
+    {
+        Autoscaler autoscaler = autoscaler(scalingPolicy(1, 10).withHysteresis(2, 3).withCooldowns(0, 0));
+
+        assertThat(autoscaler.decide(4, OVERLOADED, 0)).isEqualTo(4);
+        assertThat(autoscaler.decide(4, OVERLOADED, 1)).isEqualTo(8);
+
+        assertThat(autoscaler.decide(8, IDLE, 2)).isEqualTo(8);
+        assertThat(autoscaler.decide(8, IDLE, 3)).isEqualTo(8);
+        // a sample which does not ask for scaling down resets the streak
+        assertThat(autoscaler.decide(8, BALANCED, 4)).isEqualTo(8);
+        assertThat(autoscaler.decide(8, IDLE, 5)).isEqualTo(8);
+        assertThat(autoscaler.decide(8, IDLE, 6)).isEqualTo(8);
+        assertThat(autoscaler.decide(8, IDLE, 7)).isEqualTo(4);
+
+        assertThat(autoscaler.getEvents()).hasSize(2);
+    }
+
+    @Test
+    public void testCooldowns()
+    {
+        Autoscaler autoscaler = autoscaler(scalingPolicy(1, 10)
+                .withHysteresis(1, 1)
+                .withCooldowns(SECONDS.toMillis(30), MINUTES.toMillis(5)));
+
+        assertThat(autoscaler.decide(4, OVERLOADED, 0)).isEqualTo(8);
+        assertThat(autoscaler.decide(8, OVERLOADED, SECONDS.toMillis(10))).isEqualTo(8);
+        assertThat(autoscaler.decide(8, OVERLOADED, SECONDS.toMillis(30))).isEqualTo(9);
+
+        assertThat(autoscaler.decide(9, IDLE, MINUTES.toMillis(1))).isEqualTo(9);
+        assertThat(autoscaler.decide(9, IDLE, SECONDS.toMillis(330))).isEqualTo(5);
+    }
+
+    @Test
+    public void testTickFlexesWorkers()
+    {
+        AtomicLong clock = new AtomicLong();
+        AtomicReference<LoadSample> load = new AtomicReference<>(OVERLOADED);
+        SimulatedSliderClient sliderClient = new SimulatedSliderClient(clock::get, 0);
+        sliderClient.create(APP_NAME, Paths.get("appConfig.json"), Paths.get("resources.json"));
+        sliderClient.flex(APP_NAME, WORKER_COMPONENT, 4);
+        Autoscaler autoscaler = new Autoscaler(sliderClient, APP_NAME, load::get, scalingPolicy(1, 10).withHysteresis(1, 1).withCooldowns(0, 0), clock::get);
+
+        assertThat(autoscaler.tick()).isEqualTo(8);
+        assertThat(sliderClient.getAllocatedContainers(APP_NAME, WORKER_COMPONENT)).isEqualTo(8);
+
+        load.set(IDLE);
+        clock.addAndGet(1);
+        assertThat(autoscaler.tick()).isEqualTo(4);
+        assertThat(sliderClient.getAllocatedContainers(APP_NAME, WORKER_COMPONENT)).isEqualTo(4);
+        assertThat(sliderClient.getFlexCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testTickSkipsStoppedApplication()
+    {
+        SimulatedSliderClient sliderClient = new SimulatedSliderClient(() -> 0, 0);
+        Autoscaler autoscaler = new Autoscaler(sliderClient, APP_NAME, () -> OVERLOADED, scalingPolicy(1, 10).withHysteresis(1, 1));
+
+        assertThat(autoscaler.tick()).isEqualTo(0);
+        assertThat(sliderClient.getFlexCount()).isEqualTo(0);
+    }
+
+    private static Autoscaler autoscaler(ScalingPolicy policy)
+    {
+        return new Autoscaler(new SimulatedSliderClient(() -> 0, 0), APP_NAME, () -> IDLE, policy, () -> 0);
+    }
+}
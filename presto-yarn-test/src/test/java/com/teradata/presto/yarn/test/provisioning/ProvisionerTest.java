@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.provisioning;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.provisioning.Provisioner.ProvisioningException;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static com.teradata.presto.yarn.test.provisioning.ProvisioningStep.step;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProvisionerTest
+{
+    private static final List<String> ALL_NODES = asList("master", "slave1", "slave2");
+    private static final List<String> MASTER = singletonList("master");
+
+    private InMemoryMarkers markers;
+    private Provisioner provisioner;
+    private List<String> executed;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        markers = new InMemoryMarkers();
+        provisioner = new Provisioner(markers, MultiHostExecutor.parallel(4));
+        executed = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    public void testDependenciesAreProvisionedFirst()
+    {
+        Map<String, List<String>> provisioned = provisioner.provision(steps("yarn-site-v1"));
+
+        assertThat(provisioned).isEqualTo(ImmutableMap.of(
+                "configuration", ALL_NODES,
+                "restart", MASTER,
+                "labels", MASTER,
+                "data-directory", ALL_NODES));
+        assertThat(executed.indexOf("restart@master")).isGreaterThan(executed.lastIndexOf("configuration@slave2"));
+        assertThat(executed.indexOf("labels@master")).isGreaterThan(executed.indexOf("restart@master"));
+    }
+
+    @Test
+    public void testCompletedStepsAreSkipped()
+    {
+        provisioner.provision(steps("yarn-site-v1"));
+        executed.clear();
+
+        assertThat(provisioner.provision(steps("yarn-site-v1"))).isEmpty();
+        assertThat(executed).isEmpty();
+    }
+
+    @Test
+    public void testChangedInputRedoesDependentStepsOnly()
+    {
+        provisioner.provision(steps("yarn-site-v1"));
+        executed.clear();
+
+        Map<String, List<String>> provisioned = provisioner.provision(steps("yarn-site-v2"));
+
+        assertThat(provisioned.keySet()).containsExactly("configuration", "restart", "labels");
+        assertThat(executed).doesNotContain("data-directory@master");
+    }
+
+    @Test
+    public void testNewNodeIsProvisioned()
+    {
+        provisioner.provision(steps("yarn-site-v1"));
+        executed.clear();
+
+        List<ProvisioningStep> steps = ImmutableList.of(
+                step("configuration", asList("master", "slave1", "slave2", "slave3"), record("configuration")).withInputs("yarn-site-v1"),
+                step("data-directory", asList("master", "slave1", "slave2", "slave3"), record("data-directory")));
+
+        assertThat(provisioner.provision(steps)).isEqualTo(ImmutableMap.of(
+                "configuration", singletonList("slave3"),
+                "data-directory", singletonList("slave3")));
+    }
+
+    @Test
+    public void testInterruptedProvisioningIsResumed()
+    {
+        List<ProvisioningStep> failing = ImmutableList.of(
+                step("configuration", ALL_NODES, record("configuration")).withInputs("yarn-site-v1"),
+                step("restart", MASTER, host -> {
+                    throw new RuntimeException("connection lost");
+                }).dependsOn("configuration"),
+                step("labels", MASTER, record("labels")).dependsOn("restart"),
+                step("data-directory", ALL_NODES, record("data-directory")));
+
+        assertThatThrownBy(() -> provisioner.provision(failing))
+                .isInstanceOf(ProvisioningException.class)
+                .hasMessageContaining("[restart] failed, skipped dependent steps [labels]");
+        assertThat(executed).doesNotContain("labels@master");
+        assertThat(executed).contains("data-directory@slave2");
+        executed.clear();
+
+        assertThat(provisioner.provision(steps("yarn-site-v1")).keySet()).containsExactly("restart", "labels");
+    }
+
+    @Test
+    public void testIndependentStepsRunConcurrently()
+    {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Consumer<String> awaitOther = host -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(10, SECONDS)) {
+                    throw new RuntimeException("steps did not run concurrently");
+                }
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        provisioner.provision(ImmutableList.of(
+                step("cgroup", MASTER, awaitOther),
+                step("data-directory", MASTER, awaitOther)));
+
+        assertThat(bothStarted.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testInvalidSteps()
+    {
+        assertThatThrownBy(() -> provisioner.provision(ImmutableList.of(step("restart", MASTER, record("restart")).dependsOn("configuration"))))
+                .hasMessageContaining("Step restart depends on unknown step configuration");
+        assertThatThrownBy(() -> provisioner.provision(ImmutableList.of(
+                step("first", MASTER, record("first")).dependsOn("second"),
+                step("second", MASTER, record("second")).dependsOn("first"))))
+                .hasMessageContaining("Provisioning steps have a cycle: first -> second -> first");
+        assertThatThrownBy(() -> step("Restart RM", MASTER, record("restart")))
+                .hasMessageContaining("step name must consist of lowercase letters, digits and dashes");
+    }
+
+    private List<ProvisioningStep> steps(String yarnSite)
+    {
+        return ImmutableList.of(
+                step("configuration", ALL_NODES, record("configuration")).withInputs(yarnSite),
+                step("restart", MASTER, record("restart")).dependsOn("configuration"),
+                step("labels", MASTER, record("labels")).withInputs("coordinator", "worker").dependsOn("restart"),
+                step("data-directory", ALL_NODES, record("data-directory")));
+    }
+
+    private Consumer<String> record(String step)
+    {
+        return host -> executed.add(step + "@" + host);
+    }
+
+    private static class InMemoryMarkers
+            implements ProvisioningMarkers
+    {
+        private final Map<String, Map<String, String>> markers = new ConcurrentHashMap<>();
+
+        @Override
+        public Map<String, String> read(String host)
+        {
+            return ImmutableMap.copyOf(markers.getOrDefault(host, ImmutableMap.of()));
+        }
+
+        @Override
+        public void write(String host, String step, String digest)
+        {
+            markers.computeIfAbsent(host, key -> new ConcurrentHashMap<>()).put(step, digest);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import com.teradata.presto.yarn.test.scheduling.CapacityScheduler.Admission;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CapacitySchedulerTest
+{
+    private ExecutorService executor;
+    private CapacityScheduler scheduler;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool();
+        scheduler = new CapacityScheduler(new ResourceRequest(6, 6000));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentAdmissionsWithinCapacity()
+            throws Exception
+    {
+        Admission first = scheduler.admit("first", new ResourceRequest(3, 3000));
+        Admission second = scheduler.admit("second", new ResourceRequest(3, 3000));
+
+        assertThat(scheduler.getAdmitted()).isEqualTo(new ResourceRequest(6, 6000));
+        first.close();
+        second.close();
+        assertThat(scheduler.getAdmitted()).isEqualTo(new ResourceRequest(0, 0));
+    }
+
+    @Test
+    public void testWaitsForCapacity()
+            throws Exception
+    {
+        Admission running = scheduler.admit("running", new ResourceRequest(5, 1000));
+        Future<Admission> waiting = executor.submit(() -> scheduler.admit("waiting", new ResourceRequest(2, 1000)));
+
+        assertNotAdmitted(waiting);
+        running.close();
+        assertThat(waiting.get(10, SECONDS).getRequest()).isEqualTo(new ResourceRequest(2, 1000));
+    }
+
+    @Test
+    public void testSmallRequestFillsGap()
+            throws Exception
+    {
+        Admission running = scheduler.admit("running", new ResourceRequest(3, 3000));
+        Future<Admission> large = executor.submit(() -> scheduler.admit("large", new ResourceRequest(5, 5000)));
+        assertNotAdmitted(large);
+
+        scheduler.admit("small", new ResourceRequest(2, 2000)).close();
+
+        running.close();
+        large.get(10, SECONDS).close();
+    }
+
+    @Test
+    public void testOldestRequestIsNotStarved()
+            throws Exception
+    {
+        scheduler = new CapacityScheduler(new ResourceRequest(6, 6000), 2);
+        Admission running = scheduler.admit("running", new ResourceRequest(3, 3000));
+        Future<Admission> large = executor.submit(() -> scheduler.admit("large", new ResourceRequest(5, 5000)));
+        assertNotAdmitted(large);
+
+        scheduler.admit("first small", new ResourceRequest(2, 2000)).close();
+        scheduler.admit("second small", new ResourceRequest(2, 2000)).close();
+        // large request was bypassed twice already
+        Future<Admission> small = executor.submit(() -> scheduler.admit("third small", new ResourceRequest(2, 2000)));
+        assertNotAdmitted(small);
+
+        running.close();
+        Admission largeAdmission = large.get(10, SECONDS);
+        assertNotAdmitted(small);
+        largeAdmission.close();
+        small.get(10, SECONDS).close();
+    }
+
+    @Test
+    public void testRequestExceedingCapacityRunsAlone()
+            throws Exception
+    {
+        Admission huge = scheduler.admit("huge", new ResourceRequest(10, 10000));
+        assertThat(huge.getRequest()).isEqualTo(new ResourceRequest(6, 6000));
+
+        Future<Admission> exclusive = executor.submit(() -> scheduler.admitExclusively("exclusive"));
+        assertNotAdmitted(exclusive);
+        huge.close();
+        exclusive.get(10, SECONDS).close();
+    }
+
+    @Test
+    public void testBlockedRequestRunsListener()
+            throws Exception
+    {
+        Admission idle = scheduler.admit("idle", new ResourceRequest(5, 5000));
+        scheduler.addBlockedListener(() -> {
+            assertThat(scheduler.hasWaiters()).isTrue();
+            idle.close();
+        });
+
+        // admitted without anybody else releasing resources
+        executor.submit(() -> scheduler.admit("waiting", new ResourceRequest(2, 2000))).get(10, SECONDS).close();
+        assertThat(scheduler.hasWaiters()).isFalse();
+    }
+
+    private static void assertNotAdmitted(Future<Admission> admission)
+    {
+        assertThatThrownBy(() -> admission.get(200, MILLISECONDS)).isInstanceOf(TimeoutException.class);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ClusterPoolTest
+{
+    @Test
+    public void testClusterIsReusedForTheSameKey()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+        List<String> used = new ArrayList<>();
+
+        pool.withCluster("a", lifecycle.factory("a"), used::add);
+        pool.withCluster("a", lifecycle.factory("a"), used::add);
+
+        assertThat(used).containsExactly("a-0", "a-0");
+        assertThat(lifecycle.events).containsExactly("reset a-0");
+        assertThat(pool.getCreated()).isEqualTo(1);
+        assertThat(pool.getReused()).isEqualTo(1);
+        assertThat(pool.getIdle()).isEqualTo(1);
+    }
+
+    @Test
+    public void testIdleClustersOfDifferentKeysAreKept()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> {});
+        pool.withCluster("b", lifecycle.factory("b"), cluster -> {});
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> assertThat(cluster).isEqualTo("a-0"));
+        pool.withCluster("b", lifecycle.factory("b"), cluster -> assertThat(cluster).isEqualTo("b-1"));
+
+        assertThat(lifecycle.events).containsExactly("reset a-0", "reset b-1");
+        assertThat(pool.getCreated()).isEqualTo(2);
+        assertThat(pool.getReused()).isEqualTo(2);
+        assertThat(pool.getIdle()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLeastRecentlyReleasedClusterIsEvicted()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> {});
+        pool.withCluster("b", lifecycle.factory("b"), cluster -> {});
+        pool.withCluster("c", lifecycle.factory("c"), cluster -> {});
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.getIdle()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDirtyClusterIsNotReused()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        pool.withCluster("a", lifecycle.factory("a"), lifecycle.dirty::add);
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> assertThat(cluster).isEqualTo("a-1"));
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.getReused()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClusterOfFailedTestIsDestroyed()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        assertThatThrownBy(() -> pool.withCluster("a", lifecycle.factory("a"), cluster -> {
+            throw new IllegalStateException("test failed");
+        })).hasMessage("test failed");
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.getIdle()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClusterIsRecreatedWhenResetFails()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> {});
+        lifecycle.failReset = true;
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> assertThat(cluster).isEqualTo("a-1"));
+
+        assertThat(lifecycle.events).containsExactly("reset a-0", "destroy a-0");
+        assertThat(pool.getCreated()).isEqualTo(2);
+        assertThat(pool.getReused()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMaxIdle()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 0);
+
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> {});
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.getIdle()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEvictIdle()
+    {
+        RecordingLifecycle lifecycle = new RecordingLifecycle();
+        ClusterPool<String> pool = new ClusterPool<>(lifecycle, 2);
+
+        pool.withCluster("a", lifecycle.factory("a"), cluster -> {});
+        pool.evictIdle();
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.getIdle()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEvictIdleDuringReleaseEvictsReleasedCluster()
+            throws Exception
+    {
+        AtomicReference<ClusterPool<String>> pool = new AtomicReference<>();
+        AtomicReference<Thread> evicting = new AtomicReference<>();
+        RecordingLifecycle lifecycle = new RecordingLifecycle()
+        {
+            @Override
+            public boolean isReusable(String cluster)
+            {
+                // a test starts waiting for resources right when the cluster is checked
+                evicting.set(new Thread(pool.get()::evictIdle));
+                evicting.get().start();
+                try {
+                    evicting.get().join(200);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        pool.set(new ClusterPool<>(lifecycle, 2));
+
+        pool.get().withCluster("a", lifecycle.factory("a"), cluster -> {});
+        evicting.get().join(10_000);
+
+        assertThat(lifecycle.events).containsExactly("destroy a-0");
+        assertThat(pool.get().getIdle()).isEqualTo(0);
+    }
+
+    private static class RecordingLifecycle
+            implements ClusterPool.Lifecycle<String>
+    {
+        private final AtomicInteger created = new AtomicInteger();
+        private final List<String> events = new ArrayList<>();
+        private final Set<String> dirty = new HashSet<>();
+        private boolean failReset;
+
+        private Supplier<String> factory(String key)
+        {
+            return () -> key + "-" + created.getAndIncrement();
+        }
+
+        @Override
+        public void reset(String cluster)
+        {
+            events.add("reset " + cluster);
+            if (failReset) {
+                throw new IllegalStateException("reset failed");
+            }
+        }
+
+        @Override
+        public boolean isReusable(String cluster)
+        {
+            return !dirty.contains(cluster);
+        }
+
+        @Override
+        public void destroy(String cluster)
+        {
+            events.add("destroy " + cluster);
+        }
+    }
+}
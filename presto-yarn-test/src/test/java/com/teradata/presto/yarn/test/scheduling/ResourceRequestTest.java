@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.scheduling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceRequestTest
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    public void testMultinodeResources()
+            throws IOException
+    {
+        ResourceRequest request = ResourceRequest.fromResources(OBJECT_MAPPER.readTree("{" +
+                "\"global\": {\"yarn.vcores\": \"1\"}," +
+                "\"components\": {" +
+                "  \"slider-appmaster\": {}," +
+                "  \"COORDINATOR\": {\"yarn.component.instances\": \"1\", \"yarn.memory\": \"1500\"}," +
+                "  \"WORKER\": {\"yarn.component.instances\": \"3\", \"yarn.memory\": \"1500\"}" +
+                "}}"));
+
+        assertThat(request).isEqualTo(new ResourceRequest(5, 256 + 1500 + 3 * 1500));
+    }
+
+    @Test
+    public void testGlobalSettingsAndDefaults()
+            throws IOException
+    {
+        ResourceRequest request = ResourceRequest.fromResources(OBJECT_MAPPER.readTree("{" +
+                "\"global\": {\"yarn.memory\": \"1024\"}," +
+                "\"components\": {" +
+                "  \"COORDINATOR\": {}," +
+                "  \"WORKER\": {\"yarn.component.instances\": \"0\"}" +
+                "}}"));
+
+        // application master is always requested
+        assertThat(request).isEqualTo(new ResourceRequest(2, 2048));
+    }
+
+    @Test
+    public void testArithmetic()
+    {
+        ResourceRequest capacity = new ResourceRequest(4, 4096);
+
+        assertThat(new ResourceRequest(2, 1024).fitsIn(capacity)).isTrue();
+        assertThat(new ResourceRequest(5, 1024).fitsIn(capacity)).isFalse();
+        assertThat(new ResourceRequest(2, 5000).fitsIn(capacity)).isFalse();
+        assertThat(capacity.minus(new ResourceRequest(6, 1024))).isEqualTo(new ResourceRequest(0, 3072));
+        assertThat(new ResourceRequest(8, 1024).capTo(capacity)).isEqualTo(new ResourceRequest(4, 1024));
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.simulation;
+
+import com.google.common.collect.ImmutableMap;
+import com.teradata.presto.yarn.test.slider.CliSliderClient;
+import com.teradata.presto.yarn.test.slider.SliderStatus;
+import com.teradata.presto.yarn.test.utils.DigestUploader;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor;
+import com.teradata.presto.yarn.test.utils.NodeSshUtils;
+import com.teradata.tempto.process.CommandExecutionException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.teradata.presto.yarn.test.PrestoCluster.COORDINATOR_COMPONENT;
+import static com.teradata.presto.yarn.test.PrestoCluster.WORKER_COMPONENT;
+import static com.teradata.presto.yarn.test.simulation.SimulatedCluster.MASTER;
+import static com.teradata.presto.yarn.test.simulation.SimulationSettings.DEFAULT_CONTAINER_STARTUP;
+import static com.teradata.presto.yarn.test.simulation.SimulationSettings.DEFAULT_NODE_MANAGER_RESTART;
+import static com.teradata.presto.yarn.test.simulation.SimulationSettings.simulationSettings;
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SimulatedClusterTest
+{
+    private static final String APP_NAME = "presto_cluster";
+    private static final long STARTUP = DEFAULT_CONTAINER_STARTUP;
+    private static final String TEMPLATE = "{\"global\": {\"site.global.config_dir\": \"/var/lib/presto/etc\", \"site.global.jvm_args\": \"['-server', '-Xmx512M']\"}}";
+    private static final String RESOURCES = "{\"components\": {\"slider-appmaster\": {}, " +
+            "\"COORDINATOR\": {\"yarn.component.instances\": \"1\", \"yarn.label.expression\": \"coordinator\"}, " +
+            "\"WORKER\": {\"yarn.component.instances\": \"3\", \"yarn.label.expression\": \"worker\"}}}";
+    private static final Map<String, String> LABELS = ImmutableMap.of(
+            "master", "coordinator",
+            "slave1", "worker",
+            "slave2", "worker",
+            "slave3", "worker",
+            "slave4", "worker");
+
+    private final AtomicLong clock = new AtomicLong(1);
+    private Path directory;
+    private Path template;
+    private Path resources;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        clock.set(1);
+        directory = Files.createTempDirectory("simulation");
+        template = Files.write(directory.resolve("appConfig.json"), TEMPLATE.getBytes(UTF_8));
+        resources = Files.write(directory.resolve("resources.json"), RESOURCES.getBytes(UTF_8));
+    }
+
+    @AfterMethod
+    public void tearDown()
+            throws IOException
+    {
+        Files.delete(template);
+        Files.delete(resources);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testNodeLabels()
+    {
+        SimulatedCluster cluster = createCluster(simulationSettings(5));
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.parallel(4));
+
+        assertThat(nodeSshUtils.getNodeIds()).containsExactly("master:45454", "slave1:45454", "slave2:45454", "slave3:45454", "slave4:45454");
+
+        nodeSshUtils.createLabels(LABELS);
+        nodeSshUtils.labelNodes(LABELS);
+
+        assertThat(nodeSshUtils.commandOnYarn("yarn node -status master:45454 | grep 'Node-Labels'")).contains("coordinator");
+        assertThat(nodeSshUtils.commandOnYarn("yarn node -status slave3:45454 | grep 'Node-Labels'")).contains("worker");
+        assertThatThrownBy(() -> nodeSshUtils.commandOnYarn("yarn rmadmin -replaceLabelsOnNode 'slave1,unknown'"))
+                .isInstanceOf(CommandExecutionException.class);
+    }
+
+    @Test
+    public void testApplicationLifecycle()
+    {
+        SimulatedCluster cluster = createLabeledCluster(simulationSettings(5));
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        CliSliderClient slider = cluster.sliderClient();
+
+        slider.create(APP_NAME, template, resources);
+        SliderStatus starting = slider.status(APP_NAME).get();
+        assertThat(starting.getLiveContainers(WORKER_COMPONENT)).isEqualTo(0);
+        assertThat(starting.getRequestedContainers(WORKER_COMPONENT)).isEqualTo(3);
+        assertThat(nodeSshUtils.isPrestoProcessRunning(MASTER)).isFalse();
+
+        clock.addAndGet(STARTUP);
+        SliderStatus live = slider.status(APP_NAME).get();
+        assertThat(live.getLiveComponentsHost(COORDINATOR_COMPONENT)).containsExactly(MASTER);
+        assertThat(live.getLiveComponentsHost(WORKER_COMPONENT)).hasSize(3).doesNotContain(MASTER);
+        for (String host : live.getLiveComponentsHost(WORKER_COMPONENT)) {
+            assertThat(nodeSshUtils.isPrestoProcessRunning(host)).isTrue();
+        }
+        assertThat(nodeSshUtils.isPrestoProcessRunning(MASTER, "/var/lib/presto/etc/config.properties.*PrestoServer")).isTrue();
+        assertThat(nodeSshUtils.getPrestoJvmMemory(MASTER)).isEqualTo(512L * 1024 * 1024);
+
+        slider.flex(APP_NAME, WORKER_COMPONENT, 1);
+        assertThat(slider.status(APP_NAME).get().getLiveContainers(WORKER_COMPONENT)).isEqualTo(1);
+
+        slider.stop(APP_NAME, false);
+        assertThat(slider.status(APP_NAME).isPresent()).isFalse();
+        assertThat(nodeSshUtils.isPrestoProcessRunning(MASTER)).isFalse();
+
+        slider.start(APP_NAME);
+        clock.addAndGet(STARTUP);
+        assertThat(slider.status(APP_NAME).get().getLiveContainers(WORKER_COMPONENT)).isEqualTo(1);
+
+        slider.cleanup(APP_NAME);
+        assertThat(cluster.isRunning(APP_NAME)).isFalse();
+        assertThatThrownBy(() -> slider.action("exists " + APP_NAME + " --live"))
+                .isInstanceOf(CommandExecutionException.class);
+    }
+
+    @Test
+    public void testKilledContainerIsReplaced()
+    {
+        SimulatedCluster cluster = createLabeledCluster(simulationSettings(5));
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        CliSliderClient slider = cluster.sliderClient();
+        slider.create(APP_NAME, template, resources);
+        clock.addAndGet(STARTUP);
+        String worker = slider.status(APP_NAME).get().getLiveComponentsHost(WORKER_COMPONENT).get(0);
+
+        nodeSshUtils.killPrestoProcesses(worker);
+
+        SliderStatus status = slider.status(APP_NAME).get();
+        assertThat(status.getLiveContainers(WORKER_COMPONENT)).isEqualTo(2);
+        assertThat(status.getFailedContainers(WORKER_COMPONENT)).isEqualTo(1);
+        clock.addAndGet(STARTUP);
+        assertThat(slider.status(APP_NAME).get().getLiveContainers(WORKER_COMPONENT)).isEqualTo(3);
+    }
+
+    @Test
+    public void testApplicationFailsAfterFailureThreshold()
+    {
+        SimulatedCluster cluster = createLabeledCluster(simulationSettings(5).withContainerFailureThreshold(1));
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        CliSliderClient slider = cluster.sliderClient();
+        slider.create(APP_NAME, template, resources);
+        clock.addAndGet(STARTUP);
+
+        nodeSshUtils.killPrestoProcesses(MASTER);
+        clock.addAndGet(STARTUP);
+        assertThat(cluster.isRunning(APP_NAME)).isTrue();
+        nodeSshUtils.killPrestoProcesses(MASTER);
+
+        assertThat(cluster.isRunning(APP_NAME)).isFalse();
+        assertThat(cluster.getFailedContainers(APP_NAME)).isEqualTo(2);
+        assertThat(slider.status(APP_NAME).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testNodeManagerRestart()
+    {
+        SimulatedCluster cluster = createLabeledCluster(simulationSettings(5));
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        CliSliderClient slider = cluster.sliderClient();
+        slider.create(APP_NAME, template, resources);
+        clock.addAndGet(STARTUP);
+        assertThat(cluster.getLiveContainers(APP_NAME, WORKER_COMPONENT)).isEqualTo(3);
+
+        nodeSshUtils.runOnNode(MASTER, "supervisorctl restart yarn-nodemanager");
+
+        assertThat(nodeSshUtils.getNodeIds()).hasSize(4).doesNotContain("master:45454");
+        assertThat(cluster.getLiveContainers(APP_NAME, COORDINATOR_COMPONENT)).isEqualTo(0);
+        clock.addAndGet(DEFAULT_NODE_MANAGER_RESTART);
+        assertThat(nodeSshUtils.getNodeIds()).hasSize(5);
+        clock.addAndGet(STARTUP);
+        assertThat(cluster.getLiveContainers(APP_NAME, COORDINATOR_COMPONENT)).isEqualTo(1);
+    }
+
+    @Test
+    public void testStatusFailures()
+    {
+        SimulatedCluster flaky = createLabeledCluster(simulationSettings(5).withoutLatencies().withStatusFailureRate(0.5));
+        flaky.sliderClient().create(APP_NAME, template, resources);
+        for (int i = 0; i < 10; i++) {
+            assertThat(flaky.sliderClient().status(APP_NAME).isPresent()).isTrue();
+        }
+
+        SimulatedCluster unreachable = createLabeledCluster(simulationSettings(5).withoutLatencies().withStatusFailureRate(1.0));
+        unreachable.sliderClient().create(APP_NAME, template, resources);
+        assertThatThrownBy(() -> unreachable.sliderClient().status(APP_NAME))
+                .isInstanceOf(CommandExecutionException.class)
+                .hasMessageContaining("56");
+    }
+
+    @Test
+    public void testConnectionFailures()
+    {
+        SimulatedCluster cluster = createCluster(simulationSettings(5).withoutLatencies().withConnectionFailureRate(1.0));
+
+        assertThatThrownBy(() -> cluster.sshClient("slave1").command("true"))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    public void testUploads()
+            throws IOException
+    {
+        SimulatedCluster cluster = createCluster(simulationSettings(1).withoutLatencies());
+        DigestUploader uploader = new DigestUploader(cluster.sshClient(MASTER), 4);
+        Path file = Files.write(directory.resolve("package.zip"), "0123456789".getBytes(UTF_8));
+        try {
+            assertThat(uploader.upload(file)).isEqualTo(md5sum(file));
+            long commands = cluster.getCommandCount();
+            uploader.upload(file);
+            // only the manifest and the size are checked
+            assertThat(cluster.getCommandCount() - commands).isEqualTo(2);
+            assertThat(cluster.sshClient(MASTER).command("md5sum package.zip")).startsWith(md5sum(file));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPackageMissingInHdfsIsInstalledAgain()
+            throws IOException
+    {
+        SimulatedCluster cluster = createCluster(simulationSettings(1).withoutLatencies());
+        CliSliderClient slider = cluster.sliderClient();
+        Path file = Files.write(directory.resolve("presto-yarn-package.zip"), "0123456789".getBytes(UTF_8));
+        try {
+            slider.installLocalPackage(file, "PRESTO");
+            long commands = cluster.getCommandCount();
+            slider.installLocalPackage(file, "PRESTO");
+            // the upload and the install record are checked, then the package in HDFS
+            assertThat(cluster.getCommandCount() - commands).isEqualTo(4);
+
+            // e.g. HDFS was reformatted
+            cluster.deletePackage("PRESTO");
+            slider.installLocalPackage(file, "PRESTO");
+            assertThat(cluster.hasPackage("PRESTO", "presto-yarn-package.zip")).isTrue();
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnknownCommand()
+    {
+        SimulatedCluster cluster = createCluster(simulationSettings(1).withoutLatencies());
+
+        assertThatThrownBy(() -> cluster.sshClient(MASTER).command("reboot"))
+                .isInstanceOf(CommandExecutionException.class)
+                .hasMessageContaining("127");
+    }
+
+    private SimulatedCluster createLabeledCluster(SimulationSettings settings)
+    {
+        SimulatedCluster cluster = createCluster(settings);
+        NodeSshUtils nodeSshUtils = cluster.nodeSshUtils(MultiHostExecutor.serial());
+        nodeSshUtils.createLabels(LABELS);
+        nodeSshUtils.labelNodes(LABELS);
+        return cluster;
+    }
+
+    private SimulatedCluster createCluster(SimulationSettings settings)
+    {
+        // containers start in the simulated time, commands do not have to wait
+        return new SimulatedCluster(settings.withCommandLatency(0).withSliderCommandLatency(0), clock::get);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.teradata.presto.yarn.test.utils.StubHttpServer;
+import com.teradata.presto.yarn.test.utils.StubHttpServer.Response;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestSliderClientTest
+{
+    private static final String APPS_PATH = "/ws/v1/cluster/apps?applicationTypes=org-apache-slider";
+    private static final String AM_PATH = "/proxy/application_1_0001/ws/v1/slider/application";
+
+    private StubHttpServer server;
+    private RecordingSliderClient cliClient;
+    private RestSliderClient client;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        server = new StubHttpServer();
+        cliClient = new RecordingSliderClient();
+        client = new RestSliderClient(cliClient, server.getUri());
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void testStatus()
+    {
+        server.respond("GET", APPS_PATH, applications("RUNNING"))
+                .respond("GET", AM_PATH + "/live/containers", "{" +
+                        "\"container_1\": {\"containerId\": \"container_1\", \"component\": \"COORDINATOR\", \"host\": \"master\"}," +
+                        "\"container_2\": {\"containerId\": \"container_2\", \"component\": \"WORKER\", \"host\": \"slave1\"}," +
+                        "\"container_3\": {\"containerId\": \"container_3\", \"component\": \"WORKER\", \"host\": \"slave2\"}," +
+                        "\"container_4\": {\"containerId\": \"container_4\", \"component\": \"WORKER\", \"host\": \"slave3\", \"released\": true}}")
+                .respond("GET", AM_PATH + "/live/components", "{" +
+                        "\"COORDINATOR\": {\"name\": \"COORDINATOR\", \"actual\": 1, \"desired\": 1}," +
+                        "\"WORKER\": {\"name\": \"WORKER\", \"actual\": 2, \"desired\": 3}}");
+
+        SliderStatus status = client.status("presto_cluster").get();
+
+        assertThat(status.getLiveComponentsHost("COORDINATOR")).containsExactly("master");
+        assertThat(status.getLiveComponentsHost("WORKER")).containsExactly("slave1", "slave2");
+        assertThat(status.getLiveContainers("WORKER")).isEqualTo(2);
+        assertThat(cliClient.calls).isEmpty();
+    }
+
+    @Test
+    public void testStatusOfNotRunningApplication()
+    {
+        server.respond("GET", APPS_PATH, applications("ACCEPTED"));
+
+        assertThat(client.status("presto_cluster").isPresent()).isFalse();
+        assertThat(client.status("unknown_cluster").isPresent()).isFalse();
+    }
+
+    @Test
+    public void testFlex()
+    {
+        AtomicReference<String> updatedResources = new AtomicReference<>();
+        server.respond("GET", APPS_PATH, applications("RUNNING"))
+                .respond("GET", AM_PATH + "/model/desired/resources",
+                        "{\"components\": {\"WORKER\": {\"yarn.component.instances\": \"3\", \"yarn.memory\": \"1500\"}}}")
+                .respond("PUT", AM_PATH + "/model/desired/resources", body -> {
+                    updatedResources.set(body);
+                    return new Response(200, body);
+                });
+
+        client.flex("presto_cluster", "WORKER", 5);
+
+        assertThat(updatedResources.get()).contains("\"yarn.component.instances\":\"5\"", "\"yarn.memory\":\"1500\"");
+        assertThat(cliClient.calls).isEmpty();
+    }
+
+    @Test
+    public void testFlexFallsBackToCli()
+    {
+        server.respond("GET", APPS_PATH, applications("RUNNING"));
+
+        client.flex("presto_cluster", "WORKER", 5);
+
+        assertThat(cliClient.calls).containsExactly("flex presto_cluster WORKER 5");
+    }
+
+    @Test
+    public void testForceStop()
+    {
+        AtomicReference<String> state = new AtomicReference<>("RUNNING");
+        server.respond("GET", APPS_PATH, body -> new Response(200, applications(state.get())))
+                .respond("PUT", "/ws/v1/cluster/apps/application_1_0001/state", body -> {
+                    assertThat(body).contains("KILLED");
+                    state.set("KILLED");
+                    return new Response(202, body);
+                });
+
+        client.stop("presto_cluster", true);
+
+        assertThat(state.get()).isEqualTo("KILLED");
+        assertThat(server.getRequests()).contains("PUT /ws/v1/cluster/apps/application_1_0001/state?user.name=yarn");
+        assertThat(cliClient.calls).isEmpty();
+    }
+
+    @Test
+    public void testForceStopFallsBackToCli()
+    {
+        server.respond("GET", APPS_PATH, applications("RUNNING"))
+                .respond("PUT", "/ws/v1/cluster/apps/application_1_0001/state", body -> new Response(403, "{}"));
+
+        client.stop("presto_cluster", true);
+
+        assertThat(cliClient.calls).containsExactly("stop presto_cluster");
+    }
+
+    private String applications(String state)
+    {
+        return "{\"apps\": {\"app\": [" +
+                "{\"id\": \"application_1_0000\", \"name\": \"presto_cluster\", \"state\": \"KILLED\", \"startedTime\": 1}," +
+                "{\"id\": \"application_1_0001\", \"name\": \"presto_cluster\", \"user\": \"yarn\", \"state\": \"" + state + "\", \"startedTime\": 2," +
+                "\"trackingUrl\": \"" + server.getUri() + "/proxy/application_1_0001/\"}]}}";
+    }
+
+    private static class RecordingSliderClient
+            implements SliderClient
+    {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void install(Path sliderBinary)
+        {
+            calls.add("install");
+        }
+
+        @Override
+        public void installLocalPackage(Path clusterPackage, String packageName)
+        {
+            calls.add("installLocalPackage " + packageName);
+        }
+
+        @Override
+        public void uninstallPackage(String packageName)
+        {
+            calls.add("uninstallPackage " + packageName);
+        }
+
+        @Override
+        public void create(String appName, Path template, Path resource)
+        {
+            calls.add("create " + appName);
+        }
+
+        @Override
+        public void cleanup(String appName)
+        {
+            calls.add("cleanup " + appName);
+        }
+
+        @Override
+        public Optional<SliderStatus> status(String appName)
+        {
+            calls.add("status " + appName);
+            return Optional.empty();
+        }
+
+        @Override
+        public void start(String appName)
+        {
+            calls.add("start " + appName);
+        }
+
+        @Override
+        public void stop(String appName, boolean force)
+        {
+            calls.add("stop " + appName);
+        }
+
+        @Override
+        public void flex(String appName, String componentName, int componentCount)
+        {
+            calls.add("flex " + appName + " " + componentName + " " + componentCount);
+        }
+    }
+}
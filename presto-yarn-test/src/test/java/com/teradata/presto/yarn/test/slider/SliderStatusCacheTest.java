@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SliderStatusCacheTest
+{
+    @Test
+    public void testStatusIsCached()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        SliderStatusCache cache = new SliderStatusCache(() -> {
+            loads.incrementAndGet();
+            return Optional.of(new SliderStatus("{}"));
+        }, MINUTES.toMillis(1));
+
+        Optional<SliderStatus> first = cache.get();
+        Optional<SliderStatus> second = cache.get();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(second.get()).isSameAs(first.get());
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        SliderStatusCache cache = new SliderStatusCache(() -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }, MINUTES.toMillis(1));
+
+        cache.get();
+        cache.invalidate();
+        cache.get();
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testExpiration()
+            throws InterruptedException
+    {
+        AtomicInteger loads = new AtomicInteger();
+        SliderStatusCache cache = new SliderStatusCache(() -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }, 0);
+
+        cache.get();
+        Thread.sleep(5);
+        cache.get();
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentCallersShareSingleFetch()
+            throws Exception
+    {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        SliderStatusCache cache = new SliderStatusCache(() -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            await(releaseLoad);
+            return Optional.empty();
+        }, MINUTES.toMillis(1));
+
+        ExecutorService executor = newFixedThreadPool(4);
+        try {
+            List<Future<Optional<SliderStatus>>> futures = new ArrayList<>();
+            futures.add(executor.submit(cache::get));
+            await(loadStarted);
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(cache::get));
+            }
+            Thread.sleep(100);
+            releaseLoad.countDown();
+
+            for (Future<Optional<SliderStatus>> future : futures) {
+                assertThat(future.get(10, SECONDS).isPresent()).isFalse();
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try {
+            latch.await(10, SECONDS);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
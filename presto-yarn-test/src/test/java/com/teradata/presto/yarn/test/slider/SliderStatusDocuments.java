@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.slider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static java.lang.String.format;
+
+/**
+ * Generates {@code slider status} documents shaped like the real ones, with full per container metadata.
+ */
+final class SliderStatusDocuments
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private SliderStatusDocuments() {}
+
+    /**
+     * Creates a document with one coordinator and {@code workers} workers, placed round robin on {@code hosts} hosts.
+     */
+    static String createStatusDocument(int workers, int hosts)
+    {
+        ObjectNode document = OBJECT_MAPPER.createObjectNode();
+        document.put("version", "1.0")
+                .put("name", "presto_cluster")
+                .put("type", "agent")
+                .put("state", 3);
+        document.putObject("options").put("internal.generated.conf.path", "hdfs://master/user/yarn/.slider/cluster/presto_cluster/generated");
+        document.putObject("info").put("info.am.web.url", "http://slave1:1025/");
+
+        ObjectNode statistics = document.putObject("statistics");
+        addStatistics(statistics, "COORDINATOR", 1);
+        addStatistics(statistics, "WORKER", workers);
+
+        ObjectNode instances = document.putObject("instances");
+        ArrayNode coordinatorInstances = instances.putArray("COORDINATOR");
+        ArrayNode workerInstances = instances.putArray("WORKER");
+
+        ObjectNode live = document.putObject("status").putObject("live");
+        ObjectNode coordinators = live.putObject("COORDINATOR");
+        ObjectNode workerContainers = live.putObject("WORKER");
+        addContainer(coordinators, coordinatorInstances, "COORDINATOR", 2, "master");
+        for (int i = 0; i < workers; i++) {
+            addContainer(workerContainers, workerInstances, "WORKER", i + 3, host(i, hosts));
+        }
+        document.putObject("liveness").put("allRequestsSatisfied", true).put("requestsOutstanding", 0);
+
+        try {
+            return OBJECT_MAPPER.writeValueAsString(document);
+        }
+        catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String host(int worker, int hosts)
+    {
+        return "slave" + (worker % hosts + 1);
+    }
+
+    private static void addStatistics(ObjectNode statistics, String component, int containers)
+    {
+        statistics.putObject(component)
+                .put("containers.failed.preempted", 0)
+                .put("containers.completed", 0)
+                .put("containers.failed", 0)
+                .put("containers.requested", containers)
+                .put("containers.desired", containers)
+                .put("containers.start.failed", 0)
+                .put("containers.live", containers)
+                .put("containers.failed.recently", 0);
+    }
+
+    private static void addContainer(ObjectNode components, ArrayNode instances, String role, int id, String host)
+    {
+        String containerId = format("container_1458560616982_0004_01_%06d", id);
+        instances.add(containerId);
+        ObjectNode container = components.putObject(containerId)
+                .put("name", containerId)
+                .put("role", role)
+                .put("roleId", role.equals("COORDINATOR") ? 1 : 2)
+                .put("createTime", 1458564073147L)
+                .put("startTime", 1458564078740L)
+                .put("released", false)
+                .put("host", host)
+                .put("hostUrl", "http://" + host + ":8042")
+                .put("state", 3)
+                .put("exitCode", 0)
+                .put("command", "python ./infra/agent/slider-agent/agent/main.py --label " + containerId + "___" + role +
+                        " --zk-quorum master:5181 --zk-reg-path /registry/users/yarn/services/org-apache-slider/presto_cluster > <LOG_DIR>/slider-agent.out 2>&1 ; ");
+        container.putArray("environment")
+                .add("LANGUAGE=\"en_US.UTF-8\"")
+                .add("HADOOP_USER_NAME=\"yarn\"")
+                .add("PYTHONPATH=\"./infra/agent/slider-agent/\"")
+                .add("AGENT_LOG_ROOT=\"<LOG_DIR>\"")
+                .add("LC_ALL=\"en_US.UTF-8\"")
+                .add("AGENT_WORK_ROOT=\"$PWD\"")
+                .add("LANG=\"en_US.UTF-8\"");
+    }
+}
@@ -13,11 +13,15 @@
  */
 package com.teradata.presto.yarn.test.slider;
 
+import com.teradata.presto.yarn.test.slider.SliderStatus.ContainerStatus;
 import org.apache.commons.io.IOUtils;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.List;
 
+import static com.teradata.presto.yarn.test.slider.SliderStatusDocuments.createStatusDocument;
+import static com.teradata.presto.yarn.test.slider.SliderStatusDocuments.host;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SliderStatusTest
@@ -41,5 +45,44 @@ public class SliderStatusTest
                 "kogut-vsphere-default-slave1",
                 "kogut-vsphere-default-slave3");
         assertThat(sliderStatus.getLiveContainers("WORKER")).isEqualTo(3);
+        assertThat(sliderStatus.getRequestedContainers("WORKER")).isEqualTo(3);
+        assertThat(sliderStatus.getFailedContainers("WORKER")).isEqualTo(0);
+        assertThat(sliderStatus.getContainerIds("WORKER")).containsExactly(
+                "container_1458560616982_0004_01_000004",
+                "container_1458560616982_0004_01_000003",
+                "container_1458560616982_0004_01_000005");
+        assertThat(sliderStatus.getComponent("WORKER").get().getLiveContainerIds()).containsExactly(
+                "container_1458560616982_0004_01_000003",
+                "container_1458560616982_0004_01_000004",
+                "container_1458560616982_0004_01_000005");
+
+        ContainerStatus coordinator = sliderStatus.getComponent("COORDINATOR").get().getLiveContainerStatuses().get(0);
+        assertThat(coordinator.getCreateTime()).isEqualTo(1458564073147L);
+        assertThat(coordinator.getStartTime()).isEqualTo(1458564078740L);
+    }
+
+    @Test
+    public void testLargeSliderStatus()
+    {
+        SliderStatus sliderStatus = new SliderStatus(createStatusDocument(1000, 10));
+
+        assertThat(sliderStatus.getLiveContainers("WORKER")).isEqualTo(1000);
+        assertThat(sliderStatus.getContainerIds("WORKER")).hasSize(1000);
+        List<String> hosts = sliderStatus.getLiveComponentsHost("WORKER");
+        assertThat(hosts).hasSize(1000);
+        for (int i = 0; i < hosts.size(); i++) {
+            assertThat(hosts.get(i)).isEqualTo(host(i, 10));
+        }
+        assertThat(sliderStatus.getLiveComponentsHost("COORDINATOR")).containsExactly("master");
+    }
+
+    @Test
+    public void testMissingSections()
+    {
+        SliderStatus sliderStatus = new SliderStatus("{\"statistics\": {\"WORKER\": {\"containers.live\": 2}}, \"status\": null, \"instances\": {\"WORKER\": null}}");
+
+        assertThat(sliderStatus.getLiveContainers("WORKER")).isEqualTo(2);
+        assertThat(sliderStatus.getLiveComponentsHost("WORKER")).isEmpty();
+        assertThat(sliderStatus.getContainerIds("WORKER")).isEmpty();
     }
 }
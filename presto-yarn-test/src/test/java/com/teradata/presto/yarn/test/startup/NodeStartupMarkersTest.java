@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.startup;
+
+import org.testng.annotations.Test;
+
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeStartupMarkersTest
+{
+    @Test
+    public void testParse()
+    {
+        String phases = "WORKER install_start 1000\n" +
+                "WORKER install_end 5000\n" +
+                "WORKER install_start 9000\n" +
+                "WORKER install_end 12000\n" +
+                "WORKER launch 13000\n";
+        String serverLog = "1970-01-01T00:00:20.000Z\tINFO\tmain\tcom.facebook.presto.server.PrestoServer\t======== SERVER STARTED ========\n";
+
+        // node clock is 500 ms ahead, markers from before 8000 come from a previous cluster
+        NodeStartupMarkers markers = NodeStartupMarkers.parse("slave1", 500, phases, serverLog, 8000);
+
+        assertThat(markers.getPhase("WORKER", "install_start")).isEqualTo(OptionalLong.of(8500));
+        assertThat(markers.getPhase("WORKER", "install_end")).isEqualTo(OptionalLong.of(11500));
+        assertThat(markers.getPhase("WORKER", "launch")).isEqualTo(OptionalLong.of(12500));
+        assertThat(markers.getPhase("COORDINATOR", "launch").isPresent()).isFalse();
+        assertThat(markers.getServerStarted()).isEqualTo(OptionalLong.of(19500));
+    }
+
+    @Test
+    public void testServerLogWithNumericOffset()
+    {
+        String serverLog = "1970-01-01T00:00:20.000+0000\tINFO\tmain\tcom.facebook.presto.server.PrestoServer\t======== SERVER STARTED ========\n";
+
+        NodeStartupMarkers markers = NodeStartupMarkers.parse("slave1", 0, "", serverLog, 0);
+
+        assertThat(markers.getServerStarted()).isEqualTo(OptionalLong.of(20000));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.tpch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.teradata.tempto.hadoop.hdfs.HdfsClient;
+import com.teradata.tempto.query.QueryExecutor;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TpchHiveTablesTest
+{
+    private static final String ROOT = "/product-test";
+
+    @Test
+    public void testTextTablesAreWrittenInParts()
+    {
+        FakeHdfs hdfs = new FakeHdfs();
+        List<String> queries = new ArrayList<>();
+        TpchHiveTables tables = new TpchHiveTables(hdfs.client(), hive(queries), ROOT, 3, TpchHiveTablesTest::generate);
+
+        String schema = tables.create(0.01, TpchFormat.TEXT);
+
+        assertThat(schema).isEqualTo("tpch_sf0_01_text");
+        assertThat(hdfs.files.keySet()).contains(
+                ROOT + "/tpch/tpch_sf0_01_text/lineitem/part-00001",
+                ROOT + "/tpch/tpch_sf0_01_text/lineitem/part-00002",
+                ROOT + "/tpch/tpch_sf0_01_text/lineitem/part-00003",
+                ROOT + "/tpch/tpch_sf0_01_text/nation/part-00001");
+        assertThat(hdfs.files).doesNotContainKey(ROOT + "/tpch/tpch_sf0_01_text/nation/part-00002");
+        assertThat(hdfs.files.get(ROOT + "/tpch/tpch_sf0_01_text/lineitem/part-00002")).isEqualTo("lineitem|2|3|0.01\n");
+        assertThat(queries).contains(
+                "CREATE DATABASE IF NOT EXISTS tpch_sf0_01_text",
+                "DROP TABLE IF EXISTS tpch_sf0_01_text.region",
+                "CREATE EXTERNAL TABLE IF NOT EXISTS tpch_sf0_01_text.region (regionkey BIGINT, name STRING, comment STRING) " +
+                        "ROW FORMAT DELIMITED FIELDS TERMINATED BY '|' STORED AS TEXTFILE LOCATION '" + ROOT + "/tpch/tpch_sf0_01_text/region'");
+    }
+
+    @Test
+    public void testTablesAreReused()
+    {
+        FakeHdfs hdfs = new FakeHdfs();
+        TpchHiveTables tables = new TpchHiveTables(hdfs.client(), hive(new ArrayList<>()), ROOT, 2, TpchHiveTablesTest::generate);
+        tables.create(1, TpchFormat.ORC);
+        int writes = hdfs.writes.get();
+
+        List<String> queries = new ArrayList<>();
+        tables = new TpchHiveTables(hdfs.client(), hive(queries), ROOT, 2, TpchHiveTablesTest::generate);
+        String schema = tables.create(1, TpchFormat.ORC);
+
+        assertThat(schema).isEqualTo("tpch_sf1_orc");
+        assertThat(hdfs.writes.get()).isEqualTo(writes);
+        assertThat(queries.stream().filter(query -> query.startsWith("INSERT") || query.startsWith("DROP")).collect(toList())).isEmpty();
+    }
+
+    @Test
+    public void testTablesAreRegeneratedWhenPartsChange()
+    {
+        FakeHdfs hdfs = new FakeHdfs();
+        new TpchHiveTables(hdfs.client(), hive(new ArrayList<>()), ROOT, 2, TpchHiveTablesTest::generate).create(1, TpchFormat.TEXT);
+        int writes = hdfs.writes.get();
+
+        new TpchHiveTables(hdfs.client(), hive(new ArrayList<>()), ROOT, 4, TpchHiveTablesTest::generate).create(1, TpchFormat.TEXT);
+
+        // nation and region are not split, so they are reused
+        assertThat(hdfs.writes.get() - writes).isEqualTo(6 * 4);
+        assertThat(hdfs.files).doesNotContainKey(ROOT + "/tpch/tpch_sf1_text/lineitem/part-00005");
+    }
+
+    @Test
+    public void testOrcTablesAreConvertedByHive()
+    {
+        List<String> queries = new ArrayList<>();
+        new TpchHiveTables(new FakeHdfs().client(), hive(queries), ROOT, 2, TpchHiveTablesTest::generate).create(1, TpchFormat.ORC);
+
+        assertThat(queries).contains(
+                "CREATE EXTERNAL TABLE IF NOT EXISTS tpch_sf1_orc.orders (orderkey BIGINT, custkey BIGINT, orderstatus STRING, totalprice DOUBLE, " +
+                        "orderdate DATE, orderpriority STRING, clerk STRING, shippriority INT, comment STRING) STORED AS ORC LOCATION '" +
+                        ROOT + "/tpch/tpch_sf1_orc/orders'",
+                "INSERT OVERWRITE TABLE tpch_sf1_orc.orders SELECT * FROM tpch_sf1_text.orders");
+    }
+
+    @Test
+    public void testLinesInputStream()
+            throws IOException
+    {
+        Iterator<String> lines = ImmutableList.of("a|b|", "", "c|").iterator();
+        try (InputStream input = new LinesInputStream(lines)) {
+            assertThat(new String(ByteStreams.toByteArray(input), UTF_8)).isEqualTo("a|b|\n\nc|\n");
+        }
+    }
+
+    private static Iterator<String> generate(TpchTableDefinition table, double scaleFactor, int part, int parts)
+    {
+        return Collections.singletonList(table.getName() + "|" + part + "|" + parts + "|" + scaleFactor).iterator();
+    }
+
+    private static QueryExecutor hive(List<String> queries)
+    {
+        return (QueryExecutor) Proxy.newProxyInstance(
+                QueryExecutor.class.getClassLoader(),
+                new Class<?>[] {QueryExecutor.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("executeQuery")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    synchronized (queries) {
+                        queries.add((String) args[0]);
+                    }
+                    return null;
+                });
+    }
+
+    private static class FakeHdfs
+    {
+        private final Map<String, String> files = new ConcurrentHashMap<>();
+        private final Map<String, String> directories = new HashMap<>();
+        private final Map<String, String> digests = new HashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+
+        private HdfsClient client()
+        {
+            return (HdfsClient) Proxy.newProxyInstance(
+                    HdfsClient.class.getClassLoader(),
+                    new Class<?>[] {HdfsClient.class},
+                    (proxy, method, args) -> invoke(method, args));
+        }
+
+        private synchronized Object invoke(Method method, Object[] args)
+        {
+            String path = (String) args[0];
+            switch (method.getName()) {
+                case "exist":
+                    return directories.containsKey(path) || files.containsKey(path);
+                case "createDirectory":
+                    directories.put(path, path);
+                    return null;
+                case "delete":
+                    directories.remove(path);
+                    digests.remove(path);
+                    files.keySet().removeIf(file -> file.startsWith(path + "/"));
+                    return null;
+                case "saveFile":
+                    files.put(path, read((InputStream) args[1]));
+                    writes.incrementAndGet();
+                    return null;
+                case "setXAttr":
+                    digests.put(path, (String) args[2]);
+                    return null;
+                case "getXAttr":
+                    return Optional.ofNullable(digests.get(path));
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private static String read(InputStream input)
+        {
+            try {
+                return new String(ByteStreams.toByteArray(input), UTF_8);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
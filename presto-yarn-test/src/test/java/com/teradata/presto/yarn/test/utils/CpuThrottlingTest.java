@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class CpuThrottlingTest
+{
+    @Test
+    public void testParseSumsAllContainers()
+    {
+        CpuThrottling throttling = CpuThrottling.parse("" +
+                "nr_periods 1000\n" +
+                "nr_throttled 250\n" +
+                "throttled_time 5000000000\n" +
+                "nr_periods 3000\n" +
+                "nr_throttled 250\n" +
+                "throttled_time 1000000000\n");
+
+        assertThat(throttling.getPeriods()).isEqualTo(4000);
+        assertThat(throttling.getThrottledPeriods()).isEqualTo(500);
+        assertThat(throttling.getThrottledNanos()).isEqualTo(6_000_000_000L);
+        assertThat(throttling.getThrottledRatio()).isCloseTo(0.125, offset(0.0001));
+    }
+
+    @Test
+    public void testParseIgnoresUnknownLines()
+    {
+        CpuThrottling throttling = CpuThrottling.parse("cat: /sys/fs/cgroup/cpu/yarn/container*/cpu.stat: No such file or directory\n\nnr_periods 10\n");
+
+        assertThat(throttling.getPeriods()).isEqualTo(10);
+        assertThat(throttling.getThrottledRatio()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testSince()
+    {
+        CpuThrottling before = new CpuThrottling(100, 10, 1000);
+        CpuThrottling after = new CpuThrottling(300, 60, 5000);
+
+        CpuThrottling delta = after.since(before);
+        assertThat(delta.getPeriods()).isEqualTo(200);
+        assertThat(delta.getThrottledPeriods()).isEqualTo(50);
+        assertThat(delta.getThrottledNanos()).isEqualTo(4000);
+
+        // counters of restarted containers start from zero again
+        assertThat(before.since(after).getPeriods()).isEqualTo(0);
+    }
+}
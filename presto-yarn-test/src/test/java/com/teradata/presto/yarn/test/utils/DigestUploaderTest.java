@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.io.ByteStreams;
+import com.teradata.tempto.ssh.SshClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.teradata.presto.yarn.test.utils.FileDigesters.md5sum;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DigestUploaderTest
+{
+    private Path localDirectory;
+    private LocalDirectorySshClient remote;
+    private SshClient sshClient;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        localDirectory = Files.createTempDirectory("local");
+        remote = new LocalDirectorySshClient(Files.createTempDirectory("remote"));
+        sshClient = (SshClient) Proxy.newProxyInstance(
+                SshClient.class.getClassLoader(),
+                new Class<?>[] {SshClient.class},
+                (proxy, method, args) -> remote.invoke(method, args));
+    }
+
+    @AfterMethod
+    public void tearDown()
+            throws IOException
+    {
+        remote.run("rm -rf " + localDirectory + " " + remote.home);
+    }
+
+    @Test
+    public void testUnchangedFileIsNotUploaded()
+            throws IOException
+    {
+        Path file = write("appConfig.json", 100);
+        DigestUploader uploader = new DigestUploader(sshClient);
+
+        uploader.upload(file);
+        uploader.upload(file);
+
+        assertThat(remote.uploads).containsExactly("appConfig.json");
+        assertThat(md5sum(remote.home.resolve("appConfig.json"))).isEqualTo(md5sum(file));
+    }
+
+    @Test
+    public void testChangedFileIsUploaded()
+            throws IOException
+    {
+        Path file = write("appConfig.json", 100);
+        DigestUploader uploader = new DigestUploader(sshClient);
+
+        uploader.upload(file);
+        write("appConfig.json", 200);
+        uploader.upload(file);
+
+        assertThat(remote.uploads).containsExactly("appConfig.json", "appConfig.json");
+        assertThat(md5sum(remote.home.resolve("appConfig.json"))).isEqualTo(md5sum(file));
+    }
+
+    @Test
+    public void testRemotelyModifiedFileIsUploaded()
+            throws IOException
+    {
+        Path file = write("appConfig.json", 100);
+        DigestUploader uploader = new DigestUploader(sshClient);
+
+        uploader.upload(file);
+        Files.write(remote.home.resolve("appConfig.json"), "truncated".getBytes(UTF_8));
+        uploader.upload(file);
+
+        assertThat(remote.uploads).hasSize(2);
+        assertThat(md5sum(remote.home.resolve("appConfig.json"))).isEqualTo(md5sum(file));
+    }
+
+    @Test
+    public void testChunkedUpload()
+            throws IOException
+    {
+        Path file = write("package.zip", 1000);
+        DigestUploader uploader = new DigestUploader(sshClient, 300);
+
+        uploader.upload(file);
+
+        assertThat(remote.uploads).containsExactly("part-00000", "part-00001", "part-00002", "part-00003");
+        assertThat(md5sum(remote.home.resolve("package.zip"))).isEqualTo(md5sum(file));
+        assertThat(Files.exists(remote.home.resolve("package.zip.parts"))).isFalse();
+    }
+
+    @Test
+    public void testInterruptedChunkedUploadIsResumed()
+            throws IOException
+    {
+        Path file = write("package.zip", 1000);
+        DigestUploader uploader = new DigestUploader(sshClient, 300);
+
+        remote.failUploadsAfter = 2;
+        assertThatThrownBy(() -> uploader.upload(file)).hasMessageContaining("connection lost");
+        remote.failUploadsAfter = Integer.MAX_VALUE;
+        remote.uploads.clear();
+        uploader.upload(file);
+
+        assertThat(remote.uploads).containsExactly("part-00002", "part-00003");
+        assertThat(md5sum(remote.home.resolve("package.zip"))).isEqualTo(md5sum(file));
+    }
+
+    @Test
+    public void testRecordedDigests()
+    {
+        DigestUploader uploader = new DigestUploader(sshClient);
+
+        assertThat(uploader.getRecorded("package-PRESTO")).isEmpty();
+        uploader.record("package-PRESTO", "0123456789abcdef");
+        assertThat(uploader.getRecorded("package-PRESTO")).isEqualTo(Optional.of("0123456789abcdef"));
+        uploader.forget("package-PRESTO");
+        assertThat(uploader.getRecorded("package-PRESTO")).isEmpty();
+    }
+
+    private Path write(String name, int size)
+            throws IOException
+    {
+        byte[] content = new byte[size];
+        new Random().nextBytes(content);
+        return Files.write(localDirectory.resolve(name), content);
+    }
+
+    /**
+     * Runs commands with bash in a local directory, which acts as the home directory of the remote user.
+     */
+    private static class LocalDirectorySshClient
+    {
+        private final Path home;
+        private final List<String> uploads = new ArrayList<>();
+        private int failUploadsAfter = Integer.MAX_VALUE;
+
+        private LocalDirectorySshClient(Path home)
+        {
+            this.home = home;
+        }
+
+        private Object invoke(Method method, Object[] args)
+                throws IOException
+        {
+            switch (method.getName()) {
+                case "command":
+                    return run((String) args[0]);
+                case "upload":
+                    upload((Path) args[0], (String) args[1]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private void upload(Path file, String remotePath)
+                throws IOException
+        {
+            if (uploads.size() >= failUploadsAfter) {
+                // partially transferred file
+                Files.write(home.resolve(remotePath).resolve(file.getFileName()), new byte[] {1});
+                throw new RuntimeException("connection lost");
+            }
+            uploads.add(file.getFileName().toString());
+            Files.copy(file, home.resolve(remotePath).resolve(file.getFileName()), REPLACE_EXISTING);
+        }
+
+        private String run(String command)
+        {
+            try {
+                Process process = new ProcessBuilder("bash", "-c", command)
+                        .directory(home.toFile())
+                        .redirectErrorStream(true)
+                        .start();
+                String output = new String(ByteStreams.toByteArray(process.getInputStream()), UTF_8);
+                if (process.waitFor() != 0) {
+                    throw new RuntimeException("command failed: " + command + "\n" + output);
+                }
+                return output;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
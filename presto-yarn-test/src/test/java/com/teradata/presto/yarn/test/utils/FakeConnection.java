@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * In memory JDBC connection which answers queries with rows returned by the given function. Only
+ * the methods used by the harness are supported.
+ */
+public class FakeConnection
+{
+    private final Function<String, List<List<Object>>> results;
+    private final List<String> queries = new ArrayList<>();
+    private volatile int fetchSize;
+    private volatile boolean closed;
+
+    public FakeConnection(Function<String, List<List<Object>>> results)
+    {
+        this.results = results;
+    }
+
+    public Connection getConnection()
+    {
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return statement();
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    public synchronized List<String> getQueries()
+    {
+        return ImmutableList.copyOf(queries);
+    }
+
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    private Statement statement()
+    {
+        return proxy(Statement.class, (method, args) -> {
+            switch (method.getName()) {
+                case "setFetchSize":
+                    fetchSize = (Integer) args[0];
+                    return null;
+                case "executeQuery":
+                    return resultSet((String) args[0]);
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private ResultSet resultSet(String sql)
+            throws SQLException
+    {
+        if (closed) {
+            throw new SQLException("connection is closed");
+        }
+        synchronized (this) {
+            queries.add(sql);
+        }
+        List<List<Object>> rows = results.apply(sql);
+        int columns = rows.isEmpty() ? 1 : rows.get(0).size();
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (method, args) -> {
+            if (method.getName().equals("getColumnCount")) {
+                return columns;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        int[] position = {-1};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    position[0]++;
+                    return position[0] < rows.size();
+                case "getObject":
+                    return rows.get(position[0]).get((Integer) args[0] - 1);
+                case "getMetaData":
+                    return metaData;
+                case "setFetchSize":
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler)
+    {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[] {type},
+                (proxy, method, args) -> handler.invoke(method, args));
+    }
+
+    private interface Handler
+    {
+        Object invoke(Method method, Object[] args)
+                throws Exception;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JdbcConnectionPoolTest
+{
+    @Test
+    public void testConnectionIsReused()
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, MINUTES.toMillis(1), MINUTES.toMillis(1));
+
+        Connection first = pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+        Connection second = pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+
+        assertThat(second).isSameAs(first);
+        assertThat(factory.connections).hasSize(1);
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://master:8080")).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailedConnectionIsDiscarded()
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, MINUTES.toMillis(1), MINUTES.toMillis(1));
+
+        assertThatThrownBy(() -> pool.withConnection("jdbc:presto://master:8080", connection -> {
+            throw new IllegalStateException("query failed");
+        })).hasMessage("query failed");
+
+        assertThat(factory.connections.get(0).isClosed()).isTrue();
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://master:8080")).isEqualTo(0);
+    }
+
+    @Test
+    public void testIdleConnectionIsValidated()
+            throws SQLException
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, MINUTES.toMillis(1), 0);
+
+        pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+        pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+        assertThat(factory.connections.get(0).getQueries()).containsExactly("SELECT 1");
+
+        // connection broken while idle is replaced
+        factory.connections.get(0).getConnection().close();
+        pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+        assertThat(factory.connections).hasSize(2);
+    }
+
+    @Test
+    public void testConnectionsAreInvalidatedWhenCoordinatorMoves()
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, MINUTES.toMillis(1), MINUTES.toMillis(1));
+        AtomicReference<String> url = new AtomicReference<>("jdbc:presto://slave1:8080");
+        PooledQueryExecutor executor = new PooledQueryExecutor(pool, url::get);
+
+        executor.streamQuery("SELECT 1", row -> {});
+        executor.streamQuery("SELECT 1", row -> {});
+        url.set("jdbc:presto://slave2:8080");
+        executor.streamQuery("SELECT 1", row -> {});
+
+        assertThat(factory.connections).hasSize(2);
+        assertThat(factory.connections.get(0).isClosed()).isTrue();
+        assertThat(factory.connections.get(1).isClosed()).isFalse();
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://slave1:8080")).isEqualTo(0);
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://slave2:8080")).isEqualTo(1);
+    }
+
+    @Test
+    public void testBorrowedConnectionIsReturnedOnClose()
+            throws SQLException
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, MINUTES.toMillis(1), MINUTES.toMillis(1));
+        PooledQueryExecutor executor = new PooledQueryExecutor(pool, () -> "jdbc:presto://master:8080");
+
+        Connection connection = executor.getConnection();
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://master:8080")).isEqualTo(0);
+        connection.createStatement().executeQuery("SELECT 1").close();
+        connection.close();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        assertThat(factory.connections.get(0).isClosed()).isFalse();
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://master:8080")).isEqualTo(1);
+        assertThatThrownBy(connection::createStatement).hasMessage("connection is closed");
+    }
+
+    @Test
+    public void testUrlIsResolvedAgainOnlyAfterConnectionFailure()
+    {
+        AtomicInteger connectionFailures = new AtomicInteger();
+        JdbcConnectionPool pool = new JdbcConnectionPool(url -> new FakeConnection(sql -> {
+            if (sql.equals("SELECT broken")) {
+                throw new IllegalArgumentException("line 1:8: Column 'broken' cannot be resolved");
+            }
+            if (sql.equals("SELECT lost")) {
+                throw new UncheckedIOException(new IOException("Connection refused"));
+            }
+            return ImmutableList.of(ImmutableList.of(1));
+        }).getConnection(), 2, MINUTES.toMillis(1), MINUTES.toMillis(1));
+        PooledQueryExecutor executor = new PooledQueryExecutor(pool, () -> "jdbc:presto://master:8080", connectionFailures::incrementAndGet);
+
+        executor.executeQuery("SELECT 1");
+        assertThatThrownBy(() -> executor.executeQuery("SELECT broken"));
+        assertThat(connectionFailures.get()).isEqualTo(0);
+
+        assertThatThrownBy(() -> executor.executeQuery("SELECT lost"));
+        assertThat(connectionFailures.get()).isEqualTo(1);
+
+        JdbcConnectionPool unreachable = new JdbcConnectionPool(url -> {
+            throw new RuntimeException("Connection refused");
+        });
+        PooledQueryExecutor unreachableExecutor = new PooledQueryExecutor(unreachable, () -> "jdbc:presto://master:8080", connectionFailures::incrementAndGet);
+        assertThatThrownBy(() -> unreachableExecutor.executeQuery("SELECT 1")).hasMessage("Connection refused");
+        assertThat(connectionFailures.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testIdleConnectionsAreEvicted()
+    {
+        ConnectionFactory factory = new ConnectionFactory();
+        JdbcConnectionPool pool = new JdbcConnectionPool(factory::create, 2, 0, MINUTES.toMillis(1));
+
+        pool.withConnection("jdbc:presto://master:8080", connection -> connection);
+        sleep(5);
+        pool.evictIdleConnections();
+
+        assertThat(pool.getIdleConnectionsCount("jdbc:presto://master:8080")).isEqualTo(0);
+        assertThat(factory.connections.get(0).isClosed()).isTrue();
+    }
+
+    private static void sleep(long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class ConnectionFactory
+    {
+        private final List<FakeConnection> connections = new ArrayList<>();
+
+        private synchronized Connection create(String url)
+        {
+            FakeConnection connection = new FakeConnection(sql -> ImmutableList.of(ImmutableList.of(1)));
+            connections.add(connection);
+            return connection.getConnection();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.utils.MultiHostExecutor.MultiHostExecutionException;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MultiHostExecutorTest
+{
+    private static final List<String> HOSTS = ImmutableList.of("slave1", "slave2", "slave3", "master");
+
+    @Test
+    public void testResultsAreOrdered()
+    {
+        List<String> results = MultiHostExecutor.parallel(4).execute(HOSTS, host -> {
+            sleep(host.equals("slave1") ? 200 : 0);
+            return host.toUpperCase();
+        });
+
+        assertThat(results).containsExactly("SLAVE1", "SLAVE2", "SLAVE3", "MASTER");
+    }
+
+    @Test
+    public void testHostsAreProcessedConcurrently()
+    {
+        CountDownLatch latch = new CountDownLatch(HOSTS.size());
+        List<Boolean> results = MultiHostExecutor.parallel(HOSTS.size()).execute(HOSTS, host -> {
+            latch.countDown();
+            try {
+                return latch.await(10, SECONDS);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertThat(results).containsOnly(true);
+    }
+
+    @Test
+    public void testFailuresAreAggregated()
+    {
+        for (MultiHostExecutor executor : ImmutableList.of(MultiHostExecutor.serial(), MultiHostExecutor.parallel(2))) {
+            try {
+                executor.execute(HOSTS, host -> {
+                    if (host.startsWith("slave")) {
+                        throw new IllegalStateException("failed on " + host);
+                    }
+                    return host;
+                });
+                fail("expected MultiHostExecutionException");
+            }
+            catch (MultiHostExecutionException e) {
+                assertThat(e.getFailures().keySet()).containsExactly("slave1", "slave2", "slave3");
+                assertThat(e.getSuppressed()).hasSize(2);
+            }
+        }
+    }
+
+    @Test
+    public void testHostTimeout()
+    {
+        try {
+            new MultiHostExecutor(2, 100).execute(HOSTS, host -> {
+                sleep(host.equals("slave2") ? SECONDS.toMillis(10) : 0);
+                return host;
+            });
+            fail("expected MultiHostExecutionException");
+        }
+        catch (MultiHostExecutionException e) {
+            assertThat(e.getFailures().keySet()).containsExactly("slave2");
+            assertThat(e.getFailures().get("slave2")).isInstanceOf(TimeoutException.class);
+        }
+    }
+
+    private static void sleep(long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
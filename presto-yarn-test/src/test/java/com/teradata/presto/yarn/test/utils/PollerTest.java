@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.teradata.presto.yarn.test.utils.Poller.PollingAbortedException;
+import com.teradata.presto.yarn.test.utils.Poller.PollingTimeoutException;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PollerTest
+{
+    @Test
+    public void testExponentialBackoffIsCapped()
+    {
+        List<Long> sleeps = new ArrayList<>();
+        AtomicInteger probes = new AtomicInteger();
+
+        Poller.waitFor("backoff", MINUTES.toMillis(1))
+                .withInitialInterval(100)
+                .withMaxInterval(500)
+                .withJitter(0)
+                .withSleeper(sleeps::add)
+                .until(() -> probes.incrementAndGet() == 6);
+
+        assertThat(probes.get()).isEqualTo(6);
+        assertThat(sleeps).containsExactly(100L, 200L, 400L, 500L, 500L);
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds()
+    {
+        List<Long> sleeps = new ArrayList<>();
+        AtomicInteger probes = new AtomicInteger();
+
+        Poller.waitFor("jitter", MINUTES.toMillis(1))
+                .withFixedInterval(1000)
+                .withJitter(0.1)
+                .withSleeper(sleeps::add)
+                .until(() -> probes.incrementAndGet() == 50);
+
+        sleeps.forEach(sleep -> assertThat(sleep).isBetween(900L, 1100L));
+    }
+
+    @Test
+    public void testTimeout()
+    {
+        assertThatThrownBy(() -> Poller.waitFor("never", 50).withFixedInterval(10).until(() -> false))
+                .isInstanceOf(PollingTimeoutException.class)
+                .hasMessageContaining("never");
+        assertThat(WaitStatistics.snapshot().get("never").getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAbortCondition()
+    {
+        AtomicInteger probes = new AtomicInteger();
+
+        assertThatThrownBy(() -> Poller.waitFor("aborted", MINUTES.toMillis(1))
+                .withSleeper(millis -> {})
+                .abortIf(() -> probes.get() == 3, "application failed")
+                .until(() -> probes.incrementAndGet() < 0))
+                .isInstanceOf(PollingAbortedException.class)
+                .hasMessageContaining("application failed");
+        assertThat(probes.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testStatisticsAreRecorded()
+    {
+        AtomicInteger probes = new AtomicInteger();
+
+        Poller.waitFor("statistics", MINUTES.toMillis(1))
+                .withSleeper(millis -> {})
+                .until(() -> probes.incrementAndGet() == 4);
+
+        WaitStatistics.Entry entry = WaitStatistics.snapshot().get("statistics");
+        assertThat(entry.getWaits()).isEqualTo(1);
+        assertThat(entry.getProbes()).isEqualTo(4L);
+        assertThat(entry.getFailures()).isEqualTo(0);
+    }
+}
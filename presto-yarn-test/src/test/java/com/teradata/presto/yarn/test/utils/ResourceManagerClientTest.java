@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.teradata.tempto.ssh.SshClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResourceManagerClientTest
+{
+    private static final String NODES_PATH = "/ws/v1/cluster/nodes";
+    private static final String NODE_LABELS_PATH = "/ws/v1/cluster/get-node-labels";
+    private static final String SCHEDULER_PATH = "/ws/v1/cluster/scheduler";
+
+    private StubHttpServer server;
+    private ResourceManagerClient client;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        server = new StubHttpServer();
+        client = new ResourceManagerClient(server.getUri(), new JsonHttpClient(), MINUTES.toMillis(1));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void testNodes()
+    {
+        server.respond("GET", NODES_PATH, nodes(
+                node("master", "RUNNING", "[\"coordinator\"]"),
+                node("slave1", "RUNNING", "\"worker\""),
+                node("slave2", "LOST", "[]")));
+
+        List<YarnNode> nodes = client.getNodes();
+
+        assertThat(nodes.stream().map(YarnNode::getId).collect(toList())).containsExactly("master:45454", "slave1:45454", "slave2:45454");
+        assertThat(client.getRunningNodes().stream().map(YarnNode::getHost).collect(toList())).containsExactly("master", "slave1");
+        YarnNode slave1 = client.getNode("slave1").get();
+        assertThat(slave1.getLabels()).containsExactly("worker");
+        assertThat(slave1.getContainers()).isEqualTo(2);
+        assertThat(slave1.getUsedMemoryMB()).isEqualTo(2048);
+        assertThat(slave1.getAvailableMemoryMB()).isEqualTo(6144);
+        assertThat(slave1.getUsedVirtualCores()).isEqualTo(2);
+        assertThat(slave1.getAvailableVirtualCores()).isEqualTo(6);
+        assertThat(client.getNode("slave2").get().getLabels()).isEmpty();
+        assertThat(client.getNode("slave3").isPresent()).isFalse();
+    }
+
+    @Test
+    public void testSingleNode()
+    {
+        server.respond("GET", NODES_PATH, "{\"nodes\": {\"node\": " + node("master", "RUNNING", "\"coordinator\"") + "}}");
+
+        assertThat(client.getNodes().stream().map(YarnNode::getHost).collect(toList())).containsExactly("master");
+    }
+
+    @Test
+    public void testNoNodes()
+    {
+        server.respond("GET", NODES_PATH, "{\"nodes\": null}");
+
+        assertThat(client.getNodes()).isEmpty();
+    }
+
+    @Test
+    public void testNodesAreCached()
+    {
+        server.respond("GET", NODES_PATH, nodes(node("master", "RUNNING", "[]")));
+
+        client.getNodes();
+        client.getRunningNodes();
+        client.getNode("master");
+        assertThat(server.getRequests()).hasSize(1);
+
+        client.invalidate();
+        client.getNodes();
+        assertThat(server.getRequests()).hasSize(2);
+    }
+
+    @Test
+    public void testClusterNodeLabels()
+    {
+        server.respond("GET", NODE_LABELS_PATH, "{\"nodeLabels\": [\"coordinator\", \"worker\"]}");
+        assertThat(client.getClusterNodeLabels()).containsOnly("coordinator", "worker");
+
+        server.respond("GET", NODE_LABELS_PATH, "{\"nodeLabelInfo\": [" +
+                "{\"name\": \"coordinator\", \"exclusivity\": true}," +
+                "{\"name\": \"worker\", \"exclusivity\": true}]}");
+        assertThat(client.getClusterNodeLabels()).containsOnly("coordinator", "worker");
+    }
+
+    @Test
+    public void testQueueNodeLabels()
+    {
+        server.respond("GET", SCHEDULER_PATH, scheduler("[\"coordinator\", \"worker\"]"));
+
+        assertThat(client.getQueueNodeLabels("default")).containsOnly("coordinator", "worker");
+        assertThat(client.getQueueNodeLabels("nested")).containsOnly("*");
+        assertThatThrownBy(() -> client.getQueueNodeLabels("unknown")).hasMessageContaining("Queue unknown not found");
+    }
+
+    @Test
+    public void testLabelNodes()
+    {
+        List<String> commands = new CopyOnWriteArrayList<>();
+        SshClient yarnSshClient = (SshClient) Proxy.newProxyInstance(
+                SshClient.class.getClassLoader(),
+                new Class<?>[] {SshClient.class},
+                (proxy, method, args) -> {
+                    commands.add((String) args[0]);
+                    return "";
+                });
+        NodeSshUtils nodeSshUtils = new NodeSshUtils(new SshClientPool(host -> yarnSshClient, 1, MINUTES.toMillis(1), MINUTES.toMillis(1)), MultiHostExecutor.serial(), yarnSshClient, Optional.of(client));
+        server.respond("GET", NODES_PATH, nodes(
+                node("master", "RUNNING", "[\"coordinator\"]"),
+                node("slave1", "RUNNING", "[\"worker\"]"),
+                node("slave2", "RUNNING", "[\"worker\"]")))
+                .respond("GET", NODE_LABELS_PATH, "{\"nodeLabels\": [\"coordinator\", \"worker\"]}")
+                .respond("GET", SCHEDULER_PATH, scheduler("[\"coordinator\", \"worker\"]"));
+
+        nodeSshUtils.labelNodes(ImmutableMap.of("master", "coordinator", "slave1", "worker", "slave2", "worker"));
+
+        assertThat(commands).containsExactly(
+                "source /etc/profile && yarn rmadmin -replaceLabelsOnNode 'master,coordinator slave1,worker slave2,worker'",
+                "source /etc/profile && yarn rmadmin -refreshQueues");
+        assertThat(server.getRequests()).containsExactly("GET " + NODES_PATH, "GET " + NODE_LABELS_PATH, "GET " + SCHEDULER_PATH, "GET " + NODES_PATH);
+    }
+
+    @Test
+    public void testLabelNodesFailsOnMissingLabel()
+    {
+        SshClient yarnSshClient = (SshClient) Proxy.newProxyInstance(
+                SshClient.class.getClassLoader(),
+                new Class<?>[] {SshClient.class},
+                (proxy, method, args) -> "");
+        NodeSshUtils nodeSshUtils = new NodeSshUtils(new SshClientPool(host -> yarnSshClient, 1, MINUTES.toMillis(1), MINUTES.toMillis(1)), MultiHostExecutor.serial(), yarnSshClient, Optional.of(client));
+        server.respond("GET", NODES_PATH, nodes(
+                node("master", "RUNNING", "[\"coordinator\"]"),
+                node("slave1", "RUNNING", "[]")))
+                .respond("GET", NODE_LABELS_PATH, "{\"nodeLabels\": [\"coordinator\"]}")
+                .respond("GET", SCHEDULER_PATH, scheduler("[\"*\"]"));
+
+        assertThatThrownBy(() -> nodeSshUtils.labelNodes(ImmutableMap.of("master", "coordinator", "slave1", "worker")))
+                .hasMessageContaining("Cluster node labels '[coordinator]', does not contain label 'worker'");
+
+        server.respond("GET", NODE_LABELS_PATH, "{\"nodeLabels\": [\"coordinator\", \"worker\"]}");
+        assertThatThrownBy(() -> nodeSshUtils.labelNodes(ImmutableMap.of("master", "coordinator", "slave1", "worker")))
+                .hasMessageContaining("on node 'slave1' does not contain label 'worker'");
+    }
+
+    private static String nodes(String... nodes)
+    {
+        return "{\"nodes\": {\"node\": [" + String.join(",", nodes) + "]}}";
+    }
+
+    private static String node(String host, String state, String labels)
+    {
+        return "{\"id\": \"" + host + ":45454\", \"nodeHostName\": \"" + host + "\", \"state\": \"" + state + "\", " +
+                "\"nodeLabels\": " + labels + ", \"numContainers\": 2, \"usedMemoryMB\": 2048, \"availMemoryMB\": 6144, " +
+                "\"usedVirtualCores\": 2, \"availableVirtualCores\": 6}";
+    }
+
+    private static String scheduler(String defaultQueueLabels)
+    {
+        return "{\"scheduler\": {\"schedulerInfo\": {\"type\": \"capacityScheduler\", \"queueName\": \"root\", \"queues\": {\"queue\": [" +
+                "{\"queueName\": \"default\", \"nodeLabels\": " + defaultQueueLabels + "}," +
+                "{\"queueName\": \"parent\", \"queues\": {\"queue\": {\"queueName\": \"nested\", \"nodeLabels\": \"*\"}}}]}}}}";
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.sql.JDBCType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.teradata.tempto.query.QueryExecutor.param;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SimpleJdbcQueryExecutorTest
+{
+    @Test
+    public void testStreamQuery()
+    {
+        List<List<Object>> rows = IntStream.range(0, 100)
+                .mapToObj(i -> ImmutableList.<Object>of((long) i, "value"))
+                .collect(toList());
+        FakeConnection connection = new FakeConnection(sql -> rows);
+        SimpleJdbcQueryExecutor executor = new SimpleJdbcQueryExecutor(connection.getConnection(), 50);
+
+        List<Long> consumed = new ArrayList<>();
+        QueryStatistics statistics = executor.streamQuery("SELECT * FROM t", row -> consumed.add((Long) row.getObject(1)));
+
+        assertThat(consumed).hasSize(100);
+        assertThat(consumed.get(99)).isEqualTo(99L);
+        assertThat(statistics.getRows()).isEqualTo(100);
+        assertThat(statistics.getBytes()).isEqualTo(100 * (8 + 5));
+        assertThat(statistics.getTimeToFirstRow()).isBetween(0L, statistics.getTimeToLastRow());
+        assertThat(connection.getFetchSize()).isEqualTo(50);
+    }
+
+    @Test
+    public void testStreamEmptyResult()
+    {
+        FakeConnection connection = new FakeConnection(sql -> ImmutableList.of());
+        SimpleJdbcQueryExecutor executor = new SimpleJdbcQueryExecutor(connection.getConnection());
+
+        QueryStatistics statistics = executor.streamQuery("SELECT * FROM t WHERE false", row -> {});
+
+        assertThat(statistics.getRows()).isEqualTo(0);
+        assertThat(statistics.getTimeToFirstRow()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testQueryParametersAreRejected()
+    {
+        FakeConnection connection = new FakeConnection(sql -> ImmutableList.of(ImmutableList.of(1L)));
+        SimpleJdbcQueryExecutor executor = new SimpleJdbcQueryExecutor(connection.getConnection());
+
+        assertThatThrownBy(() -> executor.executeQuery("SELECT count(*) FROM nation WHERE regionkey = ?", param(JDBCType.BIGINT, 1L)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Query parameters are not supported");
+        assertThat(connection.getQueries()).isEmpty();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.teradata.tempto.ssh.SshClient;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SshClientPoolTest
+{
+    @Test
+    public void testSessionIsReused()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 4, MINUTES.toMillis(5), MINUTES.toMillis(1));
+
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+        pool.withSshClient("slave1", sshClient -> sshClient.command("ls"));
+
+        assertThat(factory.created).hasSize(2);
+        assertThat(pool.getIdleSessionsCount("master")).isEqualTo(1);
+        assertThat(pool.getIdleSessionsCount("slave1")).isEqualTo(1);
+    }
+
+    @Test
+    public void testBrokenSessionIsDiscarded()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 4, MINUTES.toMillis(5), MINUTES.toMillis(1));
+
+        try {
+            pool.withSshClient("master", sshClient -> {
+                throw new RuntimeException(new IOException("connection reset"));
+            });
+        }
+        catch (RuntimeException e) {
+            // expected
+        }
+
+        assertThat(pool.getIdleSessionsCount("master")).isEqualTo(0);
+        assertThat(factory.created.get(0).closed).isTrue();
+    }
+
+    @Test
+    public void testSessionIsReusedAfterFunctionFailure()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 4, MINUTES.toMillis(5), MINUTES.toMillis(1));
+
+        try {
+            pool.withSshClient("master", sshClient -> Long.parseLong(sshClient.command("ls")));
+        }
+        catch (NumberFormatException e) {
+            // expected
+        }
+
+        assertThat(pool.getIdleSessionsCount("master")).isEqualTo(1);
+        assertThat(factory.created.get(0).closed).isFalse();
+    }
+
+    @Test
+    public void testUnhealthySessionIsReplaced()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 1, MINUTES.toMillis(5), 0);
+
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+        factory.created.get(0).broken = true;
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+
+        assertThat(factory.created).hasSize(2);
+        assertThat(factory.created.get(0).closed).isTrue();
+    }
+
+    @Test
+    public void testIdleSessionsAreEvicted()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 1, 0, 0);
+
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+        sleep(5);
+        pool.evictIdleSessions();
+
+        assertThat(pool.getIdleSessionsCount("master")).isEqualTo(0);
+        assertThat(factory.created.get(0).closed).isTrue();
+    }
+
+    @Test
+    public void testCloseClosesIdleSessions()
+    {
+        CountingSshClientFactory factory = new CountingSshClientFactory();
+        SshClientPool pool = new SshClientPool(factory::create, 4, MINUTES.toMillis(5), MINUTES.toMillis(1));
+
+        pool.withSshClient("master", sshClient -> sshClient.command("ls"));
+        pool.close();
+
+        assertThat(factory.created.get(0).closed).isTrue();
+    }
+
+    private static void sleep(long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class CountingSshClientFactory
+    {
+        private final List<FakeSshClient> created = new ArrayList<>();
+
+        public SshClient create(String host)
+        {
+            FakeSshClient fakeSshClient = new FakeSshClient();
+            created.add(fakeSshClient);
+            return (SshClient) Proxy.newProxyInstance(
+                    SshClient.class.getClassLoader(),
+                    new Class<?>[] {SshClient.class},
+                    (proxy, method, args) -> fakeSshClient.invoke(method));
+        }
+    }
+
+    private static class FakeSshClient
+    {
+        private boolean broken;
+        private boolean closed;
+
+        private Object invoke(Method method)
+        {
+            switch (method.getName()) {
+                case "command":
+                    if (broken) {
+                        throw new RuntimeException("session is down");
+                    }
+                    return "";
+                case "close":
+                    closed = true;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.utils;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Local HTTP server answering with canned JSON responses, used to test REST clients without a cluster.
+ */
+public class StubHttpServer
+        implements Closeable
+{
+    private final HttpServer server;
+    private final Map<String, Function<String, Response>> handlers = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    public StubHttpServer()
+            throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public URI getUri()
+    {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    /**
+     * Registers response for the request method and path. The path may contain query string,
+     * in which case it has to match exactly; otherwise the query string is ignored.
+     */
+    public StubHttpServer respond(String method, String path, String json)
+    {
+        return respond(method, path, body -> new Response(200, json));
+    }
+
+    public StubHttpServer respond(String method, String path, Function<String, Response> handler)
+    {
+        handlers.put(method + " " + path, handler);
+        return this;
+    }
+
+    /**
+     * Returns handled requests as "METHOD path[?query]" strings.
+     */
+    public List<String> getRequests()
+    {
+        return requests;
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        URI uri = exchange.getRequestURI();
+        String method = exchange.getRequestMethod();
+        String body = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        String pathAndQuery = uri.getRawQuery() == null ? uri.getPath() : uri.getPath() + "?" + uri.getRawQuery();
+        requests.add(method + " " + pathAndQuery);
+
+        Function<String, Response> handler = handlers.get(method + " " + pathAndQuery);
+        if (handler == null) {
+            handler = handlers.get(method + " " + uri.getPath());
+        }
+        Response response = handler == null ? new Response(404, "{}") : handler.apply(body);
+
+        byte[] responseBody = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.statusCode, responseBody.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(responseBody);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+    }
+
+    public static class Response
+    {
+        private final int statusCode;
+        private final String body;
+
+        public Response(int statusCode, String body)
+        {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import com.teradata.presto.yarn.test.workload.LatencyHistogram.Snapshot;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int latency = 100; latency >= 1; latency--) {
+            histogram.record(latency);
+        }
+
+        Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(100);
+        assertThat(snapshot.getPercentile(0.5)).isEqualTo(50);
+        assertThat(snapshot.getPercentile(0.95)).isEqualTo(95);
+        assertThat(snapshot.getPercentile(0.99)).isEqualTo(99);
+        assertThat(snapshot.getMax()).isEqualTo(100);
+        assertThat(snapshot.getMean()).isEqualTo(50.5);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertThat(snapshot.getPercentile(0.99)).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.teradata.presto.yarn.test.workload;
+
+import com.google.common.collect.ImmutableList;
+import com.teradata.presto.yarn.test.utils.FakeConnection;
+import com.teradata.presto.yarn.test.utils.JdbcConnectionPool;
+import com.teradata.presto.yarn.test.utils.PooledQueryExecutor;
+import com.teradata.presto.yarn.test.workload.QueryMix.Query;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static com.teradata.presto.yarn.test.workload.WorkloadDriver.workload;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkloadDriverTest
+{
+    @Test
+    public void testIterations()
+    {
+        QueryMix queryMix = new QueryMix(ImmutableList.of(
+                new Query("fast", "SELECT 1", 1),
+                new Query("failing", "SELECT fail", 1)));
+        Function<String, List<List<Object>>> results = sql -> {
+            if (sql.equals("SELECT fail")) {
+                throw new IllegalStateException("query failed");
+            }
+            return ImmutableList.of(ImmutableList.of(1L), ImmutableList.of(2L));
+        };
+
+        try (JdbcConnectionPool connectionPool = new JdbcConnectionPool(url -> new FakeConnection(results).getConnection(), 4, MINUTES.toMillis(1), MINUTES.toMillis(1))) {
+            PooledQueryExecutor queryExecutor = new PooledQueryExecutor(connectionPool, () -> "jdbc:presto://master:8080");
+            WorkloadReport report = workload(queryMix)
+                    .withClients(4)
+                    .withIterations(25)
+                    .run(queryExecutor);
+
+            assertThat(report.getCompletedQueries() + report.getFailedQueries()).isEqualTo(100);
+            assertThat(report.getQueries().get("fast").getErrors()).isEqualTo(0);
+            assertThat(report.getQueries().get("fast").getRows()).isEqualTo(2 * report.getQueries().get("fast").getCompleted());
+            assertThat(report.getQueries().get("failing").getCompleted()).isEqualTo(0);
+            assertThat(report.getQueries().get("failing").getErrorMessages()).hasSize(1);
+            assertThat(report.getErrorRate()).isEqualTo((double) report.getFailedQueries() / 100);
+            assertThat(report.toJson()).contains("\"p99\"", "\"qps\"", "\"errorRate\"");
+        }
+    }
+
+    @Test
+    public void testLatencyExcludesCoordinatorLookup()
+    {
+        QueryMix queryMix = new QueryMix(ImmutableList.of(new Query("fast", "SELECT 1", 1)));
+
+        try (JdbcConnectionPool connectionPool = new JdbcConnectionPool(url -> new FakeConnection(sql -> ImmutableList.of(ImmutableList.of(1L))).getConnection(), 2, MINUTES.toMillis(1), MINUTES.toMillis(1))) {
+            PooledQueryExecutor queryExecutor = new PooledQueryExecutor(connectionPool, () -> {
+                sleepUninterruptibly(200, MILLISECONDS);
+                return "jdbc:presto://master:8080";
+            });
+            WorkloadReport report = workload(queryMix)
+                    .withClients(2)
+                    .withIterations(3)
+                    .run(queryExecutor);
+
+            assertThat(report.getQueries().get("fast").getCompleted()).isEqualTo(6);
+            assertThat(report.getQueries().get("fast").getLatencies().getMax()).isLessThan(200L);
+        }
+    }
+
+    @Test
+    public void testQueryMix()
+    {
+        QueryMix queryMix = QueryMix.tpch("tpch.sf1", "q1=2, nation");
+
+        assertThat(queryMix.getQueries()).hasSize(2);
+        assertThat(queryMix.getQueries().get(0).getWeight()).isEqualTo(2);
+        assertThat(queryMix.getQueries().get(1).getSql()).isEqualTo("SELECT count(*) FROM tpch.sf1.nation");
+    }
+}